@@ -30,8 +30,11 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.tinytim.Version;
+import org.tinytim.core.MemoryFootprint;
+import org.tinytim.internal.api.ITopicMap;
 import org.tmapi.core.Locator;
 import org.tmapi.core.TMAPIException;
+import org.tmapi.core.TopicMap;
 import org.tmapi.core.TopicMapExistsException;
 import org.tmapi.core.TopicMapSystem;
 import org.tmapi.core.TopicMapSystemFactory;
@@ -92,6 +95,8 @@ public class Console {
         _registerCommand(new ShowCommand());
         _registerCommand(new ReadCommand());
         _registerCommand(new WriteCommand());
+        _registerCommand(new FootprintCommand());
+        _registerCommand(new CompactCommand());
     }
 
     private void _registerCommand(ICommand cmd) {
@@ -263,6 +268,73 @@ public class Console {
         }
     }
 
+    /**
+     * Reports the memory footprint of a topic map.
+     */
+    private class FootprintCommand extends AbstractCommand {
+
+        public FootprintCommand() {
+            super("footprint <source:url>", 
+                    "Reports the memory footprint of a topic map");
+        }
+
+        /* (non-Javadoc)
+         * @see org.tinytim.console.ICommand#execute(java.lang.String[])
+         */
+        public void execute(String[] args) {
+            if (args.length > 2) {
+                _printError("Too many arguments");
+                return;
+            }
+            else if (args.length < 2) {
+                _printError("No IRI specified");
+                return;
+            }
+            String iri = args[1];
+            TopicMap tm = _tmSys.getTopicMap(iri);
+            if (tm == null) {
+                _printError("A topic map with the IRI <" + iri + "> does not exist");
+                return;
+            }
+            _print(MemoryFootprint.create(tm).toString());
+        }
+    }
+
+    /**
+     * Shrinks the collections of a topic map and reports the saved memory.
+     */
+    private class CompactCommand extends AbstractCommand {
+
+        public CompactCommand() {
+            super("compact <source:url>", 
+                    "Shrinks the collections of a topic map");
+        }
+
+        /* (non-Javadoc)
+         * @see org.tinytim.console.ICommand#execute(java.lang.String[])
+         */
+        public void execute(String[] args) {
+            if (args.length > 2) {
+                _printError("Too many arguments");
+                return;
+            }
+            else if (args.length < 2) {
+                _printError("No IRI specified");
+                return;
+            }
+            String iri = args[1];
+            TopicMap tm = _tmSys.getTopicMap(iri);
+            if (tm == null) {
+                _printError("A topic map with the IRI <" + iri + "> does not exist");
+                return;
+            }
+            long before = MemoryFootprint.create(tm).getEstimatedBytes();
+            ((ITopicMap) tm).compact();
+            long after = MemoryFootprint.create(tm).getEstimatedBytes();
+            _println("Estimated bytes: " + before + " -> " + after + " (saved: " + (before - after) + ")");
+        }
+    }
+
     /**
      * Deserializes a topic map and adds the content to a local topic map.
      */
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.benchmark;
+
+/**
+ * A benchmark which is executed by the {@link BenchmarkRunner}.
+ * <p>
+ * The runner calls {@link #setUp()} once, then {@link #prepare()} and 
+ * {@link #run()} for each warm-up and measurement iteration and finally
+ * {@link #tearDown()}. Only {@link #run()} is measured.
+ * </p>
+ *
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public abstract class Benchmark {
+
+    private final String _name;
+
+    /**
+     * Creates a benchmark.
+     *
+     * @param name The name of the benchmark, i.e. <tt>load.opera</tt>.
+     */
+    protected Benchmark(String name) {
+        _name = name;
+    }
+
+    /**
+     * Returns the name of the benchmark.
+     *
+     * @return The name.
+     */
+    public final String getName() {
+        return _name;
+    }
+
+    /**
+     * Called once before the first iteration.
+     *
+     * @throws Exception In case of an error.
+     */
+    public void setUp() throws Exception {
+        // noop.
+    }
+
+    /**
+     * Called before each iteration; the time spent in this method is not
+     * measured.
+     *
+     * @throws Exception In case of an error.
+     */
+    public void prepare() throws Exception {
+        // noop.
+    }
+
+    /**
+     * Executes one iteration.
+     *
+     * @return The number of operations which were executed by this 
+     *          iteration.
+     * @throws Exception In case of an error.
+     */
+    public abstract long run() throws Exception;
+
+    /**
+     * Called once after the last iteration.
+     *
+     * @throws Exception In case of an error.
+     */
+    public void tearDown() throws Exception {
+        // noop.
+    }
+
+}
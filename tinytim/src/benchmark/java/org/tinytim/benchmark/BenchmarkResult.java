@@ -0,0 +1,73 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.benchmark;
+
+/**
+ * The measurements of a {@link Benchmark}.
+ *
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+final class BenchmarkResult {
+
+    final String name;
+    /**
+     * Time per operation in nanoseconds for each measurement iteration.
+     */
+    final double[] scores;
+    final long operations;
+
+    BenchmarkResult(String name, double[] scores, long operations) {
+        this.name = name;
+        this.scores = scores;
+        this.operations = operations;
+    }
+
+    /**
+     * Returns the arithmetic mean of the scores.
+     */
+    double mean() {
+        double sum = 0;
+        for (double score: scores) {
+            sum += score;
+        }
+        return sum / scores.length;
+    }
+
+    /**
+     * Returns the sample standard deviation of the scores.
+     */
+    double stdDev() {
+        if (scores.length < 2) {
+            return 0;
+        }
+        final double mean = mean();
+        double sum = 0;
+        for (double score: scores) {
+            sum += (score - mean) * (score - mean);
+        }
+        return Math.sqrt(sum / (scores.length - 1));
+    }
+
+    double min() {
+        double min = Double.MAX_VALUE;
+        for (double score: scores) {
+            min = Math.min(min, score);
+        }
+        return min;
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.tinytim.Version;
+
+/**
+ * Executes the tinyTiM benchmarks and writes the results as JSON.
+ * <p>
+ * Usage: <tt>BenchmarkRunner [-w warmup] [-i iterations] [-f filter] 
+ * [-o results.json] corpus-directory</tt>
+ * </p>
+ * <p>
+ * The corpus directory must contain the topic maps <tt>dc.ctm</tt>, 
+ * <tt>jill.ctm</tt>, <tt>opera.ctm</tt>, <tt>pokemon.ctm</tt>, and 
+ * <tt>mondial.ctm</tt>. Only the benchmarks whose names contain the filter
+ * are executed. The benchmarks are executed in a fixed order with a fixed 
+ * number of iterations; results of different runs are comparable if they
+ * were produced by the same JVM on the same machine.
+ * </p>
+ * <p>
+ * Additionally, the benchmarks are executed against topic maps which are 
+ * created by the {@link org.tinytim.utils.TopicMapGenerator}; the system 
+ * property <tt>org.tinytim.benchmark.generated</tt> sets the number of 
+ * topics of these topic maps (default: <tt>10000,100000</tt>).
+ * </p>
+ *
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class BenchmarkRunner {
+
+    private final int _warmupIterations;
+    private final int _measurementIterations;
+
+    private BenchmarkRunner(int warmupIterations, int measurementIterations) {
+        _warmupIterations = warmupIterations;
+        _measurementIterations = measurementIterations;
+    }
+
+    /**
+     * Executes the benchmark.
+     *
+     * @param benchmark The benchmark to execute.
+     * @return The result.
+     * @throws Exception In case of an error.
+     */
+    private BenchmarkResult _run(final Benchmark benchmark) throws Exception {
+        final double[] scores = new double[_measurementIterations];
+        long operations = 0;
+        benchmark.setUp();
+        try {
+            for (int i=0; i < _warmupIterations; i++) {
+                _iteration(benchmark);
+            }
+            for (int i=0; i < _measurementIterations; i++) {
+                final long[] measurement = _iteration(benchmark);
+                operations = measurement[1];
+                scores[i] = (double) measurement[0] / measurement[1];
+            }
+        }
+        finally {
+            benchmark.tearDown();
+        }
+        return new BenchmarkResult(benchmark.getName(), scores, operations);
+    }
+
+    /**
+     * Executes one iteration and returns the elapsed time and the number 
+     * of operations.
+     */
+    private static long[] _iteration(final Benchmark benchmark) throws Exception {
+        benchmark.prepare();
+        System.gc();
+        final long start = System.nanoTime();
+        final long operations = benchmark.run();
+        final long elapsed = System.nanoTime() - start;
+        return new long[] {elapsed, Math.max(1, operations)};
+    }
+
+    private void _writeJSON(final List<BenchmarkResult> results, final File file) throws IOException {
+        final Writer out = new OutputStreamWriter(new FileOutputStream(file), "utf-8");
+        try {
+            out.write("{\n");
+            _writeMember(out, "tinytim", Version.RELEASE);
+            _writeMember(out, "jvm", System.getProperty("java.vm.name"));
+            _writeMember(out, "jvmVersion", System.getProperty("java.version"));
+            _writeMember(out, "os", System.getProperty("os.name") + " " + System.getProperty("os.version"));
+            out.write("  \"processors\": " + Runtime.getRuntime().availableProcessors() + ",\n");
+            out.write("  \"maxMemory\": " + Runtime.getRuntime().maxMemory() + ",\n");
+            out.write("  \"timestamp\": " + System.currentTimeMillis() + ",\n");
+            out.write("  \"warmupIterations\": " + _warmupIterations + ",\n");
+            out.write("  \"measurementIterations\": " + _measurementIterations + ",\n");
+            out.write("  \"benchmarks\": [");
+            for (int i=0; i < results.size(); i++) {
+                final BenchmarkResult result = results.get(i);
+                out.write(i > 0 ? ",\n    {" : "\n    {");
+                out.write("\"benchmark\": " + _quote(result.name));
+                out.write(", \"mode\": \"avgt\", \"scoreUnit\": \"ns/op\"");
+                out.write(", \"operations\": " + result.operations);
+                out.write(", \"score\": " + _format(result.mean()));
+                out.write(", \"scoreStdDev\": " + _format(result.stdDev()));
+                out.write(", \"scoreMin\": " + _format(result.min()));
+                out.write(", \"rawData\": [");
+                for (int j=0; j < result.scores.length; j++) {
+                    if (j > 0) {
+                        out.write(", ");
+                    }
+                    out.write(_format(result.scores[j]));
+                }
+                out.write("]}");
+            }
+            out.write("\n  ]\n}\n");
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private static void _writeMember(final Writer out, final String key, final String value) throws IOException {
+        out.write("  " + _quote(key) + ": " + _quote(value) + ",\n");
+    }
+
+    private static String _format(final double value) {
+        return Double.toString(Math.round(value * 1000) / 1000.0);
+    }
+
+    private static String _quote(final String value) {
+        final StringBuilder sb = new StringBuilder(value.length() + 2);
+        sb.append('"');
+        for (int i=0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            }
+            else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            }
+            else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static void _usage() {
+        System.err.println("Usage: BenchmarkRunner [-w warmup] [-i iterations] [-f filter] [-o results.json] corpus-directory");
+        System.exit(1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int warmup = 3;
+        int iterations = 5;
+        String filter = null;
+        File output = null;
+        File corpus = null;
+        for (int i=0; i < args.length; i++) {
+            final String arg = args[i];
+            if (arg.startsWith("-") && i + 1 == args.length) {
+                _usage();
+            }
+            if ("-w".equals(arg)) {
+                warmup = Integer.parseInt(args[++i]);
+            }
+            else if ("-i".equals(arg)) {
+                iterations = Integer.parseInt(args[++i]);
+            }
+            else if ("-f".equals(arg)) {
+                filter = args[++i];
+            }
+            else if ("-o".equals(arg)) {
+                output = new File(args[++i]);
+            }
+            else {
+                corpus = new File(arg);
+            }
+        }
+        if (corpus == null || !corpus.isDirectory() || iterations < 1 || warmup < 0) {
+            _usage();
+        }
+        final BenchmarkRunner runner = new BenchmarkRunner(warmup, iterations);
+        final List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+        for (Benchmark benchmark: TopicMapBenchmarks.createBenchmarks(corpus)) {
+            if (filter != null && benchmark.getName().indexOf(filter) == -1) {
+                continue;
+            }
+            final BenchmarkResult result = runner._run(benchmark);
+            results.add(result);
+            System.out.println(String.format("%-36s %14.1f ns/op  +- %10.1f  (%d ops)", 
+                    result.name, result.mean(), result.stdDev(), result.operations));
+        }
+        if (output != null) {
+            runner._writeJSON(results, output);
+            System.out.println("Results written to " + output);
+        }
+    }
+
+}
@@ -0,0 +1,558 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.tinytim.core.MemoryFootprint;
+import org.tinytim.core.TopicMapSystemFactoryImpl;
+import org.tinytim.internal.api.ITopicMap;
+import org.tinytim.internal.utils.MergeUtils;
+import org.tinytim.mio.CXTMTopicMapWriter;
+import org.tinytim.mio.TinyTimMapInputHandler;
+import org.tinytim.utils.DuplicateRemovalUtils;
+import org.tinytim.utils.TopicMapGenerator;
+
+import org.tmapi.core.Locator;
+import org.tmapi.core.Name;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+import org.tmapi.core.TopicMapSystem;
+import org.tmapi.index.TypeInstanceIndex;
+
+import com.semagia.mio.DeserializerRegistry;
+import com.semagia.mio.IDeserializer;
+import com.semagia.mio.Source;
+import com.semagia.mio.Syntax;
+
+/**
+ * Provides the tinyTiM benchmarks.
+ *
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+final class TopicMapBenchmarks {
+
+    /**
+     * The topic maps of the corpus, ordered by size.
+     */
+    private static final String[] _CORPUS = new String[] {
+        "dc", "jill", "pokemon", "opera", "mondial"
+    };
+
+    /**
+     * The number of topics of the generated topic maps, can be overridden 
+     * by the system property <tt>org.tinytim.benchmark.generated</tt> 
+     * (a comma separated list of sizes).
+     */
+    private static final String _GENERATED_SIZES = "10000,100000";
+
+    /**
+     * Number of constructs created by the micro benchmarks per iteration.
+     */
+    private static final int _CONSTRUCTS = 100000;
+
+    private TopicMapBenchmarks() {
+        // noop.
+    }
+
+    /**
+     * Returns the benchmarks.
+     *
+     * @param corpus The directory which contains the topic maps.
+     * @return A list of benchmarks.
+     */
+    static List<Benchmark> createBenchmarks(File corpus) {
+        final List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(new CreateTopicBenchmark());
+        benchmarks.add(new CreateOccurrenceBenchmark());
+        for (String name: _CORPUS) {
+            benchmarks.add(new LoadBenchmark(new File(corpus, name + ".ctm")));
+        }
+        for (String name: _CORPUS) {
+            final File file = new File(corpus, name + ".ctm");
+            benchmarks.add(new MergeBenchmark(file));
+            benchmarks.add(new DuplicateRemovalBenchmark(file));
+            benchmarks.add(new TypeInstanceIndexBenchmark(file));
+            benchmarks.add(new CXTMExportBenchmark(file));
+            benchmarks.add(new CompactBenchmark(file));
+        }
+        for (String size: System.getProperty("org.tinytim.benchmark.generated", _GENERATED_SIZES).split(",")) {
+            final int topics = Integer.parseInt(size.trim());
+            benchmarks.add(new GenerateBenchmark(topics));
+            benchmarks.add(new GeneratedTypeInstanceIndexBenchmark(topics));
+            benchmarks.add(new GeneratedCompactBenchmark(topics));
+        }
+        return benchmarks;
+    }
+
+    private static String _name(final File file) {
+        final String name = file.getName();
+        final int idx = name.lastIndexOf('.');
+        return idx > -1 ? name.substring(0, idx) : name;
+    }
+
+    /**
+     * Reads a CTM file into a new topic map.
+     *
+     * @param sys The topic map system which creates the topic map.
+     * @param file The CTM file.
+     * @param iri The storage address of the topic map.
+     * @return The topic map.
+     * @throws Exception In case of an error.
+     */
+    static TopicMap load(final TopicMapSystem sys, final File file, final String iri) throws Exception {
+        final TopicMap topicMap = sys.createTopicMap(iri);
+        final IDeserializer deser = DeserializerRegistry.getInstance().createDeserializer(Syntax.CTM);
+        deser.setMapHandler(new TinyTimMapInputHandler(topicMap));
+        final InputStream in = new FileInputStream(file);
+        try {
+            deser.parse(new Source(in, file.toURI().toString()));
+        }
+        finally {
+            in.close();
+        }
+        return topicMap;
+    }
+
+    /**
+     * Base class for benchmarks which need a topic map system.
+     */
+    private abstract static class AbstractTopicMapBenchmark extends Benchmark {
+
+        TopicMapSystem sys;
+        TopicMap topicMap;
+
+        AbstractTopicMapBenchmark(String name) {
+            super(name);
+        }
+
+        @Override
+        public void setUp() throws Exception {
+            sys = new TopicMapSystemFactoryImpl().newTopicMapSystem();
+        }
+
+        /**
+         * Removes all topic maps from the topic map system.
+         */
+        void clear() {
+            for (Locator loc: sys.getLocators()) {
+                sys.getTopicMap(loc).remove();
+            }
+            topicMap = null;
+        }
+
+        @Override
+        public void tearDown() throws Exception {
+            clear();
+            sys.close();
+        }
+    }
+
+    /**
+     * Creates topics without any identity.
+     */
+    private static final class CreateTopicBenchmark extends AbstractTopicMapBenchmark {
+
+        CreateTopicBenchmark() {
+            super("create.topic");
+        }
+
+        @Override
+        public void prepare() throws Exception {
+            clear();
+            topicMap = sys.createTopicMap("http://www.tinytim.org/benchmark/create-topic");
+        }
+
+        @Override
+        public long run() throws Exception {
+            final TopicMap tm = topicMap;
+            for (int i=0; i < _CONSTRUCTS; i++) {
+                tm.createTopic();
+            }
+            return _CONSTRUCTS;
+        }
+    }
+
+    /**
+     * Creates occurrences with distinct values.
+     */
+    private static final class CreateOccurrenceBenchmark extends AbstractTopicMapBenchmark {
+
+        private final String[] _values = new String[_CONSTRUCTS];
+        private Topic _topic;
+        private Topic _type;
+
+        CreateOccurrenceBenchmark() {
+            super("create.occurrence");
+        }
+
+        @Override
+        public void setUp() throws Exception {
+            super.setUp();
+            for (int i=0; i < _values.length; i++) {
+                _values[i] = "Value " + i;
+            }
+        }
+
+        @Override
+        public void prepare() throws Exception {
+            clear();
+            topicMap = sys.createTopicMap("http://www.tinytim.org/benchmark/create-occurrence");
+            _topic = topicMap.createTopic();
+            _type = topicMap.createTopic();
+        }
+
+        @Override
+        public long run() throws Exception {
+            final Topic topic = _topic;
+            final Topic type = _type;
+            for (String value: _values) {
+                topic.createOccurrence(type, value);
+            }
+            return _CONSTRUCTS;
+        }
+    }
+
+    /**
+     * Reads a topic map.
+     */
+    private static final class LoadBenchmark extends AbstractTopicMapBenchmark {
+
+        private final File _file;
+
+        LoadBenchmark(File file) {
+            super("load." + _name(file));
+            _file = file;
+        }
+
+        @Override
+        public void prepare() throws Exception {
+            clear();
+        }
+
+        @Override
+        public long run() throws Exception {
+            topicMap = load(sys, _file, _file.toURI().toString());
+            return 1;
+        }
+    }
+
+    /**
+     * Merges a topic map into a copy of itself.
+     */
+    private static final class MergeBenchmark extends AbstractTopicMapBenchmark {
+
+        private final File _file;
+        private TopicMap _source;
+
+        MergeBenchmark(File file) {
+            super("merge." + _name(file));
+            _file = file;
+        }
+
+        @Override
+        public void prepare() throws Exception {
+            clear();
+            topicMap = load(sys, _file, "http://www.tinytim.org/benchmark/target");
+            _source = load(sys, _file, "http://www.tinytim.org/benchmark/source");
+        }
+
+        @Override
+        public long run() throws Exception {
+            MergeUtils.merge(_source, topicMap);
+            return _source.getTopics().size();
+        }
+    }
+
+    /**
+     * Removes duplicate names and occurrences; each topic has one 
+     * duplicate of each of its names and occurrences.
+     */
+    private static final class DuplicateRemovalBenchmark extends AbstractTopicMapBenchmark {
+
+        private final File _file;
+
+        DuplicateRemovalBenchmark(File file) {
+            super("duplicates." + _name(file));
+            _file = file;
+        }
+
+        @Override
+        public void prepare() throws Exception {
+            clear();
+            topicMap = load(sys, _file, _file.toURI().toString());
+            for (Topic topic: topicMap.getTopics()) {
+                for (Name name: new ArrayList<Name>(topic.getNames())) {
+                    topic.createName(name.getType(), name.getValue(), name.getScope());
+                }
+                for (Occurrence occ: new ArrayList<Occurrence>(topic.getOccurrences())) {
+                    topic.createOccurrence(occ.getType(), occ.getValue(), occ.getDatatype(), occ.getScope());
+                }
+            }
+        }
+
+        @Override
+        public long run() throws Exception {
+            DuplicateRemovalUtils.removeDuplicates(topicMap);
+            return topicMap.getTopics().size();
+        }
+    }
+
+    /**
+     * Returns a generator for a topic map with the provided number of topics.
+     * <p>
+     * Each topic has two names, three occurrences, and plays a role in two 
+     * associations; half of the values are taken from a pool.
+     * </p>
+     *
+     * @param topics The number of topics.
+     * @return A generator.
+     */
+    static TopicMapGenerator createGenerator(final int topics) {
+        final TopicMapGenerator gen = new TopicMapGenerator();
+        gen.setTopicCount(topics);
+        gen.setTopicTypeCount(50);
+        gen.setNamesPerTopic(2);
+        gen.setOccurrencesPerTopic(3);
+        gen.setOccurrenceTypeCount(20);
+        gen.setAssociationsPerTopic(2);
+        gen.setAssociationTypeCount(20);
+        gen.setThemeCount(10);
+        gen.setScopeCardinality(1);
+        gen.setLiteralReuseRatio(0.5);
+        gen.setLiteralPoolSize(topics / 10 + 1);
+        gen.setIdentifierPattern(TopicMapGenerator.IdentifierPattern.MIXED);
+        return gen;
+    }
+
+    /**
+     * Generates a topic map.
+     */
+    private static final class GenerateBenchmark extends AbstractTopicMapBenchmark {
+
+        private final TopicMapGenerator _generator;
+        private final int _topics;
+
+        GenerateBenchmark(int topics) {
+            super("generate." + topics);
+            _topics = topics;
+            _generator = createGenerator(topics);
+        }
+
+        @Override
+        public void prepare() throws Exception {
+            clear();
+            topicMap = sys.createTopicMap("http://www.tinytim.org/benchmark/generated");
+        }
+
+        @Override
+        public long run() throws Exception {
+            _generator.generate(topicMap);
+            return _topics;
+        }
+    }
+
+    /**
+     * Queries the type-instance index for each type.
+     */
+    private static class TypeInstanceIndexBenchmark extends AbstractTopicMapBenchmark {
+
+        private final File _file;
+        private TypeInstanceIndex _index;
+        private List<Topic> _types;
+
+        TypeInstanceIndexBenchmark(File file) {
+            this("index." + _name(file), file);
+        }
+
+        TypeInstanceIndexBenchmark(String name, File file) {
+            super(name);
+            _file = file;
+        }
+
+        /**
+         * Returns the topic map which is queried.
+         */
+        TopicMap createTopicMap() throws Exception {
+            return load(sys, _file, _file.toURI().toString());
+        }
+
+        @Override
+        public void setUp() throws Exception {
+            super.setUp();
+            topicMap = createTopicMap();
+            _index = topicMap.getIndex(TypeInstanceIndex.class);
+            _index.open();
+            _types = new ArrayList<Topic>(topicMap.getTopics());
+        }
+
+        @Override
+        public long run() throws Exception {
+            final TypeInstanceIndex index = _index;
+            long count = 0;
+            for (Topic type: _types) {
+                count += index.getTopics(type).size();
+                count += index.getAssociations(type).size();
+                count += index.getRoles(type).size();
+                count += index.getOccurrences(type).size();
+                count += index.getNames(type).size();
+            }
+            if (count < 0) {
+                throw new IllegalStateException();
+            }
+            return _types.size() * 5L;
+        }
+    }
+
+    /**
+     * Queries the type-instance index of a generated topic map.
+     */
+    private static final class GeneratedTypeInstanceIndexBenchmark extends TypeInstanceIndexBenchmark {
+
+        private final int _topics;
+
+        GeneratedTypeInstanceIndexBenchmark(int topics) {
+            super("index.generated-" + topics, null);
+            _topics = topics;
+        }
+
+        @Override
+        TopicMap createTopicMap() throws Exception {
+            final TopicMap tm = sys.createTopicMap("http://www.tinytim.org/benchmark/generated");
+            createGenerator(_topics).generate(tm);
+            return tm;
+        }
+    }
+
+    /**
+     * Writes a topic map as CXTM.
+     */
+    private static final class CXTMExportBenchmark extends AbstractTopicMapBenchmark {
+
+        private final File _file;
+
+        CXTMExportBenchmark(File file) {
+            super("cxtm." + _name(file));
+            _file = file;
+        }
+
+        @Override
+        public void setUp() throws Exception {
+            super.setUp();
+            topicMap = load(sys, _file, _file.toURI().toString());
+        }
+
+        @Override
+        public long run() throws Exception {
+            new CXTMTopicMapWriter(new NullOutputStream(), topicMap.getLocator().getReference()).write(topicMap);
+            return 1;
+        }
+    }
+
+    /**
+     * Compacts a freshly loaded topic map and reports the estimated bytes 
+     * which were saved by the last iteration.
+     */
+    private static class CompactBenchmark extends AbstractTopicMapBenchmark {
+
+        private final File _file;
+        private long _before;
+
+        CompactBenchmark(File file) {
+            this("compact." + _name(file), file);
+        }
+
+        CompactBenchmark(String name, File file) {
+            super(name);
+            _file = file;
+        }
+
+        /**
+         * Returns the topic map which is compacted.
+         */
+        TopicMap createTopicMap() throws Exception {
+            return load(sys, _file, _file.toURI().toString());
+        }
+
+        @Override
+        public void prepare() throws Exception {
+            clear();
+            topicMap = createTopicMap();
+            _before = MemoryFootprint.create(topicMap).getEstimatedBytes();
+        }
+
+        @Override
+        public long run() throws Exception {
+            ((ITopicMap) topicMap).compact();
+            return 1;
+        }
+
+        @Override
+        public void tearDown() throws Exception {
+            if (topicMap != null) {
+                final long after = MemoryFootprint.create(topicMap).getEstimatedBytes();
+                System.out.println(String.format("%-36s %14d bytes -> %d bytes (saved: %d)", 
+                        getName(), _before, after, _before - after));
+            }
+            super.tearDown();
+        }
+    }
+
+    /**
+     * Compacts a generated topic map.
+     */
+    private static final class GeneratedCompactBenchmark extends CompactBenchmark {
+
+        private final int _topics;
+
+        GeneratedCompactBenchmark(int topics) {
+            super("compact.generated-" + topics, null);
+            _topics = topics;
+        }
+
+        @Override
+        TopicMap createTopicMap() throws Exception {
+            final TopicMap tm = sys.createTopicMap("http://www.tinytim.org/benchmark/generated");
+            createGenerator(_topics).generate(tm);
+            return tm;
+        }
+    }
+
+    /**
+     * Discards all bytes.
+     */
+    private static final class NullOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            // noop.
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            // noop.
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Measures the throughput of the {@link XMLC14NWriter}.
+ * <p>
+ * Usage: <tt>XMLC14NWriterBenchmark [iterations]</tt>
+ * </p>
+ * <p>
+ * The benchmark writes a CXTM-alike document with ASCII, escaped and 
+ * non-ASCII content into a stream which discards the data and into a 
+ * {@link FileChannel}.
+ * </p>
+ *
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class XMLC14NWriterBenchmark {
+
+    private static final int _ELEMENTS = 200000;
+
+    private static final String[] _VALUES = new String[] {
+        "http://www.example.org/topic/",
+        "Plain ASCII text which does not need to be escaped",
+        "Text with <markup> & \"quotes\"\r\n",
+        "Gr\u00fc\u00dfe aus K\u00f6ln \u20ac \u65e5\u672c\u8a9e \ud834\udd1e"
+    };
+
+    private XMLC14NWriterBenchmark() {
+        // noop.
+    }
+
+    /**
+     * Counts the bytes written to it and discards them.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    private static void _writeDocument(XMLC14NWriter writer) throws IOException {
+        final AttributesImpl attrs = new AttributesImpl();
+        writer.startDocument();
+        writer.startElement("topicMap");
+        writer.newline();
+        for (int i=0; i < _ELEMENTS; i++) {
+            attrs.clear();
+            attrs.addAttribute("", "number", "", "CDATA", Integer.toString(i));
+            attrs.addAttribute("", "reifier", "", "CDATA", _VALUES[i % _VALUES.length]);
+            writer.startElement("value", attrs);
+            writer.characters(_VALUES[i % _VALUES.length]);
+            writer.endElement("value");
+            writer.newline();
+        }
+        writer.endElement("topicMap");
+        writer.newline();
+        writer.endDocument();
+    }
+
+    private static void _report(String name, long bytes, long nanos) {
+        System.out.println(name + ": " + (bytes / 1024 / 1024) + " MB in " 
+                + (nanos / 1000000) + " ms, " 
+                + Math.round(bytes / (nanos / 1E9) / 1024 / 1024) + " MB/s");
+    }
+
+    private static void _benchmarkStream(int iterations) throws IOException {
+        final CountingOutputStream out = new CountingOutputStream();
+        final long start = System.nanoTime();
+        for (int i=0; i < iterations; i++) {
+            _writeDocument(new XMLC14NWriter(out));
+        }
+        _report("OutputStream", out.count, System.nanoTime() - start);
+    }
+
+    private static void _benchmarkChannel(int iterations) throws IOException {
+        final File file = File.createTempFile("tinytim-c14n", ".xml");
+        file.deleteOnExit();
+        final FileOutputStream out = new FileOutputStream(file);
+        final FileChannel channel = out.getChannel();
+        try {
+            final long start = System.nanoTime();
+            for (int i=0; i < iterations; i++) {
+                _writeDocument(new XMLC14NWriter(channel));
+            }
+            _report("FileChannel", channel.size(), System.nanoTime() - start);
+        }
+        finally {
+            out.close();
+            file.delete();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        // Warm up
+        _benchmarkStream(iterations);
+        _benchmarkChannel(iterations);
+        _benchmarkStream(iterations);
+        _benchmarkChannel(iterations);
+    }
+
+}
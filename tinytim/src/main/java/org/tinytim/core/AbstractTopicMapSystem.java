@@ -18,6 +18,7 @@ package org.tinytim.core;
 import java.util.Map;
 
 import org.tinytim.core.value.Literal;
+import org.tinytim.utils.Property;
 
 import org.tmapi.core.FeatureNotRecognizedException;
 import org.tmapi.core.Locator;
@@ -36,10 +37,23 @@ abstract class AbstractTopicMapSystem implements TopicMapSystem {
 
     protected final Map<String, Boolean> _features;
     protected final Map<String, Object> _properties;
+    final boolean _jmx;
 
     protected AbstractTopicMapSystem(Map<String, Boolean> features, Map<String, Object> properties) throws TMAPIException {
         _features = features;
         _properties = properties;
+        final Object jmx = properties.get(Property.JMX);
+        _jmx = jmx != null && Boolean.valueOf(jmx.toString()).booleanValue();
+    }
+
+    /**
+     * Returns an identifier which distinguishes this system from other 
+     * systems in the same JVM.
+     *
+     * @return The identifier of this system.
+     */
+    String getSystemId() {
+        return Integer.toHexString(System.identityHashCode(this));
     }
 
     /* (non-Javadoc)
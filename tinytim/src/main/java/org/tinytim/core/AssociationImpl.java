@@ -20,7 +20,6 @@ import java.util.Set;
 
 import org.tinytim.internal.api.Event;
 import org.tinytim.internal.api.IAssociation;
-import org.tinytim.internal.api.IConstant;
 import org.tinytim.internal.api.IScope;
 import org.tinytim.internal.api.ITopicMap;
 import org.tinytim.internal.utils.Check;
@@ -42,7 +41,7 @@ final class AssociationImpl extends ScopedImpl implements IAssociation {
 
     AssociationImpl(ITopicMap topicMap, Topic type, IScope scope) {
         super(topicMap, type, scope);
-        _roles = CollectionFactory.createIdentitySet(IConstant.ASSOC_ROLE_SIZE);
+        _roles = CollectionFactory.createSmallIdentitySet();
     }
 
     /* (non-Javadoc)
@@ -165,4 +164,22 @@ final class AssociationImpl extends ScopedImpl implements IAssociation {
         _roles = null;
         super.dispose();
     }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.ConstructImpl#measure(org.tinytim.core.MemoryFootprint)
+     */
+    @Override
+    void measure(MemoryFootprint footprint) {
+        super.measure(footprint);
+        footprint.addCollection("association.roles", _roles);
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.ConstructImpl#trim()
+     */
+    @Override
+    void trim() {
+        super.trim();
+        CollectionFactory.trimToSize(_roles);
+    }
 }
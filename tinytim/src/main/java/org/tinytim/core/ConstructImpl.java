@@ -19,7 +19,6 @@ import java.util.Collections;
 import java.util.Set;
 
 import org.tinytim.internal.api.Event;
-import org.tinytim.internal.api.IConstant;
 import org.tinytim.internal.api.IConstruct;
 import org.tinytim.internal.api.ITopicMap;
 import org.tinytim.internal.utils.Check;
@@ -85,7 +84,7 @@ abstract class ConstructImpl implements IConstruct {
         }
         _fireEvent(Event.ADD_IID, null, iid);
         if (_iids == null) {
-            _iids = CollectionFactory.createIdentitySet(IConstant.CONSTRUCT_IID_SIZE);
+            _iids = CollectionFactory.createSmallIdentitySet();
         }
         _iids.add(iid);
     }
@@ -144,6 +143,37 @@ abstract class ConstructImpl implements IConstruct {
         _iids = null;
     }
 
+    /**
+     * Reports the collections of this construct to the provided footprint.
+     *
+     * @param footprint The footprint.
+     */
+    void measure(MemoryFootprint footprint) {
+        footprint.addCollection("construct.item-identifiers", _iids);
+    }
+
+    /**
+     * Shrinks the collections of this construct to their size; empty 
+     * collections are released.
+     */
+    void trim() {
+        _iids = trim(_iids);
+    }
+
+    /**
+     * Shrinks the provided set to its size.
+     *
+     * @param set The set to shrink or <tt>null</tt>.
+     * @return The provided set or <tt>null</tt> if the set is empty.
+     */
+    static <E> Set<E> trim(Set<E> set) {
+        if (set == null || set.isEmpty()) {
+            return null;
+        }
+        CollectionFactory.trimToSize(set);
+        return set;
+    }
+
     /* (non-Javadoc)
      * @see org.tinytim.internal.api.IConstruct#isAssociation()
      */
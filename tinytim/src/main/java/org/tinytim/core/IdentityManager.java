@@ -24,6 +24,7 @@ import org.tinytim.internal.api.IEventHandler;
 import org.tinytim.internal.api.IEventPublisher;
 import org.tinytim.internal.api.IEventPublisherAware;
 import org.tinytim.internal.utils.CollectionFactory;
+import org.tinytim.internal.utils.MergeUtils;
 
 import org.tmapi.core.Construct;
 import org.tmapi.core.IdentityConstraintException;
@@ -36,6 +37,12 @@ import org.tmapi.core.Topic;
  * The identity manager takes care about the TMDM identity constraints and
  * provides an index to get Topic Maps constructs by their identity.
  * <p>
+ * If automerge is enabled, a topic which violates an identity constraint 
+ * is merged with the existing topic instead of reporting an 
+ * {@link IdentityConstraintException}. The topic which receives the new 
+ * identity survives the merge.
+ * </p>
+ * <p>
  * This class is not meant to be used outside of the tinyTiM package.
  * </p>
  * 
@@ -48,8 +55,10 @@ final class IdentityManager implements IEventPublisherAware {
     private final Map<Locator, Topic> _slo2Topic;
     private final Map<Locator, IConstruct> _iid2Construct;
     private final Map<String, IConstruct> _id2Construct;
+    private final boolean _autoMerge;
 
-    IdentityManager(MemoryTopicMap tm) {
+    IdentityManager(MemoryTopicMap tm, boolean autoMerge) {
+        _autoMerge = autoMerge;
         _id2Construct = CollectionFactory.createMap(IConstant.IDENTITY_ID2CONSTRUCT_SIZE);
         _sid2Topic = CollectionFactory.createIdentityMap(IConstant.IDENTITY_SID2TOPIC_SIZE);
         _slo2Topic = CollectionFactory.createIdentityMap(IConstant.IDENTITY_SLO2TOPIC_SIZE);
@@ -163,6 +172,34 @@ final class IdentityManager implements IEventPublisherAware {
         return _iid2Construct.get(iid);
     }
 
+    /**
+     * Merges the <tt>source</tt> into the <tt>target</tt>.
+     * <p>
+     * The identity which caused the merge is moved from the <tt>source</tt>
+     * to the <tt>target</tt> by the merge operation, the indexes are 
+     * updated by the events fired during the merge.
+     * </p>
+     *
+     * @param source The topic which will be removed.
+     * @param target The topic which takes all characteristics of the 
+     *                  <tt>source</tt>.
+     */
+    private void _merge(Topic source, Topic target) {
+        MergeUtils.merge(source, target);
+    }
+
+    /**
+     * Reports the sizes of the identity maps to the provided footprint.
+     *
+     * @param footprint The footprint.
+     */
+    void measure(MemoryFootprint footprint) {
+        footprint.addIdentities("identity.ids", _id2Construct.size());
+        footprint.addIdentities("identity.item-identifiers", _iid2Construct.size());
+        footprint.addIdentities("identity.subject-identifiers", _sid2Topic.size());
+        footprint.addIdentities("identity.subject-locators", _slo2Topic.size());
+    }
+
     public void clear() {
         _id2Construct.clear();
         _iid2Construct.clear();
@@ -197,18 +234,24 @@ final class IdentityManager implements IEventPublisherAware {
                 Object newValue) {
             Locator iid = (Locator) newValue;
             IConstruct existing = _iid2Construct.get(iid);
-            if (existing != null) {
-                if (existing != sender) {
-                    if (sender.isTopic() && existing.isTopic()) {
+            if (existing != null && existing != sender) {
+                if (sender.isTopic() && existing.isTopic()) {
+                    if (!_autoMerge) {
                         throw new IdentityConstraintException((Topic) sender, (Topic) existing, iid, "A topic with the same item identifier '" + iid.getReference() + "' exists");
                     }
+                    _merge((Topic) existing, (Topic) sender);
+                }
+                else {
                     throw new IdentityConstraintException(sender, existing, iid, "A Topic Maps construct with the same item identifier '" + iid.getReference() + "' exists");
                 }
             }
             if (sender.isTopic()) {
                 Topic existingTopic = _sid2Topic.get(iid);
                 if (existingTopic != null && existingTopic != sender) {
-                    throw new IdentityConstraintException((Topic) sender, existingTopic, iid, "A topic with a subject identifier equals to the item identifier '" + iid.getReference() + "' exists");
+                    if (!_autoMerge) {
+                        throw new IdentityConstraintException((Topic) sender, existingTopic, iid, "A topic with a subject identifier equals to the item identifier '" + iid.getReference() + "' exists");
+                    }
+                    _merge(existingTopic, (Topic) sender);
                 }
             }
             _iid2Construct.put(iid, sender);
@@ -236,11 +279,17 @@ final class IdentityManager implements IEventPublisherAware {
             Locator sid = (Locator) newValue;
             IConstruct existing = (IConstruct) _sid2Topic.get(sid);
             if (existing != null && existing != topic) {
-                throw new IdentityConstraintException(topic, (Topic) existing, sid, "A topic with the same subject identifier '" + sid.getReference() + "' exists");
+                if (!_autoMerge) {
+                    throw new IdentityConstraintException(topic, (Topic) existing, sid, "A topic with the same subject identifier '" + sid.getReference() + "' exists");
+                }
+                _merge((Topic) existing, topic);
             }
             existing = _iid2Construct.get(sid);
             if (existing != null && existing.isTopic() && existing != topic) {
-                throw new IdentityConstraintException(topic, (Topic) existing, sid, "A topic with an item identifier equals to the subject identifier '" + sid.getReference() + "' exists");
+                if (!_autoMerge) {
+                    throw new IdentityConstraintException(topic, (Topic) existing, sid, "A topic with an item identifier equals to the subject identifier '" + sid.getReference() + "' exists");
+                }
+                _merge((Topic) existing, topic);
             }
             _sid2Topic.put(sid, topic);
         }
@@ -267,7 +316,10 @@ final class IdentityManager implements IEventPublisherAware {
             Locator slo = (Locator) newValue;
             Topic existing = _slo2Topic.get(slo);
             if (existing != null && existing != topic) {
-                throw new IdentityConstraintException(topic, existing, slo, "A topic with the same subject locator '" + slo.getReference() + "' exists");
+                if (!_autoMerge) {
+                    throw new IdentityConstraintException(topic, existing, slo, "A topic with the same subject locator '" + slo.getReference() + "' exists");
+                }
+                _merge(existing, topic);
             }
             _slo2Topic.put(slo, topic);
         }
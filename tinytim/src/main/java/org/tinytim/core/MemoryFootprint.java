@@ -0,0 +1,548 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.core;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.tinytim.core.value.Literal;
+import org.tinytim.internal.api.ILiteral;
+import org.tinytim.internal.api.ILiteralAware;
+import org.tinytim.internal.api.IScope;
+import org.tinytim.internal.api.IScoped;
+import org.tinytim.internal.utils.CollectionFactory;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Construct;
+import org.tmapi.core.Locator;
+import org.tmapi.core.Name;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Role;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+import org.tmapi.core.Variant;
+
+/**
+ * Reports where the memory of a topic map goes.
+ * <p>
+ * The report contains the number of Topic Maps constructs, the number of
+ * distinct literals, locators, and scopes, the number of elements and 
+ * slots of the collections held by the constructs, the sizes of the index 
+ * postings, and the sizes of the identity maps:
+ * </p>
+ * <pre>
+ *     System.out.println(MemoryFootprint.create(topicMap));
+ * </pre>
+ * <p>
+ * The byte values are estimates for a 64-bit JVM with compressed 
+ * references; they do not include the constructs, literals and locators
+ * themselves but the collections which hold them. 
+ * </p>
+ * <p>
+ * The topic map must not be modified while the report is created.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class MemoryFootprint {
+
+    /**
+     * Size of a reference.
+     */
+    private static final int _REFERENCE_SIZE = 4;
+
+    /**
+     * Size of an array header.
+     */
+    private static final int _ARRAY_HEADER_SIZE = 16;
+
+    /**
+     * Size of a set without its array.
+     */
+    private static final int _SET_SIZE = 32;
+
+    /**
+     * Size of an array list without its array.
+     */
+    private static final int _LIST_SIZE = 24;
+
+    /**
+     * Size of a hash map without its table.
+     */
+    private static final int _MAP_SIZE = 48;
+
+    /**
+     * Size of a hash map entry.
+     */
+    private static final int _MAP_ENTRY_SIZE = 32;
+
+    /**
+     * Statistics about a group of collections.
+     */
+    public static final class Statistics {
+
+        private int _count;
+        private long _size;
+        private long _capacity;
+        private long _bytes;
+
+        Statistics() {
+            // noop.
+        }
+
+        /**
+         * Returns the number of collections or, for postings, the number of
+         * keys.
+         *
+         * @return The number of collections.
+         */
+        public int getCount() {
+            return _count;
+        }
+
+        /**
+         * Returns the number of elements of all collections.
+         *
+         * @return The number of elements.
+         */
+        public long getSize() {
+            return _size;
+        }
+
+        /**
+         * Returns the number of slots of all collections.
+         * <p>
+         * If the number of slots of a collection is unknown, its size is 
+         * used.
+         * </p>
+         *
+         * @return The number of slots.
+         */
+        public long getCapacity() {
+            return _capacity;
+        }
+
+        /**
+         * Returns the number of slots which are not used.
+         *
+         * @return The number of unused slots.
+         */
+        public long getUnusedCapacity() {
+            return _capacity - _size;
+        }
+
+        /**
+         * Returns the estimated number of bytes of all collections.
+         *
+         * @return The estimated number of bytes.
+         */
+        public long getEstimatedBytes() {
+            return _bytes;
+        }
+
+        void add(final Collection<?> coll) {
+            final int capacity = CollectionFactory.capacity(coll);
+            _count++;
+            _size += coll.size();
+            _capacity += capacity;
+            _bytes += _estimate(coll, capacity);
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "count=" + _count + ", size=" + _size + ", capacity=" + _capacity 
+                    + ", bytes=" + _bytes;
+        }
+    }
+
+    private int _topics;
+    private int _associations;
+    private int _roles;
+    private int _names;
+    private int _variants;
+    private int _occurrences;
+    private int _literals;
+    private int _locators;
+    private int _scopes;
+    private int _internedLiterals;
+    private int _internedLocators;
+    private int _internedScopes;
+    private final Map<String, Statistics> _collections;
+    private final Map<String, Statistics> _postings;
+    private final Map<String, Integer> _identities;
+
+    private MemoryFootprint() {
+        _collections = new TreeMap<String, Statistics>();
+        _postings = new TreeMap<String, Statistics>();
+        _identities = new TreeMap<String, Integer>();
+    }
+
+    /**
+     * Walks through the provided topic map and returns its memory footprint.
+     *
+     * @param topicMap A topic map created by tinyTiM.
+     * @return The memory footprint of the topic map.
+     */
+    public static MemoryFootprint create(final TopicMap topicMap) {
+        if (!(topicMap instanceof MemoryTopicMap)) {
+            throw new IllegalArgumentException("The topic map must be created by tinyTiM");
+        }
+        final MemoryFootprint footprint = new MemoryFootprint();
+        final Set<ILiteral> literals = CollectionFactory.createIdentitySet();
+        final Set<Locator> locators = CollectionFactory.createIdentitySet();
+        final Set<IScope> scopes = CollectionFactory.createIdentitySet();
+        footprint._measure(topicMap, locators);
+        for (Topic topic: topicMap.getTopics()) {
+            footprint._topics++;
+            footprint._measure(topic, locators);
+            locators.addAll(topic.getSubjectIdentifiers());
+            locators.addAll(topic.getSubjectLocators());
+            for (Name name: topic.getNames()) {
+                footprint._names++;
+                footprint._measure(name, locators);
+                literals.add(((ILiteralAware) name).getLiteral());
+                scopes.add(((IScoped) name).getScopeObject());
+                for (Variant variant: name.getVariants()) {
+                    footprint._variants++;
+                    footprint._measure(variant, locators);
+                    literals.add(((ILiteralAware) variant).getLiteral());
+                    scopes.add(((IScoped) variant).getScopeObject());
+                }
+            }
+            for (Occurrence occ: topic.getOccurrences()) {
+                footprint._occurrences++;
+                footprint._measure(occ, locators);
+                literals.add(((ILiteralAware) occ).getLiteral());
+                scopes.add(((IScoped) occ).getScopeObject());
+            }
+        }
+        for (Association assoc: topicMap.getAssociations()) {
+            footprint._associations++;
+            footprint._measure(assoc, locators);
+            scopes.add(((IScoped) assoc).getScopeObject());
+            for (Role role: assoc.getRoles()) {
+                footprint._roles++;
+                footprint._measure(role, locators);
+            }
+        }
+        footprint._literals = literals.size();
+        footprint._locators = locators.size();
+        footprint._scopes = scopes.size();
+        footprint._internedLiterals = Literal.getInternedLiteralCount();
+        footprint._internedLocators = Literal.getInternedLocatorCount();
+        footprint._internedScopes = Scope.getInternedCount();
+        return footprint;
+    }
+
+    private void _measure(final Construct construct, final Set<Locator> locators) {
+        ((ConstructImpl) construct).measure(this);
+        locators.addAll(construct.getItemIdentifiers());
+    }
+
+    /**
+     * Adds the provided collection to the collection statistics.
+     *
+     * @param name The name of the statistics.
+     * @param coll The collection or <tt>null</tt> if the collection has 
+     *              not been created yet.
+     */
+    void addCollection(final String name, final Collection<?> coll) {
+        if (coll == null) {
+            return;
+        }
+        _get(_collections, name).add(coll);
+    }
+
+    /**
+     * Adds the provided posting map to the posting statistics.
+     *
+     * @param name The name of the posting map.
+     * @param postings The posting map.
+     */
+    void addPostings(final String name, final Map<?, ? extends Collection<?>> postings) {
+        final Statistics stats = _get(_postings, name);
+        for (Collection<?> coll: postings.values()) {
+            stats.add(coll);
+        }
+        stats._bytes += _estimateMap(postings.size());
+    }
+
+    /**
+     * Adds the size of an identity map.
+     *
+     * @param name The name of the identity map.
+     * @param size The number of entries.
+     */
+    void addIdentities(final String name, final int size) {
+        _identities.put(name, size);
+    }
+
+    private static Statistics _get(final Map<String, Statistics> map, final String name) {
+        Statistics stats = map.get(name);
+        if (stats == null) {
+            stats = new Statistics();
+            map.put(name, stats);
+        }
+        return stats;
+    }
+
+    private static long _align(final long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static long _estimateArray(final long length) {
+        return _align(_ARRAY_HEADER_SIZE + length * _REFERENCE_SIZE);
+    }
+
+    private static long _estimate(final Collection<?> coll, final int capacity) {
+        if (CollectionFactory.isInline(coll)) {
+            return _SET_SIZE;
+        }
+        return (coll instanceof Set<?> ? _SET_SIZE : _LIST_SIZE) + _estimateArray(capacity);
+    }
+
+    private static long _estimateMap(final int size) {
+        int table = 16;
+        while (table * 3 / 4 < size) {
+            table <<= 1;
+        }
+        return _MAP_SIZE + _estimateArray(table) + (long) size * _MAP_ENTRY_SIZE;
+    }
+
+    /**
+     * Returns the number of topics.
+     *
+     * @return The number of topics.
+     */
+    public int getTopicCount() {
+        return _topics;
+    }
+
+    /**
+     * Returns the number of associations.
+     *
+     * @return The number of associations.
+     */
+    public int getAssociationCount() {
+        return _associations;
+    }
+
+    /**
+     * Returns the number of roles.
+     *
+     * @return The number of roles.
+     */
+    public int getRoleCount() {
+        return _roles;
+    }
+
+    /**
+     * Returns the number of names.
+     *
+     * @return The number of names.
+     */
+    public int getNameCount() {
+        return _names;
+    }
+
+    /**
+     * Returns the number of variants.
+     *
+     * @return The number of variants.
+     */
+    public int getVariantCount() {
+        return _variants;
+    }
+
+    /**
+     * Returns the number of occurrences.
+     *
+     * @return The number of occurrences.
+     */
+    public int getOccurrenceCount() {
+        return _occurrences;
+    }
+
+    /**
+     * Returns the number of distinct values of the names, variants and 
+     * occurrences.
+     *
+     * @return The number of distinct literals.
+     */
+    public int getDistinctLiteralCount() {
+        return _literals;
+    }
+
+    /**
+     * Returns the number of distinct item identifiers, subject identifiers
+     * and subject locators.
+     *
+     * @return The number of distinct locators.
+     */
+    public int getDistinctLocatorCount() {
+        return _locators;
+    }
+
+    /**
+     * Returns the number of distinct scopes, including the unconstrained 
+     * scope if it is used.
+     *
+     * @return The number of distinct scopes.
+     */
+    public int getDistinctScopeCount() {
+        return _scopes;
+    }
+
+    /**
+     * Returns the number of literals which were registered when the report 
+     * was created. 
+     * <p>
+     * Literals are shared between all topic maps, the number includes 
+     * the literals of other topic maps.
+     * </p>
+     *
+     * @return The number of registered literals.
+     */
+    public int getInternedLiteralCount() {
+        return _internedLiterals;
+    }
+
+    /**
+     * Returns the number of locators which were registered when the report 
+     * was created. 
+     * <p>
+     * Locators are shared between all topic maps, the number includes 
+     * the locators of other topic maps.
+     * </p>
+     *
+     * @return The number of registered locators.
+     */
+    public int getInternedLocatorCount() {
+        return _internedLocators;
+    }
+
+    /**
+     * Returns the number of scopes which were registered when the report 
+     * was created. 
+     * <p>
+     * Scopes are shared between all topic maps, the number includes 
+     * the scopes of other topic maps.
+     * </p>
+     *
+     * @return The number of registered scopes.
+     */
+    public int getInternedScopeCount() {
+        return _internedScopes;
+    }
+
+    /**
+     * Returns the statistics of the collections held by the constructs
+     * by their name, i.e. <tt>topic.names</tt>.
+     *
+     * @return An unmodifiable map of statistics.
+     */
+    public Map<String, Statistics> getCollectionStatistics() {
+        return Collections.unmodifiableMap(_collections);
+    }
+
+    /**
+     * Returns the statistics of the index postings by their name, i.e. 
+     * <tt>type-instance.topics</tt>.
+     *
+     * @return An unmodifiable map of statistics.
+     */
+    public Map<String, Statistics> getPostingStatistics() {
+        return Collections.unmodifiableMap(_postings);
+    }
+
+    /**
+     * Returns the number of entries of the identity maps by their name,
+     * i.e. <tt>identity.subject-identifiers</tt>.
+     *
+     * @return An unmodifiable map of sizes.
+     */
+    public Map<String, Integer> getIdentityMapSizes() {
+        return Collections.unmodifiableMap(_identities);
+    }
+
+    /**
+     * Returns the estimated number of bytes of all collections and index
+     * postings.
+     *
+     * @return The estimated number of bytes.
+     */
+    public long getEstimatedBytes() {
+        long bytes = 0;
+        for (Statistics stats: _collections.values()) {
+            bytes += stats._bytes;
+        }
+        for (Statistics stats: _postings.values()) {
+            bytes += stats._bytes;
+        }
+        for (Integer size: _identities.values()) {
+            bytes += _estimateMap(size);
+        }
+        return bytes;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(2048);
+        sb.append("Constructs\n");
+        _append(sb, "topics", _topics);
+        _append(sb, "associations", _associations);
+        _append(sb, "roles", _roles);
+        _append(sb, "names", _names);
+        _append(sb, "variants", _variants);
+        _append(sb, "occurrences", _occurrences);
+        sb.append("Values (distinct / interned)\n");
+        _append(sb, "literals", _literals + " / " + _internedLiterals);
+        _append(sb, "locators", _locators + " / " + _internedLocators);
+        _append(sb, "scopes", _scopes + " / " + _internedScopes);
+        sb.append("Collections\n");
+        _append(sb, _collections);
+        sb.append("Index postings\n");
+        _append(sb, _postings);
+        sb.append("Identity maps\n");
+        for (Map.Entry<String, Integer> entry: _identities.entrySet()) {
+            _append(sb, entry.getKey(), entry.getValue());
+        }
+        sb.append("Estimated bytes\n");
+        _append(sb, "total", getEstimatedBytes());
+        return sb.toString();
+    }
+
+    private static void _append(final StringBuilder sb, final Map<String, Statistics> statistics) {
+        for (Map.Entry<String, Statistics> entry: statistics.entrySet()) {
+            _append(sb, entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void _append(final StringBuilder sb, final String name, final Object value) {
+        sb.append("  ").append(name).append(": ").append(value).append('\n');
+    }
+
+}
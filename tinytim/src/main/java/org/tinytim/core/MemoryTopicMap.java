@@ -35,6 +35,7 @@ import org.tinytim.internal.api.ITopicMap;
 import org.tinytim.internal.utils.Check;
 import org.tinytim.internal.utils.CollectionFactory;
 import org.tinytim.internal.utils.MergeUtils;
+import org.tinytim.utils.Feature;
 
 import org.tmapi.core.Association;
 import org.tmapi.core.IdentityConstraintException;
@@ -45,8 +46,12 @@ import org.tmapi.core.Topic;
 import org.tmapi.core.TopicMap;
 import org.tmapi.core.Construct;
 import org.tmapi.core.Name;
+import org.tmapi.core.Scoped;
+import org.tmapi.core.Typed;
 import org.tmapi.core.Variant;
 import org.tmapi.index.Index;
+import org.tmapi.index.ScopedIndex;
+import org.tmapi.index.TypeInstanceIndex;
 
 /**
  * {@link org.tmapi.core.TopicMap} implementation.
@@ -58,6 +63,7 @@ final class MemoryTopicMap extends AbstractTopicMap implements ITopicMap {
 
     private final IdentityManager _identityManager;
     private final IIndexManager _indexManager;
+    private final TopicNameIndex _topicNameIndex;
     private final Locator _locator;
     private final Set<Topic> _topics;
     private final Set<Association> _assocs;
@@ -65,6 +71,7 @@ final class MemoryTopicMap extends AbstractTopicMap implements ITopicMap {
     private Topic _reifier;
     private final Map<Event, Collection<IEventHandler>> _evtHandlers;
     private EventMultiplier _eventMultiplier;
+    private final TopicMapMonitor _monitor;
 
     MemoryTopicMap(AbstractTopicMapSystem sys, Locator locator) {
         super();
@@ -74,10 +81,21 @@ final class MemoryTopicMap extends AbstractTopicMap implements ITopicMap {
         _topics = CollectionFactory.createIdentitySet(IConstant.TM_TOPIC_SIZE);
         _assocs = CollectionFactory.createIdentitySet(IConstant.TM_ASSOCIATION_SIZE);
         _evtHandlers = CollectionFactory.createIdentityMap();
-        _identityManager = new IdentityManager(this);
+        _identityManager = new IdentityManager(this, Boolean.TRUE.equals(sys._features.get(Feature.AUTOMERGE)));
         _indexManager = new IndexManager();
         _indexManager.subscribe(this);
+        _topicNameIndex = Boolean.TRUE.equals(sys._features.get(Feature.TNC)) ? new TopicNameIndex(this) : null;
         _eventMultiplier = new EventMultiplier(this);
+        _monitor = sys._jmx ? new TopicMapMonitor(this, sys.getSystemId()) : null;
+    }
+
+    /**
+     * Returns the monitor of this topic map.
+     *
+     * @return The monitor or <tt>null</tt> if JMX is disabled.
+     */
+    TopicMapMonitor getMonitor() {
+        return _monitor;
     }
 
     /**
@@ -364,6 +382,78 @@ final class MemoryTopicMap extends AbstractTopicMap implements ITopicMap {
         return Scope.create(themes);
     }
 
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.api.ITopicMap#topicMerged()
+     */
+    @Override
+    public void topicMerged() {
+        if (_monitor != null) {
+            _monitor.merged();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.api.ITopicMap#replaceTopic(org.tmapi.core.Topic, org.tmapi.core.Topic)
+     */
+    @Override
+    public void replaceTopic(Topic source, Topic replacement) {
+        TypeInstanceIndex typeInstanceIndex = _indexManager.getTypeInstanceIndex();
+        for (Topic topic: typeInstanceIndex.getTopics(source)) {
+            topic.removeType(source);
+            topic.addType(replacement);
+        }
+        // Names are changed one by one, the variants and the topic name 
+        // index depend on the notifications
+        for (Name name: typeInstanceIndex.getNames(source)) {
+            name.setType(replacement);
+        }
+        ScopedIndex scopedIndex = _indexManager.getScopedIndex();
+        for (Name name: scopedIndex.getNames(source)) {
+            name.removeTheme(source);
+            name.addTheme(replacement);
+        }
+        for (Variant variant: scopedIndex.getVariants(source)) {
+            variant.removeTheme(source);
+            variant.addTheme(replacement);
+        }
+        Collection<Association> typedAssocs = typeInstanceIndex.getAssociations(source);
+        Collection<Role> typedRoles = typeInstanceIndex.getRoles(source);
+        Collection<Occurrence> typedOccs = typeInstanceIndex.getOccurrences(source);
+        Collection<Association> scopedAssocs = scopedIndex.getAssociations(source);
+        Collection<Occurrence> scopedOccs = scopedIndex.getOccurrences(source);
+        if (typedAssocs.isEmpty() && typedRoles.isEmpty() && typedOccs.isEmpty()
+                && scopedAssocs.isEmpty() && scopedOccs.isEmpty()) {
+            return;
+        }
+        _fireEvent(Event.REPLACE_TOPIC, source, replacement);
+        _replaceType(typedAssocs, replacement);
+        _replaceType(typedRoles, replacement);
+        _replaceType(typedOccs, replacement);
+        Map<IScope, IScope> scopes = CollectionFactory.createIdentityMap();
+        _replaceTheme(scopedAssocs, (ITopic) source, replacement, scopes);
+        _replaceTheme(scopedOccs, (ITopic) source, replacement, scopes);
+    }
+
+    private static void _replaceType(Collection<? extends Typed> typedConstructs, 
+            Topic replacement) {
+        for (Typed typed: typedConstructs) {
+            ((TypedImpl) typed)._replaceType(replacement);
+        }
+    }
+
+    private static void _replaceTheme(Collection<? extends Scoped> scopedConstructs,
+            ITopic oldTheme, Topic newTheme, Map<IScope, IScope> scopes) {
+        for (Scoped scoped: scopedConstructs) {
+            ScopedImpl impl = (ScopedImpl) scoped;
+            IScope newScope = scopes.get(impl._scope);
+            if (newScope == null) {
+                newScope = impl._scope.remove(oldTheme).add(newTheme);
+                scopes.put(impl._scope, newScope);
+            }
+            impl._scope = newScope;
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.tmapi.core.TopicMap#mergeIn(org.tmapi.core.TopicMap)
      */
@@ -372,6 +462,24 @@ final class MemoryTopicMap extends AbstractTopicMap implements ITopicMap {
         MergeUtils.merge(other, this);
     }
 
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.api.ITopicMap#suspendTopicNameMerging()
+     */
+    public void suspendTopicNameMerging() {
+        if (_topicNameIndex != null) {
+            _topicNameIndex.suspend();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.api.ITopicMap#resumeTopicNameMerging()
+     */
+    public void resumeTopicNameMerging() {
+        if (_topicNameIndex != null) {
+            _topicNameIndex.resume();
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.tmapi.core.TopicMap#close()
      */
@@ -397,6 +505,12 @@ final class MemoryTopicMap extends AbstractTopicMap implements ITopicMap {
         _assocs.clear();
         ((IndexManager)_indexManager).clear();
         ((IdentityManager) _identityManager).clear();
+        if (_topicNameIndex != null) {
+            _topicNameIndex.clear();
+        }
+        if (_monitor != null) {
+            _monitor.cleared();
+        }
     }
 
     /* (non-Javadoc)
@@ -409,6 +523,9 @@ final class MemoryTopicMap extends AbstractTopicMap implements ITopicMap {
         clear();
         _indexManager.close();
         _identityManager.close();
+        if (_topicNameIndex != null) {
+            _topicNameIndex.close();
+        }
         _eventMultiplier = null;
         super.dispose();
     }
@@ -469,6 +586,51 @@ final class MemoryTopicMap extends AbstractTopicMap implements ITopicMap {
         return _indexManager;
     }
 
+    /* (non-Javadoc)
+     * @see org.tinytim.core.ConstructImpl#measure(org.tinytim.core.MemoryFootprint)
+     */
+    @Override
+    void measure(MemoryFootprint footprint) {
+        super.measure(footprint);
+        footprint.addCollection("topic-map.topics", _topics);
+        footprint.addCollection("topic-map.associations", _assocs);
+        _identityManager.measure(footprint);
+        for (Map.Entry<String, Map<?, ? extends Collection<?>>> entry: ((IndexManager) _indexManager).getPostings().entrySet()) {
+            footprint.addPostings(entry.getKey(), entry.getValue());
+        }
+        if (_topicNameIndex != null) {
+            _topicNameIndex.measure(footprint);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.api.ITopicMap#compact()
+     */
+    public void compact() {
+        super.trim();
+        CollectionFactory.trimToSize(_topics);
+        CollectionFactory.trimToSize(_assocs);
+        for (Topic topic: _topics) {
+            for (Name name: topic.getNames()) {
+                for (Variant variant: name.getVariants()) {
+                    ((ConstructImpl) variant).trim();
+                }
+                ((ConstructImpl) name).trim();
+            }
+            for (Occurrence occ: topic.getOccurrences()) {
+                ((ConstructImpl) occ).trim();
+            }
+            ((ConstructImpl) topic).trim();
+        }
+        for (Association assoc: _assocs) {
+            for (Role role: assoc.getRoles()) {
+                ((ConstructImpl) role).trim();
+            }
+            ((ConstructImpl) assoc).trim();
+        }
+        ((IndexManager) _indexManager).compact();
+    }
+
     private static class EventMultiplier implements IEventHandler {
 
         private MemoryTopicMap _handler;
@@ -49,6 +49,9 @@ final class MemoryTopicMapSystem extends AbstractTopicMapSystem {
      */
     void removeTopicMap(MemoryTopicMap tm) {
         _topicMaps.remove(tm.getLocator());
+        if (tm.getMonitor() != null) {
+            tm.getMonitor().unregister();
+        }
     }
 
     /* (non-Javadoc)
@@ -59,8 +62,11 @@ final class MemoryTopicMapSystem extends AbstractTopicMapSystem {
         if (_topicMaps.containsKey(locator)) {
             throw new TopicMapExistsException("A topic map with the IRI + '" + locator.getReference() + "' exists in the system");
         }
-        TopicMap tm = new MemoryTopicMap(this, locator);
+        MemoryTopicMap tm = new MemoryTopicMap(this, locator);
         _topicMaps.put(locator, tm);
+        if (tm.getMonitor() != null) {
+            tm.getMonitor().register();
+        }
         return tm;
     }
 
@@ -86,6 +92,11 @@ final class MemoryTopicMapSystem extends AbstractTopicMapSystem {
     @Override
     public void close() {
         super.close();
+        if (_jmx) {
+            for (TopicMap tm: _topicMaps.values()) {
+                ((MemoryTopicMap) tm).getMonitor().unregister();
+            }
+        }
         _topicMaps.clear();
     }
 
@@ -22,7 +22,6 @@ import java.util.Set;
 
 import org.tinytim.core.value.Literal;
 import org.tinytim.internal.api.Event;
-import org.tinytim.internal.api.IConstant;
 import org.tinytim.internal.api.ILiteral;
 import org.tinytim.internal.api.IName;
 import org.tinytim.internal.api.IScope;
@@ -76,6 +75,7 @@ final class NameImpl extends ScopedImpl implements IName {
         assert literal != null;
         _fireEvent(Event.SET_LITERAL, _literal, literal);
         _literal = literal;
+        _fireEvent(Event.CHANGED_NAME, null, this);
     }
 
     /* (non-Javadoc)
@@ -95,6 +95,18 @@ final class NameImpl extends ScopedImpl implements IName {
         setLiteral(Literal.create(value));
     }
 
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TypedImpl#setType(org.tmapi.core.Topic)
+     */
+    @Override
+    public void setType(Topic type) {
+        Topic oldType = getType();
+        super.setType(type);
+        if (oldType != type) {
+            _fireEvent(Event.CHANGED_NAME, null, this);
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.tinytim.core.ScopedImpl#addTheme(org.tmapi.core.Topic)
      */
@@ -102,10 +114,14 @@ final class NameImpl extends ScopedImpl implements IName {
     public void addTheme(Topic theme) {
         IScope scope = _scope;
         super.addTheme(theme);
-        if (_variants != null && scope != _scope) {
-            for (Variant variant: _variants) {
-                ((VariantImpl) variant)._addNameTheme(theme);
+        if (scope != _scope) {
+            if (_variants != null) {
+                for (Variant variant: _variants) {
+                    ((VariantImpl) variant)._addNameTheme(theme);
+                }
             }
+            // Announced after the variants have been updated
+            _fireEvent(Event.CHANGED_NAME, null, this);
         }
     }
 
@@ -116,10 +132,13 @@ final class NameImpl extends ScopedImpl implements IName {
     public void removeTheme(Topic theme) {
         IScope scope = _scope;
         super.removeTheme(theme);
-        if (_variants != null && _scope != scope) {
-            for (Variant variant: _variants) {
-                ((VariantImpl) variant)._removeNameTheme(theme);
+        if (_scope != scope) {
+            if (_variants != null) {
+                for (Variant variant: _variants) {
+                    ((VariantImpl) variant)._removeNameTheme(theme);
+                }
             }
+            _fireEvent(Event.CHANGED_NAME, null, this);
         }
     }
 
@@ -225,7 +244,7 @@ final class NameImpl extends ScopedImpl implements IName {
 
     void attachVariant(VariantImpl variant) {
         if (_variants == null) {
-            _variants = CollectionFactory.createIdentitySet(IConstant.NAME_VARIANT_SIZE);
+            _variants = CollectionFactory.createSmallIdentitySet();
         }
         variant._parent = this;
         _variants.add(variant);
@@ -263,4 +282,22 @@ final class NameImpl extends ScopedImpl implements IName {
         super.dispose();
     }
 
+    /* (non-Javadoc)
+     * @see org.tinytim.core.ConstructImpl#measure(org.tinytim.core.MemoryFootprint)
+     */
+    @Override
+    void measure(MemoryFootprint footprint) {
+        super.measure(footprint);
+        footprint.addCollection("name.variants", _variants);
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.ConstructImpl#trim()
+     */
+    @Override
+    void trim() {
+        super.trim();
+        _variants = trim(_variants);
+    }
+
 }
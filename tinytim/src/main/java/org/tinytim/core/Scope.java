@@ -82,6 +82,15 @@ public final class Scope implements IScope {
         return scope;
     }
 
+    /**
+     * Returns the number of scopes which are currently registered.
+     *
+     * @return The number of registered scopes.
+     */
+    static synchronized int getInternedCount() {
+        return _SCOPES.size();
+    }
+
     /* (non-Javadoc)
      * @see org.tinytim.internal.api.IScope#asSet()
      */
@@ -22,7 +22,6 @@ import java.util.Set;
 
 import org.tinytim.core.value.Literal;
 import org.tinytim.internal.api.Event;
-import org.tinytim.internal.api.IConstant;
 import org.tinytim.internal.api.ILiteral;
 import org.tinytim.internal.api.IName;
 import org.tinytim.internal.api.IOccurrence;
@@ -55,16 +54,13 @@ final class TopicImpl extends ConstructImpl implements ITopic {
     private Set<Role> _rolesPlayed;
     Reifiable _reified;
     private Set<Topic> _types;
-    private final Set<Locator> _sids;
+    private Set<Locator> _sids;
     private Set<Locator> _slos;
-    private final Set<Occurrence> _occs;
-    private final Set<Name> _names;
+    private Set<Occurrence> _occs;
+    private Set<Name> _names;
 
     TopicImpl(ITopicMap topicMap) {
         super(topicMap);
-        _sids = CollectionFactory.createIdentitySet(IConstant.TOPIC_SID_SIZE);
-        _occs = CollectionFactory.createIdentitySet(IConstant.TOPIC_OCCURRENCE_SIZE);
-        _names = CollectionFactory.createIdentitySet(IConstant.TOPIC_NAME_SIZE);
     }
 
     /* (non-Javadoc)
@@ -79,7 +75,8 @@ final class TopicImpl extends ConstructImpl implements ITopic {
      * @see org.tmapi.core.Topic#getSubjectIdentifiers()
      */
     public Set<Locator> getSubjectIdentifiers() {
-        return Collections.unmodifiableSet(_sids);
+        return _sids == null ? Collections.<Locator>emptySet()
+                             : Collections.unmodifiableSet(_sids);
     }
 
     /* (non-Javadoc)
@@ -88,10 +85,13 @@ final class TopicImpl extends ConstructImpl implements ITopic {
     @Override
     public void addSubjectIdentifier(Locator sid) {
         Check.subjectIdentifierNotNull(this, sid);
-        if (_sids.contains(sid)) {
+        if (_sids != null && _sids.contains(sid)) {
             return;
         }
         _fireEvent(Event.ADD_SID, null, sid);
+        if (_sids == null) {
+            _sids = CollectionFactory.createSmallIdentitySet();
+        }
         _sids.add(sid);
     }
 
@@ -100,7 +100,7 @@ final class TopicImpl extends ConstructImpl implements ITopic {
      */
     @Override
     public void removeSubjectIdentifier(Locator sid) {
-        if (!_sids.contains(sid)) {
+        if (_sids == null || !_sids.contains(sid)) {
             return;
         }
         _fireEvent(Event.REMOVE_SID, sid, null);
@@ -122,12 +122,12 @@ final class TopicImpl extends ConstructImpl implements ITopic {
     @Override
     public void addSubjectLocator(Locator slo) {
         Check.subjectLocatorNotNull(this, slo);
-        if (_slos != null && _sids.contains(slo)) {
+        if (_slos != null && _slos.contains(slo)) {
             return;
         }
         _fireEvent(Event.ADD_SLO, null, slo);
         if (_slos == null) {
-            _slos = CollectionFactory.createIdentitySet(IConstant.TOPIC_SLO_SIZE);
+            _slos = CollectionFactory.createSmallIdentitySet();
         }
         _slos.add(slo);
     }
@@ -149,7 +149,8 @@ final class TopicImpl extends ConstructImpl implements ITopic {
      */
     @Override
     public Set<Occurrence> getOccurrences() {
-        return Collections.unmodifiableSet(_occs);
+        return _occs == null ? Collections.<Occurrence>emptySet()
+                             : Collections.unmodifiableSet(_occs);
     }
 
     /* (non-Javadoc)
@@ -247,6 +248,9 @@ final class TopicImpl extends ConstructImpl implements ITopic {
 
     void attachOccurrence(OccurrenceImpl occ, boolean silently) {
         occ._parent = this;
+        if (_occs == null) {
+            _occs = CollectionFactory.createSmallIdentitySet();
+        }
         _occs.add(occ);
         if (!silently) {
             _fireEvent(Event.ATTACHED_OCCURRENCE, null, occ);
@@ -266,7 +270,8 @@ final class TopicImpl extends ConstructImpl implements ITopic {
      */
     @Override
     public Set<Name> getNames() {
-        return Collections.unmodifiableSet(_names);
+        return _names == null ? Collections.<Name>emptySet()
+                              : Collections.unmodifiableSet(_names);
     }
 
     /* (non-Javadoc)
@@ -276,6 +281,9 @@ final class TopicImpl extends ConstructImpl implements ITopic {
     public Set<Name> getNames(Topic type) {
         Check.typeNotNull(type);
         Set<Name> names = CollectionFactory.createIdentitySet();
+        if (_names == null) {
+            return names;
+        }
         for (Name name: _names) {
             if (type == name.getType()) {
                 names.add(name);
@@ -309,6 +317,9 @@ final class TopicImpl extends ConstructImpl implements ITopic {
     public Set<Occurrence> getOccurrences(Topic type) {
         Check.typeNotNull(type);
         Set<Occurrence> occs = CollectionFactory.createIdentitySet();
+        if (_occs == null) {
+            return occs;
+        }
         for (Occurrence occ: _occs) {
             if (type == occ.getType()) {
                 occs.add(occ);
@@ -366,6 +377,9 @@ final class TopicImpl extends ConstructImpl implements ITopic {
 
     void attachName(NameImpl name, boolean silently) {
         name._parent = this;
+        if (_names == null) {
+            _names = CollectionFactory.createSmallIdentitySet();
+        }
         _names.add(name);
         if (!silently) {
             _fireEvent(Event.ATTACHED_NAME, null, name);
@@ -438,7 +452,7 @@ final class TopicImpl extends ConstructImpl implements ITopic {
 
     void addRolePlayed(Role role) {
         if (_rolesPlayed == null) {
-            _rolesPlayed = CollectionFactory.createIdentitySet(IConstant.TOPIC_ROLE_SIZE);
+            _rolesPlayed = CollectionFactory.createSmallIdentitySet();
         }
         _rolesPlayed.add(role);
     }
@@ -471,7 +485,7 @@ final class TopicImpl extends ConstructImpl implements ITopic {
         }
         _fireEvent(Event.ADD_TYPE, null, type);
         if (_types == null) {
-            _types = CollectionFactory.createIdentitySet(IConstant.TOPIC_TYPE_SIZE);
+            _types = CollectionFactory.createSmallIdentitySet();
         }
         _types.add(type);
     }
@@ -516,16 +530,44 @@ final class TopicImpl extends ConstructImpl implements ITopic {
             _reified.setReifier(null);
         }
         ((AbstractTopicMap) _tm).removeTopic(this);
-        _sids.clear();
+        _sids = null;
         _slos = null;
         _types = null;
-        _occs.clear();
-        _names.clear();
+        _occs = null;
+        _names = null;
         _rolesPlayed = null;
         _reified = null;
         super.dispose();
     }
 
+    /* (non-Javadoc)
+     * @see org.tinytim.core.ConstructImpl#measure(org.tinytim.core.MemoryFootprint)
+     */
+    @Override
+    void measure(MemoryFootprint footprint) {
+        super.measure(footprint);
+        footprint.addCollection("topic.subject-identifiers", _sids);
+        footprint.addCollection("topic.subject-locators", _slos);
+        footprint.addCollection("topic.types", _types);
+        footprint.addCollection("topic.names", _names);
+        footprint.addCollection("topic.occurrences", _occs);
+        footprint.addCollection("topic.roles-played", _rolesPlayed);
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.ConstructImpl#trim()
+     */
+    @Override
+    void trim() {
+        super.trim();
+        _sids = trim(_sids);
+        _slos = trim(_slos);
+        _types = trim(_types);
+        _names = trim(_names);
+        _occs = trim(_occs);
+        _rolesPlayed = trim(_rolesPlayed);
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Object#toString()
      */
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.tinytim.core.value.Literal;
+import org.tinytim.index.IndexManager;
+import org.tinytim.internal.api.Event;
+import org.tinytim.internal.api.IConstruct;
+import org.tinytim.internal.api.IEventHandler;
+import org.tinytim.internal.utils.CollectionFactory;
+
+import org.tmapi.core.TMAPIRuntimeException;
+import org.tmapi.core.TopicMap;
+
+/**
+ * {@link TopicMapMonitorMXBean} implementation.
+ * <p>
+ * The monitor counts the events of the topic map; the counters are plain
+ * fields which are updated by the thread which modifies the topic map.
+ * The number of topics and associations is maintained by the same event 
+ * handler, so reading them does not touch the collections of the topic map.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class TopicMapMonitor implements TopicMapMonitorMXBean {
+
+    private static final Event[] _EVENTS = Event.values();
+
+    /**
+     * Number of attempts to count the index postings.
+     */
+    private static final int _POSTING_COUNT_ATTEMPTS = 3;
+
+    private final MemoryTopicMap _tm;
+    private final String _locator;
+    private final ObjectName _name;
+    private final long[] _eventCounts;
+    private long _merges;
+    private volatile int _topics;
+    private volatile int _associations;
+    private volatile boolean _importInProgress;
+    private volatile long _imports;
+    private volatile long _importStatements;
+    private volatile double _importStatementsPerSecond;
+
+    TopicMapMonitor(MemoryTopicMap tm, String systemId) {
+        _tm = tm;
+        _locator = tm.getLocator().getReference();
+        _eventCounts = new long[_EVENTS.length];
+        try {
+            _name = new ObjectName("org.tinytim:type=TopicMap,system=" + systemId 
+                    + ",locator=" + ObjectName.quote(_locator));
+        }
+        catch (JMException ex) {
+            throw new TMAPIRuntimeException(ex);
+        }
+        final IEventHandler handler = new EventCounter();
+        for (Event evt: _EVENTS) {
+            tm.subscribe(evt, handler);
+        }
+    }
+
+    /**
+     * Returns the monitor of the provided topic map.
+     *
+     * @param topicMap The topic map.
+     * @return The monitor or <tt>null</tt> if the topic map is not monitored.
+     */
+    public static TopicMapMonitor getMonitor(TopicMap topicMap) {
+        return topicMap instanceof MemoryTopicMap ? ((MemoryTopicMap) topicMap).getMonitor() : null;
+    }
+
+    /**
+     * Returns the name under which this monitor is registered.
+     *
+     * @return The object name.
+     */
+    public ObjectName getObjectName() {
+        return _name;
+    }
+
+    /**
+     * Registers this monitor at the platform MBean server.
+     */
+    void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, _name);
+        }
+        catch (JMException ex) {
+            throw new TMAPIRuntimeException(ex);
+        }
+    }
+
+    /**
+     * Unregisters this monitor from the platform MBean server.
+     */
+    void unregister() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(_name)) {
+                server.unregisterMBean(_name);
+            }
+        }
+        catch (JMException ex) {
+            throw new TMAPIRuntimeException(ex);
+        }
+    }
+
+    /**
+     * Resets the number of topics and associations if the topic map 
+     * was cleared.
+     */
+    void cleared() {
+        _topics = 0;
+        _associations = 0;
+    }
+
+    /**
+     * Counts a topic merge.
+     */
+    void merged() {
+        _merges++;
+    }
+
+    /**
+     * Reports that an import has been started.
+     */
+    public void importStarted() {
+        _importStatements = 0;
+        _importStatementsPerSecond = 0;
+        _importInProgress = true;
+    }
+
+    /**
+     * Reports the progress of an import.
+     *
+     * @param statements The number of statements processed so far.
+     * @param statementsPerSecond The number of statements per second.
+     */
+    public void importProgress(long statements, double statementsPerSecond) {
+        _importStatements = statements;
+        _importStatementsPerSecond = statementsPerSecond;
+    }
+
+    /**
+     * Reports that an import has been finished.
+     *
+     * @param statements The number of processed statements.
+     * @param statementsPerSecond The number of statements per second.
+     */
+    public void importFinished(long statements, double statementsPerSecond) {
+        importProgress(statements, statementsPerSecond);
+        _importInProgress = false;
+        _imports++;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#getLocator()
+     */
+    public String getLocator() {
+        return _locator;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#getTopicCount()
+     */
+    public int getTopicCount() {
+        return _topics;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#getAssociationCount()
+     */
+    public int getAssociationCount() {
+        return _associations;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#getEventCounts()
+     */
+    public Map<String, Long> getEventCounts() {
+        final Map<String, Long> counts = CollectionFactory.createMap();
+        for (int i=0; i < _EVENTS.length; i++) {
+            final long count = _eventCounts[i];
+            if (count > 0) {
+                counts.put(_EVENTS[i].name(), count);
+            }
+        }
+        return counts;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#getMutationCount()
+     */
+    public long getMutationCount() {
+        long count = 0;
+        for (long eventCount: _eventCounts) {
+            count += eventCount;
+        }
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#getMergeCount()
+     */
+    public long getMergeCount() {
+        return _merges;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#getIndexPostingCounts()
+     */
+    public Map<String, Long> getIndexPostingCounts() {
+        // The postings are not synchronized, counting them fails if the 
+        // topic map is modified at the same time
+        for (int i=0; i < _POSTING_COUNT_ATTEMPTS; i++) {
+            try {
+                return _countPostings();
+            }
+            catch (ConcurrentModificationException ex) {
+                // noop.
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+    private Map<String, Long> _countPostings() {
+        final Map<String, Long> counts = CollectionFactory.createMap();
+        for (Map.Entry<String, Map<?, ? extends Collection<?>>> entry: ((IndexManager) _tm.getIndexManager()).getPostings().entrySet()) {
+            long count = 0;
+            for (Collection<?> postings: entry.getValue().values()) {
+                count += postings.size();
+            }
+            counts.put(entry.getKey(), count);
+        }
+        return counts;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#getLiteralRegistrySize()
+     */
+    public int getLiteralRegistrySize() {
+        return Literal.getInternedLiteralCount();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#getLocatorRegistrySize()
+     */
+    public int getLocatorRegistrySize() {
+        return Literal.getInternedLocatorCount();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#getScopeRegistrySize()
+     */
+    public int getScopeRegistrySize() {
+        return Scope.getInternedCount();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#isImportInProgress()
+     */
+    public boolean isImportInProgress() {
+        return _importInProgress;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#getImportCount()
+     */
+    public long getImportCount() {
+        return _imports;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#getImportStatementCount()
+     */
+    public long getImportStatementCount() {
+        return _importStatements;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#getImportStatementsPerSecond()
+     */
+    public double getImportStatementsPerSecond() {
+        return _importStatementsPerSecond;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.TopicMapMonitorMXBean#resetCounters()
+     */
+    public void resetCounters() {
+        for (int i=0; i < _eventCounts.length; i++) {
+            _eventCounts[i] = 0;
+        }
+        _merges = 0;
+    }
+
+    /**
+     * Counts the events.
+     */
+    private final class EventCounter implements IEventHandler {
+
+        /* (non-Javadoc)
+         * @see org.tinytim.internal.api.IEventHandler#handleEvent(org.tinytim.internal.api.Event, org.tinytim.internal.api.IConstruct, java.lang.Object, java.lang.Object)
+         */
+        public void handleEvent(Event evt, IConstruct sender, Object oldValue, Object newValue) {
+            _eventCounts[evt.ordinal()]++;
+            switch (evt) {
+                case ADD_TOPIC:             _topics++; break;
+                case REMOVE_TOPIC:          _topics--; break;
+                case ADD_ASSOCIATION:       _associations++; break;
+                case REMOVE_ASSOCIATION:    _associations--; break;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.core;
+
+import java.util.Map;
+
+/**
+ * Management interface of a topic map.
+ * <p>
+ * The MXBeans are registered under the name 
+ * <tt>org.tinytim:type=TopicMap,system=&lt;id&gt;,locator=&lt;locator&gt;</tt>
+ * if the {@link org.tinytim.utils.Property#JMX} property is enabled.
+ * </p>
+ * <p>
+ * The values are read without synchronization; they are snapshots which 
+ * may be slightly out of date while the topic map is modified.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public interface TopicMapMonitorMXBean {
+
+    /**
+     * Returns the storage address of the topic map.
+     *
+     * @return The locator of the topic map.
+     */
+    public String getLocator();
+
+    /**
+     * Returns the number of topics.
+     *
+     * @return The number of topics.
+     */
+    public int getTopicCount();
+
+    /**
+     * Returns the number of associations.
+     *
+     * @return The number of associations.
+     */
+    public int getAssociationCount();
+
+    /**
+     * Returns the number of events by their name, i.e. <tt>ADD_TOPIC</tt>.
+     * <p>
+     * Events which did not occur are not reported.
+     * </p>
+     *
+     * @return A map of event counts.
+     */
+    public Map<String, Long> getEventCounts();
+
+    /**
+     * Returns the number of all events.
+     *
+     * @return The number of events.
+     */
+    public long getMutationCount();
+
+    /**
+     * Returns the number of topic merges.
+     *
+     * @return The number of merges.
+     */
+    public long getMergeCount();
+
+    /**
+     * Returns the number of postings of the indexes by their name, i.e.
+     * <tt>type-instance.topics</tt>.
+     * <p>
+     * The postings are counted on demand. The result is a best-effort 
+     * snapshot: If the topic map is modified while the postings are 
+     * counted and counting fails repeatedly, an empty map is returned.
+     * </p>
+     *
+     * @return A map of posting counts.
+     */
+    public Map<String, Long> getIndexPostingCounts();
+
+    /**
+     * Returns the number of literals which are registered by all topic 
+     * maps.
+     *
+     * @return The size of the literal registry.
+     */
+    public int getLiteralRegistrySize();
+
+    /**
+     * Returns the number of locators which are registered by all topic 
+     * maps.
+     *
+     * @return The size of the locator registry.
+     */
+    public int getLocatorRegistrySize();
+
+    /**
+     * Returns the number of scopes which are registered by all topic 
+     * maps.
+     *
+     * @return The size of the scope registry.
+     */
+    public int getScopeRegistrySize();
+
+    /**
+     * Returns if an import into the topic map is in progress.
+     *
+     * @return <tt>true</tt> if an import is in progress, otherwise <tt>false</tt>.
+     */
+    public boolean isImportInProgress();
+
+    /**
+     * Returns the number of imports which were finished.
+     *
+     * @return The number of imports.
+     */
+    public long getImportCount();
+
+    /**
+     * Returns the number of statements processed by the current or the 
+     * last import.
+     *
+     * @return The number of statements.
+     */
+    public long getImportStatementCount();
+
+    /**
+     * Returns the number of statements per second processed by the 
+     * current or the last import.
+     *
+     * @return The number of statements per second.
+     */
+    public double getImportStatementsPerSecond();
+
+    /**
+     * Resets the event and merge counters.
+     */
+    public void resetCounters();
+
+}
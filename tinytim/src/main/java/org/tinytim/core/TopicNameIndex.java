@@ -0,0 +1,245 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.core;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.tinytim.internal.api.Event;
+import org.tinytim.internal.api.IConstruct;
+import org.tinytim.internal.api.IEventHandler;
+import org.tinytim.internal.api.IEventPublisher;
+import org.tinytim.internal.api.IEventPublisherAware;
+import org.tinytim.internal.api.ILiteral;
+import org.tinytim.internal.api.IName;
+import org.tinytim.internal.api.IScope;
+import org.tinytim.internal.utils.CollectionFactory;
+import org.tinytim.internal.utils.MergeUtils;
+import org.tinytim.internal.utils.NameKey;
+
+import org.tmapi.core.Topic;
+
+/**
+ * Index of names by their type, value, and scope which merges topics 
+ * according to the topic naming constraint (TNC).
+ * <p>
+ * If a name is added to a topic and another topic has a name with the same 
+ * type, value, and scope, the other topic is merged into the parent of the 
+ * added name. Changing the type, value, or scope of a name merges the 
+ * topics as soon as the modification is complete.
+ * </p>
+ * <p>
+ * This class is not meant to be used outside of the tinyTiM package.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+final class TopicNameIndex implements IEventPublisherAware {
+
+    private final Map<NameKey, Set<IName>> _key2Names;
+    private final Set<IName> _pending;
+    private int _suspended;
+    private boolean _merging;
+
+    TopicNameIndex(IEventPublisher publisher) {
+        _key2Names = CollectionFactory.createMap();
+        _pending = CollectionFactory.createIdentitySet();
+        subscribe(publisher);
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.api.IEventPublisherAware#subscribe(org.tinytim.internal.api.IEventPublisher)
+     */
+    public void subscribe(IEventPublisher publisher) {
+        publisher.subscribe(Event.ATTACHED_NAME, new AddNameHandler());
+        IEventHandler handler = new RemoveNameHandler();
+        publisher.subscribe(Event.REMOVE_NAME, handler);
+        publisher.subscribe(Event.DETACHED_NAME, handler);
+        handler = new NameChangeHandler();
+        publisher.subscribe(Event.SET_TYPE, handler);
+        publisher.subscribe(Event.SET_SCOPE, handler);
+        publisher.subscribe(Event.SET_LITERAL, handler);
+        publisher.subscribe(Event.CHANGED_NAME, new ChangedNameHandler());
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.api.IEventPublisherAware#unsubscribe(org.tinytim.internal.api.IEventPublisher)
+     */
+    public void unsubscribe(IEventPublisher publisher) {
+        // noop.
+    }
+
+    /**
+     * Suspends merging. Added names are indexed but topics are not merged 
+     * until {@link #resume()} is called.
+     * <p>
+     * Calls to this method can be nested.
+     * </p>
+     */
+    void suspend() {
+        _suspended++;
+    }
+
+    /**
+     * Resumes merging and merges all topics which violate the TNC due to
+     * modifications since {@link #suspend()} was called.
+     */
+    void resume() {
+        if (_suspended > 0 && --_suspended == 0) {
+            _mergePending();
+        }
+    }
+
+    public void clear() {
+        _key2Names.clear();
+        _pending.clear();
+    }
+
+    public void close() {
+        clear();
+    }
+
+    /**
+     * Reports the size of this index to the provided footprint.
+     *
+     * @param footprint The footprint.
+     */
+    void measure(MemoryFootprint footprint) {
+        footprint.addPostings("topic-name.names", _key2Names);
+    }
+
+    private void _index(NameKey key, IName name) {
+        Set<IName> names = _key2Names.get(key);
+        if (names == null) {
+            names = CollectionFactory.createIdentitySet(2);
+            _key2Names.put(key, names);
+        }
+        else {
+            _pending.add(name);
+        }
+        names.add(name);
+    }
+
+    private void _unindex(NameKey key, IName name) {
+        Set<IName> names = _key2Names.get(key);
+        if (names == null) {
+            return;
+        }
+        names.remove(name);
+        if (names.isEmpty()) {
+            _key2Names.remove(key);
+        }
+    }
+
+    /**
+     * Merges all pending names unless merging is suspended or a merge 
+     * operation is in progress.
+     */
+    private void _mergePending() {
+        if (_merging || _suspended > 0) {
+            return;
+        }
+        _merging = true;
+        try {
+            while (!_pending.isEmpty()) {
+                List<IName> names = CollectionFactory.createList(_pending);
+                _pending.clear();
+                for (IName name: names) {
+                    if (name.getParent() != null) {
+                        _merge(name);
+                    }
+                }
+            }
+        }
+        finally {
+            _merging = false;
+        }
+    }
+
+    /**
+     * Merges all topics which have a name equal to the provided 
+     * <tt>name</tt> into the parent of the <tt>name</tt>.
+     *
+     * @param name The name.
+     */
+    private void _merge(IName name) {
+        final Topic target = name.getParent();
+        Set<IName> names = _key2Names.get(NameKey.create(name));
+        if (names == null || names.size() < 2) {
+            return;
+        }
+        for (IName other: CollectionFactory.createList(names)) {
+            Topic source = other.getParent();
+            if (source != null && source != target) {
+                MergeUtils.merge(source, target);
+            }
+        }
+    }
+
+    private final class AddNameHandler implements IEventHandler {
+        public void handleEvent(Event evt, IConstruct sender, Object oldValue,
+                Object newValue) {
+            IName name = (IName) newValue;
+            _index(NameKey.create(name), name);
+            _mergePending();
+        }
+    }
+
+    private final class RemoveNameHandler implements IEventHandler {
+        public void handleEvent(Event evt, IConstruct sender, Object oldValue,
+                Object newValue) {
+            IName name = (IName) oldValue;
+            _unindex(NameKey.create(name), name);
+        }
+    }
+
+    /**
+     * Merges the topics after the type, value, or scope of a name has been 
+     * changed.
+     */
+    private final class ChangedNameHandler implements IEventHandler {
+        public void handleEvent(Event evt, IConstruct sender, Object oldValue,
+                Object newValue) {
+            _mergePending();
+        }
+    }
+
+    /**
+     * Re-indexes a name if its type, value or scope changes.
+     */
+    private final class NameChangeHandler implements IEventHandler {
+        public void handleEvent(Event evt, IConstruct sender, Object oldValue,
+                Object newValue) {
+            if (!sender.isName()) {
+                return;
+            }
+            IName name = (IName) sender;
+            Topic type = name.getType();
+            ILiteral literal = name.getLiteral();
+            IScope scope = name.getScopeObject();
+            _unindex(new NameKey(type, literal, scope), name);
+            switch (evt) {
+                case SET_TYPE:      type = (Topic) newValue; break;
+                case SET_LITERAL:   literal = (ILiteral) newValue; break;
+                case SET_SCOPE:     scope = (IScope) newValue; break;
+            }
+            _index(new NameKey(type, literal, scope), name);
+        }
+    }
+
+}
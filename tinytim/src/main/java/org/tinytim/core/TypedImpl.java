@@ -63,6 +63,16 @@ abstract class TypedImpl extends ConstructImpl implements Reifiable {
         _type = type;
     }
 
+    /**
+     * Sets the type without sending a notification.
+     *
+     * @param type The type.
+     * @see Event#REPLACE_TOPIC
+     */
+    void _replaceType(Topic type) {
+        _type = type;
+    }
+
     /* (non-Javadoc)
      * @see org.tmapi.core.Reifiable#getReifier()
      */
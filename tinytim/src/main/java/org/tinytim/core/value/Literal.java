@@ -85,12 +85,60 @@ public final class Literal implements ILiteral {
     }
 
     private static synchronized <L extends ILiteral> L _registerIfAbsent(final WeakObjectRegistry<L> registry, final L lit) {
-        final L existing = registry.get(lit);
-        if (existing != null) {
-            return existing;
+        return registry.intern(lit);
+    }
+
+    /**
+     * Returns how often a literal or an IRI was requested which was 
+     * already known.
+     * <p>
+     * The counter is global and is never reset.
+     * </p>
+     *
+     * @return The number of literals and IRIs which were reused.
+     */
+    public static long getInternHitCount() {
+        final long hits;
+        synchronized (Literal.class) {
+            hits = _STRINGS.getHitCount() + _OTHERS.getHitCount();
+        }
+        return hits + LocatorImpl.getInternHitCount();
+    }
+
+    /**
+     * Returns how often a literal or an IRI was requested which was 
+     * not known and had to be registered.
+     * <p>
+     * The counter is global and is never reset.
+     * </p>
+     *
+     * @return The number of literals and IRIs which were registered.
+     */
+    public static long getInternMissCount() {
+        final long misses;
+        synchronized (Literal.class) {
+            misses = _STRINGS.getMissCount() + _OTHERS.getMissCount();
         }
-        registry.add(lit);
-        return lit;
+        return misses + LocatorImpl.getInternMissCount();
+    }
+
+    /**
+     * Returns the number of literals which are currently registered, 
+     * IRIs are not counted.
+     *
+     * @return The number of registered literals.
+     */
+    public static synchronized int getInternedLiteralCount() {
+        return _STRINGS.size() + _OTHERS.size();
+    }
+
+    /**
+     * Returns the number of IRIs which are currently registered.
+     *
+     * @return The number of registered IRIs.
+     */
+    public static int getInternedLocatorCount() {
+        return LocatorImpl.getInternedCount();
     }
 
     public static ILiteral create(final String value, final Locator datatype) {
@@ -188,23 +188,23 @@ final class LocatorImpl implements ILocator {
     }
 
     private static synchronized ILocator create(URI value) {
-        ILocator loc = new LocatorImpl(value);
-        final ILocator existing = _IRIS.get(loc);
-        if (existing != null) {
-            return existing;
-        }
-        _IRIS.add(loc);
-        return loc;
+        return _IRIS.intern(new LocatorImpl(value));
     }
 
     static synchronized ILocator create(String value) {
-        ILocator loc = new LocatorImpl(value);
-        final ILocator existing = _IRIS.get(loc);
-        if (existing != null) {
-            return existing;
-        }
-        _IRIS.add(loc);
-        return loc;
+        return _IRIS.intern(new LocatorImpl(value));
+    }
+
+    static synchronized long getInternHitCount() {
+        return _IRIS.getHitCount();
+    }
+
+    static synchronized long getInternMissCount() {
+        return _IRIS.getMissCount();
+    }
+
+    static synchronized int getInternedCount() {
+        return _IRIS.size();
     }
 
 }
@@ -15,6 +15,9 @@
  */
 package org.tinytim.index;
 
+import java.util.Collection;
+import java.util.Map;
+
 import org.tinytim.internal.api.IEventPublisher;
 import org.tinytim.internal.api.IEventPublisherAware;
 import org.tmapi.index.Index;
@@ -74,4 +77,11 @@ abstract class AbstractIndex implements Index, IEventPublisherAware {
      */
     abstract void clear();
 
+    /**
+     * Adds the posting maps of this index to the provided map.
+     *
+     * @param postings The map which receives the posting maps by their name.
+     */
+    abstract void collectPostings(Map<String, Map<?, ? extends Collection<?>>> postings);
+
 }
@@ -15,8 +15,13 @@
  */
 package org.tinytim.index;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
 import org.tinytim.internal.api.IEventPublisher;
 import org.tinytim.internal.api.IIndexManager;
+import org.tinytim.internal.utils.CollectionFactory;
 
 import org.tmapi.index.LiteralIndex;
 import org.tmapi.index.ScopedIndex;
@@ -87,6 +92,41 @@ public final class IndexManager implements IIndexManager {
         clear();
     }
 
+    /**
+     * Returns the posting maps of the indexes by their name, i.e. 
+     * <tt>type-instance.topics</tt>.
+     * <p>
+     * The maps are returned as they are, they must not be modified.
+     * </p>
+     *
+     * @return A map of posting maps.
+     */
+    public Map<String, Map<?, ? extends Collection<?>>> getPostings() {
+        final Map<String, Map<?, ? extends Collection<?>>> postings = CollectionFactory.createMap();
+        _typeInstanceIndex.collectPostings(postings);
+        _scopedIndex.collectPostings(postings);
+        _literalIndex.collectPostings(postings);
+        return postings;
+    }
+
+    /**
+     * Removes empty postings and shrinks the remaining postings to their
+     * size.
+     */
+    public void compact() {
+        for (Map<?, ? extends Collection<?>> postings: getPostings().values()) {
+            for (Iterator<? extends Collection<?>> iter = postings.values().iterator(); iter.hasNext();) {
+                Collection<?> coll = iter.next();
+                if (coll.isEmpty()) {
+                    iter.remove();
+                }
+                else {
+                    CollectionFactory.trimToSize(coll);
+                }
+            }
+        }
+    }
+
     public void clear() {
         _typeInstanceIndex.clear();
         _scopedIndex.clear();
@@ -177,6 +177,16 @@ public class LiteralIndexImpl extends AbstractIndex implements LiteralIndex {
         _lit2Variants.clear();
     }
 
+    /* (non-Javadoc)
+     * @see org.tinytim.index.AbstractIndex#collectPostings(java.util.Map)
+     */
+    @Override
+    void collectPostings(Map<String, Map<?, ? extends Collection<?>>> postings) {
+        postings.put("literal.names", _lit2Names);
+        postings.put("literal.occurrences", _lit2Occs);
+        postings.put("literal.variants", _lit2Variants);
+    }
+
     private void _index(Map<ILiteral, List<ILiteralAware>> lit2LitAware, ILiteral lit, ILiteralAware litAware) {
         List<ILiteralAware> list = lit2LitAware.get(lit);
         if (list == null) {
@@ -62,6 +62,7 @@ public class ScopedIndexImpl extends AbstractIndex implements ScopedIndex {
      */
     public void subscribe(IEventPublisher publisher) {
         publisher.subscribe(Event.SET_SCOPE, new SetScopeHandler());
+        publisher.subscribe(Event.REPLACE_TOPIC, new ReplaceTopicHandler());
         IEventHandler handler = new AddScopedHandler();
         publisher.subscribe(Event.ADD_ASSOCIATION, handler);
         publisher.subscribe(Event.ATTACHED_OCCURRENCE, handler);
@@ -249,6 +250,17 @@ public class ScopedIndexImpl extends AbstractIndex implements ScopedIndex {
         _theme2Variants.clear();
     }
 
+    /* (non-Javadoc)
+     * @see org.tinytim.index.AbstractIndex#collectPostings(java.util.Map)
+     */
+    @Override
+    void collectPostings(Map<String, Map<?, ? extends Collection<?>>> postings) {
+        postings.put("scoped.associations", _theme2Assocs);
+        postings.put("scoped.occurrences", _theme2Occs);
+        postings.put("scoped.names", _theme2Names);
+        postings.put("scoped.variants", _theme2Variants);
+    }
+
     private void _unindex(Map<Topic, Set<Scoped>> map, Scoped scoped, IScope scope) {
         if (scope.isUnconstrained()) {
             Set<Scoped> list = map.get(null);
@@ -290,6 +302,23 @@ public class ScopedIndexImpl extends AbstractIndex implements ScopedIndex {
         }
     }
 
+    /**
+     * Moves the constructs indexed under <tt>oldTheme</tt> to <tt>newTheme</tt>.
+     */
+    private <T> void _rekey(Map<Topic, Set<T>> theme2Scoped, Topic oldTheme, Topic newTheme) {
+        Set<T> set = theme2Scoped.remove(oldTheme);
+        if (set == null) {
+            return;
+        }
+        Set<T> existing = theme2Scoped.get(newTheme);
+        if (existing == null) {
+            theme2Scoped.put(newTheme, set);
+        }
+        else {
+            existing.addAll(set);
+        }
+    }
+
     private abstract class _EvtHandler implements IEventHandler {
         @SuppressWarnings("unchecked")
         Map<Topic, Set<Scoped>> getMap(IConstruct scoped) {
@@ -326,6 +355,20 @@ public class ScopedIndexImpl extends AbstractIndex implements ScopedIndex {
         }
     }
 
+    /**
+     * Handler that re-keys the associations and occurrences if a topic 
+     * is replaced.
+     */
+    private final class ReplaceTopicHandler implements IEventHandler {
+        public void handleEvent(Event evt, IConstruct sender, Object oldValue,
+                Object newValue) {
+            Topic oldTheme = (Topic) oldValue;
+            Topic newTheme = (Topic) newValue;
+            _rekey(_theme2Assocs, oldTheme, newTheme);
+            _rekey(_theme2Occs, oldTheme, newTheme);
+        }
+    }
+
     private final class SetScopeHandler extends _EvtHandler {
         public void handleEvent(Event evt, IConstruct sender, Object oldValue,
                 Object newValue) {
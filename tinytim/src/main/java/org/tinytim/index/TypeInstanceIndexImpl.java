@@ -70,6 +70,7 @@ public class TypeInstanceIndexImpl extends AbstractIndex implements TypeInstance
         publisher.subscribe(Event.REMOVE_TOPIC, handler);
         handler = new TypeHandler();
         publisher.subscribe(Event.SET_TYPE, handler);
+        publisher.subscribe(Event.REPLACE_TOPIC, new ReplaceTopicHandler());
         handler = new AddTypedHandler();
         publisher.subscribe(Event.ADD_ASSOCIATION, handler);
         publisher.subscribe(Event.ADD_ROLE, handler);
@@ -217,6 +218,23 @@ public class TypeInstanceIndexImpl extends AbstractIndex implements TypeInstance
         }
     }
 
+    /**
+     * Moves the constructs indexed under <tt>oldType</tt> to <tt>newType</tt>.
+     */
+    private <T> void _rekey(Map<Topic, List<T>> type2Typed, Topic oldType, Topic newType) {
+        List<T> list = type2Typed.remove(oldType);
+        if (list == null) {
+            return;
+        }
+        List<T> existing = type2Typed.get(newType);
+        if (existing == null) {
+            type2Typed.put(newType, list);
+        }
+        else {
+            existing.addAll(list);
+        }
+    }
+
     private final class AddTopicHandler implements IEventHandler {
         public void handleEvent(Event evt, IConstruct sender, Object oldValue,
                 Object newValue) {
@@ -332,6 +350,21 @@ public class TypeInstanceIndexImpl extends AbstractIndex implements TypeInstance
         }
     }
 
+    /**
+     * Handler that re-keys the associations, roles, and occurrences if a 
+     * topic is replaced.
+     */
+    private final class ReplaceTopicHandler implements IEventHandler {
+        public void handleEvent(Event evt, IConstruct sender, Object oldValue,
+                Object newValue) {
+            Topic oldType = (Topic) oldValue;
+            Topic newType = (Topic) newValue;
+            _rekey(_type2Assocs, oldType, newType);
+            _rekey(_type2Roles, oldType, newType);
+            _rekey(_type2Occs, oldType, newType);
+        }
+    }
+
     private final class AddTypedHandler extends _EvtHandler {
         public void handleEvent(Event evt, IConstruct sender, Object oldValue,
                 Object newValue) {
@@ -360,4 +393,16 @@ public class TypeInstanceIndexImpl extends AbstractIndex implements TypeInstance
         _type2Occs.clear();
         _type2Names.clear();
     }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.index.AbstractIndex#collectPostings(java.util.Map)
+     */
+    @Override
+    void collectPostings(Map<String, Map<?, ? extends Collection<?>>> postings) {
+        postings.put("type-instance.topics", _type2Topics);
+        postings.put("type-instance.associations", _type2Assocs);
+        postings.put("type-instance.roles", _type2Roles);
+        postings.put("type-instance.occurrences", _type2Occs);
+        postings.put("type-instance.names", _type2Names);
+    }
 }
@@ -123,6 +123,18 @@ public enum Event {
      */
     SET_SCOPE,
 
+    /**
+     * Notification that a topic should be replaced by another topic as type 
+     * of associations, roles, and occurrences and as theme of associations 
+     * and occurrences.
+     * <p>
+     * The old value is the topic to replace, the new value is the 
+     * replacement. No {@link #SET_TYPE} or {@link #SET_SCOPE} notifications 
+     * are sent for the affected constructs.
+     * </p>
+     */
+    REPLACE_TOPIC,
+
     /**
      * Notification that the player of a role should be set.
      */
@@ -155,4 +167,13 @@ public enum Event {
     
     ATTACHED_NAME, DETACHED_NAME, ATTACHED_OCCURRENCE, DETACHED_OCCURRENCE,
 
+    /**
+     * Notification that the type, value, or scope of a name has been changed.
+     * <p>
+     * In contrast to the other notifications, this notification is sent 
+     * after the modification.
+     * </p>
+     */
+    CHANGED_NAME,
+
 }
@@ -33,42 +33,6 @@ public interface IConstant {
      * Initial size of the association set
      */
     public static final int TM_ASSOCIATION_SIZE = 100;
-    /**
-     * Initial size of the item identifier set.
-     */
-    public static final int CONSTRUCT_IID_SIZE = 4;
-    /**
-     * Initial size of the subject identifier set.
-     */
-    public static final int TOPIC_SID_SIZE = 4;
-    /**
-     * Initial size of the subject locator set.
-     */
-    public static final int TOPIC_SLO_SIZE = 2;
-    /**
-     * Initial size of the topic types set.
-     */
-    public static final int TOPIC_TYPE_SIZE = 2;
-    /**
-     * Initial size of the name set.
-     */
-    public static final int TOPIC_NAME_SIZE = 2;
-    /**
-     * Initial size of the occurrence set.
-     */
-    public static final int TOPIC_OCCURRENCE_SIZE = 2;
-    /**
-     * Initial size of the topic roles-played set.
-     */
-    public static final int TOPIC_ROLE_SIZE = 2;
-    /**
-     * Initial size of the association roles set.
-     */
-    public static final int ASSOC_ROLE_SIZE = 2;
-    /**
-     * Initial size of the name variants set.
-     */
-    public static final int NAME_VARIANT_SIZE = 2;
     /**
      * Initial size of the id->construct map.
      */
@@ -39,4 +39,55 @@ public interface ITopicMap extends TopicMap, IIndexManagerAware,
 
     public IScope createScope(Collection<Topic> themes);
 
+    /**
+     * Replaces the <tt>source</tt> topic with the <tt>replacement</tt>
+     * everywhere where <tt>source</tt> is used as type or theme.
+     * <p>
+     * Associations, roles, and occurrences are updated in place and the 
+     * indexes are updated at once (see {@link Event#REPLACE_TOPIC}); each 
+     * distinct new scope is created once.
+     * </p>
+     *
+     * @param source The topic to replace.
+     * @param replacement The topic which replaces the <tt>source</tt>.
+     */
+    public void replaceTopic(Topic source, Topic replacement);
+
+    /**
+     * Reports that two topics of this topic map have been merged.
+     * <p>
+     * Called once per topic merge by 
+     * {@link org.tinytim.internal.utils.MergeUtils#merge(Topic, Topic)}.
+     * </p>
+     */
+    public void topicMerged();
+
+    /**
+     * Shrinks the collections of all constructs and the index postings to 
+     * their size; empty collections are released.
+     * <p>
+     * This method is meant to be called once a topic map has been loaded 
+     * and is mainly read afterwards. The topic map remains fully 
+     * modifiable, the collections grow again on demand.
+     * </p>
+     */
+    public void compact();
+
+    /**
+     * Suspends merging topics by their names (see 
+     * {@link org.tinytim.utils.Feature#TNC}) until 
+     * {@link #resumeTopicNameMerging()} is called.
+     * <p>
+     * Calls to this method can be nested. If the feature is disabled, this
+     * method does nothing.
+     * </p>
+     */
+    public void suspendTopicNameMerging();
+
+    /**
+     * Resumes merging topics by their names and merges the topics whose 
+     * names were added or changed while merging was suspended.
+     */
+    public void resumeTopicNameMerging();
+
 }
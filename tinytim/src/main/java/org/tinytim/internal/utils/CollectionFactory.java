@@ -15,6 +15,7 @@
  */
 package org.tinytim.internal.utils;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -69,6 +70,13 @@ public final class CollectionFactory {
         return _COLL_FACTORY.createIdentitySet(elements);
     }
 
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.utils.ICollectionFactory#createSmallIdentitySet()
+     */
+    public static <E> Set<E> createSmallIdentitySet() {
+        return _COLL_FACTORY.createSmallIdentitySet();
+    }
+
     /* (non-Javadoc)
      * @see org.tinytim.utils.ICollectionFactory#createMap()
      */
@@ -109,6 +117,10 @@ public final class CollectionFactory {
         return _COLL_FACTORY.createIntObjectMap(size);
     }
 
+    public static <K> IObjectIntMap<K> createIdentityObjectIntMap(int size) {
+        return _COLL_FACTORY.createIdentityObjectIntMap(size);
+    }
+
     public static <E> List<E> createList() {
         return _COLL_FACTORY.createList();
     }
@@ -121,4 +133,56 @@ public final class CollectionFactory {
         return _COLL_FACTORY.createList(values);
     }
 
+    /**
+     * Returns the number of slots which are allocated by the provided
+     * collection.
+     * <p>
+     * If the number of slots is unknown, the size of the collection is
+     * returned.
+     * </p>
+     *
+     * @param coll A collection created by this factory.
+     * @return The number of slots.
+     */
+    public static int capacity(Collection<?> coll) {
+        if (coll instanceof SmallIdentitySet<?>) {
+            return ((SmallIdentitySet<?>) coll).capacity();
+        }
+        return coll instanceof CompactHashSet<?> ? ((CompactHashSet<?>) coll).capacity()
+                                                 : coll.size();
+    }
+
+    /**
+     * Returns if the provided collection keeps its elements without a 
+     * backing array.
+     *
+     * @param coll A collection created by this factory.
+     * @return <tt>true</tt> if the collection has no backing array, 
+     *          otherwise <tt>false</tt>.
+     */
+    public static boolean isInline(Collection<?> coll) {
+        return coll instanceof SmallIdentitySet<?> && ((SmallIdentitySet<?>) coll).isInline();
+    }
+
+    /**
+     * Shrinks the provided collection to the number of slots which are
+     * required to hold its elements.
+     * <p>
+     * Collections which cannot be shrunk are left untouched.
+     * </p>
+     *
+     * @param coll A collection created by this factory.
+     */
+    public static void trimToSize(Collection<?> coll) {
+        if (coll instanceof SmallIdentitySet<?>) {
+            ((SmallIdentitySet<?>) coll).trimToSize();
+        }
+        else if (coll instanceof CompactHashSet<?>) {
+            ((CompactHashSet<?>) coll).trimToSize();
+        }
+        else if (coll instanceof ArrayList<?>) {
+            ((ArrayList<?>) coll).trimToSize();
+        }
+    }
+
 }
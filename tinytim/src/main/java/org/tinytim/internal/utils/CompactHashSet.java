@@ -91,6 +91,25 @@ class CompactHashSet<E> extends java.util.AbstractSet<E> {
     return elements;
   }
 
+  /**
+   * Returns the number of slots of the hashtable.
+   */
+  public int capacity() {
+    return objects.length;
+  }
+
+  /**
+   * Shrinks the hashtable to the smallest capacity which holds the
+   * elements of this set without exceeding the load factor.
+   */
+  public void trimToSize() {
+    int capacity = (int) (elements / LOAD_FACTOR) + 1;
+    if (capacity < objects.length) {
+      rehash(capacity);
+      modCount++;
+    }
+  }
+
   /**
    * Returns <tt>true</tt> if this set contains no elements.
    */
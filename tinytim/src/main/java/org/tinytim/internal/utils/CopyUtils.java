@@ -15,14 +15,22 @@
  */
 package org.tinytim.internal.utils;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.tinytim.internal.api.ILiteralAware;
 import org.tinytim.internal.api.IName;
 import org.tinytim.internal.api.IScope;
 import org.tinytim.internal.api.ITopic;
 import org.tinytim.internal.api.ITopicMap;
+import org.tinytim.utils.OperationEvent.Operation;
+import org.tinytim.utils.OperationMonitor;
 
 import org.tmapi.core.Association;
 import org.tmapi.core.Construct;
@@ -32,6 +40,7 @@ import org.tmapi.core.Occurrence;
 import org.tmapi.core.Reifiable;
 import org.tmapi.core.Role;
 import org.tmapi.core.Scoped;
+import org.tmapi.core.TMAPIRuntimeException;
 import org.tmapi.core.Topic;
 import org.tmapi.core.TopicMap;
 import org.tmapi.core.Typed;
@@ -46,6 +55,12 @@ import org.tmapi.core.Variant;
  */
 final class CopyUtils {
 
+    /**
+     * Minimum number of source topics per thread to match the topics 
+     * concurrently.
+     */
+    private static final int _PARALLEL_THRESHOLD = 10000;
+
     private CopyUtils() {
         // noop.
     }
@@ -58,60 +73,53 @@ final class CopyUtils {
      * @param target The topic map which should receive the topics and associations.
      */
     public static void copy(final TopicMap source, final TopicMap target) {
-        _copy(source, (ITopicMap) target);
+        _checkTopicMaps(source, target);
+        if (source == target) {
+            return;
+        }
+        final long start = OperationMonitor.start();
+        _copy(source, (ITopicMap) target, findMergePairs(source, target));
+        OperationMonitor.finished(Operation.COPY, target, start);
     }
 
     /**
-     * @see #copy(TopicMap, TopicMap)
+     * Copies the topics and associations from the <tt>source</tt> to the
+     * <tt>target</tt> topic map using precomputed topic pairs.
+     *
+     * @param source The topic map to take the topics and associations from.
+     * @param target The topic map which should receive the topics and associations.
+     * @param pairs The topic pairs as returned by {@link #findMergePairs(TopicMap, TopicMap)}.
      */
-    private static void _copy(final TopicMap source, final ITopicMap target) {
-        if (source == null || target == null) {
-            throw new IllegalArgumentException("Neither the source topic map nor the target topic map must be null");
-        }
+    static void copy(final TopicMap source, final TopicMap target, 
+            final List<Topic> pairs) {
+        _checkTopicMaps(source, target);
         if (source == target) {
             return;
         }
-        Map<Topic, Topic> mergeMap = CollectionFactory.createIdentityMap();
-        Topic existing = null;
-        Construct existingConstruct = null;
-        for (Topic topic: source.getTopics()) {
-            for (Locator slo: topic.getSubjectLocators()) {
-                existing = target.getTopicBySubjectLocator(slo);
-                if (existing != null) {
-                    _addMerge(topic, existing, mergeMap);
-                }
-            }
-            for (Locator sid: topic.getSubjectIdentifiers()) {
-                existing = target.getTopicBySubjectIdentifier(sid);
-                if (existing != null) {
-                    _addMerge(topic, existing, mergeMap);
-                }
-                existingConstruct = target.getConstructByItemIdentifier(sid);
-                if (existingConstruct instanceof Topic) {
-                    _addMerge(topic, (Topic) existingConstruct, mergeMap);
-                }
-            }
-            for (Locator iid: topic.getItemIdentifiers()) {
-                existingConstruct = target.getConstructByItemIdentifier(iid);
-                if (existingConstruct instanceof Topic) {
-                    _addMerge(topic, (Topic) existingConstruct, mergeMap);
-                }
-                existing = target.getTopicBySubjectIdentifier(iid);
-                if (existing != null) {
-                    _addMerge(topic, existing, mergeMap);
-                }
-            }
-        }
-        if (source.getReifier() != null && target.getReifier() != null) {
-            _addMerge(source.getReifier(), target.getReifier(), mergeMap);
+        _copy(source, (ITopicMap) target, pairs);
+    }
+
+    private static void _checkTopicMaps(final TopicMap source, final TopicMap target) {
+        if (source == null || target == null) {
+            throw new IllegalArgumentException("Neither the source topic map nor the target topic map must be null");
         }
+    }
+
+    /**
+     * @see #copy(TopicMap, TopicMap)
+     */
+    private static void _copy(final TopicMap source, final ITopicMap target, 
+            final List<Topic> pairs) {
+        final Map<Topic, Topic> merges = _createMergeMap(pairs, target);
+        final Map<Topic, Topic> mergeMap = CollectionFactory.createIdentityMap(merges.size());
+        mergeMap.putAll(merges);
         for (Topic topic: source.getTopics()) {
             if (!mergeMap.containsKey(topic)) {
                 _copyTopic(topic, target, mergeMap);
             }
         }
-        for (Topic topic: mergeMap.keySet()) {
-            Topic targetTopic = mergeMap.get(topic);
+        for (Topic topic: merges.keySet()) {
+            Topic targetTopic = merges.get(topic);
             _copyIdentities(topic, targetTopic);
             _copyTypes(topic, targetTopic, mergeMap);
             _copyCharacteristics(topic, (ITopic)targetTopic, mergeMap);
@@ -130,6 +138,7 @@ final class CopyUtils {
     private static ITopic _copyTopic(final Topic topic, final ITopicMap target,
             final Map<Topic, Topic> mergeMap) {
         ITopic targetTopic = target.createEmptyTopic();
+        mergeMap.put(topic, targetTopic);
         _copyIdentities(topic, targetTopic);
         _copyTypes(topic, targetTopic, mergeMap);
         _copyCharacteristics(topic, (ITopic)targetTopic, mergeMap);
@@ -365,27 +374,172 @@ final class CopyUtils {
     }
 
     /**
-     * Adds a mapping from <tt>source</tt> to <tt>target</tt> into the
-     * <tt>mergeMap</tt>.
-     * 
-     * If <tt>source</tt> has already a mapping to another target topic, 
-     * <tt>target</tt> is merged with the existing target topic.
+     * Returns a mapping of source topics to the target topics which represent
+     * the same subject.
+     * <p>
+     * The equivalence classes of source and target topics are computed first
+     * (matched by subject locators, subject identifiers, item identifiers 
+     * and the reifiers of the topic maps). Afterwards, all target topics 
+     * which belong to the same class are merged exactly once.
+     * </p>
      *
-     * @param source The source topic.
-     * @param target The target topic.
-     * @param mergeMap The map which holds the merge mappings.
+     * @param pairs The topic pairs.
+     * @param target The target topic map.
+     * @return A map of source topics to target topics.
      */
-    private static void _addMerge(final Topic source, final Topic target, 
-            final Map<Topic, Topic> mergeMap) {
-        final Topic prevTarget = mergeMap.get(source);
-        if (prevTarget != null) {
-            if (!prevTarget.equals(target)) {
-                MergeUtils.merge(target, prevTarget);
+    private static Map<Topic, Topic> _createMergeMap(final List<Topic> pairs, 
+            final ITopicMap target) {
+        final Map<Topic, Topic> mergeMap = CollectionFactory.createIdentityMap();
+        if (pairs.isEmpty()) {
+            return mergeMap;
+        }
+        final UnionFind<Topic> classes = new UnionFind<Topic>();
+        for (int i=0; i<pairs.size(); i+=2) {
+            classes.union(pairs.get(i+1), pairs.get(i));
+        }
+        for (List<Topic> members: classes.classes()) {
+            Topic targetTopic = null;
+            for (Topic topic: members) {
+                if (topic.getTopicMap() == target) {
+                    if (targetTopic == null) {
+                        targetTopic = topic;
+                    }
+                    else {
+                        MergeUtils.merge(topic, targetTopic);
+                    }
+                }
             }
+            for (Topic topic: members) {
+                if (topic.getTopicMap() != target) {
+                    mergeMap.put(topic, targetTopic);
+                }
+            }
+        }
+        return mergeMap;
+    }
+
+    /**
+     * Returns pairs of source / target topics which represent the same 
+     * subject.
+     * <p>
+     * Neither the source nor the target topic map is modified.
+     * </p>
+     *
+     * @param source The source topic map.
+     * @param target The target topic map.
+     * @return A list of topic pairs: <tt>[source, target, source, target, ...]</tt>.
+     */
+    static List<Topic> findMergePairs(final TopicMap source, final TopicMap target) {
+        final List<Topic> pairs = _findMergePairs(source.getTopics(), target);
+        if (source.getReifier() != null && target.getReifier() != null) {
+            pairs.add(source.getReifier());
+            pairs.add(target.getReifier());
+        }
+        return pairs;
+    }
+
+    /**
+     * Returns pairs of source / target topics which represent the same 
+     * subject.
+     * <p>
+     * If the number of topics exceeds a threshold and more than one 
+     * processor is available, the topics are matched concurrently. Neither 
+     * the source nor the target topic map must be modified while this 
+     * method is running.
+     * </p>
+     *
+     * @param topics The source topics.
+     * @param target The target topic map.
+     * @return A list of topic pairs: <tt>[source, target, source, target, ...]</tt>.
+     */
+    private static List<Topic> _findMergePairs(final Collection<Topic> topics, 
+            final TopicMap target) {
+        final int threads = Math.min(Runtime.getRuntime().availableProcessors(), 
+                                        topics.size() / _PARALLEL_THRESHOLD);
+        if (threads < 2) {
+            return _findMergePairs(topics, target, CollectionFactory.<Topic>createList());
+        }
+        final List<Topic> topicList = CollectionFactory.createList(topics);
+        final int chunkSize = (topicList.size() + threads - 1) / threads;
+        final ExecutorService executor = ParallelArrays.getExecutor();
+        final List<Future<List<Topic>>> results = CollectionFactory.createList(threads);
+        try {
+            for (int i=0; i<topicList.size(); i+=chunkSize) {
+                final List<Topic> chunk = topicList.subList(i, Math.min(i + chunkSize, topicList.size()));
+                results.add(executor.submit(new Callable<List<Topic>>() {
+                    public List<Topic> call() throws Exception {
+                        return _findMergePairs(chunk, target, CollectionFactory.<Topic>createList());
+                    }
+                }));
+            }
+            final List<Topic> pairs = CollectionFactory.createList();
+            for (Future<List<Topic>> result: results) {
+                pairs.addAll(result.get());
+            }
+            return pairs;
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TMAPIRuntimeException(ex);
         }
-        else {
-            mergeMap.put(source, target);
+        catch (ExecutionException ex) {
+            throw new TMAPIRuntimeException(ex.getCause());
         }
+        finally {
+            for (Future<List<Topic>> result: results) {
+                result.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Adds pairs of source / target topics which represent the same subject
+     * to <tt>pairs</tt>.
+     *
+     * @param topics The source topics.
+     * @param target The target topic map.
+     * @param pairs The list which receives the topic pairs.
+     * @return The <tt>pairs</tt> list.
+     */
+    private static List<Topic> _findMergePairs(final Collection<Topic> topics, 
+            final TopicMap target, final List<Topic> pairs) {
+        Topic existing = null;
+        Construct existingConstruct = null;
+        for (Topic topic: topics) {
+            for (Locator slo: topic.getSubjectLocators()) {
+                existing = target.getTopicBySubjectLocator(slo);
+                if (existing != null) {
+                    _addPair(topic, existing, pairs);
+                }
+            }
+            for (Locator sid: topic.getSubjectIdentifiers()) {
+                existing = target.getTopicBySubjectIdentifier(sid);
+                if (existing != null) {
+                    _addPair(topic, existing, pairs);
+                }
+                existingConstruct = target.getConstructByItemIdentifier(sid);
+                if (existingConstruct instanceof Topic) {
+                    _addPair(topic, (Topic) existingConstruct, pairs);
+                }
+            }
+            for (Locator iid: topic.getItemIdentifiers()) {
+                existingConstruct = target.getConstructByItemIdentifier(iid);
+                if (existingConstruct instanceof Topic) {
+                    _addPair(topic, (Topic) existingConstruct, pairs);
+                }
+                existing = target.getTopicBySubjectIdentifier(iid);
+                if (existing != null) {
+                    _addPair(topic, existing, pairs);
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private static void _addPair(final Topic source, final Topic target, 
+            final List<Topic> pairs) {
+        pairs.add(source);
+        pairs.add(target);
     }
 
 }
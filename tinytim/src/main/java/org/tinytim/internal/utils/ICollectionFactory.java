@@ -48,6 +48,15 @@ interface ICollectionFactory {
      */
     <E> IIntObjectMap<E> createIntObjectMap(int size);
 
+    /**
+     * Creates a {@link IObjectIntMap} which compares the keys by identity.
+     *
+     * @param <K>
+     * @param size The initial capacity.
+     * @return
+     */
+    <K> IObjectIntMap<K> createIdentityObjectIntMap(int size);
+
     /**
      * Creates a {@link java.util.Set} with the specified initial <code>size</code>.
      *
@@ -92,6 +101,17 @@ interface ICollectionFactory {
 
     <E> Set<E> createIdentitySet(Set<? extends E> elements);
 
+    /**
+     * Creates a {@link java.util.Set} which is optimized for a few elements.
+     * 
+     * The implementation is allowed (but not required) to compare the 
+     * elements by identity.
+     *
+     * @param <E>
+     * @return
+     */
+    <E> Set<E> createSmallIdentitySet();
+
     /**
      * Creates a {@link java.util.Map}.
      *
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.internal.utils;
+
+import java.util.Arrays;
+
+/**
+ * {@link IObjectIntMap} implementation which compares the keys by identity.
+ * <p>
+ * The keys and values are kept in two arrays (open addressing, linear 
+ * probing), no entry objects are created.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+final class IdentityObjectIntMap<K> implements IObjectIntMap<K> {
+
+    private Object[] _keys;
+    private int[] _values;
+    private int _size;
+    private int _threshold;
+
+    public IdentityObjectIntMap(int size) {
+        int capacity = 16;
+        while (capacity * 3 < size * 4) {
+            capacity <<= 1;
+        }
+        _init(capacity);
+    }
+
+    private void _init(int capacity) {
+        _keys = new Object[capacity];
+        _values = new int[capacity];
+        _threshold = capacity * 3 / 4;
+    }
+
+    private static int _index(Object key, int length) {
+        final int h = System.identityHashCode(key);
+        return ((h << 1) - (h << 8)) & (length - 1);
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.utils.IObjectIntMap#get(java.lang.Object)
+     */
+    public int get(K key) {
+        final Object[] keys = _keys;
+        int i = _index(key, keys.length);
+        Object k = keys[i];
+        while (k != null) {
+            if (k == key) {
+                return _values[i];
+            }
+            i = (i + 1) & (keys.length - 1);
+            k = keys[i];
+        }
+        return 0;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.utils.IObjectIntMap#put(java.lang.Object, int)
+     */
+    public int put(K key, int value) {
+        if (key == null) {
+            throw new IllegalArgumentException("The key must not be null");
+        }
+        final Object[] keys = _keys;
+        int i = _index(key, keys.length);
+        Object k = keys[i];
+        while (k != null) {
+            if (k == key) {
+                final int old = _values[i];
+                _values[i] = value;
+                return old;
+            }
+            i = (i + 1) & (keys.length - 1);
+            k = keys[i];
+        }
+        keys[i] = key;
+        _values[i] = value;
+        if (++_size > _threshold) {
+            _resize();
+        }
+        return 0;
+    }
+
+    private void _resize() {
+        final Object[] keys = _keys;
+        final int[] values = _values;
+        _init(keys.length << 1);
+        for (int i=0; i<keys.length; i++) {
+            if (keys[i] != null) {
+                int j = _index(keys[i], _keys.length);
+                while (_keys[j] != null) {
+                    j = (j + 1) & (_keys.length - 1);
+                }
+                _keys[j] = keys[i];
+                _values[j] = values[i];
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.utils.IObjectIntMap#size()
+     */
+    public int size() {
+        return _size;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.utils.IObjectIntMap#clear()
+     */
+    public void clear() {
+        Arrays.fill(_keys, null);
+        Arrays.fill(_values, 0);
+        _size = 0;
+    }
+
+}
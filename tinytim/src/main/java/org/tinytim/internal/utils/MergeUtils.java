@@ -15,17 +15,17 @@
  */
 package org.tinytim.internal.utils;
 
-import java.util.Collection;
 import java.util.List;
 
 import org.tinytim.internal.api.IAssociation;
-import org.tinytim.internal.api.IIndexManager;
-import org.tinytim.internal.api.IIndexManagerAware;
 import org.tinytim.internal.api.IName;
 import org.tinytim.internal.api.IOccurrence;
 import org.tinytim.internal.api.IRole;
 import org.tinytim.internal.api.ITopic;
+import org.tinytim.internal.api.ITopicMap;
 import org.tinytim.internal.api.IVariant;
+import org.tinytim.utils.OperationEvent.Operation;
+import org.tinytim.utils.OperationMonitor;
 
 import org.tmapi.core.Association;
 import org.tmapi.core.Construct;
@@ -35,13 +35,9 @@ import org.tmapi.core.Name;
 import org.tmapi.core.Occurrence;
 import org.tmapi.core.Reifiable;
 import org.tmapi.core.Role;
-import org.tmapi.core.Scoped;
 import org.tmapi.core.Topic;
 import org.tmapi.core.TopicMap;
-import org.tmapi.core.Typed;
 import org.tmapi.core.Variant;
-import org.tmapi.index.ScopedIndex;
-import org.tmapi.index.TypeInstanceIndex;
 
 /**
  * This class provides functions to merge topic maps and topics.
@@ -70,7 +66,53 @@ public final class MergeUtils {
      *                  topics / associations from <tt>source</tt>.
      */
     public static void merge(TopicMap source, TopicMap target) {
-        CopyUtils.copy(source, target);
+        final long start = OperationMonitor.start();
+        // Merging by topic names is postponed, the copy operation keeps 
+        // references to the topics of the target topic map
+        final ITopicMap tm = (ITopicMap) target;
+        tm.suspendTopicNameMerging();
+        try {
+            CopyUtils.copy(source, target);
+        }
+        finally {
+            tm.resumeTopicNameMerging();
+        }
+        OperationMonitor.finished(Operation.MERGE, target, start);
+    }
+
+    /**
+     * Merges two topic maps using precomputed topic pairs.
+     *
+     * @param source The source topic map.
+     * @param target The target topic map which receives all 
+     *                  topics / associations from <tt>source</tt>.
+     * @param pairs The topic pairs as returned by {@link #findMergePairs(TopicMap, TopicMap)}.
+     * @see #merge(TopicMap, TopicMap)
+     */
+    public static void merge(TopicMap source, TopicMap target, List<Topic> pairs) {
+        final long start = OperationMonitor.start();
+        final ITopicMap tm = (ITopicMap) target;
+        tm.suspendTopicNameMerging();
+        try {
+            CopyUtils.copy(source, target, pairs);
+        }
+        finally {
+            tm.resumeTopicNameMerging();
+        }
+        OperationMonitor.finished(Operation.MERGE, target, start);
+    }
+
+    /**
+     * Returns pairs of source / target topics which represent the same 
+     * subject.
+     *
+     * @param source The source topic map.
+     * @param target The target topic map.
+     * @return A list of topic pairs: <tt>[source, target, source, target, ...]</tt>.
+     * @see #merge(TopicMap, TopicMap, List)
+     */
+    public static List<Topic> findMergePairs(TopicMap source, TopicMap target) {
+        return CopyUtils.findMergePairs(source, target);
     }
 
     /**
@@ -85,7 +127,22 @@ public final class MergeUtils {
      *                  <tt>source</tt>.
      */
     public static void merge(Topic source, Topic target) {
-        _merge((ITopic) source, target);
+        if (source == null || target == null) {
+            throw new IllegalArgumentException("Neither the source topic nor the target topic must be null");
+        }
+        // Merging by topic names is postponed, the names, occurrences and 
+        // roles of the source are moved one by one
+        final ITopicMap tm = (ITopicMap) target.getTopicMap();
+        tm.suspendTopicNameMerging();
+        try {
+            _merge((ITopic) source, target);
+        }
+        finally {
+            tm.resumeTopicNameMerging();
+        }
+        if (source != target) {
+            tm.topicMerged();
+        }
     }
 
     /**
@@ -273,58 +330,7 @@ public final class MergeUtils {
      * @param replacement The topic which replaces the <tt>source</tt>.
      */
     private static void _replaceTopics(Topic source, Topic replacement) {
-        IIndexManager idxMan = ((IIndexManagerAware) replacement.getTopicMap()).getIndexManager();
-        TypeInstanceIndex typeInstanceIndex = idxMan.getTypeInstanceIndex();
-        if (!typeInstanceIndex.isAutoUpdated()) {
-            typeInstanceIndex.reindex();
-        }
-        for (Topic topic: typeInstanceIndex.getTopics(source)) {
-            topic.removeType(source);
-            topic.addType(replacement);
-        }
-        _replaceTopicAsType(typeInstanceIndex.getAssociations(source), replacement);
-        _replaceTopicAsType(typeInstanceIndex.getRoles(source), replacement);
-        _replaceTopicAsType(typeInstanceIndex.getOccurrences(source), replacement);
-        _replaceTopicAsType(typeInstanceIndex.getNames(source), replacement);
-        typeInstanceIndex.close();
-        ScopedIndex scopedIndex = idxMan.getScopedIndex();
-        if (!scopedIndex.isAutoUpdated()) {
-            scopedIndex.reindex();
-        }
-        _replaceTopicAsTheme(scopedIndex.getAssociations(source), source, replacement);
-        _replaceTopicAsTheme(scopedIndex.getOccurrences(source), source, replacement);
-        _replaceTopicAsTheme(scopedIndex.getNames(source), source, replacement);
-        _replaceTopicAsTheme(scopedIndex.getVariants(source), source, replacement);
-        scopedIndex.close();
-    }
-
-    /**
-     * Sets <tt>replacement</tt> as type of each typed Topic Maps construct.
-     *
-     * @param typedConstructs A collection of typed constructs.
-     * @param replacement The type.
-     */
-    private static void _replaceTopicAsType(Collection<? extends Typed> typedConstructs,
-            Topic replacement) {
-        for (Typed typed: typedConstructs) {
-            typed.setType(replacement);
-        }
-    }
-
-    /**
-     * Replaces the <tt>oldTheme</tt> with the <tt>newTheme</tt> in each
-     * scoped Topic Maps construct.
-     *
-     * @param scopedCollection A collection of scoped Topic Maps constructs.
-     * @param oldTheme The old theme.
-     * @param newTheme The theme that is used as replacement for <tt>oldTheme</tt>.
-     */
-    private static void _replaceTopicAsTheme(Collection<? extends Scoped> scopedCollection,
-            Topic oldTheme, Topic newTheme) {
-        for (Scoped scoped: scopedCollection) {
-            scoped.removeTheme(oldTheme);
-            scoped.addTheme(newTheme);
-        }
+        ((ITopicMap) replacement.getTopicMap()).replaceTopic(source, replacement);
     }
 
     /**
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.internal.utils;
+
+import org.tinytim.internal.api.ILiteral;
+import org.tinytim.internal.api.IName;
+import org.tinytim.internal.api.IScope;
+
+import org.tmapi.core.Topic;
+
+/**
+ * Immutable key which represents the type, the value, and the scope of a 
+ * {@link org.tmapi.core.Name}.
+ * <p>
+ * Two names with an equal key are equal according to the topic naming 
+ * constraint (if their parents are ignored). This class relies on the fact 
+ * that literals and scopes are interned, all parts of the key are compared 
+ * by identity.
+ * </p>
+ * <p>
+ * This class is not meant to be used outside of the tinyTiM package.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class NameKey {
+
+    private final Topic _type;
+    private final ILiteral _literal;
+    private final IScope _scope;
+    private final int _hashCode;
+
+    public NameKey(Topic type, ILiteral literal, IScope scope) {
+        _type = type;
+        _literal = literal;
+        _scope = scope;
+        _hashCode = 31 * (31 * System.identityHashCode(type) 
+                            + System.identityHashCode(literal)) 
+                            + System.identityHashCode(scope);
+    }
+
+    /**
+     * Returns the key of the provided <tt>name</tt>.
+     *
+     * @param name The name.
+     * @return The key of the name.
+     */
+    public static NameKey create(IName name) {
+        return new NameKey(name.getType(), name.getLiteral(), name.getScopeObject());
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof NameKey)) {
+            return false;
+        }
+        NameKey other = (NameKey) obj;
+        return _hashCode == other._hashCode
+                && _type == other._type
+                && _literal == other._literal
+                && _scope == other._scope;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return _hashCode;
+    }
+
+}
@@ -47,6 +47,14 @@ final class OntopiaCollectionFactory implements ICollectionFactory {
         return new DefaultIntObjectMap<E>(this.<Integer, E>createMap(size));
     }
 
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.utils.ICollectionFactory#createIdentityObjectIntMap(int)
+     */
+    @Override
+    public <K> IObjectIntMap<K> createIdentityObjectIntMap(int size) {
+        return new IdentityObjectIntMap<K>(size);
+    }
+
     /* (non-Javadoc)
      * @see org.tinytim.ICollectionFactory#createMap(int)
      */
@@ -121,6 +129,14 @@ final class OntopiaCollectionFactory implements ICollectionFactory {
         return new CompactIdentityHashSet<E>();
     }
 
+    /* (non-Javadoc)
+     * @see org.tinytim.internal.utils.ICollectionFactory#createSmallIdentitySet()
+     */
+    @Override
+    public <E> Set<E> createSmallIdentitySet() {
+        return new SmallIdentitySet<E>();
+    }
+
     /* (non-Javadoc)
      * @see org.tinytim.core.ICollectionFactory#createIdentitySet(int)
      */
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.internal.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.tmapi.core.TMAPIRuntimeException;
+
+/**
+ * Provides functions to process arrays concurrently.
+ * <p>
+ * All functions process the array in the calling thread if the 
+ * parallelism is less than <tt>2</tt>.
+ * </p>
+ * <p>
+ * This class is not meant to be used outside of the tinyTiM package.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class ParallelArrays {
+
+    /**
+     * Task which processes a range of an array.
+     */
+    public interface RangeTask {
+
+        /**
+         * Processes the range <tt>[from, to)</tt>.
+         *
+         * @param from The start index (inclusive).
+         * @param to The end index (exclusive).
+         */
+        public void run(int from, int to);
+
+    }
+
+    private ParallelArrays() {
+        // noop.
+    }
+
+    /**
+     * Returns the executor which is shared by all concurrent operations.
+     * <p>
+     * The executor is created on demand and uses as many threads as 
+     * processors are available. Its threads are daemon threads which 
+     * terminate if they are idle, so the executor must not be shut down.
+     * </p>
+     * <p>
+     * Tasks which are submitted to this executor must not wait for other 
+     * tasks of this executor.
+     * </p>
+     *
+     * @return The shared executor.
+     */
+    public static ExecutorService getExecutor() {
+        return SharedExecutor.EXECUTOR;
+    }
+
+    /**
+     * Returns the number of threads which should be used to process 
+     * <tt>length</tt> elements.
+     *
+     * @param length The number of elements.
+     * @param threshold The minimum number of elements per thread.
+     * @param maxThreads The maximum number of threads.
+     * @return The number of threads; less than <tt>2</tt> if the elements 
+     *          should not be processed concurrently.
+     */
+    public static int getParallelism(int length, int threshold, int maxThreads) {
+        return Math.min(maxThreads, length / threshold);
+    }
+
+    /**
+     * Splits the range <tt>[0, length)</tt> into <tt>parallelism</tt> 
+     * chunks and executes the <tt>task</tt> for each chunk.
+     * <p>
+     * This method returns if all chunks have been processed.
+     * </p>
+     *
+     * @param executor The executor which runs the tasks.
+     * @param parallelism The number of chunks.
+     * @param length The number of elements.
+     * @param task The task to execute.
+     */
+    public static void execute(final ExecutorService executor, 
+            final int parallelism, final int length, final RangeTask task) {
+        if (parallelism < 2 || length < parallelism) {
+            task.run(0, length);
+            return;
+        }
+        final int chunkSize = (length + parallelism - 1) / parallelism;
+        final List<Future<Object>> results = CollectionFactory.createList(parallelism);
+        for (int i=0; i<length; i+=chunkSize) {
+            final int from = i;
+            final int to = Math.min(i + chunkSize, length);
+            results.add(executor.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    task.run(from, to);
+                    return null;
+                }
+            }));
+        }
+        _await(results);
+    }
+
+    /**
+     * Sorts the array.
+     * <p>
+     * The sort is stable, the result is equal to the result of 
+     * {@link Arrays#sort(Object[], Comparator)}.
+     * </p>
+     *
+     * @param executor The executor which runs the tasks.
+     * @param parallelism The number of chunks which are sorted concurrently.
+     * @param a The array to sort.
+     * @param cmp The comparator.
+     */
+    public static <T> void sort(final ExecutorService executor, 
+            final int parallelism, final T[] a, final Comparator<? super T> cmp) {
+        if (parallelism < 2 || a.length < parallelism * 2) {
+            Arrays.sort(a, cmp);
+            return;
+        }
+        final int chunkSize = (a.length + parallelism - 1) / parallelism;
+        execute(executor, parallelism, a.length, new RangeTask() {
+            public void run(int from, int to) {
+                Arrays.sort(a, from, to, cmp);
+            }
+        });
+        T[] src = a;
+        T[] dest = a.clone();
+        for (int width=chunkSize; width < a.length; width*=2) {
+            final T[] from = src;
+            final T[] to = dest;
+            final int w = width;
+            final int merges = (a.length + 2 * width - 1) / (2 * width);
+            execute(executor, Math.min(parallelism, merges), merges, new RangeTask() {
+                public void run(int first, int last) {
+                    for (int i=first; i<last; i++) {
+                        final int lo = i * 2 * w;
+                        _merge(from, to, lo, Math.min(lo + w, from.length), 
+                                Math.min(lo + 2 * w, from.length), cmp);
+                    }
+                }
+            });
+            src = to;
+            dest = from;
+        }
+        if (src != a) {
+            System.arraycopy(src, 0, a, 0, a.length);
+        }
+    }
+
+    /**
+     * Merges the sorted ranges <tt>[lo, mid)</tt> and <tt>[mid, hi)</tt> 
+     * of <tt>src</tt> into <tt>dest</tt>.
+     */
+    private static <T> void _merge(final T[] src, final T[] dest, final int lo, 
+            final int mid, final int hi, final Comparator<? super T> cmp) {
+        int i = lo;
+        int j = mid;
+        int k = lo;
+        while (i < mid && j < hi) {
+            // Take the left element if both are equal, keeps the sort stable
+            dest[k++] = cmp.compare(src[j], src[i]) < 0 ? src[j++] : src[i++];
+        }
+        while (i < mid) {
+            dest[k++] = src[i++];
+        }
+        while (j < hi) {
+            dest[k++] = src[j++];
+        }
+    }
+
+    private static void _await(final List<Future<Object>> results) {
+        try {
+            for (Future<Object> result: results) {
+                result.get();
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TMAPIRuntimeException(ex);
+        }
+        catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new TMAPIRuntimeException(cause);
+        }
+    }
+
+    /**
+     * Holds the shared executor, the executor is created when this class 
+     * is initialized.
+     */
+    private static final class SharedExecutor {
+
+        static final ExecutorService EXECUTOR = _createExecutor();
+
+        private static ExecutorService _createExecutor() {
+            final int threads = Runtime.getRuntime().availableProcessors();
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), 
+                    new ThreadFactory() {
+                        private final AtomicInteger _count = new AtomicInteger();
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "tinyTiM-worker-" + _count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+}
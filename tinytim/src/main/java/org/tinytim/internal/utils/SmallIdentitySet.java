@@ -0,0 +1,320 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.internal.utils;
+
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * {@link java.util.Set} implementation for sets which usually hold a few 
+ * elements only.
+ * <p>
+ * Up to {@link #INLINE_SIZE} elements are kept in fields of this set, up to 
+ * {@link #ARRAY_SIZE} elements are kept in an array which is searched 
+ * linearly. Larger sets are backed by a {@link CompactIdentityHashSet}.
+ * </p>
+ * <p>
+ * The elements are compared by identity.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+final class SmallIdentitySet<E> extends AbstractSet<E> {
+
+    /**
+     * Max. number of elements which are kept in fields.
+     */
+    static final int INLINE_SIZE = 2;
+
+    /**
+     * Max. number of elements which are kept in an array.
+     */
+    static final int ARRAY_SIZE = 8;
+
+    private Object _e0;
+    private Object _e1;
+    /**
+     * Either <tt>null</tt> (the elements are kept in the fields), an array 
+     * or a hash set.
+     */
+    private Object _elements;
+    private int _size;
+    private int _modCount;
+
+    /* (non-Javadoc)
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size() {
+        return _elements instanceof Set<?> ? _hashed().size() : _size;
+    }
+
+    /**
+     * Returns the number of slots of this set.
+     *
+     * @return The number of slots.
+     */
+    int capacity() {
+        if (_elements == null) {
+            return INLINE_SIZE;
+        }
+        return _elements instanceof Set<?> ? ((CompactHashSet<?>) _elements).capacity()
+                                           : ((Object[]) _elements).length;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the elements are kept in fields.
+     *
+     * @return <tt>true</tt> if this set has no backing array.
+     */
+    boolean isInline() {
+        return _elements == null;
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.AbstractCollection#contains(java.lang.Object)
+     */
+    @Override
+    public boolean contains(Object o) {
+        if (_elements == null) {
+            return (_size > 0 && _e0 == o) || (_size > 1 && _e1 == o);
+        }
+        if (_elements instanceof Set<?>) {
+            return _hashed().contains(o);
+        }
+        return _indexOf(o) != -1;
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.AbstractCollection#add(java.lang.Object)
+     */
+    @Override
+    public boolean add(E e) {
+        if (_elements instanceof Set<?>) {
+            return _hashed().add(e);
+        }
+        if (contains(e)) {
+            return false;
+        }
+        if (_elements == null) {
+            if (_size == 0) {
+                _e0 = e;
+            }
+            else if (_size == 1) {
+                _e1 = e;
+            }
+            else {
+                final Object[] elements = new Object[INLINE_SIZE * 2];
+                elements[0] = _e0;
+                elements[1] = _e1;
+                elements[2] = e;
+                _e0 = null;
+                _e1 = null;
+                _elements = elements;
+            }
+        }
+        else {
+            Object[] elements = (Object[]) _elements;
+            if (_size == ARRAY_SIZE) {
+                final Set<Object> set = new CompactIdentityHashSet<Object>(ARRAY_SIZE * 2 + 1);
+                for (Object element: elements) {
+                    set.add(element);
+                }
+                set.add(e);
+                _elements = set;
+                _size = 0;
+                _modCount++;
+                return true;
+            }
+            if (_size == elements.length) {
+                final Object[] grown = new Object[Math.min(ARRAY_SIZE, _size * 2)];
+                System.arraycopy(elements, 0, grown, 0, _size);
+                elements = grown;
+                _elements = elements;
+            }
+            elements[_size] = e;
+        }
+        _size++;
+        _modCount++;
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.AbstractCollection#remove(java.lang.Object)
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (_elements instanceof Set<?>) {
+            return _hashed().remove(o);
+        }
+        int idx = -1;
+        if (_elements == null) {
+            if (_size > 0 && _e0 == o) {
+                idx = 0;
+            }
+            else if (_size > 1 && _e1 == o) {
+                idx = 1;
+            }
+        }
+        else {
+            idx = _indexOf(o);
+        }
+        if (idx == -1) {
+            return false;
+        }
+        _removeAt(idx);
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.AbstractCollection#clear()
+     */
+    @Override
+    public void clear() {
+        _e0 = null;
+        _e1 = null;
+        _elements = null;
+        _size = 0;
+        _modCount++;
+    }
+
+    /**
+     * Shrinks this set to the smallest representation which holds its 
+     * elements.
+     */
+    void trimToSize() {
+        if (_elements == null) {
+            return;
+        }
+        final int size = size();
+        if (size > ARRAY_SIZE) {
+            ((CompactHashSet<?>) _elements).trimToSize();
+            return;
+        }
+        if (_elements instanceof Set<?> || size != ((Object[]) _elements).length) {
+            final Object[] elements = toArray();
+            if (size <= INLINE_SIZE) {
+                _e0 = size > 0 ? elements[0] : null;
+                _e1 = size > 1 ? elements[1] : null;
+                _elements = null;
+            }
+            else {
+                _elements = elements;
+            }
+            _size = size;
+            _modCount++;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.AbstractCollection#iterator()
+     */
+    @Override
+    public Iterator<E> iterator() {
+        if (_elements instanceof Set<?>) {
+            return _hashed().iterator();
+        }
+        return new SmallIterator();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<E> _hashed() {
+        return (Set<E>) _elements;
+    }
+
+    private int _indexOf(Object o) {
+        final Object[] elements = (Object[]) _elements;
+        for (int i=0; i < _size; i++) {
+            if (elements[i] == o) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E _get(int idx) {
+        if (_elements == null) {
+            return (E) (idx == 0 ? _e0 : _e1);
+        }
+        return (E) ((Object[]) _elements)[idx];
+    }
+
+    /**
+     * Removes the element at the provided position; the last element takes
+     * its place.
+     */
+    private void _removeAt(int idx) {
+        final int last = _size - 1;
+        if (_elements == null) {
+            if (idx == 0) {
+                _e0 = _e1;
+            }
+            _e1 = null;
+        }
+        else {
+            final Object[] elements = (Object[]) _elements;
+            elements[idx] = elements[last];
+            elements[last] = null;
+        }
+        _size = last;
+        _modCount++;
+    }
+
+    private final class SmallIterator implements Iterator<E> {
+
+        private int _idx;
+        private boolean _removable;
+        private int _expectedModCount;
+
+        SmallIterator() {
+            _expectedModCount = _modCount;
+        }
+
+        public boolean hasNext() {
+            return _idx < _size;
+        }
+
+        public E next() {
+            if (_modCount != _expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (_idx >= _size) {
+                throw new NoSuchElementException();
+            }
+            _removable = true;
+            return _get(_idx++);
+        }
+
+        public void remove() {
+            if (_modCount != _expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!_removable) {
+                throw new IllegalStateException();
+            }
+            _removable = false;
+            // The last element takes the place of the removed element
+            _removeAt(--_idx);
+            _expectedModCount = _modCount;
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.internal.utils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disjoint-set (union-find) structure which partitions objects into 
+ * equivalence classes.
+ * <p>
+ * Objects are compared by identity. The classes are united by rank and 
+ * the paths are compressed by {@link #find(Object)}.
+ * </p>
+ * <p>
+ * This class is not meant to be used outside of the tinyTiM package.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class UnionFind<E> {
+
+    private final Map<E, E> _parents;
+    /**
+     * Upper bound of the height of the trees; only the ranks of the 
+     * representatives are relevant.
+     */
+    private final IObjectIntMap<E> _ranks;
+
+    public UnionFind() {
+        _parents = CollectionFactory.createIdentityMap();
+        _ranks = CollectionFactory.createIdentityObjectIntMap(16);
+    }
+
+    /**
+     * Returns the representative of the class of <tt>e</tt>.
+     *
+     * @param e The object.
+     * @return The representative of the class; <tt>e</tt> if <tt>e</tt> is 
+     *          not part of any class.
+     */
+    public E find(final E e) {
+        E root = e;
+        E parent = _parents.get(root);
+        while (parent != null && parent != root) {
+            root = parent;
+            parent = _parents.get(root);
+        }
+        // Path compression
+        E current = e;
+        while (current != root) {
+            E next = _parents.get(current);
+            _parents.put(current, root);
+            current = next;
+        }
+        return root;
+    }
+
+    /**
+     * Puts <tt>a</tt> and <tt>b</tt> into the same class.
+     *
+     * @param a An object.
+     * @param b Another object.
+     */
+    public void union(final E a, final E b) {
+        final E rootA = find(a);
+        final E rootB = find(b);
+        if (!_parents.containsKey(rootA)) {
+            _parents.put(rootA, rootA);
+        }
+        if (!_parents.containsKey(rootB)) {
+            _parents.put(rootB, rootB);
+        }
+        if (rootA == rootB) {
+            return;
+        }
+        final int rankA = _ranks.get(rootA);
+        final int rankB = _ranks.get(rootB);
+        if (rankA < rankB) {
+            _parents.put(rootA, rootB);
+        }
+        else {
+            _parents.put(rootB, rootA);
+            if (rankA == rankB) {
+                _ranks.put(rootA, rankA + 1);
+            }
+        }
+    }
+
+    /**
+     * Returns if no objects were added.
+     *
+     * @return <tt>true</tt> if no classes exist, otherwise <tt>false</tt>.
+     */
+    public boolean isEmpty() {
+        return _parents.isEmpty();
+    }
+
+    /**
+     * Returns the equivalence classes.
+     *
+     * @return A collection of equivalence classes.
+     */
+    public Collection<List<E>> classes() {
+        final Map<E, List<E>> classes = CollectionFactory.createIdentityMap();
+        for (E e: CollectionFactory.createList(_parents.keySet())) {
+            final E root = find(e);
+            List<E> members = classes.get(root);
+            if (members == null) {
+                members = CollectionFactory.createList(2);
+                classes.put(root, members);
+            }
+            members.add(e);
+        }
+        return classes.values();
+    }
+
+}
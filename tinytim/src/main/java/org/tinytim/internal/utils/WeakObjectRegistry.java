@@ -28,6 +28,8 @@ import java.util.WeakHashMap;
 public final class WeakObjectRegistry<E> {
 
     private final Map<E, WeakReference<E>> _obj2Ref;
+    private long _hits;
+    private long _misses;
 
     public WeakObjectRegistry() {
         super();
@@ -50,6 +52,47 @@ public final class WeakObjectRegistry<E> {
         return weakRef != null ? weakRef.get() : null;
     }
 
+    /**
+     * Returns the registered object which is equal to <tt>obj</tt> or 
+     * registers <tt>obj</tt> if no such object exists.
+     * <p>
+     * The number of calls which returned a registered object and the 
+     * number of calls which registered <tt>obj</tt> are counted, see
+     * {@link #getHitCount()} and {@link #getMissCount()}.
+     * </p>
+     *
+     * @param obj The object to intern.
+     * @return The registered object or <tt>obj</tt>.
+     */
+    public E intern(E obj) {
+        final E existing = get(obj);
+        if (existing != null) {
+            _hits++;
+            return existing;
+        }
+        add(obj);
+        _misses++;
+        return obj;
+    }
+
+    /**
+     * Returns how often {@link #intern(Object)} returned a registered object.
+     *
+     * @return The number of hits.
+     */
+    public long getHitCount() {
+        return _hits;
+    }
+
+    /**
+     * Returns how often {@link #intern(Object)} registered the provided object.
+     *
+     * @return The number of misses.
+     */
+    public long getMissCount() {
+        return _misses;
+    }
+
     /* (non-Javadoc)
      * @see java.util.AbstractCollection#add(java.lang.Object)
      */
@@ -0,0 +1,716 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.tinytim.internal.utils.CollectionFactory;
+import org.tinytim.voc.Namespace;
+import org.tinytim.voc.TMDM;
+import org.tinytim.voc.XSD;
+
+import com.semagia.mio.IMapHandler;
+import com.semagia.mio.IRef;
+import com.semagia.mio.MIOException;
+
+/**
+ * {@link IMapHandler} which writes the reported events as CTM 1.0.
+ * <p>
+ * In contrast to the {@link CTMTopicMapWriter}, this handler does not need
+ * a topic map: A topic is written as soon as it is complete, an 
+ * association is written as soon as it is complete. Only the current topic 
+ * or association is kept in memory. Topics are referenced by the 
+ * references which were reported by the parser; topics which are 
+ * referenced by item identifiers relative to the base locator are written 
+ * as identifiers.
+ * </p>
+ * <p>
+ * CTM cannot express the item identifiers of the topic map and of 
+ * constructs other than topics, these item identifiers are not written.
+ * The reifier of the topic map must be reported before the first topic or
+ * association.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class CTMMapHandler implements IMapHandler {
+
+    private static final int 
+        _TOPIC = 0,
+        _ASSOCIATION = 1,
+        _ROLE = 2,
+        _OCCURRENCE = 3,
+        _NAME = 4,
+        _VARIANT = 5,
+        _TYPE = 6,
+        _SCOPE = 7,
+        _REIFIER = 8,
+        _PLAYER = 9,
+        _ISA = 10;
+
+    private final UTF8Writer _out;
+    private final String _baseLocator;
+    private final Map<String, String> _prefixes;
+    private final List<Frame> _frames;
+    /**
+     * Topics and associations which are complete but which are part of 
+     * another topic or association.
+     */
+    private final List<Frame> _pending;
+    private String _defaultNameType;
+    private boolean _written;
+
+    /**
+     * Creates a CTM writer.
+     *
+     * @param out The stream the CTM is written onto.
+     * @param baseLocator The base locator which is used to create the 
+     *          topic identifiers.
+     * @throws IOException If an error occurs.
+     */
+    public CTMMapHandler(OutputStream out, String baseLocator) throws IOException {
+        this(new UTF8Writer(out), baseLocator);
+    }
+
+    /**
+     * Creates a CTM writer which writes onto a channel.
+     *
+     * @param channel The channel the CTM is written onto.
+     * @param baseLocator The base locator which is used to create the 
+     *          topic identifiers.
+     * @throws IOException If an error occurs.
+     */
+    public CTMMapHandler(WritableByteChannel channel, String baseLocator) throws IOException {
+        this(new UTF8Writer(channel), baseLocator);
+    }
+
+    private CTMMapHandler(UTF8Writer out, String baseLocator) {
+        if (baseLocator == null) {
+            throw new IllegalArgumentException("The base locator must not be null");
+        }
+        _out = out;
+        final int fragmentIdx = baseLocator.indexOf('#');
+        _baseLocator = fragmentIdx > -1 ? baseLocator.substring(0, fragmentIdx) : baseLocator;
+        _prefixes = CollectionFactory.createMap();
+        _prefixes.put(Namespace.XSD, "xsd");
+        _frames = CollectionFactory.createList();
+        _pending = CollectionFactory.createList();
+    }
+
+    /**
+     * Adds a prefix which is used to write subject identifiers and 
+     * datatypes as QNames.
+     *
+     * @param prefix The prefix.
+     * @param namespace The namespace IRI.
+     */
+    public void addPrefix(String prefix, String namespace) {
+        if (prefix == null || !CTMTopicMapWriter.isIdentifier(prefix)) {
+            throw new IllegalArgumentException("Invalid prefix: '" + prefix + "'");
+        }
+        if (namespace == null) {
+            throw new IllegalArgumentException("The namespace must not be null");
+        }
+        if (_prefixes.containsValue(prefix)) {
+            throw new IllegalArgumentException("The prefix '" + prefix + "' is already in use");
+        }
+        _prefixes.put(namespace, prefix);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startTopicMap()
+     */
+    public void startTopicMap() throws MIOException {
+        _frames.clear();
+        _pending.clear();
+        _written = false;
+        _defaultNameType = _getIRIReference(TMDM.TOPIC_NAME.getReference());
+        try {
+            _out.write("%encoding \"utf-8\"\n%version 1.0\n");
+            final List<String> prefixes = CollectionFactory.createList();
+            for (Map.Entry<String, String> entry: _prefixes.entrySet()) {
+                if (!Namespace.XSD.equals(entry.getKey())) {
+                    prefixes.add(entry.getValue());
+                }
+            }
+            Collections.sort(prefixes);
+            for (String prefix: prefixes) {
+                for (Map.Entry<String, String> entry: _prefixes.entrySet()) {
+                    if (prefix.equals(entry.getValue())) {
+                        _out.write("%prefix ");
+                        _out.write(prefix);
+                        _out.write(" <");
+                        _out.write(entry.getKey());
+                        _out.write(">\n");
+                    }
+                }
+            }
+        }
+        catch (IOException ex) {
+            throw new MIOException(ex);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endTopicMap()
+     */
+    public void endTopicMap() throws MIOException {
+        if (!_frames.isEmpty()) {
+            throw new MIOException("Unexpected end of the topic map");
+        }
+        try {
+            _out.flush();
+        }
+        catch (IOException ex) {
+            throw new MIOException(ex);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startTopic(com.semagia.mio.IRef)
+     */
+    public void startTopic(IRef identity) throws MIOException {
+        final String ref = _getReference(identity);
+        if (!_frames.isEmpty()) {
+            _addReference(ref);
+        }
+        _push(_TOPIC).ref = ref;
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endTopic()
+     */
+    public void endTopic() throws MIOException {
+        _complete(_pop(_TOPIC));
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startAssociation()
+     */
+    public void startAssociation() throws MIOException {
+        _push(_ASSOCIATION);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endAssociation()
+     */
+    public void endAssociation() throws MIOException {
+        final Frame assoc = _pop(_ASSOCIATION);
+        _require(assoc.type, "association", "type");
+        if (assoc.children.isEmpty()) {
+            throw new MIOException("The association has no roles");
+        }
+        _complete(assoc);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startRole()
+     */
+    public void startRole() throws MIOException {
+        _expectParent(_ASSOCIATION, "role");
+        _push(_ROLE);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endRole()
+     */
+    public void endRole() throws MIOException {
+        final Frame role = _pop(_ROLE);
+        _require(role.type, "role", "type");
+        _require(role.player, "role", "player");
+        _peek().children.add(role);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startPlayer()
+     */
+    public void startPlayer() throws MIOException {
+        _expectParent(_ROLE, "player");
+        _push(_PLAYER);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endPlayer()
+     */
+    public void endPlayer() throws MIOException {
+        final String player = _popReference(_PLAYER);
+        _peek().player = player;
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startOccurrence()
+     */
+    public void startOccurrence() throws MIOException {
+        _expectParent(_TOPIC, "occurrence");
+        _push(_OCCURRENCE);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endOccurrence()
+     */
+    public void endOccurrence() throws MIOException {
+        final Frame occ = _pop(_OCCURRENCE);
+        _require(occ.type, "occurrence", "type");
+        _require(occ.value, "occurrence", "value");
+        _peek().children.add(occ);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startName()
+     */
+    public void startName() throws MIOException {
+        _expectParent(_TOPIC, "name");
+        _push(_NAME);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endName()
+     */
+    public void endName() throws MIOException {
+        final Frame name = _pop(_NAME);
+        _require(name.value, "name", "value");
+        _peek().children.add(name);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startVariant()
+     */
+    public void startVariant() throws MIOException {
+        _expectParent(_NAME, "variant");
+        _push(_VARIANT);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endVariant()
+     */
+    public void endVariant() throws MIOException {
+        final Frame variant = _pop(_VARIANT);
+        _require(variant.value, "variant", "value");
+        if (variant.scope == null || variant.scope.isEmpty()) {
+            throw new MIOException("The variant has no scope");
+        }
+        _peek().children.add(variant);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startScope()
+     */
+    public void startScope() throws MIOException {
+        _push(_SCOPE);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endScope()
+     */
+    public void endScope() throws MIOException {
+        final Frame scope = _pop(_SCOPE);
+        _parent("scope").scope = scope.refs;
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startType()
+     */
+    public void startType() throws MIOException {
+        _push(_TYPE);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endType()
+     */
+    public void endType() throws MIOException {
+        final String type = _popReference(_TYPE);
+        _parent("type").type = type;
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startReifier()
+     */
+    public void startReifier() throws MIOException {
+        _push(_REIFIER);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endReifier()
+     */
+    public void endReifier() throws MIOException {
+        final String reifier = _popReference(_REIFIER);
+        if (!_frames.isEmpty()) {
+            _peek().reifier = reifier;
+            return;
+        }
+        if (_written) {
+            throw new MIOException("The reifier of the topic map must be reported before any topic or association");
+        }
+        try {
+            _out.write("\n~ ");
+            _out.write(reifier);
+            _out.write('\n');
+        }
+        catch (IOException ex) {
+            throw new MIOException(ex);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startIsa()
+     */
+    public void startIsa() throws MIOException {
+        _expectParent(_TOPIC, "isa");
+        _push(_ISA);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endIsa()
+     */
+    public void endIsa() throws MIOException {
+        final Frame isa = _pop(_ISA);
+        for (String type: isa.refs) {
+            _peek().children.add("isa " + type);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#topicRef(com.semagia.mio.IRef)
+     */
+    public void topicRef(IRef identity) throws MIOException {
+        _addReference(_getReference(identity));
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#subjectIdentifier(java.lang.String)
+     */
+    public void subjectIdentifier(String sid) throws MIOException {
+        _addIdentity(_getIRIReference(sid));
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#subjectLocator(java.lang.String)
+     */
+    public void subjectLocator(String slo) throws MIOException {
+        _addIdentity("= <" + slo + ">");
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#itemIdentifier(java.lang.String)
+     */
+    public void itemIdentifier(String iid) throws MIOException {
+        // CTM supports item identifiers for topics only
+        if (!_frames.isEmpty() && _peek().kind == _TOPIC) {
+            _addIdentity(_getItemIdentifierReference(iid));
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#value(java.lang.String)
+     */
+    public void value(String value) throws MIOException {
+        _expectParent(_NAME, "value");
+        _peek().value = value;
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#value(java.lang.String, java.lang.String)
+     */
+    public void value(String value, String datatype) throws MIOException {
+        final Frame frame = _frames.isEmpty() ? null : _peek();
+        if (frame == null || (frame.kind != _OCCURRENCE && frame.kind != _VARIANT)) {
+            throw new MIOException("Unexpected datatyped value");
+        }
+        frame.value = value;
+        frame.datatype = datatype;
+    }
+
+    private Frame _push(final int kind) {
+        final Frame frame = new Frame(kind);
+        _frames.add(frame);
+        return frame;
+    }
+
+    private Frame _peek() {
+        return _frames.get(_frames.size()-1);
+    }
+
+    private Frame _pop(final int kind) throws MIOException {
+        if (_frames.isEmpty() || _peek().kind != kind) {
+            throw new MIOException("Unexpected end event");
+        }
+        return _frames.remove(_frames.size()-1);
+    }
+
+    /**
+     * Returns the construct which receives a type, scope, or reifier.
+     */
+    private Frame _parent(final String property) throws MIOException {
+        if (_frames.isEmpty() || _peek().kind >= _TYPE) {
+            throw new MIOException("Unexpected " + property);
+        }
+        return _peek();
+    }
+
+    private void _expectParent(final int kind, final String event) throws MIOException {
+        if (_frames.isEmpty() || _peek().kind != kind) {
+            throw new MIOException("Unexpected " + event);
+        }
+    }
+
+    private static void _require(final Object value, final String construct, 
+            final String property) throws MIOException {
+        if (value == null) {
+            throw new MIOException("The " + construct + " has no " + property);
+        }
+    }
+
+    /**
+     * Pops a type, reifier, or player and returns the topic reference.
+     */
+    private String _popReference(final int kind) throws MIOException {
+        final Frame frame = _pop(kind);
+        if (frame.refs.size() != 1) {
+            throw new MIOException("Expected exactly one topic reference, got " + frame.refs.size());
+        }
+        return frame.refs.get(0);
+    }
+
+    private void _addReference(final String ref) throws MIOException {
+        if (_frames.isEmpty() || _peek().kind < _TYPE) {
+            throw new MIOException("Unexpected topic reference");
+        }
+        _peek().refs.add(ref);
+    }
+
+    private void _addIdentity(final String ref) throws MIOException {
+        _expectParent(_TOPIC, "identity");
+        final Frame topic = _peek();
+        if (!ref.equals(topic.ref) && !topic.children.contains(ref)) {
+            topic.children.add(ref);
+        }
+    }
+
+    /**
+     * Writes the topic or association or keeps it until the enclosing 
+     * topic or association is complete.
+     */
+    private void _complete(final Frame frame) throws MIOException {
+        _pending.add(frame);
+        if (!_frames.isEmpty()) {
+            return;
+        }
+        try {
+            for (Frame item: _pending) {
+                _out.write('\n');
+                if (item.kind == _TOPIC) {
+                    _writeTopic(item);
+                }
+                else {
+                    _writeAssociation(item);
+                }
+            }
+        }
+        catch (IOException ex) {
+            throw new MIOException(ex);
+        }
+        _pending.clear();
+        _written = true;
+    }
+
+    private void _writeTopic(final Frame topic) throws IOException {
+        _out.write(topic.ref);
+        boolean first = true;
+        for (Object child: topic.children) {
+            _out.write(first ? " " : ";\n    ");
+            first = false;
+            if (child instanceof String) {
+                _out.write((String) child);
+            }
+            else {
+                final Frame frame = (Frame) child;
+                if (frame.kind == _NAME) {
+                    _writeName(frame);
+                }
+                else {
+                    _out.write(frame.type);
+                    _out.write(": ");
+                    _writeValue(frame);
+                    _writeScope(frame);
+                    _writeReifier(frame);
+                }
+            }
+        }
+        _out.write(".\n");
+    }
+
+    private void _writeName(final Frame name) throws IOException {
+        _out.write("- ");
+        if (name.type != null && !name.type.equals(_defaultNameType)) {
+            _out.write(name.type);
+            _out.write(": ");
+        }
+        _writeString(name.value);
+        _writeScope(name);
+        _writeReifier(name);
+        for (Object child: name.children) {
+            final Frame variant = (Frame) child;
+            _out.write(" (");
+            _writeValue(variant);
+            _writeScope(variant);
+            _writeReifier(variant);
+            _out.write(')');
+        }
+    }
+
+    private void _writeAssociation(final Frame assoc) throws IOException {
+        _out.write(assoc.type);
+        _out.write('(');
+        boolean first = true;
+        for (Object child: assoc.children) {
+            final Frame role = (Frame) child;
+            if (!first) {
+                _out.write(", ");
+            }
+            first = false;
+            _out.write(role.type);
+            _out.write(": ");
+            _out.write(role.player);
+            _writeReifier(role);
+        }
+        _out.write(')');
+        _writeScope(assoc);
+        _writeReifier(assoc);
+        _out.write('\n');
+    }
+
+    private void _writeValue(final Frame frame) throws IOException {
+        final String datatype = frame.datatype;
+        if (XSD.ANY_URI.getReference().equals(datatype)) {
+            _out.write('<');
+            _out.write(frame.value);
+            _out.write('>');
+        }
+        else {
+            _writeString(frame.value);
+            if (datatype != null && !XSD.STRING.getReference().equals(datatype)) {
+                _out.write("^^");
+                _out.write(_getIRIReference(datatype));
+            }
+        }
+    }
+
+    private void _writeString(final String value) throws IOException {
+        _out.write('"');
+        _out.write(value, CTMTopicMapWriter.STRING_ESCAPES);
+        _out.write('"');
+    }
+
+    private void _writeScope(final Frame frame) throws IOException {
+        final List<String> scope = frame.scope;
+        if (scope == null || scope.isEmpty()) {
+            return;
+        }
+        _out.write(" @");
+        for (int i=0; i < scope.size(); i++) {
+            if (i > 0) {
+                _out.write(", ");
+            }
+            _out.write(scope.get(i));
+        }
+    }
+
+    private void _writeReifier(final Frame frame) throws IOException {
+        if (frame.reifier != null) {
+            _out.write(" ~ ");
+            _out.write(frame.reifier);
+        }
+    }
+
+    private String _getReference(final IRef ref) {
+        switch (ref.getType()) {
+            case IRef.SUBJECT_IDENTIFIER: return _getIRIReference(ref.getIRI());
+            case IRef.SUBJECT_LOCATOR: return "= <" + ref.getIRI() + ">";
+            default: return _getItemIdentifierReference(ref.getIRI());
+        }
+    }
+
+    /**
+     * Returns an identifier if the item identifier is relative to the base 
+     * locator, otherwise the item identifier reference.
+     */
+    private String _getItemIdentifierReference(final String iri) {
+        final int baseLength = _baseLocator.length();
+        if (iri.length() > baseLength + 1 && iri.charAt(baseLength) == '#' 
+                && iri.startsWith(_baseLocator)) {
+            final String fragment = iri.substring(baseLength + 1);
+            if (CTMTopicMapWriter.isIdentifier(fragment)) {
+                return fragment;
+            }
+        }
+        return "^ <" + iri + ">";
+    }
+
+    /**
+     * Returns a QName if a prefix for the namespace of the IRI exists, 
+     * otherwise the IRI in angle brackets.
+     */
+    private String _getIRIReference(final String iri) {
+        final int idx = CTMTopicMapWriter.namespaceEnd(iri);
+        if (idx > -1) {
+            final String prefix = _prefixes.get(iri.substring(0, idx));
+            if (prefix != null) {
+                return prefix + ":" + iri.substring(idx);
+            }
+        }
+        return "<" + iri + ">";
+    }
+
+    /**
+     * An open topic, statement, or topic reference context.
+     */
+    private static final class Frame {
+
+        final int kind;
+        /**
+         * The topic reference of a topic.
+         */
+        String ref;
+        String type;
+        String player;
+        String reifier;
+        String value;
+        String datatype;
+        List<String> scope;
+        /**
+         * The topic references of a type, scope, reifier, player, or isa.
+         */
+        final List<String> refs;
+        /**
+         * Identities, types, names and occurrences of a topic, variants of
+         * a name, or roles of an association.
+         */
+        final List<Object> children;
+
+        Frame(int kind) {
+            this.kind = kind;
+            refs = kind >= _TYPE ? CollectionFactory.<String>createList() : Collections.<String>emptyList();
+            children = kind < _TYPE ? CollectionFactory.createList() : Collections.emptyList();
+        }
+    }
+
+}
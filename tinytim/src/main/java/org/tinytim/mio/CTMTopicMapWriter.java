@@ -0,0 +1,722 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.tinytim.internal.utils.CollectionFactory;
+import org.tinytim.internal.utils.IObjectIntMap;
+import org.tinytim.voc.Namespace;
+import org.tinytim.voc.TMDM;
+import org.tinytim.voc.XSD;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.DatatypeAware;
+import org.tmapi.core.Locator;
+import org.tmapi.core.Name;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Reifiable;
+import org.tmapi.core.Role;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+import org.tmapi.core.Variant;
+import org.tmapi.index.TypeInstanceIndex;
+
+/**
+ * Serializes a topic map into CTM 1.0.
+ * <p>
+ * The writer detects namespaces which are used by several subject 
+ * identifiers and declares a prefix for each of them. Topics are grouped 
+ * by their type, a topic with several types is written once in the group
+ * of the type which comes first. Associations are ordered by their type.
+ * </p>
+ * <p>
+ * The output is streamed; besides the prefixes, the writer keeps no state
+ * which grows with the size of the topic map. The groups are read from the
+ * {@link TypeInstanceIndex} of the topic map.
+ * </p>
+ * <p>
+ * CTM cannot express the item identifiers of the topic map and of 
+ * constructs other than topics, these item identifiers are not written.
+ * </p>
+ * <p>
+ * See <a href="http://www.isotopicmaps.org/ctm/">http://www.isotopicmaps.org/ctm/</a>
+ * for details.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class CTMTopicMapWriter implements TopicMapWriter {
+
+    /**
+     * Minimum number of subject identifiers which must share a namespace 
+     * before a prefix is declared.
+     */
+    private static final int _PREFIX_THRESHOLD = 2;
+
+    static final byte[][] STRING_ESCAPES = new byte[128][];
+
+    static {
+        for (int i=0; i < 0x20; i++) {
+            STRING_ESCAPES[i] = UTF8Writer.ascii("\\u00" + (i < 0x10 ? "0" : "") + Integer.toHexString(i).toUpperCase());
+        }
+        STRING_ESCAPES['"'] = UTF8Writer.ascii("\\\"");
+        STRING_ESCAPES['\\'] = UTF8Writer.ascii("\\\\");
+    }
+
+    private final UTF8Writer _out;
+    private final String _baseLocator;
+    /**
+     * Namespace IRI -> prefix of the prefixes provided by the user.
+     */
+    private final Map<String, String> _userPrefixes;
+    /**
+     * Namespace IRI -> prefix of the prefixes used by the current 
+     * serialization.
+     */
+    private Map<String, String> _prefixes;
+    private TopicMap _tm;
+    private Topic _defaultNameType;
+
+    /**
+     * Creates a CTM writer.
+     *
+     * @param out The stream the CTM is written onto.
+     * @param baseLocator The base locator which is used to create the 
+     *          topic identifiers.
+     * @throws IOException If an error occurs.
+     */
+    public CTMTopicMapWriter(OutputStream out, String baseLocator) throws IOException {
+        this(new UTF8Writer(out), baseLocator);
+    }
+
+    /**
+     * Creates a CTM writer which writes onto a channel.
+     *
+     * @param channel The channel the CTM is written onto.
+     * @param baseLocator The base locator which is used to create the 
+     *          topic identifiers.
+     * @throws IOException If an error occurs.
+     */
+    public CTMTopicMapWriter(WritableByteChannel channel, String baseLocator) throws IOException {
+        this(new UTF8Writer(channel), baseLocator);
+    }
+
+    private CTMTopicMapWriter(UTF8Writer out, String baseLocator) {
+        if (baseLocator == null) {
+            throw new IllegalArgumentException("The base locator must not be null");
+        }
+        _out = out;
+        final int fragmentIdx = baseLocator.indexOf('#');
+        _baseLocator = fragmentIdx > -1 ? baseLocator.substring(0, fragmentIdx) : baseLocator;
+        _userPrefixes = CollectionFactory.createMap();
+    }
+
+    /**
+     * Adds a prefix which is declared in addition to the detected prefixes.
+     *
+     * @param prefix The prefix.
+     * @param namespace The namespace IRI.
+     */
+    public void addPrefix(String prefix, String namespace) {
+        if (prefix == null || !isIdentifier(prefix)) {
+            throw new IllegalArgumentException("Invalid prefix: '" + prefix + "'");
+        }
+        if (namespace == null) {
+            throw new IllegalArgumentException("The namespace must not be null");
+        }
+        if ("xsd".equals(prefix) || _userPrefixes.containsValue(prefix)) {
+            throw new IllegalArgumentException("The prefix '" + prefix + "' is already in use");
+        }
+        _userPrefixes.put(namespace, prefix);
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.TopicMapWriter#write(org.tmapi.core.TopicMap)
+     */
+    public void write(TopicMap topicMap) throws IOException {
+        _tm = topicMap;
+        _defaultNameType = topicMap.getTopicBySubjectIdentifier(TMDM.TOPIC_NAME);
+        _prefixes = _detectPrefixes(topicMap);
+        final TypeInstanceIndex typeInstanceIdx = topicMap.getIndex(TypeInstanceIndex.class);
+        if (!typeInstanceIdx.isOpen()) {
+            typeInstanceIdx.open();
+        }
+        if (!typeInstanceIdx.isAutoUpdated()) {
+            typeInstanceIdx.reindex();
+        }
+        _out.write("%encoding \"utf-8\"\n%version 1.0\n");
+        _writePrefixes();
+        final Topic reifier = topicMap.getReifier();
+        if (reifier != null) {
+            _writeSection("Topic Map");
+            _out.write("~ ");
+            _writeTopicRef(reifier);
+            _out.write('\n');
+        }
+        _writeSection("Topics");
+        _writeTopics(typeInstanceIdx);
+        if (!topicMap.getAssociations().isEmpty()) {
+            _writeSection("Associations");
+            _writeAssociations(typeInstanceIdx);
+        }
+        _out.flush();
+        _tm = null;
+        _defaultNameType = null;
+        _prefixes = null;
+    }
+
+    /**
+     * Returns the prefixes for the namespaces which are used by at least 
+     * {@link #_PREFIX_THRESHOLD} subject identifiers.
+     *
+     * @param topicMap The topic map.
+     * @return A map of namespace IRIs to prefixes.
+     */
+    private Map<String, String> _detectPrefixes(final TopicMap topicMap) {
+        final Map<String, String> prefixes = CollectionFactory.createMap(_userPrefixes);
+        prefixes.put(Namespace.XSD, "xsd");
+        final Map<String, int[]> counts = CollectionFactory.createMap();
+        for (Topic topic: topicMap.getTopics()) {
+            for (Locator sid: topic.getSubjectIdentifiers()) {
+                final String ref = sid.getReference();
+                final int idx = namespaceEnd(ref);
+                if (idx < 0) {
+                    continue;
+                }
+                final String ns = ref.substring(0, idx);
+                if (prefixes.containsKey(ns)) {
+                    continue;
+                }
+                final int[] count = counts.get(ns);
+                if (count == null) {
+                    counts.put(ns, new int[] {1});
+                }
+                else {
+                    count[0]++;
+                }
+            }
+        }
+        final List<String> namespaces = CollectionFactory.createList();
+        for (Map.Entry<String, int[]> entry: counts.entrySet()) {
+            if (entry.getValue()[0] >= _PREFIX_THRESHOLD) {
+                namespaces.add(entry.getKey());
+            }
+        }
+        // Sort the namespaces to get the same prefixes for the same topic map
+        Collections.sort(namespaces);
+        final Set<String> usedPrefixes = CollectionFactory.createSet();
+        usedPrefixes.addAll(prefixes.values());
+        for (String ns: namespaces) {
+            final String name = _createPrefix(ns);
+            String prefix = name;
+            int counter = 0;
+            while (usedPrefixes.contains(prefix)) {
+                prefix = name + (++counter);
+            }
+            usedPrefixes.add(prefix);
+            prefixes.put(ns, prefix);
+        }
+        return prefixes;
+    }
+
+    /**
+     * Returns the index of the character after the namespace part of the 
+     * IRI.
+     *
+     * @param iri The IRI.
+     * @return The end of the namespace or <tt>-1</tt> if the IRI cannot be
+     *          written as QName.
+     */
+    static int namespaceEnd(final String iri) {
+        final int idx = Math.max(iri.lastIndexOf('/'), iri.lastIndexOf('#')) + 1;
+        return idx > 0 && _isLocalName(iri, idx) ? idx : -1;
+    }
+
+    /**
+     * Derives a prefix from the last path segment of the namespace IRI which 
+     * is a valid identifier (i.e. <tt>people</tt> for
+     * <tt>http://psi.example.org/people/</tt>).
+     *
+     * @param namespace The namespace IRI.
+     * @return A prefix.
+     */
+    private static String _createPrefix(final String namespace) {
+        final int schemeEnd = namespace.indexOf("://");
+        final String[] segments = namespace.substring(schemeEnd > -1 ? schemeEnd + 3 : 0).split("[/#]");
+        for (int i=segments.length-1; i > 0; i--) {
+            if (_isPrefixName(segments[i])) {
+                return segments[i].toLowerCase();
+            }
+        }
+        if (segments.length > 0) {
+            // Host name: take the label in front of the top level domain
+            final String[] labels = segments[0].split("\\.");
+            final String label = labels.length > 1 ? labels[labels.length-2] : labels[0];
+            if (_isPrefixName(label)) {
+                return label.toLowerCase();
+            }
+        }
+        return "ns";
+    }
+
+    private static boolean _isPrefixName(final String s) {
+        if (s.length() == 0 || "xsd".equalsIgnoreCase(s)) {
+            return false;
+        }
+        if (!Character.isLetter(s.charAt(0)) || s.charAt(0) > 0x7F) {
+            return false;
+        }
+        for (int i=1; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c > 0x7F || (!Character.isLetterOrDigit(c) && c != '_' && c != '-')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void _writePrefixes() throws IOException {
+        final List<Map.Entry<String, String>> entries = CollectionFactory.createList(_prefixes.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, String>>() {
+            public int compare(Map.Entry<String, String> o1, Map.Entry<String, String> o2) {
+                return o1.getValue().compareTo(o2.getValue());
+            }
+        });
+        boolean header = false;
+        for (Map.Entry<String, String> entry: entries) {
+            if (Namespace.XSD.equals(entry.getKey())) {
+                // Predefined
+                continue;
+            }
+            if (!header) {
+                _writeSection("Prefixes");
+                header = true;
+            }
+            _out.write("%prefix ");
+            _out.write(entry.getValue());
+            _out.write(" <");
+            _out.write(entry.getKey());
+            _out.write(">\n");
+        }
+    }
+
+    private void _writeSection(final String title) throws IOException {
+        _out.write("\n\n#-- ");
+        _out.write(title);
+        _out.write('\n');
+    }
+
+    /**
+     * Writes the topics grouped by their types.
+     *
+     * @param typeInstanceIdx The type-instance index.
+     * @throws IOException If an error occurs.
+     */
+    private void _writeTopics(final TypeInstanceIndex typeInstanceIdx) throws IOException {
+        final List<Topic> types = _sortTopics(typeInstanceIdx.getTopicTypes());
+        // Type -> position + 1 in the sorted list of types
+        final IObjectIntMap<Topic> ranks = CollectionFactory.createIdentityObjectIntMap(types.size());
+        for (int i=0; i < types.size(); i++) {
+            ranks.put(types.get(i), i + 1);
+        }
+        _writeTopicGroup("[untyped]", typeInstanceIdx.getTopics(null), null, ranks);
+        for (Topic type: types) {
+            _writeTopicGroup(_getReference(type), typeInstanceIdx.getTopics(type), type, ranks);
+        }
+    }
+
+    /**
+     * Writes the instances of a type.
+     *
+     * @param title The title of the group.
+     * @param topics The instances of the type.
+     * @param type The type or <tt>null</tt> if the topics are untyped.
+     * @param ranks The positions of the types.
+     * @throws IOException If an error occurs.
+     */
+    private void _writeTopicGroup(final String title, final Collection<Topic> topics, 
+            final Topic type, final IObjectIntMap<Topic> ranks) throws IOException {
+        boolean header = false;
+        for (Topic topic: topics) {
+            if (type != null && _primaryType(topic, ranks) != type) {
+                // Written in another group
+                continue;
+            }
+            if (!header) {
+                _writeSection("TT: " + title);
+                header = true;
+            }
+            _out.write('\n');
+            _writeTopic(topic);
+        }
+    }
+
+    /**
+     * Returns the type of the topic which comes first in the sorted list 
+     * of types.
+     */
+    private static Topic _primaryType(final Topic topic, final IObjectIntMap<Topic> ranks) {
+        Topic primary = null;
+        int primaryRank = Integer.MAX_VALUE;
+        for (Topic type: topic.getTypes()) {
+            final int rank = ranks.get(type);
+            if (rank < primaryRank) {
+                primary = type;
+                primaryRank = rank;
+            }
+        }
+        return primary;
+    }
+
+    /**
+     * Sorts the topics by their references.
+     *
+     * @param topics The topics to sort.
+     * @return A sorted list of topics.
+     */
+    private List<Topic> _sortTopics(final Collection<Topic> topics) {
+        final Map<Topic, String> refs = CollectionFactory.createIdentityMap(topics.size());
+        for (Topic topic: topics) {
+            refs.put(topic, _getReference(topic));
+        }
+        final List<Topic> result = CollectionFactory.createList(topics);
+        Collections.sort(result, new Comparator<Topic>() {
+            public int compare(Topic o1, Topic o2) {
+                return refs.get(o1).compareTo(refs.get(o2));
+            }
+        });
+        return result;
+    }
+
+    private void _writeTopic(final Topic topic) throws IOException {
+        final String ref = _getReference(topic);
+        _out.write(ref);
+        boolean first = true;
+        for (Topic type: topic.getTypes()) {
+            first = _startTail(first);
+            _out.write("isa ");
+            _writeTopicRef(type);
+        }
+        for (Name name: topic.getNames()) {
+            first = _startTail(first);
+            _writeName(name);
+        }
+        for (Occurrence occ: topic.getOccurrences()) {
+            first = _startTail(first);
+            _writeTopicRef(occ.getType());
+            _out.write(": ");
+            _writeValue(occ);
+            _writeScope(occ.getScope(), Collections.<Topic>emptySet());
+            _writeReifier(occ);
+        }
+        for (Locator sid: topic.getSubjectIdentifiers()) {
+            final String iri = _getIRIReference(sid.getReference());
+            if (!iri.equals(ref)) {
+                first = _startTail(first);
+                _out.write(iri);
+            }
+        }
+        for (Locator slo: topic.getSubjectLocators()) {
+            final String iri = "= <" + slo.getReference() + ">";
+            if (!iri.equals(ref)) {
+                first = _startTail(first);
+                _out.write(iri);
+            }
+        }
+        for (Locator iid: topic.getItemIdentifiers()) {
+            final String iri = iid.getReference();
+            if (!ref.equals("^ <" + iri + ">") && !ref.equals(_getLocalIdentifier(iri))) {
+                first = _startTail(first);
+                _out.write("^ <");
+                _out.write(iri);
+                _out.write('>');
+            }
+        }
+        _out.write(".\n");
+    }
+
+    /**
+     * Writes the separator in front of a topic tail.
+     *
+     * @param first Indicates if the tail is the first tail.
+     * @return <tt>false</tt>.
+     * @throws IOException If an error occurs.
+     */
+    private boolean _startTail(final boolean first) throws IOException {
+        _out.write(first ? " " : ";\n    ");
+        return false;
+    }
+
+    private void _writeName(final Name name) throws IOException {
+        _out.write("- ");
+        if (name.getType() != _defaultNameType) {
+            _writeTopicRef(name.getType());
+            _out.write(": ");
+        }
+        _writeString(name.getValue());
+        final Set<Topic> nameScope = name.getScope();
+        _writeScope(nameScope, Collections.<Topic>emptySet());
+        _writeReifier(name);
+        for (Variant variant: name.getVariants()) {
+            _out.write(" (");
+            _writeValue(variant);
+            // The variant inherits the scope of the name
+            _writeScope(variant.getScope(), nameScope);
+            _writeReifier(variant);
+            _out.write(')');
+        }
+    }
+
+    /**
+     * Writes the associations ordered by their types.
+     *
+     * @param typeInstanceIdx The type-instance index.
+     * @throws IOException If an error occurs.
+     */
+    private void _writeAssociations(final TypeInstanceIndex typeInstanceIdx) throws IOException {
+        for (Topic type: _sortTopics(typeInstanceIdx.getAssociationTypes())) {
+            for (Association assoc: typeInstanceIdx.getAssociations(type)) {
+                _out.write('\n');
+                _writeAssociation(assoc);
+            }
+        }
+    }
+
+    private void _writeAssociation(final Association assoc) throws IOException {
+        _writeTopicRef(assoc.getType());
+        _out.write('(');
+        boolean first = true;
+        for (Role role: assoc.getRoles()) {
+            if (!first) {
+                _out.write(", ");
+            }
+            first = false;
+            _writeTopicRef(role.getType());
+            _out.write(": ");
+            _writeTopicRef(role.getPlayer());
+            _writeReifier(role);
+        }
+        _out.write(')');
+        _writeScope(assoc.getScope(), Collections.<Topic>emptySet());
+        _writeReifier(assoc);
+        _out.write('\n');
+    }
+
+    /**
+     * Writes the value of an occurrence or variant.
+     *
+     * @param obj The occurrence or variant.
+     * @throws IOException If an error occurs.
+     */
+    private void _writeValue(final DatatypeAware obj) throws IOException {
+        final Locator datatype = obj.getDatatype();
+        if (XSD.ANY_URI.equals(datatype)) {
+            _out.write('<');
+            _out.write(obj.locatorValue().getReference());
+            _out.write('>');
+        }
+        else {
+            _writeString(obj.getValue());
+            if (!XSD.STRING.equals(datatype)) {
+                _out.write("^^");
+                _out.write(_getIRIReference(datatype.getReference()));
+            }
+        }
+    }
+
+    private void _writeString(final String value) throws IOException {
+        _out.write('"');
+        _out.write(value, STRING_ESCAPES);
+        _out.write('"');
+    }
+
+    /**
+     * Writes the scope.
+     *
+     * @param scope The themes.
+     * @param excluded The themes which should not be written.
+     * @throws IOException If an error occurs.
+     */
+    private void _writeScope(final Set<Topic> scope, final Set<Topic> excluded) throws IOException {
+        if (scope.size() == excluded.size()) {
+            return;
+        }
+        _out.write(" @");
+        boolean first = true;
+        for (Topic theme: scope) {
+            if (excluded.contains(theme)) {
+                continue;
+            }
+            if (!first) {
+                _out.write(", ");
+            }
+            first = false;
+            _writeTopicRef(theme);
+        }
+    }
+
+    private void _writeReifier(final Reifiable reifiable) throws IOException {
+        final Topic reifier = reifiable.getReifier();
+        if (reifier != null) {
+            _out.write(" ~ ");
+            _writeTopicRef(reifier);
+        }
+    }
+
+    private void _writeTopicRef(final Topic topic) throws IOException {
+        _out.write(_getReference(topic));
+    }
+
+    /**
+     * Returns the reference of the provided topic.
+     * <p>
+     * The reference is computed each time the topic is referenced, this 
+     * avoids a map from topics to references. Topics are referenced by
+     * an identifier (derived from an item identifier which is relative to the
+     * base locator), a subject identifier, a subject locator, or an item 
+     * identifier (in this order). Topics without any of these get a 
+     * generated identifier.
+     * </p>
+     *
+     * @param topic The topic.
+     * @return The reference of the topic.
+     */
+    private String _getReference(final Topic topic) {
+        String id = null;
+        for (Locator iid: topic.getItemIdentifiers()) {
+            final String fragment = _getLocalIdentifier(iid.getReference());
+            // Take the smallest fragment to get the same reference each time
+            if (fragment != null && (id == null || fragment.compareTo(id) < 0)) {
+                id = fragment;
+            }
+        }
+        if (id != null) {
+            return id;
+        }
+        final String sid = _smallest(topic.getSubjectIdentifiers());
+        if (sid != null) {
+            return _getIRIReference(sid);
+        }
+        final String slo = _smallest(topic.getSubjectLocators());
+        if (slo != null) {
+            return "= <" + slo + ">";
+        }
+        final String iid = _smallest(topic.getItemIdentifiers());
+        if (iid != null) {
+            return "^ <" + iid + ">";
+        }
+        return WriterUtils.generateId(_tm, _baseLocator, topic);
+    }
+
+    private static String _smallest(final Set<Locator> locs) {
+        String result = null;
+        for (Locator loc: locs) {
+            final String ref = loc.getReference();
+            if (result == null || ref.compareTo(result) < 0) {
+                result = ref;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the identifier if the IRI is relative to the base locator.
+     *
+     * @param iri The IRI.
+     * @return The fragment identifier of the IRI or <tt>null</tt> if the 
+     *          IRI is not relative to the base locator or if the fragment
+     *          identifier cannot be written as identifier.
+     */
+    private String _getLocalIdentifier(final String iri) {
+        final int baseLength = _baseLocator.length();
+        if (iri.length() > baseLength + 1 && iri.charAt(baseLength) == '#' 
+                && iri.startsWith(_baseLocator)) {
+            final String fragment = iri.substring(baseLength + 1);
+            if (isIdentifier(fragment)) {
+                return fragment;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a QName if a prefix for the namespace of the IRI exists, 
+     * otherwise the IRI in angle brackets.
+     *
+     * @param iri The IRI.
+     * @return A QName or the IRI in angle brackets.
+     */
+    private String _getIRIReference(final String iri) {
+        final int idx = namespaceEnd(iri);
+        if (idx > -1) {
+            final String prefix = _prefixes.get(iri.substring(0, idx));
+            if (prefix != null) {
+                return prefix + ":" + iri.substring(idx);
+            }
+        }
+        return "<" + iri + ">";
+    }
+
+    /**
+     * Returns if the provided string is a valid CTM identifier which is 
+     * not a keyword.
+     *
+     * @param s The string to check.
+     * @return <tt>true</tt> if the string is an identifier, otherwise <tt>false</tt>.
+     */
+    static boolean isIdentifier(final String s) {
+        if (s.length() == 0) {
+            return false;
+        }
+        final char first = s.charAt(0);
+        if (!Character.isLetter(first) && first != '_') {
+            return false;
+        }
+        if ("isa".equals(s) || "ako".equals(s) || "def".equals(s) || "end".equals(s)) {
+            return false;
+        }
+        return _isLocalName(s, 0);
+    }
+
+    /**
+     * Returns if the characters starting at the provided index form a 
+     * valid local name of a QName.
+     */
+    private static boolean _isLocalName(final String s, final int start) {
+        final int length = s.length();
+        if (start >= length || s.charAt(length-1) == '.') {
+            return false;
+        }
+        for (int i=start; i < length; i++) {
+            final char c = s.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && (i == start || (c != '-' && c != '.'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
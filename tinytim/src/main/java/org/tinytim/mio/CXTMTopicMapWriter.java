@@ -15,8 +15,11 @@
  */
 package org.tinytim.mio;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Collection;
@@ -27,11 +30,23 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
+import org.tinytim.internal.api.IConstruct;
 import org.tinytim.internal.api.IIndexManagerAware;
+import org.tinytim.internal.api.IScoped;
 import org.tinytim.internal.utils.CollectionFactory;
+import org.tinytim.internal.utils.IIntObjectMap;
+import org.tinytim.internal.utils.IObjectIntMap;
+import org.tinytim.internal.utils.ParallelArrays;
+import org.tinytim.internal.utils.SignatureGenerator;
 import org.tinytim.utils.DuplicateRemovalUtils;
+import org.tinytim.utils.OperationEvent.Operation;
+import org.tinytim.utils.OperationMonitor;
 import org.tinytim.voc.TMDM;
 import org.tinytim.voc.XSD;
 import org.tmapi.core.Association;
@@ -69,11 +84,29 @@ import org.xml.sax.helpers.AttributesImpl;
  * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
  * @version $Rev$ - $Date$
  */
-public final class CXTMTopicMapWriter {
+public final class CXTMTopicMapWriter implements TopicMapWriter {
 
     private static final Logger LOG = Logger.getLogger(CXTMTopicMapWriter.class.getName());
 
-    private static final Role[] _EMPTY_ROLES = new Role[0];
+    /**
+     * Minimum number of topics / associations per thread.
+     */
+    private static final int _PARALLEL_THRESHOLD = 10000;
+
+    /**
+     * Number of chunks per thread into which the topics / associations 
+     * are split if they are written concurrently.
+     */
+    private static final int _CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Maximum number of chunks per thread which are serialized or wait to 
+     * be written, limits the number of buffers which are kept in memory.
+     */
+    private static final int _PENDING_CHUNKS_PER_THREAD = 2;
+
+    private static final Comparator<TopicKey> _TOPIC_KEY_COMPARATOR = new TopicKeyComparator();
+    private static final Comparator<AssociationKey> _ASSOC_KEY_COMPARATOR = new AssociationKeyComparator();
 
     private final AttributesImpl _attrs;
 
@@ -83,20 +116,48 @@ public final class CXTMTopicMapWriter {
 
     private final XMLC14NWriter _out;
     private final String _normBase;
-    private final Map<Construct, Integer> _construct2Id;
+    private IObjectIntMap<Construct> _construct2Id;
+    /**
+     * Canonical rank of the topics; topics which are equal acc. to 
+     * the canonical sort order have the same rank.
+     */
+    private IObjectIntMap<Topic> _topicRanks;
+    /**
+     * Canonical rank of the associations.
+     */
+    private IObjectIntMap<Association> _assocRanks;
+    private ExecutorService _executor;
+    private int _parallelism;
+    private int _maxThreads;
+    private int _parallelThreshold;
     private final Map<Topic, List<Role>> _topic2Roles;
     private final Map<Locator, String> _locator2Norm;
-    private final Map<Association, Role[]> _assoc2Roles;
-
-    private final Comparator<Topic> _topicComparator;
-    private final Comparator<Association> _assocComparator;
-    private final Comparator<Role> _roleComparator;
-    private final Comparator<Occurrence> _occComparator;
-    private final Comparator<Name> _nameComparator;
-    private final Comparator<Variant> _variantComparator;
-    private final Comparator<Set<Locator>> _locSetComparator;
-    private final Comparator<Locator> _locComparator;
-    private final Comparator<Set<Topic>> _scopeComparator;
+    private boolean _modifyTopicMap;
+    /**
+     * Duplicate associations and roles (only used if the topic map is not 
+     * modified).
+     */
+    private final Map<Construct, List<Construct>> _duplicates;
+    /**
+     * Duplicate occurrences, names, and variants of the current topic (only 
+     * used if the topic map is not modified).
+     */
+    private final Map<Construct, List<Construct>> _topicDuplicates;
+    /**
+     * Roles of associations which contain duplicate roles (only used if the 
+     * topic map is not modified).
+     */
+    private final Map<Association, Set<Role>> _distinctRoles;
+
+    private final Comparator<Topic> _topicComparator = new TopicComparator();
+    private final Comparator<Association> _assocComparator = new AssociationComparator();
+    private final Comparator<Role> _roleComparator = new RoleComparator();
+    private final Comparator<Occurrence> _occComparator = new OccurrenceComparator();
+    private final Comparator<Name> _nameComparator = new NameComparator();
+    private final Comparator<Variant> _variantComparator = new VariantComparator();
+    private final Comparator<Set<Locator>> _locSetComparator = new LocatorSetComparator();
+    private final Comparator<Locator> _locComparator = new LocatorComparator();
+    private final Comparator<Set<Topic>> _scopeComparator = new ScopeComparator();
 
     /**
      * Creates a canonicalizer.
@@ -106,39 +167,155 @@ public final class CXTMTopicMapWriter {
      * @throws IOException If an error occurs.
      */
     public CXTMTopicMapWriter(OutputStream out, String baseLocator) throws IOException {
+        this(new XMLC14NWriter(out), baseLocator);
+    }
+
+    /**
+     * Creates a canonicalizer which writes onto a channel.
+     *
+     * @param channel The channel the CXTM is written onto.
+     * @param baseLocator The base locator which is used to resolve IRIs against.
+     * @throws IOException If an error occurs.
+     */
+    public CXTMTopicMapWriter(WritableByteChannel channel, String baseLocator) throws IOException {
+        this(new XMLC14NWriter(channel), baseLocator);
+    }
+
+    private CXTMTopicMapWriter(XMLC14NWriter out, String baseLocator) {
         if (baseLocator == null) {
             throw new IllegalArgumentException("The base locator must not be null");
         }
-        _out = new XMLC14NWriter(out);
+        _out = out;
         _attrs = new AttributesImpl();
         _normBase = _normalizeBaseLocator(baseLocator);
-        _construct2Id = CollectionFactory.createIdentityMap();
         _locator2Norm = CollectionFactory.createIdentityMap();
-        _assoc2Roles = CollectionFactory.createIdentityMap();
         _topic2Roles = CollectionFactory.createIdentityMap();
-        _topicComparator = new TopicComparator();
-        _assocComparator = new AssociationComparator();
-        _roleComparator = new RoleComparator();
-        _occComparator = new OccurrenceComparator();
-        _nameComparator = new NameComparator();
-        _variantComparator = new VariantComparator();
-        _locSetComparator = new LocatorSetComparator();
-        _locComparator = new LocatorComparator();
-        _scopeComparator = new ScopeComparator();
+        _duplicates = CollectionFactory.createIdentityMap();
+        _topicDuplicates = CollectionFactory.createIdentityMap();
+        _distinctRoles = CollectionFactory.createIdentityMap();
+        _modifyTopicMap = true;
+        _maxThreads = Runtime.getRuntime().availableProcessors();
+        _parallelThreshold = _PARALLEL_THRESHOLD;
+    }
+
+    /**
+     * Creates a writer which serializes a chunk of the topics or associations
+     * of the topic map which is serialized by the <tt>parent</tt>.
+     * <p>
+     * The writer shares the index of the parent but uses its own 
+     * output and caches.
+     * </p>
+     *
+     * @param parent The writer which has created the index.
+     * @param out The stream the chunk is written onto.
+     * @throws IOException If an error occurs.
+     */
+    private CXTMTopicMapWriter(CXTMTopicMapWriter parent, OutputStream out) throws IOException {
+        _out = new XMLC14NWriter(out);
+        _attrs = new AttributesImpl();
+        _normBase = parent._normBase;
+        _locator2Norm = CollectionFactory.createIdentityMap();
+        _topic2Roles = parent._topic2Roles;
+        _duplicates = parent._duplicates;
+        _topicDuplicates = CollectionFactory.createIdentityMap();
+        _distinctRoles = parent._distinctRoles;
+        _modifyTopicMap = parent._modifyTopicMap;
+        _construct2Id = parent._construct2Id;
+        _topicRanks = parent._topicRanks;
+        _assocRanks = parent._assocRanks;
+    }
+
+    /**
+     * Sets if duplicate Topic Maps constructs should be removed from the 
+     * topic map before it is serialized.
+     * <p>
+     * If set to <tt>false</tt>, the topic map is not modified: Duplicates are
+     * detected while serializing the topic map and the item identifiers and 
+     * the reifier of a duplicate are written as part of the remaining Topic 
+     * Maps construct. The output is equal to the output of the modifying 
+     * mode unless two duplicates are reified by different topics (the 
+     * reifiers are not merged in this case).
+     * </p>
+     * <p>
+     * Default: <tt>true</tt>
+     * </p>
+     *
+     * @param modify <tt>true</tt> to remove the duplicates from the topic map,
+     *          otherwise <tt>false</tt>.
+     */
+    public void setModifyTopicMap(boolean modify) {
+        _modifyTopicMap = modify;
+    }
+
+    /**
+     * Returns if duplicate Topic Maps constructs are removed from the 
+     * topic map before it is serialized.
+     *
+     * @return <tt>true</tt> if the topic map may be modified, otherwise <tt>false</tt>.
+     */
+    public boolean isModifyTopicMap() {
+        return _modifyTopicMap;
+    }
+
+    /**
+     * Sets the maximum number of threads which are used to serialize a 
+     * topic map.
+     * <p>
+     * Large topic maps are sorted and serialized concurrently, the output 
+     * does not depend on the number of threads.
+     * </p>
+     * <p>
+     * Default: The number of available processors.
+     * </p>
+     *
+     * @param maxThreads The maximum number of threads, <tt>1</tt> disables 
+     *          concurrent serialization.
+     */
+    public void setMaxThreads(int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("The maximum number of threads must be greater than zero");
+        }
+        _maxThreads = maxThreads;
+    }
+
+    /**
+     * Returns the maximum number of threads which are used to serialize a 
+     * topic map.
+     *
+     * @return The maximum number of threads.
+     */
+    public int getMaxThreads() {
+        return _maxThreads;
+    }
+
+    /**
+     * Sets the minimum number of topics or associations per thread.
+     * <p>
+     * Only meant to be used by the tests.
+     * </p>
+     *
+     * @param threshold The minimum number of topics or associations per thread.
+     */
+    void setParallelThreshold(int threshold) {
+        _parallelThreshold = threshold;
     }
 
     /**
      * Serializes the specified <tt>topicMap</tt> into the CXTM format.
      * <p>
      * <em>CAUTION</em>: This method MAY modify the topic map since duplicate 
-     * Topic Maps constructs (if any) are removed in advance.
+     * Topic Maps constructs (if any) are removed in advance, unless
+     * {@link #setModifyTopicMap(boolean)} was set to <tt>false</tt>.
      * </p>
      * 
      * @param topicMap The topic map to serialize.
      * @throws IOException If an error occurs.
      */
     public void write(TopicMap topicMap) throws IOException {
-        DuplicateRemovalUtils.removeDuplicates(topicMap);
+        final long start = OperationMonitor.start();
+        if (_modifyTopicMap) {
+            DuplicateRemovalUtils.removeDuplicates(topicMap);
+        }
         TypeInstanceIndex typeInstanceIndex = ((IIndexManagerAware)topicMap).getIndexManager().getTypeInstanceIndex();
         if (!typeInstanceIndex.isAutoUpdated()) {
             typeInstanceIndex.reindex();
@@ -146,27 +323,115 @@ public final class CXTMTopicMapWriter {
         Topic[] topics = _fetchTopics(topicMap, typeInstanceIndex);
         Association[] assocs = _fetchAssociations(topicMap, typeInstanceIndex);
         typeInstanceIndex.close();
-        _createIndex(topics, assocs);
-        _out.startDocument();
-        _attrs.clear();
-        _addReifier(_attrs, topicMap);
-        _out.startElement("topicMap", _attrs);
-        _out.newline();
-        _writeItemIdentifiers(topicMap);
-        for (Topic topic: topics) {
-            _writeTopic(topic);
+        _parallelism = ParallelArrays.getParallelism(Math.max(topics.length, assocs.length), 
+                                                        _parallelThreshold, _maxThreads);
+        _executor = _parallelism > 1 ? ParallelArrays.getExecutor() : null;
+        try {
+            _createIndex(topics, assocs);
+            _out.startDocument();
+            _attrs.clear();
+            _addReifier(_attrs, topicMap);
+            _out.startElement("topicMap", _attrs);
+            _out.newline();
+            _writeItemIdentifiers(topicMap);
+            if (_executor == null) {
+                for (Topic topic: topics) {
+                    _writeTopic(topic);
+                }
+                for (Association assoc: assocs) {
+                    _writeAssociation(assoc);
+                }
+            }
+            else {
+                _writeConcurrently(topics, assocs);
+            }
+            _out.endElement("topicMap");
+            _out.newline();
+            _out.endDocument();
         }
-        for (Association assoc: assocs) {
-            _writeAssociation(assoc);
+        finally {
+            _executor = null;
         }
-        _out.endElement("topicMap");
-        _out.newline();
-        _out.endDocument();
         _attrs.clear();
-        _construct2Id.clear();
+        _construct2Id = null;
+        _topicRanks = null;
+        _assocRanks = null;
         _topic2Roles.clear();
         _locator2Norm.clear();
-        _assoc2Roles.clear();
+        _duplicates.clear();
+        _distinctRoles.clear();
+        OperationMonitor.finished(Operation.CXTM_EXPORT, topicMap, start);
+    }
+
+    /**
+     * Serializes the topics and associations concurrently.
+     * <p>
+     * The topics and associations are split into chunks which are serialized
+     * into separate buffers. The buffers are written in canonical order.
+     * A new chunk is submitted whenever a buffer has been written, so at 
+     * most <tt>_PENDING_CHUNKS_PER_THREAD * parallelism</tt> buffers are 
+     * kept in memory.
+     * </p>
+     *
+     * @param topics The sorted topics.
+     * @param assocs The sorted associations.
+     * @throws IOException If an error occurs.
+     */
+    private void _writeConcurrently(final Topic[] topics, final Association[] assocs) throws IOException {
+        final int chunks = _parallelism * _CHUNKS_PER_THREAD;
+        final List<ChunkWriter> writers = CollectionFactory.createList(chunks * 2);
+        _createChunks(writers, topics, chunks);
+        _createChunks(writers, assocs, chunks);
+        final int maxPending = _parallelism * _PENDING_CHUNKS_PER_THREAD;
+        final List<Future<ByteArrayOutputStream>> results = CollectionFactory.createList(writers.size());
+        try {
+            for (int i=0; i < writers.size(); i++) {
+                while (results.size() < writers.size() && results.size() < i + maxPending) {
+                    results.add(_executor.submit(writers.get(results.size())));
+                }
+                _out.write(results.get(i).get());
+                // Release the buffer
+                results.set(i, null);
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        finally {
+            for (Future<ByteArrayOutputStream> result: results) {
+                if (result != null) {
+                    result.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the topics or associations into chunks and creates a 
+     * {@link ChunkWriter} for each chunk.
+     *
+     * @param writers The list which receives the chunk writers.
+     * @param constructs The topics or associations.
+     * @param chunks The number of chunks.
+     */
+    private void _createChunks(final List<ChunkWriter> writers, 
+            final Construct[] constructs, final int chunks) {
+        final int chunkSize = (constructs.length + chunks - 1) / chunks;
+        for (int i=0; i < constructs.length; i+=chunkSize) {
+            writers.add(new ChunkWriter(constructs, i, 
+                    Math.min(i + chunkSize, constructs.length)));
+        }
     }
 
     /**
@@ -229,12 +494,13 @@ public final class CXTMTopicMapWriter {
      */
     private Association[] _fetchAssociations(final TopicMap tm, final TypeInstanceIndex idx) {
         Collection<Topic> types = idx.getTopicTypes();
+        Collection<Association> assocs_ = _modifyTopicMap ? tm.getAssociations() 
+                                                          : _removeDuplicates(tm.getAssociations());
         if (types.isEmpty()) {
-            Set<Association> assocs = tm.getAssociations();
-            return assocs.toArray(new Association[assocs.size()]);
+            return assocs_.toArray(new Association[assocs_.size()]);
         }
         else {
-            List<Association> assocs = CollectionFactory.createList(tm.getAssociations());
+            List<Association> assocs = CollectionFactory.createList(assocs_);
             for (Topic type: types) {
                 for (Topic instance: idx.getTopics(type)) {
                     assocs.add(new TypeInstanceAssociation(type, instance));
@@ -253,27 +519,134 @@ public final class CXTMTopicMapWriter {
      * @param assocs An array of associations.
      */
     private void _createIndex(Topic[] topics, Association[] assocs) {
-        Arrays.sort(topics, _topicComparator);
-        Topic topic = null;
+        _construct2Id = CollectionFactory.createIdentityObjectIntMap(topics.length + assocs.length * 3);
+        _sortTopics(topics);
         for (int i=0; i < topics.length; i++) {
-            topic = topics[i];
-            _construct2Id.put(topic, Integer.valueOf(i+1));
+            _construct2Id.put(topics[i], i+1);
         }
-        Arrays.sort(assocs, _assocComparator);
-        Association assoc = null;
+        _sortAssociations(assocs);
+        Role[] roles = null;
         for (int i=0; i < assocs.length; i++) {
-            assoc = assocs[i];
-            _construct2Id.put(assoc, Integer.valueOf(i+1));
-            Set<Role> roles_ = assoc.getRoles();
-            Role[] roles = roles_.toArray(new Role[roles_.size()]);
-            Arrays.sort(roles, _roleComparator);
-            _assoc2Roles.put(assoc, roles);
+            _construct2Id.put(assocs[i], i+1);
+            roles = _getRoles(assocs[i]);
             for (int j=0; j < roles.length; j++) {
-                _construct2Id.put(roles[j], Integer.valueOf(j+1));
+                _construct2Id.put(roles[j], j+1);
+            }
+        }
+    }
+
+    /**
+     * Sorts the topics and assigns the canonical rank to each topic.
+     * <p>
+     * The sort keys are computed once per topic.
+     * </p>
+     *
+     * @param topics The topics to sort.
+     */
+    private void _sortTopics(final Topic[] topics) {
+        final TopicKey[] keys = new TopicKey[topics.length];
+        ParallelArrays.execute(_executor, _parallelism, topics.length, new ParallelArrays.RangeTask() {
+            public void run(int from, int to) {
+                for (int i=from; i < to; i++) {
+                    final Topic topic = topics[i];
+                    keys[i] = new TopicKey(topic, _normalizeLocators(topic.getSubjectIdentifiers()),
+                            _normalizeLocators(topic.getSubjectLocators()),
+                            _normalizeLocators(topic.getItemIdentifiers()));
+                }
+            }
+        });
+        ParallelArrays.sort(_executor, _parallelism, keys, _TOPIC_KEY_COMPARATOR);
+        _topicRanks = CollectionFactory.createIdentityObjectIntMap(topics.length);
+        int rank = 0;
+        for (int i=0; i < keys.length; i++) {
+            topics[i] = keys[i].topic;
+            if (i == 0 || _TOPIC_KEY_COMPARATOR.compare(keys[i-1], keys[i]) != 0) {
+                rank = i+1;
+            }
+            _topicRanks.put(topics[i], rank);
+        }
+    }
+
+    /**
+     * Sorts the associations and assigns the canonical rank to each 
+     * association.
+     * <p>
+     * The topics must be sorted before.
+     * </p>
+     *
+     * @param assocs The associations to sort.
+     */
+    private void _sortAssociations(final Association[] assocs) {
+        final AssociationKey[] keys = new AssociationKey[assocs.length];
+        ParallelArrays.execute(_executor, _parallelism, assocs.length, new ParallelArrays.RangeTask() {
+            public void run(int from, int to) {
+                for (int i=from; i < to; i++) {
+                    keys[i] = new AssociationKey(assocs[i], _createAssociationKey(assocs[i]));
+                }
             }
+        });
+        ParallelArrays.sort(_executor, _parallelism, keys, _ASSOC_KEY_COMPARATOR);
+        _assocRanks = CollectionFactory.createIdentityObjectIntMap(assocs.length);
+        int rank = 0;
+        for (int i=0; i < keys.length; i++) {
+            assocs[i] = keys[i].assoc;
+            if (i == 0 || _ASSOC_KEY_COMPARATOR.compare(keys[i-1], keys[i]) != 0) {
+                rank = i+1;
+            }
+            _assocRanks.put(assocs[i], rank);
         }
     }
 
+    /**
+     * Returns the sort key of an association.
+     * <p>
+     * The key consists of the rank of the type, the number of roles, 
+     * the sorted ranks of the role players and role types, the number of
+     * themes and the sorted ranks of the themes. Comparing the keys 
+     * lexicographically is equal to comparing the associations with 
+     * the {@link AssociationComparator}.
+     * </p>
+     *
+     * @param assoc The association.
+     * @return The sort key.
+     */
+    private int[] _createAssociationKey(final Association assoc) {
+        final Set<Role> roles = _getRoleSet(assoc);
+        final Set<Topic> scope = assoc.getScope();
+        final int[] key = new int[3 + roles.size() * 2 + scope.size()];
+        int i = 0;
+        key[i++] = _rankOf(assoc.getType());
+        key[i++] = roles.size();
+        final long[] roleKeys = new long[roles.size()];
+        int j = 0;
+        for (Role role: roles) {
+            roleKeys[j++] = ((long) _rankOf(role.getPlayer()) << 32) | _rankOf(role.getType());
+        }
+        Arrays.sort(roleKeys);
+        for (j=0; j < roleKeys.length; j++) {
+            key[i++] = (int) (roleKeys[j] >>> 32);
+            key[i++] = (int) roleKeys[j];
+        }
+        key[i++] = scope.size();
+        final int start = i;
+        for (Topic theme: scope) {
+            key[i++] = _rankOf(theme);
+        }
+        Arrays.sort(key, start, i);
+        return key;
+    }
+
+    /**
+     * Returns the canonical rank of the topic.
+     *
+     * @param topic The topic.
+     * @return The rank of the topic or <tt>0</tt> if the topic is 
+     *          <tt>null</tt> or unknown.
+     */
+    private int _rankOf(final Topic topic) {
+        return topic == null ? 0 : _topicRanks.get(topic);
+    }
+
     /**
      * Returns a sorted array of roles of the provided association.
      *
@@ -281,8 +654,21 @@ public final class CXTMTopicMapWriter {
      * @return A (maybe empty) sorted array of roles.
      */
     private Role[] _getRoles(final Association assoc) {
-        Role[] roles = _assoc2Roles.get(assoc);
-        return roles != null ? roles : _EMPTY_ROLES;
+        Set<Role> roles_ = _getRoleSet(assoc);
+        Role[] roles = roles_.toArray(new Role[roles_.size()]);
+        Arrays.sort(roles, _roleComparator);
+        return roles;
+    }
+
+    /**
+     * Returns the roles of the provided association without duplicates.
+     *
+     * @param assoc The association to retrieve the roles from.
+     * @return The roles of the association.
+     */
+    private Set<Role> _getRoleSet(final Association assoc) {
+        Set<Role> roles = _distinctRoles.get(assoc);
+        return roles != null ? roles : assoc.getRoles();
     }
 
     /**
@@ -292,7 +678,8 @@ public final class CXTMTopicMapWriter {
      * @return A (maybe empty) sorted array of names.
      */
     private Name[] _getNames(final Topic topic) {
-        Set<Name> names_ = topic.getNames();
+        Collection<Name> names_ = _modifyTopicMap ? topic.getNames()
+                                                  : _removeDuplicates(topic.getNames(), _topicDuplicates);
         Name[] names = names_.toArray(new Name[names_.size()]);
         Arrays.sort(names, _nameComparator);
         return names;
@@ -305,7 +692,17 @@ public final class CXTMTopicMapWriter {
      * @return A (maybe empty) sorted array of variants.
      */
     private Variant[] _getVariants(final Name name) {
-        Set<Variant> variants_ = name.getVariants();
+        Collection<Variant> variants_ = name.getVariants();
+        if (!_modifyTopicMap) {
+            List<Construct> duplicates = _topicDuplicates.get(name);
+            if (duplicates != null) {
+                variants_ = CollectionFactory.createList(variants_);
+                for (Construct duplicate: duplicates) {
+                    variants_.addAll(((Name) duplicate).getVariants());
+                }
+            }
+            variants_ = _removeDuplicates(variants_, _topicDuplicates);
+        }
         Variant[] variants = variants_.toArray(new Variant[variants_.size()]);
         Arrays.sort(variants, _variantComparator);
         return variants;
@@ -318,12 +715,155 @@ public final class CXTMTopicMapWriter {
      * @return A (maybe emtpy) sorted array of occurrences.
      */
     private Occurrence[] _getOccurrences(final Topic topic) {
-        Set<Occurrence> occs_ = topic.getOccurrences();
+        Collection<Occurrence> occs_ = _modifyTopicMap ? topic.getOccurrences()
+                                                       : _removeDuplicates(topic.getOccurrences(), _topicDuplicates);
         Occurrence[] occs = occs_.toArray(new Occurrence[occs_.size()]);
         Arrays.sort(occs, _occComparator);
         return occs;
     }
 
+    /**
+     * Returns the occurrences, names or variants without duplicates.
+     * <p>
+     * The duplicates are recorded in <tt>duplicates</tt>.
+     * </p>
+     *
+     * @param constructs The occurrences, names or variants.
+     * @param duplicates The map which receives the duplicates.
+     * @return The constructs without duplicates.
+     */
+    private static <T extends Construct> Collection<T> _removeDuplicates(
+            final Collection<T> constructs, 
+            final Map<Construct, List<Construct>> duplicates) {
+        if (constructs.size() < 2) {
+            return constructs;
+        }
+        final IIntObjectMap<T> sigs = CollectionFactory.createIntObjectMap(constructs.size());
+        final List<T> result = CollectionFactory.createList(constructs.size());
+        T existing = null;
+        for (T construct: constructs) {
+            int sig = SignatureGenerator.generateSignature((IConstruct) construct);
+            existing = sigs.get(sig);
+            if (existing != null) {
+                _addDuplicate(duplicates, existing, construct);
+            }
+            else {
+                sigs.put(sig, construct);
+                result.add(construct);
+            }
+        }
+        return result.size() == constructs.size() ? constructs : result;
+    }
+
+    /**
+     * Returns the associations without duplicates.
+     * <p>
+     * Duplicate associations and roles are recorded in {@link #_duplicates}.
+     * </p>
+     *
+     * @param assocs The associations.
+     * @return The associations without duplicates.
+     */
+    private Collection<Association> _removeDuplicates(final Collection<Association> assocs) {
+        final IIntObjectMap<Association> sigs = CollectionFactory.createIntObjectMap(assocs.size());
+        final List<Association> result = CollectionFactory.createList(assocs.size());
+        Association existing = null;
+        for (Association assoc: assocs) {
+            int sig = _signature(assoc);
+            existing = sigs.get(sig);
+            if (existing != null) {
+                _addDuplicate(_duplicates, existing, assoc);
+                for (Role role: assoc.getRoles()) {
+                    _addDuplicateRole(existing, role);
+                }
+            }
+            else {
+                sigs.put(sig, assoc);
+                result.add(assoc);
+                Set<Role> roles = assoc.getRoles();
+                Collection<Role> distinctRoles = _removeDuplicates(roles, _duplicates);
+                if (distinctRoles != roles) {
+                    Set<Role> roleSet = CollectionFactory.createIdentitySet(distinctRoles.size());
+                    roleSet.addAll(distinctRoles);
+                    _distinctRoles.put(assoc, roleSet);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records <tt>role</tt> as duplicate of the equivalent role of the 
+     * association <tt>existing</tt>.
+     *
+     * @param existing The association which is kept.
+     * @param role A role of a duplicate of <tt>existing</tt>.
+     */
+    private void _addDuplicateRole(final Association existing, final Role role) {
+        final int sig = SignatureGenerator.generateSignature(role);
+        for (Role existingRole: _getRoleSet(existing)) {
+            if (SignatureGenerator.generateSignature(existingRole) == sig) {
+                _addDuplicate(_duplicates, existingRole, role);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the signature of an association, duplicate roles are ignored.
+     *
+     * @param assoc The association.
+     * @return The signature of the association.
+     */
+    private static int _signature(final Association assoc) {
+        final Set<Role> roles = assoc.getRoles();
+        int[] roleSigs = new int[roles.size()];
+        int i = 0;
+        for (Role role: roles) {
+            roleSigs[i++] = SignatureGenerator.generateSignature(role);
+        }
+        Arrays.sort(roleSigs);
+        int len = 0;
+        for (i=0; i < roleSigs.length; i++) {
+            if (len == 0 || roleSigs[len-1] != roleSigs[i]) {
+                roleSigs[len++] = roleSigs[i];
+            }
+        }
+        if (len < roleSigs.length) {
+            roleSigs = Arrays.copyOf(roleSigs, len);
+        }
+        return Arrays.hashCode(new int[] {
+                System.identityHashCode(assoc.getType()),
+                System.identityHashCode(((IScoped) assoc).getScopeObject()),
+                Arrays.hashCode(roleSigs)
+            });
+    }
+
+    private static void _addDuplicate(final Map<Construct, List<Construct>> duplicates,
+            final Construct existing, final Construct duplicate) {
+        List<Construct> list = duplicates.get(existing);
+        if (list == null) {
+            list = CollectionFactory.createList(2);
+            duplicates.put(existing, list);
+        }
+        list.add(duplicate);
+    }
+
+    /**
+     * Returns the duplicates of the provided Topic Maps construct.
+     *
+     * @param construct The Topic Maps construct.
+     * @return A list of duplicates or <tt>null</tt> if the construct has no 
+     *          duplicates.
+     */
+    private List<Construct> _getDuplicates(final Construct construct) {
+        if (_modifyTopicMap) {
+            return null;
+        }
+        List<Construct> duplicates = _topicDuplicates.get(construct);
+        return duplicates != null ? duplicates : _duplicates.get(construct);
+    }
+
     /**
      * Returns the index of the provided Topic Maps construct.
      * 
@@ -335,7 +875,7 @@ public final class CXTMTopicMapWriter {
      * @return The index of the Topic Maps construct.
      */
     private int _indexOf(final Construct tmo) {
-        return _construct2Id.get(tmo).intValue();
+        return _construct2Id.get(tmo);
     }
 
     /**
@@ -361,6 +901,14 @@ public final class CXTMTopicMapWriter {
             _writeOccurrence(occs[i], i+1);
         }
         List<Role> roles_ = CollectionFactory.createList(topic.getRolesPlayed());
+        if (!_modifyTopicMap) {
+            // Remove duplicate roles (which have no number)
+            for (Iterator<Role> iter = roles_.iterator(); iter.hasNext();) {
+                if (_construct2Id.get(iter.next()) == 0) {
+                    iter.remove();
+                }
+            }
+        }
         List<Role> alienRoles = _topic2Roles.get(topic);
         if (alienRoles != null) {
             roles_.addAll(alienRoles);
@@ -382,6 +930,7 @@ public final class CXTMTopicMapWriter {
         }
         _out.endElement("topic");
         _out.newline();
+        _topicDuplicates.clear();
     }
 
     /**
@@ -543,7 +1092,51 @@ public final class CXTMTopicMapWriter {
      * @throws IOException If an error occurs.
      */
     private void _writeItemIdentifiers(final Construct tmo) throws IOException {
-        _writeLocatorSet("itemIdentifiers", tmo.getItemIdentifiers());
+        _writeLocatorSet("itemIdentifiers", _getItemIdentifiers(tmo));
+    }
+
+    /**
+     * Returns the item identifiers of the Topic Maps construct including 
+     * the item identifiers of its duplicates.
+     *
+     * @param tmo The Topic Maps construct to take the item identifiers from.
+     * @return The item identifiers.
+     */
+    private Set<Locator> _getItemIdentifiers(final Construct tmo) {
+        List<Construct> duplicates = _getDuplicates(tmo);
+        if (duplicates == null) {
+            return tmo.getItemIdentifiers();
+        }
+        Set<Locator> iids = CollectionFactory.createSet();
+        iids.addAll(tmo.getItemIdentifiers());
+        for (Construct duplicate: duplicates) {
+            iids.addAll(duplicate.getItemIdentifiers());
+        }
+        return iids;
+    }
+
+    /**
+     * Returns the reifier of the Topic Maps construct or the reifier of one 
+     * of its duplicates.
+     *
+     * @param reifiable The reifiable Topic Maps construct.
+     * @return The reifier or <tt>null</tt>.
+     */
+    private Topic _getReifier(final Reifiable reifiable) {
+        Topic reifier = reifiable.getReifier();
+        if (reifier != null) {
+            return reifier;
+        }
+        List<Construct> duplicates = _getDuplicates(reifiable);
+        if (duplicates != null) {
+            for (Construct duplicate: duplicates) {
+                reifier = ((Reifiable) duplicate).getReifier();
+                if (reifier != null) {
+                    return reifier;
+                }
+            }
+        }
+        return null;
     }
 
     /**
@@ -613,7 +1206,7 @@ public final class CXTMTopicMapWriter {
      * @param reifiable The reifiable Topic Maps construct.
      */
     private void _addReifier(final AttributesImpl attrs, final Reifiable reifiable) {
-        Topic reifier = reifiable.getReifier();
+        Topic reifier = _getReifier(reifiable);
         if (reifier != null) {
             attrs.addAttribute("", "reifier", "", "CDATA", Integer.toString(_indexOf(reifier)));
         }
@@ -630,7 +1223,40 @@ public final class CXTMTopicMapWriter {
         if (normLoc != null) {
             return normLoc;
         }
-        normLoc = locator.getReference();
+        normLoc = _normalize(locator);
+        _locator2Norm.put(locator, normLoc);
+        return normLoc;
+    }
+
+    /**
+     * Returns a sorted array of normalized locators.
+     * <p>
+     * In contrast to {@link #_normalizeLocator(Locator)}, this method may 
+     * be called concurrently.
+     * </p>
+     *
+     * @param locators The locators to normalize.
+     * @return A sorted array of normalized locators.
+     */
+    private String[] _normalizeLocators(final Set<Locator> locators) {
+        final String[] locs = new String[locators.size()];
+        int i = 0;
+        for (Locator loc: locators) {
+            locs[i++] = _normalize(loc);
+        }
+        Arrays.sort(locs);
+        return locs;
+    }
+
+    /**
+     * Normalizes the locator according to CXTM 3.19 without caching the 
+     * result.
+     *
+     * @param locator The locator to normalize.
+     * @return A normalized representation of the locator.
+     */
+    private String _normalize(final Locator locator) {
+        String normLoc = locator.getReference();
         if (normLoc.startsWith(_normBase)) {
             normLoc = normLoc.substring(_normBase.length());
         }
@@ -651,7 +1277,6 @@ public final class CXTMTopicMapWriter {
         if (normLoc.length() > 0 && normLoc.charAt(0) == '/') {
             normLoc = normLoc.substring(1);
         }
-        _locator2Norm.put(locator, normLoc);
         return normLoc;
     }
 
@@ -711,6 +1336,13 @@ public final class CXTMTopicMapWriter {
                 _reportInvalid("Comparing topics where one topic is null");
                 return -1;
             }
+            if (_topicRanks != null) {
+                final int rank1 = _topicRanks.get(o1);
+                final int rank2 = _topicRanks.get(o2);
+                if (rank1 != 0 && rank2 != 0) {
+                    return rank1 < rank2 ? -1 : (rank1 == rank2 ? 0 : 1);
+                }
+            }
             int res = _locSetComparator.compare(o1.getSubjectIdentifiers(), o2.getSubjectIdentifiers());
             if (res == 0) {
                 res = _locSetComparator.compare(o1.getSubjectLocators(), o2.getSubjectLocators());
@@ -808,9 +1440,16 @@ public final class CXTMTopicMapWriter {
             if (o1 == o2) {
                 return 0;
             }
+            if (_assocRanks != null) {
+                final int rank1 = _assocRanks.get(o1);
+                final int rank2 = _assocRanks.get(o2);
+                if (rank1 != 0 && rank2 != 0) {
+                    return rank1 < rank2 ? -1 : (rank1 == rank2 ? 0 : 1);
+                }
+            }
             int res = compareType(o1, o2);
             if (res == 0) {
-                res = _roleSetComparator.compare(o1.getRoles(), o2.getRoles());
+                res = _roleSetComparator.compare(_getRoleSet(o1), _getRoleSet(o2));
                 if (res == 0) {
                     res = compareScope(o1, o2);
                 }
@@ -1043,6 +1682,125 @@ public final class CXTMTopicMapWriter {
     }
 
 
+    /**
+     * Serializes a range of topics or associations into a buffer.
+     */
+    private final class ChunkWriter implements Callable<ByteArrayOutputStream> {
+
+        private final Construct[] _constructs;
+        private final int _from;
+        private final int _to;
+
+        ChunkWriter(Construct[] constructs, int from, int to) {
+            _constructs = constructs;
+            _from = from;
+            _to = to;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.concurrent.Callable#call()
+         */
+        public ByteArrayOutputStream call() throws IOException {
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream((_to - _from) * 256);
+            final CXTMTopicMapWriter writer = new CXTMTopicMapWriter(CXTMTopicMapWriter.this, buffer);
+            for (int i=_from; i < _to; i++) {
+                if (_constructs[i] instanceof Topic) {
+                    writer._writeTopic((Topic) _constructs[i]);
+                }
+                else {
+                    writer._writeAssociation((Association) _constructs[i]);
+                }
+            }
+            writer._out.endDocument();
+            return buffer;
+        }
+    }
+
+
+    /*
+     * Sort keys.
+     */
+
+    /**
+     * Sort key of a topic: The sorted, normalized subject identifiers, 
+     * subject locators, and item identifiers.
+     */
+    private static final class TopicKey {
+        final Topic topic;
+        final String[] sids;
+        final String[] slos;
+        final String[] iids;
+
+        TopicKey(Topic topic, String[] sids, String[] slos, String[] iids) {
+            this.topic = topic;
+            this.sids = sids;
+            this.slos = slos;
+            this.iids = iids;
+        }
+    }
+
+    /**
+     * Compares {@link TopicKey}s, equal to the {@link TopicComparator}.
+     */
+    private static final class TopicKeyComparator implements Comparator<TopicKey> {
+
+        public int compare(TopicKey o1, TopicKey o2) {
+            if (o1 == o2) {
+                return 0;
+            }
+            int res = _compare(o1.sids, o2.sids);
+            if (res == 0) {
+                res = _compare(o1.slos, o2.slos);
+                if (res == 0) {
+                    res = _compare(o1.iids, o2.iids);
+                }
+            }
+            return res;
+        }
+
+        private static int _compare(String[] locs1, String[] locs2) {
+            int res = locs1.length - locs2.length;
+            for (int i=0; i < locs1.length && res == 0; i++) {
+                res = locs1[i].compareTo(locs2[i]);
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Sort key of an association.
+     * 
+     * @see CXTMTopicMapWriter#_createAssociationKey(Association)
+     */
+    private static final class AssociationKey {
+        final Association assoc;
+        final int[] key;
+
+        AssociationKey(Association assoc, int[] key) {
+            this.assoc = assoc;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Compares {@link AssociationKey}s lexicographically.
+     */
+    private static final class AssociationKeyComparator implements Comparator<AssociationKey> {
+
+        public int compare(AssociationKey o1, AssociationKey o2) {
+            final int[] key1 = o1.key;
+            final int[] key2 = o2.key;
+            final int len = Math.min(key1.length, key2.length);
+            for (int i=0; i < len; i++) {
+                if (key1[i] != key2[i]) {
+                    return key1[i] < key2[i] ? -1 : 1;
+                }
+            }
+            return key1.length - key2.length;
+        }
+    }
+
+
     /*
      * Helper classes to treat type-instance relationships, modelled as property
      * of a topic, as associations. 
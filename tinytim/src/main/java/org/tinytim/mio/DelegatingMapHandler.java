@@ -0,0 +1,280 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import com.semagia.mio.IMapHandler;
+import com.semagia.mio.IRef;
+import com.semagia.mio.MIOException;
+
+/**
+ * {@link IMapHandler} which forwards all events to another handler.
+ * <p>
+ * This class is the base of the stages of a streaming pipeline: A stage
+ * overrides the events it is interested in and passes (possibly modified)
+ * events to the next stage. The last stage is usually a handler which 
+ * writes the events, i.e. the {@link CTMMapHandler}, or the 
+ * {@link TinyTimMapInputHandler}:
+ * </p>
+ * <pre>
+ *     IMapHandler handler = new CTMMapHandler(out, base);
+ *     handler = new ScopeRemovingFilter(handler);
+ *     handler = SubjectIdentifierMapper.forXTM10PSIs(handler);
+ *     parser.parse(handler, source);
+ * </pre>
+ * <p>
+ * None of the stages provided by tinyTiM keeps more than the events of 
+ * the current topic or association in memory.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class DelegatingMapHandler implements IMapHandler {
+
+    private final IMapHandler _handler;
+
+    /**
+     * Creates a handler which forwards the events to <tt>handler</tt>.
+     *
+     * @param handler The handler which receives the events.
+     */
+    public DelegatingMapHandler(IMapHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("The map handler must not be null");
+        }
+        _handler = handler;
+    }
+
+    /**
+     * Returns the handler which receives the next event.
+     *
+     * @return The handler which receives the events.
+     */
+    protected IMapHandler getHandler() {
+        return _handler;
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startTopicMap()
+     */
+    public void startTopicMap() throws MIOException {
+        getHandler().startTopicMap();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endTopicMap()
+     */
+    public void endTopicMap() throws MIOException {
+        getHandler().endTopicMap();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startTopic(com.semagia.mio.IRef)
+     */
+    public void startTopic(IRef identity) throws MIOException {
+        getHandler().startTopic(identity);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endTopic()
+     */
+    public void endTopic() throws MIOException {
+        getHandler().endTopic();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startAssociation()
+     */
+    public void startAssociation() throws MIOException {
+        getHandler().startAssociation();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endAssociation()
+     */
+    public void endAssociation() throws MIOException {
+        getHandler().endAssociation();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startRole()
+     */
+    public void startRole() throws MIOException {
+        getHandler().startRole();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endRole()
+     */
+    public void endRole() throws MIOException {
+        getHandler().endRole();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startPlayer()
+     */
+    public void startPlayer() throws MIOException {
+        getHandler().startPlayer();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endPlayer()
+     */
+    public void endPlayer() throws MIOException {
+        getHandler().endPlayer();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startOccurrence()
+     */
+    public void startOccurrence() throws MIOException {
+        getHandler().startOccurrence();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endOccurrence()
+     */
+    public void endOccurrence() throws MIOException {
+        getHandler().endOccurrence();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startName()
+     */
+    public void startName() throws MIOException {
+        getHandler().startName();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endName()
+     */
+    public void endName() throws MIOException {
+        getHandler().endName();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startVariant()
+     */
+    public void startVariant() throws MIOException {
+        getHandler().startVariant();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endVariant()
+     */
+    public void endVariant() throws MIOException {
+        getHandler().endVariant();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startScope()
+     */
+    public void startScope() throws MIOException {
+        getHandler().startScope();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endScope()
+     */
+    public void endScope() throws MIOException {
+        getHandler().endScope();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startType()
+     */
+    public void startType() throws MIOException {
+        getHandler().startType();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endType()
+     */
+    public void endType() throws MIOException {
+        getHandler().endType();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startReifier()
+     */
+    public void startReifier() throws MIOException {
+        getHandler().startReifier();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endReifier()
+     */
+    public void endReifier() throws MIOException {
+        getHandler().endReifier();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startIsa()
+     */
+    public void startIsa() throws MIOException {
+        getHandler().startIsa();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endIsa()
+     */
+    public void endIsa() throws MIOException {
+        getHandler().endIsa();
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#topicRef(com.semagia.mio.IRef)
+     */
+    public void topicRef(IRef identity) throws MIOException {
+        getHandler().topicRef(identity);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#subjectIdentifier(java.lang.String)
+     */
+    public void subjectIdentifier(String sid) throws MIOException {
+        getHandler().subjectIdentifier(sid);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#subjectLocator(java.lang.String)
+     */
+    public void subjectLocator(String slo) throws MIOException {
+        getHandler().subjectLocator(slo);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#itemIdentifier(java.lang.String)
+     */
+    public void itemIdentifier(String iid) throws MIOException {
+        getHandler().itemIdentifier(iid);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#value(java.lang.String)
+     */
+    public void value(String value) throws MIOException {
+        getHandler().value(value);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#value(java.lang.String, java.lang.String)
+     */
+    public void value(String value, String datatype) throws MIOException {
+        getHandler().value(value, datatype);
+    }
+
+}
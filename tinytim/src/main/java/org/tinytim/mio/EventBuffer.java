@@ -0,0 +1,371 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import com.semagia.mio.IMapHandler;
+import com.semagia.mio.IRef;
+import com.semagia.mio.MIOException;
+
+/**
+ * {@link IMapHandler} which records the events in memory to replay them 
+ * later.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+final class EventBuffer implements IMapHandler {
+
+    private static final int
+        _START_TOPIC_MAP = 0,
+        _END_TOPIC_MAP = 1,
+        _START_TOPIC = 2,
+        _END_TOPIC = 3,
+        _START_ASSOCIATION = 4,
+        _END_ASSOCIATION = 5,
+        _START_ROLE = 6,
+        _END_ROLE = 7,
+        _START_PLAYER = 8,
+        _END_PLAYER = 9,
+        _START_OCCURRENCE = 10,
+        _END_OCCURRENCE = 11,
+        _START_NAME = 12,
+        _END_NAME = 13,
+        _START_VARIANT = 14,
+        _END_VARIANT = 15,
+        _START_SCOPE = 16,
+        _END_SCOPE = 17,
+        _START_TYPE = 18,
+        _END_TYPE = 19,
+        _START_REIFIER = 20,
+        _END_REIFIER = 21,
+        _START_ISA = 22,
+        _END_ISA = 23,
+        _TOPIC_REF = 24,
+        _SUBJECT_IDENTIFIER = 25,
+        _SUBJECT_LOCATOR = 26,
+        _ITEM_IDENTIFIER = 27,
+        _VALUE = 28,
+        _DATATYPE_VALUE = 29;
+
+    private int[] _types;
+    private Object[] _values;
+    private String[] _datatypes;
+    private int _size;
+
+    EventBuffer() {
+        _types = new int[64];
+        _values = new Object[64];
+        _datatypes = new String[64];
+    }
+
+    /**
+     * Returns the number of recorded events.
+     *
+     * @return The number of events.
+     */
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Removes all recorded events.
+     */
+    void clear() {
+        for (int i=0; i < _size; i++) {
+            _values[i] = null;
+            _datatypes[i] = null;
+        }
+        _size = 0;
+    }
+
+    /**
+     * Reports the recorded events to the provided handler.
+     * <p>
+     * The events are kept, call {@link #clear()} to remove them.
+     * </p>
+     *
+     * @param handler The handler which receives the events.
+     * @throws MIOException If the handler reports an error.
+     */
+    void replay(IMapHandler handler) throws MIOException {
+        for (int i=0; i < _size; i++) {
+            switch (_types[i]) {
+                case _START_TOPIC_MAP:      handler.startTopicMap(); break;
+                case _END_TOPIC_MAP:        handler.endTopicMap(); break;
+                case _START_TOPIC:          handler.startTopic((IRef) _values[i]); break;
+                case _END_TOPIC:            handler.endTopic(); break;
+                case _START_ASSOCIATION:    handler.startAssociation(); break;
+                case _END_ASSOCIATION:      handler.endAssociation(); break;
+                case _START_ROLE:           handler.startRole(); break;
+                case _END_ROLE:             handler.endRole(); break;
+                case _START_PLAYER:         handler.startPlayer(); break;
+                case _END_PLAYER:           handler.endPlayer(); break;
+                case _START_OCCURRENCE:     handler.startOccurrence(); break;
+                case _END_OCCURRENCE:       handler.endOccurrence(); break;
+                case _START_NAME:           handler.startName(); break;
+                case _END_NAME:             handler.endName(); break;
+                case _START_VARIANT:        handler.startVariant(); break;
+                case _END_VARIANT:          handler.endVariant(); break;
+                case _START_SCOPE:          handler.startScope(); break;
+                case _END_SCOPE:            handler.endScope(); break;
+                case _START_TYPE:           handler.startType(); break;
+                case _END_TYPE:             handler.endType(); break;
+                case _START_REIFIER:        handler.startReifier(); break;
+                case _END_REIFIER:          handler.endReifier(); break;
+                case _START_ISA:            handler.startIsa(); break;
+                case _END_ISA:              handler.endIsa(); break;
+                case _TOPIC_REF:            handler.topicRef((IRef) _values[i]); break;
+                case _SUBJECT_IDENTIFIER:   handler.subjectIdentifier((String) _values[i]); break;
+                case _SUBJECT_LOCATOR:      handler.subjectLocator((String) _values[i]); break;
+                case _ITEM_IDENTIFIER:      handler.itemIdentifier((String) _values[i]); break;
+                case _VALUE:                handler.value((String) _values[i]); break;
+                case _DATATYPE_VALUE:       handler.value((String) _values[i], _datatypes[i]); break;
+                default:
+                    throw new MIOException("Unknown event: " + _types[i]);
+            }
+        }
+    }
+
+    private void _add(final int type, final Object value, final String datatype) {
+        if (_size == _types.length) {
+            final int capacity = _size * 2;
+            final int[] types = new int[capacity];
+            final Object[] values = new Object[capacity];
+            final String[] datatypes = new String[capacity];
+            System.arraycopy(_types, 0, types, 0, _size);
+            System.arraycopy(_values, 0, values, 0, _size);
+            System.arraycopy(_datatypes, 0, datatypes, 0, _size);
+            _types = types;
+            _values = values;
+            _datatypes = datatypes;
+        }
+        _types[_size] = type;
+        _values[_size] = value;
+        _datatypes[_size] = datatype;
+        _size++;
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startTopicMap()
+     */
+    public void startTopicMap() throws MIOException {
+        _add(_START_TOPIC_MAP, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endTopicMap()
+     */
+    public void endTopicMap() throws MIOException {
+        _add(_END_TOPIC_MAP, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startTopic(com.semagia.mio.IRef)
+     */
+    public void startTopic(IRef identity) throws MIOException {
+        _add(_START_TOPIC, identity, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endTopic()
+     */
+    public void endTopic() throws MIOException {
+        _add(_END_TOPIC, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startAssociation()
+     */
+    public void startAssociation() throws MIOException {
+        _add(_START_ASSOCIATION, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endAssociation()
+     */
+    public void endAssociation() throws MIOException {
+        _add(_END_ASSOCIATION, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startRole()
+     */
+    public void startRole() throws MIOException {
+        _add(_START_ROLE, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endRole()
+     */
+    public void endRole() throws MIOException {
+        _add(_END_ROLE, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startPlayer()
+     */
+    public void startPlayer() throws MIOException {
+        _add(_START_PLAYER, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endPlayer()
+     */
+    public void endPlayer() throws MIOException {
+        _add(_END_PLAYER, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startOccurrence()
+     */
+    public void startOccurrence() throws MIOException {
+        _add(_START_OCCURRENCE, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endOccurrence()
+     */
+    public void endOccurrence() throws MIOException {
+        _add(_END_OCCURRENCE, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startName()
+     */
+    public void startName() throws MIOException {
+        _add(_START_NAME, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endName()
+     */
+    public void endName() throws MIOException {
+        _add(_END_NAME, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startVariant()
+     */
+    public void startVariant() throws MIOException {
+        _add(_START_VARIANT, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endVariant()
+     */
+    public void endVariant() throws MIOException {
+        _add(_END_VARIANT, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startScope()
+     */
+    public void startScope() throws MIOException {
+        _add(_START_SCOPE, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endScope()
+     */
+    public void endScope() throws MIOException {
+        _add(_END_SCOPE, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startType()
+     */
+    public void startType() throws MIOException {
+        _add(_START_TYPE, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endType()
+     */
+    public void endType() throws MIOException {
+        _add(_END_TYPE, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startReifier()
+     */
+    public void startReifier() throws MIOException {
+        _add(_START_REIFIER, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endReifier()
+     */
+    public void endReifier() throws MIOException {
+        _add(_END_REIFIER, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startIsa()
+     */
+    public void startIsa() throws MIOException {
+        _add(_START_ISA, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endIsa()
+     */
+    public void endIsa() throws MIOException {
+        _add(_END_ISA, null, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#topicRef(com.semagia.mio.IRef)
+     */
+    public void topicRef(IRef identity) throws MIOException {
+        _add(_TOPIC_REF, identity, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#subjectIdentifier(java.lang.String)
+     */
+    public void subjectIdentifier(String sid) throws MIOException {
+        _add(_SUBJECT_IDENTIFIER, sid, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#subjectLocator(java.lang.String)
+     */
+    public void subjectLocator(String slo) throws MIOException {
+        _add(_SUBJECT_LOCATOR, slo, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#itemIdentifier(java.lang.String)
+     */
+    public void itemIdentifier(String iid) throws MIOException {
+        _add(_ITEM_IDENTIFIER, iid, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#value(java.lang.String)
+     */
+    public void value(String value) throws MIOException {
+        _add(_VALUE, value, null);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#value(java.lang.String, java.lang.String)
+     */
+    public void value(String value, String datatype) throws MIOException {
+        _add(_DATATYPE_VALUE, value, datatype);
+    }
+
+}
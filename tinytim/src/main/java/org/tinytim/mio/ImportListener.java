@@ -0,0 +1,45 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+/**
+ * Listener which gets informed about the progress of an import into a 
+ * topic map.
+ * 
+ * @see TinyTimMapInputHandler#setImportListener(ImportListener)
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public interface ImportListener {
+
+    /**
+     * Called periodically during the import.
+     *
+     * @see TinyTimMapInputHandler#setProgressInterval(int)
+     * 
+     * @param metrics The metrics of the import so far.
+     */
+    public void progress(ImportMetrics metrics);
+
+    /**
+     * Called once after the import has been finished.
+     *
+     * @param metrics The metrics of the whole import.
+     */
+    public void finished(ImportMetrics metrics);
+
+}
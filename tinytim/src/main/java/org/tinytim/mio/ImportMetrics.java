@@ -0,0 +1,245 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import org.tinytim.core.value.Literal;
+
+/**
+ * Provides statistics about an import into a topic map.
+ * <p>
+ * Instances of this class are created by the 
+ * {@link TinyTimMapInputHandler} iff an {@link ImportListener} is set.
+ * </p>
+ * <p>
+ * The interning statistics are taken from the global literal / IRI 
+ * registry; concurrent imports or other threads which create literals or 
+ * locators influence them.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class ImportMetrics {
+
+    /**
+     * The reason why two constructs were merged during the import.
+     */
+    public enum MergeCause {
+        /**
+         * Two topics share a subject identifier or a subject identifier 
+         * of one topic is equal to an item identifier of the other topic.
+         */
+        SUBJECT_IDENTIFIER,
+        /**
+         * Two topics share a subject locator.
+         */
+        SUBJECT_LOCATOR,
+        /**
+         * Two topics share an item identifier or an item identifier of one
+         * topic is equal to a subject identifier of the other topic.
+         */
+        ITEM_IDENTIFIER,
+        /**
+         * Two equal statements share an item identifier.
+         */
+        ITEM_IDENTIFIER_CONFLICT,
+        /**
+         * Two equal statements share a reifier.
+         */
+        REIFIER
+    }
+
+    private static final MergeCause[] _CAUSES = MergeCause.values();
+
+    private final long _startTime;
+    private final long _startInternHits;
+    private final long _startInternMisses;
+    private long _endTime;
+    private long _internHits;
+    private long _internMisses;
+    private long _statements;
+    private final long[] _merges;
+    private long _mergeTime;
+
+    ImportMetrics() {
+        _startInternHits = Literal.getInternHitCount();
+        _startInternMisses = Literal.getInternMissCount();
+        _merges = new long[_CAUSES.length];
+        _startTime = System.nanoTime();
+        _endTime = -1;
+    }
+
+    /**
+     * Counts a statement.
+     */
+    void statement() {
+        _statements++;
+    }
+
+    /**
+     * Counts a merge.
+     *
+     * @param cause The reason of the merge.
+     * @param start The value of {@link System#nanoTime()} before the merge 
+     *          was started.
+     */
+    void merge(MergeCause cause, long start) {
+        _mergeTime += System.nanoTime() - start;
+        _merges[cause.ordinal()]++;
+    }
+
+    /**
+     * Marks the end of the import.
+     */
+    void finish() {
+        _endTime = System.nanoTime();
+        _updateInternCounts();
+    }
+
+    private void _updateInternCounts() {
+        _internHits = Literal.getInternHitCount() - _startInternHits;
+        _internMisses = Literal.getInternMissCount() - _startInternMisses;
+    }
+
+    /**
+     * Returns if the import has been finished.
+     *
+     * @return <tt>true</tt> if the import has been finished, otherwise 
+     *          <tt>false</tt>.
+     */
+    public boolean isFinished() {
+        return _endTime != -1;
+    }
+
+    /**
+     * Returns the number of statements (topics, names, occurrences, 
+     * associations, type-instance relationships etc.) which have been 
+     * processed.
+     *
+     * @return The number of statements.
+     */
+    public long getStatementCount() {
+        return _statements;
+    }
+
+    /**
+     * Returns the time which has been elapsed since the start of the import
+     * or the duration of the import if the import has been finished.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedTime() {
+        return (isFinished() ? _endTime : System.nanoTime()) - _startTime;
+    }
+
+    /**
+     * Returns the number of statements which have been processed per second.
+     *
+     * @return The throughput.
+     */
+    public double getStatementsPerSecond() {
+        final long elapsed = getElapsedTime();
+        return elapsed <= 0 ? 0 : _statements * 1000000000.0 / elapsed;
+    }
+
+    /**
+     * Returns the number of merges which were caused by <tt>cause</tt>.
+     *
+     * @param cause The reason of the merges.
+     * @return The number of merges.
+     */
+    public long getMergeCount(MergeCause cause) {
+        return _merges[cause.ordinal()];
+    }
+
+    /**
+     * Returns the number of all merges.
+     *
+     * @return The number of merges.
+     */
+    public long getMergeCount() {
+        long count = 0;
+        for (long merges: _merges) {
+            count += merges;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the time which has been spent to merge constructs.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long getMergeTime() {
+        return _mergeTime;
+    }
+
+    /**
+     * Returns how often a literal or locator was reused.
+     *
+     * @return The number of interning hits.
+     */
+    public long getInternHitCount() {
+        if (!isFinished()) {
+            _updateInternCounts();
+        }
+        return _internHits;
+    }
+
+    /**
+     * Returns how often a new literal or locator was created.
+     *
+     * @return The number of interning misses.
+     */
+    public long getInternMissCount() {
+        if (!isFinished()) {
+            _updateInternCounts();
+        }
+        return _internMisses;
+    }
+
+    /**
+     * Returns the ratio of reused literals and locators.
+     *
+     * @return A value between <tt>0</tt> and <tt>1</tt>.
+     */
+    public double getInternHitRate() {
+        final long hits = getInternHitCount();
+        final long total = hits + _internMisses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("statements=").append(_statements)
+            .append(", statements/s=").append(Math.round(getStatementsPerSecond()))
+            .append(", merges={");
+        for (int i=0; i < _CAUSES.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(_CAUSES[i]).append('=').append(_merges[i]);
+        }
+        sb.append("}, merge time=").append(_mergeTime / 1000000).append("ms")
+            .append(", intern hit rate=").append(Math.round(getInternHitRate() * 100)).append('%');
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+import org.tinytim.internal.utils.CollectionFactory;
+
+import com.semagia.mio.MIOException;
+
+/**
+ * Pull-lexer for JSON.
+ * <p>
+ * The lexer reports the keys of object members as {@link #KEY} tokens; 
+ * value separators and name separators are not reported.
+ * </p>
+ * <p>
+ * Tokens which have been {@link #record(List) recorded} can be 
+ * {@link #replay(List) replayed} later, they are returned before any other
+ * token.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+final class JSONLexer {
+
+    static final int EOF = 0;
+    static final int START_OBJECT = 1;
+    static final int END_OBJECT = 2;
+    static final int START_ARRAY = 3;
+    static final int END_ARRAY = 4;
+    static final int KEY = 5;
+    static final int STRING = 6;
+    /**
+     * A number, <tt>true</tt>, <tt>false</tt> or <tt>null</tt>.
+     */
+    static final int LITERAL = 7;
+
+    private static final int _BUFFER_SIZE = 8192;
+
+    /**
+     * A token which has been recorded.
+     */
+    static final class Token {
+        final int type;
+        final String text;
+
+        Token(int type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+    }
+
+    private final Reader _reader;
+    private final char[] _buf;
+    private int _pos;
+    private int _limit;
+    private final StringBuilder _sb;
+    /**
+     * Stack of open objects and arrays; <tt>true</tt> indicates an object.
+     */
+    private boolean[] _objects;
+    private int _depth;
+    private boolean _expectKey;
+    private int _line;
+    /**
+     * Stack of token lists which are replayed.
+     */
+    private final List<List<Token>> _replay;
+    private final List<Integer> _replayPos;
+    private String _text;
+    private int _type;
+    private boolean _pushedBack;
+
+    JSONLexer(Reader reader) {
+        _reader = reader;
+        _buf = new char[_BUFFER_SIZE];
+        _sb = new StringBuilder();
+        _objects = new boolean[16];
+        _line = 1;
+        _replay = CollectionFactory.createList();
+        _replayPos = CollectionFactory.createList();
+    }
+
+    /**
+     * Returns the text of the current {@link #KEY}, {@link #STRING} or 
+     * {@link #LITERAL} token.
+     *
+     * @return The text of the current token.
+     */
+    String text() {
+        return _text;
+    }
+
+    /**
+     * Returns the current line.
+     *
+     * @return The line number.
+     */
+    int line() {
+        return _line;
+    }
+
+    /**
+     * Reads the next token.
+     *
+     * @return The token type.
+     * @throws IOException In case of an I/O error.
+     * @throws MIOException In case of a syntax error.
+     */
+    int next() throws IOException, MIOException {
+        if (_pushedBack) {
+            _pushedBack = false;
+            return _type;
+        }
+        _type = _nextToken();
+        return _type;
+    }
+
+    /**
+     * Returns the current token once more by the next call of {@link #next()}.
+     */
+    void pushBack() {
+        _pushedBack = true;
+    }
+
+    private int _nextToken() throws IOException, MIOException {
+        while (!_replay.isEmpty()) {
+            final int idx = _replay.size() - 1;
+            final List<Token> tokens = _replay.get(idx);
+            final int pos = _replayPos.get(idx);
+            if (pos < tokens.size()) {
+                _replayPos.set(idx, pos + 1);
+                final Token token = tokens.get(pos);
+                _text = token.text;
+                return token.type;
+            }
+            _replay.remove(idx);
+            _replayPos.remove(idx);
+        }
+        _text = null;
+        int c = _skipWhitespace();
+        if (c == ',') {
+            if (_depth == 0) {
+                throw error("Unexpected ','");
+            }
+            _expectKey = _objects[_depth-1];
+            c = _skipWhitespace();
+        }
+        switch (c) {
+            case -1:
+                if (_depth != 0) {
+                    throw error("Unexpected end of input");
+                }
+                return EOF;
+            case '{':
+                _push(true);
+                return START_OBJECT;
+            case '}':
+                _pop(true);
+                return END_OBJECT;
+            case '[':
+                _push(false);
+                return START_ARRAY;
+            case ']':
+                _pop(false);
+                return END_ARRAY;
+            case '"':
+                _text = _readString();
+                if (_expectKey) {
+                    _expectKey = false;
+                    if (_skipWhitespace() != ':') {
+                        throw error("Expected ':' after the key '" + _text + "'");
+                    }
+                    return KEY;
+                }
+                return STRING;
+            default:
+                if (_expectKey) {
+                    throw error("Expected a key, got '" + (char) c + "'");
+                }
+                _text = _readLiteral(c);
+                return LITERAL;
+        }
+    }
+
+    /**
+     * Reads the next value (a string, a literal, an object or an array) 
+     * and appends its tokens to the provided list.
+     *
+     * @param tokens The list which receives the tokens.
+     * @throws IOException In case of an I/O error.
+     * @throws MIOException In case of a syntax error.
+     */
+    void record(List<Token> tokens) throws IOException, MIOException {
+        int depth = 0;
+        do {
+            final int type = next();
+            switch (type) {
+                case START_OBJECT:
+                case START_ARRAY:
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    break;
+                case EOF:
+                    throw error("Unexpected end of input");
+            }
+            tokens.add(new Token(type, _text));
+        } while (depth > 0);
+    }
+
+    /**
+     * Returns the provided tokens before any other token.
+     *
+     * @param tokens The tokens to replay.
+     */
+    void replay(List<Token> tokens) {
+        if (!tokens.isEmpty()) {
+            _replay.add(tokens);
+            _replayPos.add(0);
+        }
+    }
+
+    /**
+     * Creates an exception which reports the current line.
+     *
+     * @param msg The error message.
+     * @return An exception.
+     */
+    MIOException error(String msg) {
+        return new MIOException(msg + " (line " + _line + ")");
+    }
+
+    private void _push(boolean object) {
+        if (_depth == _objects.length) {
+            final boolean[] objects = new boolean[_depth * 2];
+            System.arraycopy(_objects, 0, objects, 0, _depth);
+            _objects = objects;
+        }
+        _objects[_depth++] = object;
+        _expectKey = object;
+    }
+
+    private void _pop(boolean object) throws MIOException {
+        if (_depth == 0 || _objects[_depth-1] != object) {
+            throw error("Unexpected '" + (object ? '}' : ']') + "'");
+        }
+        _depth--;
+        _expectKey = false;
+    }
+
+    private int _read() throws IOException {
+        if (_pos == _limit) {
+            _limit = _reader.read(_buf, 0, _buf.length);
+            _pos = 0;
+            if (_limit <= 0) {
+                _limit = 0;
+                return -1;
+            }
+        }
+        return _buf[_pos++];
+    }
+
+    private int _skipWhitespace() throws IOException {
+        int c = _read();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            if (c == '\n') {
+                _line++;
+            }
+            c = _read();
+        }
+        return c;
+    }
+
+    private String _readString() throws IOException, MIOException {
+        final StringBuilder sb = _sb;
+        sb.setLength(0);
+        int c = _read();
+        while (c != '"') {
+            if (c == -1) {
+                throw error("Unterminated string");
+            }
+            if (c == '\\') {
+                c = _read();
+                switch (c) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        break;
+                    case 'b': c = '\b'; break;
+                    case 'f': c = '\f'; break;
+                    case 'n': c = '\n'; break;
+                    case 'r': c = '\r'; break;
+                    case 't': c = '\t'; break;
+                    case 'u':
+                        c = 0;
+                        for (int i=0; i < 4; i++) {
+                            final int digit = Character.digit(_read(), 16);
+                            if (digit < 0) {
+                                throw error("Illegal unicode escape sequence");
+                            }
+                            c = (c << 4) | digit;
+                        }
+                        break;
+                    default:
+                        throw error("Illegal escape sequence");
+                }
+            }
+            sb.append((char) c);
+            c = _read();
+        }
+        return sb.toString();
+    }
+
+    private String _readLiteral(int c) throws IOException {
+        final StringBuilder sb = _sb;
+        sb.setLength(0);
+        while (c != -1 && c != ',' && c != '}' && c != ']' 
+                && c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+            sb.append((char) c);
+            c = _read();
+        }
+        if (c != -1) {
+            // Unread the delimiter
+            _pos--;
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Simple JSON writer which writes UTF-8 encoded JSON.
+ * <p>
+ * The writer inserts the value separators automatically, but it does not 
+ * check if the JSON is well-formed.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+final class JSONWriter extends UTF8Writer {
+
+    /**
+     * Escape sequences for ASCII characters in strings.
+     */
+    private static final byte[][] _ESCAPES = new byte[128][];
+
+    private static final byte[] _KEY_END = ascii("\":");
+
+    static {
+        final String hex = "0123456789abcdef";
+        for (int i=0; i < 0x20; i++) {
+            _ESCAPES[i] = ascii("\\u00" + hex.charAt(i >> 4) + hex.charAt(i & 0xF));
+        }
+        _ESCAPES['\b'] = ascii("\\b");
+        _ESCAPES['\f'] = ascii("\\f");
+        _ESCAPES['\n'] = ascii("\\n");
+        _ESCAPES['\r'] = ascii("\\r");
+        _ESCAPES['\t'] = ascii("\\t");
+        _ESCAPES['"'] = ascii("\\\"");
+        _ESCAPES['\\'] = ascii("\\\\");
+    }
+
+    /**
+     * Indicates if the next value must be preceded by a comma.
+     */
+    private boolean _needsSeparator;
+
+    public JSONWriter(OutputStream out) {
+        super(out);
+    }
+
+    public JSONWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    /**
+     * Indicates the start of the serialization process.
+     *
+     * @throws IOException If an error occurs.
+     */
+    public void startDocument() throws IOException {
+        _needsSeparator = false;
+    }
+
+    /**
+     * Indicates the end of the serialization process.
+     *
+     * @throws IOException If an error occurs.
+     */
+    public void endDocument() throws IOException {
+        flush();
+    }
+
+    /**
+     * Writes the start of an object.
+     *
+     * @throws IOException If an error occurs.
+     */
+    public void startObject() throws IOException {
+        _separator();
+        write('{');
+        _needsSeparator = false;
+    }
+
+    /**
+     * Writes the end of an object.
+     *
+     * @throws IOException If an error occurs.
+     */
+    public void endObject() throws IOException {
+        write('}');
+        _needsSeparator = true;
+    }
+
+    /**
+     * Writes the start of an array.
+     *
+     * @throws IOException If an error occurs.
+     */
+    public void startArray() throws IOException {
+        _separator();
+        write('[');
+        _needsSeparator = false;
+    }
+
+    /**
+     * Writes the end of an array.
+     *
+     * @throws IOException If an error occurs.
+     */
+    public void endArray() throws IOException {
+        write(']');
+        _needsSeparator = true;
+    }
+
+    /**
+     * Writes the key of an object member.
+     *
+     * @param key The key.
+     * @throws IOException If an error occurs.
+     */
+    public void key(String key) throws IOException {
+        _separator();
+        write('"');
+        write(key, _ESCAPES);
+        write(_KEY_END);
+        _needsSeparator = false;
+    }
+
+    /**
+     * Writes a string value.
+     *
+     * @param value The value.
+     * @throws IOException If an error occurs.
+     */
+    public void value(String value) throws IOException {
+        _separator();
+        write('"');
+        write(value, _ESCAPES);
+        write('"');
+        _needsSeparator = true;
+    }
+
+    /**
+     * Writes an object member with a string value.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @throws IOException If an error occurs.
+     */
+    public void keyValue(String key, String value) throws IOException {
+        key(key);
+        value(value);
+    }
+
+    private void _separator() throws IOException {
+        if (_needsSeparator) {
+            write(',');
+        }
+    }
+
+}
@@ -0,0 +1,795 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+
+import org.tinytim.core.value.Literal;
+import org.tinytim.internal.utils.CollectionFactory;
+import org.tinytim.voc.XSD;
+
+import org.tmapi.core.Locator;
+
+import com.semagia.mio.IMapHandler;
+import com.semagia.mio.IRef;
+import com.semagia.mio.MIOException;
+import com.semagia.mio.helpers.Ref;
+
+/**
+ * Streaming parser for JSON Topic Maps (JTM) 1.0 and 1.1.
+ * <p>
+ * The parser reports the Topic Maps constructs to an {@link IMapHandler}
+ * while reading the input, it does not build a tree. Members of a JTM 
+ * object which depend on a member which has not been read yet (i.e. the 
+ * names of a topic before the identity of the topic) are buffered as 
+ * tokens until the other member has been read.
+ * </p>
+ * <p>
+ * Supported item types: <tt>topicmap</tt>, <tt>topic</tt>, <tt>name</tt>, 
+ * <tt>occurrence</tt>, and <tt>association</tt>.
+ * </p>
+ * <p>
+ * See <a href="http://www.cerny-online.com/jtm/">http://www.cerny-online.com/jtm/</a>
+ * for details.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class JTMParser {
+
+    private static final String _XSD_STRING = XSD.STRING.getReference();
+    private static final String _XSD_ANY_URI = XSD.ANY_URI.getReference();
+
+    private final IMapHandler _handler;
+    private JSONLexer _lexer;
+    private Locator _base;
+    private String _version;
+    private Map<String, String> _prefixes;
+
+    /**
+     * Creates a JTM parser.
+     *
+     * @param handler The handler which receives the events.
+     */
+    public JTMParser(IMapHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("The map handler must not be null");
+        }
+        _handler = handler;
+    }
+
+    /**
+     * Parses the JTM document.
+     *
+     * @param reader The reader to read the JTM from.
+     * @param baseIRI The base IRI which is used to resolve relative IRIs.
+     * @throws IOException In case of an I/O error.
+     * @throws MIOException In case of a syntax error or if the handler 
+     *          reports an error.
+     */
+    public void parse(Reader reader, String baseIRI) throws IOException, MIOException {
+        if (baseIRI == null) {
+            throw new IllegalArgumentException("The base IRI must not be null");
+        }
+        _lexer = new JSONLexer(reader);
+        _base = Literal.createIRI(baseIRI);
+        _version = null;
+        _prefixes = CollectionFactory.createMap();
+        try {
+            _parse();
+        }
+        finally {
+            _lexer = null;
+            _base = null;
+            _prefixes = null;
+        }
+    }
+
+    private void _parse() throws IOException, MIOException {
+        _expect(JSONLexer.START_OBJECT);
+        String itemType = null;
+        ItemState state = null;
+        final List<JSONLexer.Token> pending = CollectionFactory.createList();
+        while (_next(JSONLexer.KEY, JSONLexer.END_OBJECT) == JSONLexer.KEY) {
+            final String key = _lexer.text();
+            if (_skipNull()) {
+                continue;
+            }
+            if ("version".equals(key)) {
+                _version = _readString();
+                if (!"1.0".equals(_version) && !"1.1".equals(_version)) {
+                    throw _error("Unsupported JTM version '" + _version + "'");
+                }
+            }
+            else if ("item_type".equals(key)) {
+                itemType = _readString().toLowerCase();
+            }
+            else if ("prefixes".equals(key)) {
+                _readPrefixes();
+            }
+            else if (state == null) {
+                // Wait for the version and the item type
+                pending.add(new JSONLexer.Token(JSONLexer.KEY, key));
+                _lexer.record(pending);
+            }
+            else {
+                state.member(key);
+            }
+            if (state == null && _version != null && itemType != null) {
+                state = _createItemState(itemType);
+                _lexer.replay(pending);
+            }
+        }
+        if (_version == null) {
+            throw _error("The version is missing");
+        }
+        if (state == null) {
+            throw _error("The item type is missing");
+        }
+        state.end();
+        _handler.endTopicMap();
+        _expect(JSONLexer.EOF);
+    }
+
+    private ItemState _createItemState(String itemType) throws MIOException {
+        _handler.startTopicMap();
+        if ("topicmap".equals(itemType)) {
+            return new TopicMapState();
+        }
+        else if ("topic".equals(itemType)) {
+            return new TopicState(true);
+        }
+        else if ("name".equals(itemType)) {
+            return new NameState(true);
+        }
+        else if ("occurrence".equals(itemType)) {
+            return new OccurrenceState(true);
+        }
+        else if ("association".equals(itemType)) {
+            _handler.startAssociation();
+            return new AssociationState();
+        }
+        throw _error("Unsupported item type '" + itemType + "'");
+    }
+
+    /**
+     * Parses a JTM object.
+     *
+     * @param state The state which handles the members of the object.
+     * @throws IOException In case of an I/O error.
+     * @throws MIOException In case of an error.
+     */
+    private void _parseObject(final ItemState state) throws IOException, MIOException {
+        while (_next(JSONLexer.KEY, JSONLexer.END_OBJECT) == JSONLexer.KEY) {
+            final String key = _lexer.text();
+            if (!_skipNull()) {
+                state.member(key);
+            }
+        }
+        state.end();
+    }
+
+    /**
+     * Reads the start of the next object within an array.
+     *
+     * @return <tt>true</tt> if an object follows, <tt>false</tt> if the 
+     *          end of the array was reached.
+     */
+    private boolean _nextObject() throws IOException, MIOException {
+        return _next(JSONLexer.START_OBJECT, JSONLexer.END_ARRAY) == JSONLexer.START_OBJECT;
+    }
+
+    /**
+     * Skips a <tt>null</tt> value.
+     *
+     * @return <tt>true</tt> if the value was <tt>null</tt>, otherwise <tt>false</tt>.
+     */
+    private boolean _skipNull() throws IOException, MIOException {
+        if (_lexer.next() == JSONLexer.LITERAL && "null".equals(_lexer.text())) {
+            return true;
+        }
+        _lexer.pushBack();
+        return false;
+    }
+
+    /**
+     * Handles the members of a JTM object.
+     */
+    private abstract class ItemState {
+
+        /**
+         * Handles the member with the provided key. The value of the member
+         * must be consumed.
+         *
+         * @param key The key of the member.
+         */
+        abstract void member(String key) throws IOException, MIOException;
+
+        /**
+         * Called at the end of the JTM object.
+         */
+        abstract void end() throws IOException, MIOException;
+
+        /**
+         * Handles the members <tt>item_identifiers</tt> and <tt>reifier</tt>.
+         *
+         * @param key The key of the member.
+         * @return <tt>true</tt> if the member was handled, otherwise <tt>false</tt>.
+         */
+        boolean reifiableMember(String key) throws IOException, MIOException {
+            if ("item_identifiers".equals(key)) {
+                for (String iid: _readIRIs()) {
+                    _handler.itemIdentifier(iid);
+                }
+            }
+            else if ("reifier".equals(key)) {
+                _handler.startReifier();
+                _handler.topicRef(_readTopicRef());
+                _handler.endReifier();
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+
+        void unknownMember(String key) throws MIOException {
+            throw _error("Unexpected member '" + key + "'");
+        }
+
+    }
+
+    /**
+     * Handles an object which can only be reported once another member 
+     * has been read, all other members are buffered until then.
+     */
+    private abstract class DelayedItemState extends ItemState {
+
+        private boolean _started;
+        private List<JSONLexer.Token> _pending;
+
+        /**
+         * Returns if the object has been started.
+         */
+        boolean isStarted() {
+            return _started;
+        }
+
+        /**
+         * Indicates that the object has been started, the buffered members 
+         * are replayed.
+         */
+        void started() {
+            _started = true;
+            if (_pending != null) {
+                _lexer.replay(_pending);
+                _pending = null;
+            }
+        }
+
+        /**
+         * Buffers the member with the provided key.
+         *
+         * @param key The key of the member.
+         */
+        void delay(String key) throws IOException, MIOException {
+            if (_pending == null) {
+                _pending = CollectionFactory.createList();
+            }
+            _pending.add(new JSONLexer.Token(JSONLexer.KEY, key));
+            _lexer.record(_pending);
+        }
+
+    }
+
+    private final class TopicMapState extends ItemState {
+
+        @Override
+        void member(String key) throws IOException, MIOException {
+            if ("topics".equals(key)) {
+                _expect(JSONLexer.START_ARRAY);
+                while (_nextObject()) {
+                    _parseObject(new TopicState(false));
+                }
+            }
+            else if ("associations".equals(key)) {
+                _expect(JSONLexer.START_ARRAY);
+                while (_nextObject()) {
+                    _handler.startAssociation();
+                    _parseObject(new AssociationState());
+                }
+            }
+            else if (!reifiableMember(key)) {
+                unknownMember(key);
+            }
+        }
+
+        @Override
+        void end() {
+            // noop.
+        }
+    }
+
+    private final class TopicState extends DelayedItemState {
+
+        private final boolean _fragment;
+
+        TopicState(boolean fragment) {
+            _fragment = fragment;
+        }
+
+        @Override
+        void member(String key) throws IOException, MIOException {
+            int kind = -1;
+            if ("subject_identifiers".equals(key)) {
+                kind = IRef.SUBJECT_IDENTIFIER;
+            }
+            else if ("subject_locators".equals(key)) {
+                kind = IRef.SUBJECT_LOCATOR;
+            }
+            else if ("item_identifiers".equals(key)) {
+                kind = IRef.ITEM_IDENTIFIER;
+            }
+            if (kind != -1) {
+                _identities(kind, _readIRIs());
+            }
+            else if (_fragment && "parent".equals(key)) {
+                _readTopicRefs();
+            }
+            else if (!isStarted()) {
+                delay(key);
+            }
+            else if ("instance_of".equals(key) && "1.1".equals(_version)) {
+                for (IRef type: _readTopicRefs()) {
+                    _handler.startIsa();
+                    _handler.topicRef(type);
+                    _handler.endIsa();
+                }
+            }
+            else if ("names".equals(key)) {
+                _expect(JSONLexer.START_ARRAY);
+                while (_nextObject()) {
+                    _handler.startName();
+                    _parseObject(new NameState(false));
+                }
+            }
+            else if ("occurrences".equals(key)) {
+                _expect(JSONLexer.START_ARRAY);
+                while (_nextObject()) {
+                    _handler.startOccurrence();
+                    _parseObject(new OccurrenceState(false));
+                }
+            }
+            else {
+                unknownMember(key);
+            }
+        }
+
+        private void _identities(int kind, List<String> iris) throws MIOException {
+            for (String iri: iris) {
+                if (!isStarted()) {
+                    _handler.startTopic(_createRef(kind, iri));
+                    started();
+                }
+                else if (kind == IRef.SUBJECT_IDENTIFIER) {
+                    _handler.subjectIdentifier(iri);
+                }
+                else if (kind == IRef.SUBJECT_LOCATOR) {
+                    _handler.subjectLocator(iri);
+                }
+                else {
+                    _handler.itemIdentifier(iri);
+                }
+            }
+        }
+
+        @Override
+        void end() throws MIOException {
+            if (!isStarted()) {
+                throw _error("The topic has no identity");
+            }
+            _handler.endTopic();
+        }
+    }
+
+    /**
+     * Handles the members of a name, occurrence, or variant.
+     */
+    private abstract class CharacteristicState extends DelayedItemState {
+
+        private final boolean _fragment;
+
+        CharacteristicState(boolean fragment) {
+            _fragment = fragment;
+            if (!fragment) {
+                started();
+            }
+        }
+
+        @Override
+        void member(String key) throws IOException, MIOException {
+            if (_fragment && "parent".equals(key)) {
+                final List<IRef> parents = _readTopicRefs();
+                if (parents.isEmpty()) {
+                    throw _error("The parent is missing");
+                }
+                _handler.startTopic(parents.get(0));
+                start();
+                started();
+            }
+            else if (!isStarted()) {
+                delay(key);
+            }
+            else if (!characteristicMember(key)) {
+                unknownMember(key);
+            }
+        }
+
+        /**
+         * Handles a member of the name, occurrence or variant.
+         *
+         * @param key The key of the member.
+         * @return <tt>true</tt> if the member was handled, otherwise <tt>false</tt>.
+         */
+        boolean characteristicMember(String key) throws IOException, MIOException {
+            if ("scope".equals(key)) {
+                final List<IRef> themes = _readTopicRefs();
+                if (!themes.isEmpty()) {
+                    _handler.startScope();
+                    for (IRef theme: themes) {
+                        _handler.topicRef(theme);
+                    }
+                    _handler.endScope();
+                }
+            }
+            else if ("type".equals(key)) {
+                _handler.startType();
+                _handler.topicRef(_readTopicRef());
+                _handler.endType();
+            }
+            else {
+                return reifiableMember(key);
+            }
+            return true;
+        }
+
+        @Override
+        void end() throws MIOException {
+            if (!isStarted()) {
+                throw _error("The parent is missing");
+            }
+            finish();
+            if (_fragment) {
+                _handler.endTopic();
+            }
+        }
+
+        /**
+         * Reports the start of a fragment once the parent is known.
+         */
+        abstract void start() throws MIOException;
+
+        /**
+         * Reports the end of the construct.
+         */
+        abstract void finish() throws MIOException;
+    }
+
+    private final class NameState extends CharacteristicState {
+
+        NameState(boolean fragment) {
+            super(fragment);
+        }
+
+        @Override
+        boolean characteristicMember(String key) throws IOException, MIOException {
+            if ("value".equals(key)) {
+                _handler.value(_readString());
+            }
+            else if ("variants".equals(key)) {
+                _expect(JSONLexer.START_ARRAY);
+                while (_nextObject()) {
+                    _handler.startVariant();
+                    _parseObject(new ValueState(false, false));
+                }
+            }
+            else {
+                return super.characteristicMember(key);
+            }
+            return true;
+        }
+
+        @Override
+        void start() throws MIOException {
+            _handler.startName();
+        }
+
+        @Override
+        void finish() throws MIOException {
+            _handler.endName();
+        }
+    }
+
+    /**
+     * Handles occurrences and variants.
+     */
+    private class ValueState extends CharacteristicState {
+
+        private final boolean _occurrence;
+        private String _value;
+        private String _datatype;
+
+        ValueState(boolean fragment, boolean occurrence) {
+            super(fragment);
+            _occurrence = occurrence;
+        }
+
+        @Override
+        boolean characteristicMember(String key) throws IOException, MIOException {
+            if ("value".equals(key)) {
+                _value = _readString();
+            }
+            else if ("datatype".equals(key)) {
+                _datatype = _resolveIRI(_readString());
+            }
+            else if (!_occurrence && "type".equals(key)) {
+                return false;
+            }
+            else {
+                return super.characteristicMember(key);
+            }
+            return true;
+        }
+
+        @Override
+        void start() throws MIOException {
+            _handler.startOccurrence();
+        }
+
+        @Override
+        void finish() throws MIOException {
+            if (_value == null) {
+                throw _error("The value is missing");
+            }
+            if (_datatype == null) {
+                _datatype = _XSD_STRING;
+            }
+            else if (_XSD_ANY_URI.equals(_datatype)) {
+                _value = _resolveIRI(_value);
+            }
+            _handler.value(_value, _datatype);
+            if (_occurrence) {
+                _handler.endOccurrence();
+            }
+            else {
+                _handler.endVariant();
+            }
+        }
+    }
+
+    private final class OccurrenceState extends ValueState {
+
+        OccurrenceState(boolean fragment) {
+            super(fragment, true);
+        }
+    }
+
+    private final class AssociationState extends ItemState {
+
+        @Override
+        void member(String key) throws IOException, MIOException {
+            if ("type".equals(key)) {
+                _handler.startType();
+                _handler.topicRef(_readTopicRef());
+                _handler.endType();
+            }
+            else if ("scope".equals(key)) {
+                final List<IRef> themes = _readTopicRefs();
+                if (!themes.isEmpty()) {
+                    _handler.startScope();
+                    for (IRef theme: themes) {
+                        _handler.topicRef(theme);
+                    }
+                    _handler.endScope();
+                }
+            }
+            else if ("roles".equals(key)) {
+                _expect(JSONLexer.START_ARRAY);
+                while (_nextObject()) {
+                    _handler.startRole();
+                    _parseObject(new RoleState());
+                }
+            }
+            else if ("parent".equals(key)) {
+                _readTopicRefs();
+            }
+            else if (!reifiableMember(key)) {
+                unknownMember(key);
+            }
+        }
+
+        @Override
+        void end() throws MIOException {
+            _handler.endAssociation();
+        }
+    }
+
+    private final class RoleState extends ItemState {
+
+        @Override
+        void member(String key) throws IOException, MIOException {
+            if ("player".equals(key)) {
+                _handler.startPlayer();
+                _handler.topicRef(_readTopicRef());
+                _handler.endPlayer();
+            }
+            else if ("type".equals(key)) {
+                _handler.startType();
+                _handler.topicRef(_readTopicRef());
+                _handler.endType();
+            }
+            else if (!reifiableMember(key)) {
+                unknownMember(key);
+            }
+        }
+
+        @Override
+        void end() throws MIOException {
+            _handler.endRole();
+        }
+    }
+
+    private void _readPrefixes() throws IOException, MIOException {
+        _expect(JSONLexer.START_OBJECT);
+        while (_next(JSONLexer.KEY, JSONLexer.END_OBJECT) == JSONLexer.KEY) {
+            final String prefix = _lexer.text();
+            _prefixes.put(prefix, _readString());
+        }
+    }
+
+    private String _readString() throws IOException, MIOException {
+        _expect(JSONLexer.STRING);
+        return _lexer.text();
+    }
+
+    /**
+     * Reads an array of IRIs.
+     */
+    private List<String> _readIRIs() throws IOException, MIOException {
+        _expect(JSONLexer.START_ARRAY);
+        final List<String> iris = CollectionFactory.createList();
+        while (_next(JSONLexer.STRING, JSONLexer.END_ARRAY) == JSONLexer.STRING) {
+            iris.add(_resolveIRI(_lexer.text()));
+        }
+        return iris;
+    }
+
+    /**
+     * Reads an array of topic references.
+     */
+    private List<IRef> _readTopicRefs() throws IOException, MIOException {
+        _expect(JSONLexer.START_ARRAY);
+        final List<IRef> refs = CollectionFactory.createList();
+        while (_next(JSONLexer.STRING, JSONLexer.END_ARRAY) == JSONLexer.STRING) {
+            refs.add(_createTopicRef(_lexer.text()));
+        }
+        return refs;
+    }
+
+    private IRef _readTopicRef() throws IOException, MIOException {
+        return _createTopicRef(_readString());
+    }
+
+    /**
+     * Converts a JTM topic reference (<tt>si:</tt>, <tt>sl:</tt>, or 
+     * <tt>ii:</tt> followed by an IRI) into a reference.
+     */
+    private IRef _createTopicRef(String ref) throws MIOException {
+        if (ref.length() > 3 && ref.charAt(2) == ':') {
+            final String kind = ref.substring(0, 2);
+            final String iri = ref.substring(3);
+            if ("si".equals(kind)) {
+                return _createRef(IRef.SUBJECT_IDENTIFIER, iri);
+            }
+            if ("sl".equals(kind)) {
+                return _createRef(IRef.SUBJECT_LOCATOR, iri);
+            }
+            if ("ii".equals(kind)) {
+                return _createRef(IRef.ITEM_IDENTIFIER, iri);
+            }
+        }
+        throw _error("Illegal topic reference '" + ref + "'");
+    }
+
+    private IRef _createRef(int kind, String iri) throws MIOException {
+        final String resolved = _resolveIRI(iri);
+        switch (kind) {
+            case IRef.SUBJECT_IDENTIFIER:
+                return Ref.createSubjectIdentifier(resolved);
+            case IRef.SUBJECT_LOCATOR:
+                return Ref.createSubjectLocator(resolved);
+            default:
+                return Ref.createItemIdentifier(resolved);
+        }
+    }
+
+    /**
+     * Resolves the IRI or CURIE (JTM 1.1) against the base IRI.
+     */
+    private String _resolveIRI(String iri) throws MIOException {
+        if ("1.1".equals(_version) && iri.length() > 2 && iri.charAt(0) == '[' 
+                && iri.charAt(iri.length()-1) == ']') {
+            final int colonIdx = iri.indexOf(':');
+            final String ns = colonIdx > 0 ? _prefixes.get(iri.substring(1, colonIdx)) : null;
+            if (ns == null) {
+                throw _error("Unknown prefix in '" + iri + "'");
+            }
+            return ns + iri.substring(colonIdx + 1, iri.length() - 1);
+        }
+        if (_isAbsolute(iri)) {
+            return iri;
+        }
+        try {
+            return _base.resolve(iri).getReference();
+        }
+        catch (IllegalArgumentException ex) {
+            throw _error("Illegal IRI '" + iri + "'");
+        }
+    }
+
+    /**
+     * Returns if the IRI starts with a scheme.
+     */
+    private static boolean _isAbsolute(String iri) {
+        final int colonIdx = iri.indexOf(':');
+        if (colonIdx < 1 || !Character.isLetter(iri.charAt(0))) {
+            return false;
+        }
+        for (int i=1; i < colonIdx; i++) {
+            final char c = iri.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '+' && c != '-' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void _expect(int type) throws IOException, MIOException {
+        if (_lexer.next() != type) {
+            throw _error("Unexpected token");
+        }
+    }
+
+    /**
+     * Reads the next token which must be one of the provided types.
+     */
+    private int _next(int type1, int type2) throws IOException, MIOException {
+        final int type = _lexer.next();
+        if (type != type1 && type != type2) {
+            throw _error("Unexpected token");
+        }
+        return type;
+    }
+
+    private MIOException _error(String msg) {
+        return _lexer.error(msg);
+    }
+
+}
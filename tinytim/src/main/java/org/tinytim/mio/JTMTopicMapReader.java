@@ -0,0 +1,94 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import org.tmapi.core.TopicMap;
+
+import com.semagia.mio.MIOException;
+
+/**
+ * {@link TopicMapReader} implementation that deserializes 
+ * JSON Topic Maps (JTM) 1.0 and 1.1.
+ * <p>
+ * The source is parsed by the streaming {@link JTMParser}; the constructs 
+ * are added to the topic map while the source is read.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class JTMTopicMapReader implements TopicMapReader {
+
+    private final TopicMap _topicMap;
+    private final Reader _reader;
+    private final String _docIRI;
+
+    /**
+     * Creates a JTM reader which reads the UTF-8 encoded source.
+     *
+     * @param topicMap The topic map which receives the constructs.
+     * @param in The stream to read the JTM from.
+     * @param docIRI The IRI of the source which is used to resolve 
+     *          relative IRIs.
+     * @throws IOException If an error occurs.
+     */
+    public JTMTopicMapReader(TopicMap topicMap, InputStream in, String docIRI) throws IOException {
+        this(topicMap, new InputStreamReader(in, "utf-8"), docIRI);
+    }
+
+    /**
+     * Creates a JTM reader.
+     *
+     * @param topicMap The topic map which receives the constructs.
+     * @param reader The reader to read the JTM from.
+     * @param docIRI The IRI of the source which is used to resolve 
+     *          relative IRIs.
+     */
+    public JTMTopicMapReader(TopicMap topicMap, Reader reader, String docIRI) {
+        if (topicMap == null) {
+            throw new IllegalArgumentException("The topic map must not be null");
+        }
+        if (reader == null) {
+            throw new IllegalArgumentException("The reader must not be null");
+        }
+        if (docIRI == null) {
+            throw new IllegalArgumentException("The document IRI must not be null");
+        }
+        _topicMap = topicMap;
+        _reader = reader;
+        _docIRI = docIRI;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.TopicMapReader#read()
+     */
+    public void read() throws IOException {
+        try {
+            new JTMParser(new TinyTimMapInputHandler(_topicMap)).parse(_reader, _docIRI);
+        }
+        catch (MIOException ex) {
+            final IOException ioex = new IOException(ex.getMessage());
+            ioex.initCause(ex);
+            throw ioex;
+        }
+    }
+
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.tinytim.voc.TMDM;
+import org.tinytim.voc.XSD;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Construct;
+import org.tmapi.core.DatatypeAware;
+import org.tmapi.core.Locator;
+import org.tmapi.core.Name;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Reifiable;
+import org.tmapi.core.Role;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+import org.tmapi.core.Variant;
+
+/**
+ * Serializes a topic map or a topic into JSON Topic Maps (JTM) 1.0 or 1.1.
+ * <p>
+ * The topics and associations are written in the order of the topic map
+ * without any intermediate representation.
+ * </p>
+ * <p>
+ * Topics are referenced by a subject identifier, a subject locator or an 
+ * item identifier (in this order). Topics without any identity get an
+ * item identifier which is relative to the base locator.
+ * </p>
+ * <p>
+ * See <a href="http://www.cerny-online.com/jtm/">http://www.cerny-online.com/jtm/</a>
+ * for details.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class JTMTopicMapWriter implements TopicMapWriter {
+
+    /**
+     * The JTM version.
+     */
+    public enum Version {
+
+        /**
+         * JTM 1.0: Type-instance relationships are written as associations.
+         */
+        JTM_10("1.0"),
+
+        /**
+         * JTM 1.1: Type-instance relationships are written as 
+         * <tt>instance_of</tt> member of the topics.
+         */
+        JTM_11("1.1");
+
+        private final String _value;
+
+        private Version(String value) {
+            _value = value;
+        }
+
+        /**
+         * Returns the value of the <tt>version</tt> member.
+         *
+         * @return The version string.
+         */
+        public String getValue() {
+            return _value;
+        }
+
+    }
+
+    private final JSONWriter _out;
+    private final String _baseLocator;
+    private Version _version;
+    private TopicMap _tm;
+    private Topic _defaultNameType;
+
+    /**
+     * Creates a JTM writer.
+     *
+     * @param out The stream the JTM is written onto.
+     * @param baseLocator The base locator which is used to create item 
+     *          identifiers for topics without any identity.
+     * @throws IOException If an error occurs.
+     */
+    public JTMTopicMapWriter(OutputStream out, String baseLocator) throws IOException {
+        this(new JSONWriter(out), baseLocator);
+    }
+
+    /**
+     * Creates a JTM writer which writes onto a channel.
+     *
+     * @param channel The channel the JTM is written onto.
+     * @param baseLocator The base locator which is used to create item 
+     *          identifiers for topics without any identity.
+     * @throws IOException If an error occurs.
+     */
+    public JTMTopicMapWriter(WritableByteChannel channel, String baseLocator) throws IOException {
+        this(new JSONWriter(channel), baseLocator);
+    }
+
+    private JTMTopicMapWriter(JSONWriter out, String baseLocator) {
+        if (baseLocator == null) {
+            throw new IllegalArgumentException("The base locator must not be null");
+        }
+        _out = out;
+        final int fragmentIdx = baseLocator.indexOf('#');
+        _baseLocator = fragmentIdx > -1 ? baseLocator.substring(0, fragmentIdx) : baseLocator;
+        _version = Version.JTM_11;
+    }
+
+    /**
+     * Sets the JTM version.
+     * <p>
+     * Default: {@link Version#JTM_11}
+     * </p>
+     *
+     * @param version The JTM version.
+     */
+    public void setVersion(Version version) {
+        if (version == null) {
+            throw new IllegalArgumentException("The version must not be null");
+        }
+        _version = version;
+    }
+
+    /**
+     * Returns the JTM version.
+     *
+     * @return The JTM version.
+     */
+    public Version getVersion() {
+        return _version;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.TopicMapWriter#write(org.tmapi.core.TopicMap)
+     */
+    public void write(TopicMap topicMap) throws IOException {
+        _startDocument(topicMap, "topicmap");
+        _writeItemIdentifiers(topicMap);
+        _writeReifier(topicMap);
+        if (!topicMap.getTopics().isEmpty()) {
+            _out.key("topics");
+            _out.startArray();
+            for (Topic topic: topicMap.getTopics()) {
+                _out.startObject();
+                _writeTopic(topic);
+                _out.endObject();
+            }
+            _out.endArray();
+        }
+        final boolean writeTypeInstance = _version == Version.JTM_10 && _hasTypedTopics(topicMap);
+        if (!topicMap.getAssociations().isEmpty() || writeTypeInstance) {
+            _out.key("associations");
+            _out.startArray();
+            for (Association assoc: topicMap.getAssociations()) {
+                _out.startObject();
+                _writeAssociation(assoc);
+                _out.endObject();
+            }
+            if (writeTypeInstance) {
+                _writeTypeInstanceAssociations(topicMap);
+            }
+            _out.endArray();
+        }
+        _endDocument();
+    }
+
+    /**
+     * Serializes a single topic.
+     * <p>
+     * The topic is written as JTM fragment with the item type <tt>topic</tt>.
+     * The associations in which the topic plays roles are not written. 
+     * JTM 1.0 fragments do not include the types of the topic.
+     * </p>
+     *
+     * @param topic The topic to serialize.
+     * @throws IOException If an error occurs.
+     */
+    public void write(Topic topic) throws IOException {
+        final TopicMap topicMap = topic.getTopicMap();
+        _startDocument(topicMap, "topic");
+        final Set<Locator> parentIIDs = topicMap.getItemIdentifiers();
+        if (!parentIIDs.isEmpty()) {
+            _out.key("parent");
+            _out.startArray();
+            for (Locator iid: parentIIDs) {
+                _out.value("ii:" + iid.getReference());
+            }
+            _out.endArray();
+        }
+        _writeTopic(topic);
+        _endDocument();
+    }
+
+    private void _startDocument(final TopicMap topicMap, final String itemType) throws IOException {
+        _tm = topicMap;
+        _defaultNameType = topicMap.getTopicBySubjectIdentifier(TMDM.TOPIC_NAME);
+        _out.startDocument();
+        _out.startObject();
+        _out.keyValue("version", _version.getValue());
+        _out.keyValue("item_type", itemType);
+    }
+
+    private void _endDocument() throws IOException {
+        _out.endObject();
+        _out.endDocument();
+        _tm = null;
+        _defaultNameType = null;
+    }
+
+    /**
+     * Writes the members of a topic.
+     *
+     * @param topic The topic to serialize.
+     * @throws IOException If an error occurs.
+     */
+    private void _writeTopic(final Topic topic) throws IOException {
+        _writeLocators("subject_identifiers", topic.getSubjectIdentifiers());
+        _writeLocators("subject_locators", topic.getSubjectLocators());
+        final Set<Locator> iids = topic.getItemIdentifiers();
+        if (iids.isEmpty() && topic.getSubjectIdentifiers().isEmpty() 
+                && topic.getSubjectLocators().isEmpty()) {
+            _out.key("item_identifiers");
+            _out.startArray();
+            _out.value(_generateItemIdentifier(topic));
+            _out.endArray();
+        }
+        else {
+            _writeLocators("item_identifiers", iids);
+        }
+        if (_version == Version.JTM_11) {
+            _writeTopicRefs("instance_of", topic.getTypes(), Collections.<Topic>emptySet());
+        }
+        final Set<Name> names = topic.getNames();
+        if (!names.isEmpty()) {
+            _out.key("names");
+            _out.startArray();
+            for (Name name: names) {
+                _writeName(name);
+            }
+            _out.endArray();
+        }
+        final Set<Occurrence> occs = topic.getOccurrences();
+        if (!occs.isEmpty()) {
+            _out.key("occurrences");
+            _out.startArray();
+            for (Occurrence occ: occs) {
+                _out.startObject();
+                _writeValue(occ);
+                _writeTopicRef("type", occ.getType());
+                _writeTopicRefs("scope", occ.getScope(), Collections.<Topic>emptySet());
+                _writeReifier(occ);
+                _writeItemIdentifiers(occ);
+                _out.endObject();
+            }
+            _out.endArray();
+        }
+    }
+
+    private void _writeName(final Name name) throws IOException {
+        _out.startObject();
+        _out.keyValue("value", name.getValue());
+        if (name.getType() != _defaultNameType) {
+            _writeTopicRef("type", name.getType());
+        }
+        final Set<Topic> nameScope = name.getScope();
+        _writeTopicRefs("scope", nameScope, Collections.<Topic>emptySet());
+        final Set<Variant> variants = name.getVariants();
+        if (!variants.isEmpty()) {
+            _out.key("variants");
+            _out.startArray();
+            for (Variant variant: variants) {
+                _out.startObject();
+                _writeValue(variant);
+                // The variant inherits the scope of the name
+                _writeTopicRefs("scope", variant.getScope(), nameScope);
+                _writeReifier(variant);
+                _writeItemIdentifiers(variant);
+                _out.endObject();
+            }
+            _out.endArray();
+        }
+        _writeReifier(name);
+        _writeItemIdentifiers(name);
+        _out.endObject();
+    }
+
+    private void _writeAssociation(final Association assoc) throws IOException {
+        _writeTopicRef("type", assoc.getType());
+        _writeTopicRefs("scope", assoc.getScope(), Collections.<Topic>emptySet());
+        _out.key("roles");
+        _out.startArray();
+        for (Role role: assoc.getRoles()) {
+            _out.startObject();
+            _writeTopicRef("player", role.getPlayer());
+            _writeTopicRef("type", role.getType());
+            _writeReifier(role);
+            _writeItemIdentifiers(role);
+            _out.endObject();
+        }
+        _out.endArray();
+        _writeReifier(assoc);
+        _writeItemIdentifiers(assoc);
+    }
+
+    private static boolean _hasTypedTopics(final TopicMap topicMap) {
+        for (Topic topic: topicMap.getTopics()) {
+            if (!topic.getTypes().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the type-instance relationships as associations (JTM 1.0).
+     *
+     * @param topicMap The topic map.
+     * @throws IOException If an error occurs.
+     */
+    private void _writeTypeInstanceAssociations(final TopicMap topicMap) throws IOException {
+        final String typeInstance = "si:" + TMDM.TYPE_INSTANCE.getReference();
+        final String typeRole = "si:" + TMDM.TYPE.getReference();
+        final String instanceRole = "si:" + TMDM.INSTANCE.getReference();
+        for (Topic topic: topicMap.getTopics()) {
+            for (Topic type: topic.getTypes()) {
+                _out.startObject();
+                _out.keyValue("type", typeInstance);
+                _out.key("roles");
+                _out.startArray();
+                _out.startObject();
+                _writeTopicRef("player", type);
+                _out.keyValue("type", typeRole);
+                _out.endObject();
+                _out.startObject();
+                _writeTopicRef("player", topic);
+                _out.keyValue("type", instanceRole);
+                _out.endObject();
+                _out.endArray();
+                _out.endObject();
+            }
+        }
+    }
+
+    /**
+     * Writes the value and the datatype of an occurrence or variant.
+     *
+     * @param obj The occurrence or variant.
+     * @throws IOException If an error occurs.
+     */
+    private void _writeValue(final DatatypeAware obj) throws IOException {
+        _out.keyValue("value", obj.getValue());
+        final Locator datatype = obj.getDatatype();
+        if (!XSD.STRING.equals(datatype)) {
+            _out.keyValue("datatype", datatype.getReference());
+        }
+    }
+
+    private void _writeReifier(final Reifiable reifiable) throws IOException {
+        final Topic reifier = reifiable.getReifier();
+        if (reifier != null) {
+            _writeTopicRef("reifier", reifier);
+        }
+    }
+
+    private void _writeItemIdentifiers(final Construct construct) throws IOException {
+        _writeLocators("item_identifiers", construct.getItemIdentifiers());
+    }
+
+    private void _writeLocators(final String key, final Set<Locator> locators) throws IOException {
+        if (locators.isEmpty()) {
+            return;
+        }
+        _out.key(key);
+        _out.startArray();
+        for (Locator loc: locators) {
+            _out.value(loc.getReference());
+        }
+        _out.endArray();
+    }
+
+    private void _writeTopicRef(final String key, final Topic topic) throws IOException {
+        _out.keyValue(key, _getReference(topic));
+    }
+
+    /**
+     * Writes an array of topic references.
+     *
+     * @param key The key.
+     * @param topics The topics to reference.
+     * @param excluded The topics which should not be written.
+     * @throws IOException If an error occurs.
+     */
+    private void _writeTopicRefs(final String key, final Set<Topic> topics, 
+            final Set<Topic> excluded) throws IOException {
+        if (topics.size() == excluded.size()) {
+            return;
+        }
+        _out.key(key);
+        _out.startArray();
+        for (Topic topic: topics) {
+            if (!excluded.contains(topic)) {
+                _out.value(_getReference(topic));
+            }
+        }
+        _out.endArray();
+    }
+
+    /**
+     * Returns a JTM topic reference.
+     *
+     * @param topic The topic to reference.
+     * @return A reference to the topic.
+     */
+    private String _getReference(final Topic topic) {
+        Iterator<Locator> iter = topic.getSubjectIdentifiers().iterator();
+        if (iter.hasNext()) {
+            return "si:" + iter.next().getReference();
+        }
+        iter = topic.getSubjectLocators().iterator();
+        if (iter.hasNext()) {
+            return "sl:" + iter.next().getReference();
+        }
+        iter = topic.getItemIdentifiers().iterator();
+        if (iter.hasNext()) {
+            return "ii:" + iter.next().getReference();
+        }
+        return "ii:" + _generateItemIdentifier(topic);
+    }
+
+    /**
+     * Returns an item identifier for a topic without any identity.
+     *
+     * @param topic The topic.
+     * @return An item identifier.
+     */
+    private String _generateItemIdentifier(final Topic topic) {
+        return _baseLocator + "#" + WriterUtils.generateId(_tm, _baseLocator, topic);
+    }
+
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.tinytim.core.TopicMapSystemFactoryImpl;
+import org.tinytim.internal.utils.CollectionFactory;
+import org.tinytim.utils.MergePlan;
+import org.tinytim.utils.MergePlanUtils;
+
+import org.tmapi.core.Locator;
+import org.tmapi.core.TMAPIException;
+import org.tmapi.core.TopicMap;
+import org.tmapi.core.TopicMapSystem;
+
+/**
+ * Imports several sources into one topic map.
+ * <p>
+ * The sources are read concurrently, each into its own temporary topic map.
+ * The temporary topic maps are merged into the target topic map in the 
+ * order of the sources; the merge plan for each temporary topic map is 
+ * computed once and applied. While a temporary topic map is merged, the 
+ * subsequent sources are still read.
+ * </p>
+ * <p>
+ * Merging follows the rules of the Topic Maps - Data Model: Topics which 
+ * share an identity are merged. Each source is read by its own 
+ * {@link TopicMapReader}, so a source is handled in the same way as if it 
+ * was read into an empty topic map.
+ * </p>
+ * <p>
+ * Reading the sources one after another into the same topic map resolves 
+ * item identifier conflicts between equal constructs, i.e. an occurrence 
+ * which uses the item identifier of an equal occurrence of another topic
+ * replaces that occurrence. The importer does not resolve such conflicts: 
+ * If a source uses an item identifier of a construct which was imported 
+ * from another source and the constructs are not merged according to the 
+ * Topic Maps - Data Model, the import fails.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class ParallelTopicMapImporter {
+
+    /**
+     * Provides the reader for a source.
+     */
+    public interface Source {
+
+        /**
+         * Returns a reader which reads the source into the provided topic map.
+         * <p>
+         * This method is called by the thread which reads the source.
+         * </p>
+         *
+         * @param topicMap The topic map which should receive the constructs.
+         * @return A reader.
+         * @throws IOException If the reader cannot be created.
+         */
+        public TopicMapReader createReader(TopicMap topicMap) throws IOException;
+
+    }
+
+    private final TopicMap _target;
+    private final List<Source> _sources;
+    private int _maxThreads;
+
+    /**
+     * Creates an importer.
+     *
+     * @param target The topic map which receives the constructs of all sources.
+     */
+    public ParallelTopicMapImporter(TopicMap target) {
+        if (target == null) {
+            throw new IllegalArgumentException("The target topic map must not be null");
+        }
+        _target = target;
+        _sources = CollectionFactory.createList();
+        _maxThreads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Adds a source.
+     *
+     * @param source The source to import.
+     */
+    public void addSource(Source source) {
+        if (source == null) {
+            throw new IllegalArgumentException("The source must not be null");
+        }
+        _sources.add(source);
+    }
+
+    /**
+     * Sets the maximum number of sources which are read at the same time.
+     * <p>
+     * Default: The number of available processors.
+     * </p>
+     *
+     * @param maxThreads The maximum number of threads, must be greater than zero.
+     */
+    public void setMaxThreads(int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than zero, got: " + maxThreads);
+        }
+        _maxThreads = maxThreads;
+    }
+
+    /**
+     * Returns the maximum number of sources which are read at the same time.
+     *
+     * @return The maximum number of threads.
+     */
+    public int getMaxThreads() {
+        return _maxThreads;
+    }
+
+    /**
+     * Reads all sources and merges them into the target topic map.
+     * <p>
+     * If a source cannot be read or merged, the remaining sources are not 
+     * imported; the sources which precede the failing source (in the order 
+     * they were added) have been merged into the target topic map.
+     * </p>
+     *
+     * @return The merge plans in the order of the sources; each plan 
+     *          describes the effect of merging one source into the target.
+     * @throws IOException If a source cannot be read or if a source uses 
+     *          an item identifier of another Topic Maps construct of the 
+     *          target (see {@link MergePlan#getConflictingItemIdentifiers()}).
+     */
+    public List<MergePlan> importSources() throws IOException {
+        final List<MergePlan> plans = CollectionFactory.createList(_sources.size());
+        if (_sources.isEmpty()) {
+            return plans;
+        }
+        final TopicMapSystem sys = _createTopicMapSystem();
+        final List<TopicMap> partials = CollectionFactory.createList(_sources.size());
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(_maxThreads, _sources.size()));
+        try {
+            final List<Future<TopicMap>> futures = CollectionFactory.createList(_sources.size());
+            for (int i=0; i < _sources.size(); i++) {
+                // The topic maps are created by this thread, the topic map system is not thread-safe
+                final TopicMap partial = sys.createTopicMap("urn:x-tinytim:import:" + i);
+                partials.add(partial);
+                futures.add(executor.submit(new ReadTask(_sources.get(i), partial)));
+            }
+            for (int i=0; i < futures.size(); i++) {
+                final TopicMap partial = _get(futures.get(i));
+                final MergePlan plan = MergePlanUtils.createMergePlan(partial, _target);
+                if (!plan.isConflictFree()) {
+                    throw new IOException("The source at index " + i 
+                            + " cannot be merged, the item identifiers " 
+                            + _references(plan.getConflictingItemIdentifiers()) 
+                            + " are used by other constructs");
+                }
+                plan.apply();
+                plans.add(plan);
+                partial.remove();
+                partials.set(i, null);
+            }
+        }
+        catch (TMAPIException ex) {
+            throw _ioException(ex);
+        }
+        finally {
+            executor.shutdownNow();
+            // The readers may still write into the temporary topic maps
+            _awaitTermination(executor);
+            for (TopicMap partial: partials) {
+                if (partial != null) {
+                    partial.remove();
+                }
+            }
+            sys.close();
+        }
+        return plans;
+    }
+
+    private static TopicMapSystem _createTopicMapSystem() throws IOException {
+        try {
+            return new TopicMapSystemFactoryImpl().newTopicMapSystem();
+        }
+        catch (TMAPIException ex) {
+            throw _ioException(ex);
+        }
+    }
+
+    /**
+     * Waits until all read tasks have been finished.
+     * <p>
+     * If the current thread is interrupted while waiting, the interruption
+     * is deferred until the tasks are finished.
+     * </p>
+     */
+    private static void _awaitTermination(final ExecutorService executor) {
+        boolean interrupted = false;
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the result of the read task.
+     */
+    private static TopicMap _get(final Future<TopicMap> future) throws IOException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw _ioException(ex);
+        }
+        catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw _ioException(cause);
+        }
+    }
+
+    private static List<String> _references(final List<Locator> locators) {
+        final List<String> refs = CollectionFactory.createList(locators.size());
+        for (Locator loc: locators) {
+            refs.add(loc.getReference());
+        }
+        return refs;
+    }
+
+    private static IOException _ioException(final Throwable cause) {
+        final IOException ex = new IOException(cause.getMessage());
+        ex.initCause(cause);
+        return ex;
+    }
+
+    /**
+     * Reads a source into a temporary topic map.
+     */
+    private static final class ReadTask implements Callable<TopicMap> {
+
+        private final Source _source;
+        private final TopicMap _topicMap;
+
+        ReadTask(Source source, TopicMap topicMap) {
+            _source = source;
+            _topicMap = topicMap;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.concurrent.Callable#call()
+         */
+        public TopicMap call() throws Exception {
+            _source.createReader(_topicMap).read();
+            return _topicMap;
+        }
+    }
+
+}
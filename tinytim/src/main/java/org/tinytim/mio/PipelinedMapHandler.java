@@ -0,0 +1,640 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.semagia.mio.IMapHandler;
+import com.semagia.mio.IRef;
+import com.semagia.mio.MIOException;
+
+/**
+ * {@link IMapHandler} which decouples a parser from the handler which 
+ * builds the topic map.
+ * <p>
+ * The events reported by the parser are queued and replayed to the 
+ * underlying handler (i.e. a {@link TinyTimMapInputHandler}) by a second 
+ * thread, so parsing and building the topic map overlap. The events are
+ * delivered in the order they were reported.
+ * </p>
+ * <p>
+ * The events are collected in batches. A fixed number of batches circulate
+ * between the parser and the consumer; if all batches are in use, the 
+ * parser blocks until the consumer has replayed a batch. The memory needed
+ * by the pipeline is therefore bounded by the capacity.
+ * </p>
+ * <p>
+ * The consumer is started by {@link #startTopicMap()}. {@link #endTopicMap()}
+ * blocks until all events have been replayed and reports the first error
+ * of the underlying handler. Errors of the underlying handler are reported 
+ * by the next event which passes a batch to the consumer. If the parser 
+ * stops before {@link #endTopicMap()} was reported, {@link #abort()} must
+ * be called to stop the consumer:
+ * </p>
+ * <pre>
+ *     final PipelinedMapHandler handler = new PipelinedMapHandler(new TinyTimMapInputHandler(topicMap));
+ *     try {
+ *         parser.parse(handler, source);
+ *     }
+ *     finally {
+ *         handler.abort();
+ *     }
+ * </pre>
+ * <p>
+ * An instance of this class must not be used by more than one parser at 
+ * the same time.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class PipelinedMapHandler implements IMapHandler {
+
+    private static final int _DEFAULT_CAPACITY = 8192;
+    private static final int _MAX_BATCH_SIZE = 512;
+
+    private static final int 
+        _START_TOPIC_MAP = 0,
+        _END_TOPIC_MAP = 1,
+        _START_TOPIC = 2,
+        _END_TOPIC = 3,
+        _START_ASSOCIATION = 4,
+        _END_ASSOCIATION = 5,
+        _START_ROLE = 6,
+        _END_ROLE = 7,
+        _START_PLAYER = 8,
+        _END_PLAYER = 9,
+        _START_OCCURRENCE = 10,
+        _END_OCCURRENCE = 11,
+        _START_NAME = 12,
+        _END_NAME = 13,
+        _START_VARIANT = 14,
+        _END_VARIANT = 15,
+        _START_SCOPE = 16,
+        _END_SCOPE = 17,
+        _START_TYPE = 18,
+        _END_TYPE = 19,
+        _START_REIFIER = 20,
+        _END_REIFIER = 21,
+        _START_ISA = 22,
+        _END_ISA = 23,
+        _TOPIC_REF = 24,
+        _SUBJECT_IDENTIFIER = 25,
+        _SUBJECT_LOCATOR = 26,
+        _ITEM_IDENTIFIER = 27,
+        _VALUE = 28,
+        _DATATYPE_VALUE = 29;
+
+    private final IMapHandler _handler;
+    private final int _batchSize;
+    /**
+     * Batches which can be filled by the parser.
+     */
+    private final BlockingQueue<Batch> _free;
+    /**
+     * Batches which wait for the consumer.
+     */
+    private final BlockingQueue<Batch> _filled;
+    private Batch _batch;
+    private Thread _consumer;
+    private volatile Throwable _error;
+    private volatile boolean _aborted;
+
+    /**
+     * Creates a pipeline with a default capacity.
+     *
+     * @param handler The handler which receives the events.
+     */
+    public PipelinedMapHandler(IMapHandler handler) {
+        this(handler, _DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param handler The handler which receives the events.
+     * @param capacity The maximum number of events which are buffered.
+     */
+    public PipelinedMapHandler(IMapHandler handler, int capacity) {
+        if (handler == null) {
+            throw new IllegalArgumentException("The map handler must not be null");
+        }
+        if (capacity < 2) {
+            throw new IllegalArgumentException("The capacity must be at least 2, got " + capacity);
+        }
+        _handler = handler;
+        // At least two batches to let the parser and the consumer work in parallel
+        _batchSize = Math.min(_MAX_BATCH_SIZE, capacity / 2);
+        final int batches = capacity / _batchSize;
+        _free = new ArrayBlockingQueue<Batch>(batches);
+        _filled = new ArrayBlockingQueue<Batch>(batches);
+        for (int i=0; i < batches; i++) {
+            _free.add(new Batch(_batchSize));
+        }
+    }
+
+    /**
+     * Stops the consumer thread if the parser did not report the end of
+     * the topic map. Events which have not been replayed yet are discarded.
+     * <p>
+     * Calling this method after {@link #endTopicMap()} has no effect.
+     * </p>
+     */
+    public void abort() {
+        final Thread consumer = _consumer;
+        if (consumer == null) {
+            return;
+        }
+        _aborted = true;
+        consumer.interrupt();
+        _join();
+        _reset();
+    }
+
+    /**
+     * Queues an event.
+     *
+     * @param type The event type.
+     * @param value The argument of the event or <tt>null</tt>.
+     * @param datatype The datatype or <tt>null</tt>.
+     * @throws MIOException If the consumer reported an error.
+     */
+    private void _add(final int type, final Object value, final String datatype) throws MIOException {
+        Batch batch = _batch;
+        if (batch == null) {
+            throw new MIOException("The pipeline is not started");
+        }
+        final int idx = batch.size++;
+        batch.types[idx] = type;
+        batch.values[idx] = value;
+        batch.datatypes[idx] = datatype;
+        if (batch.size == _batchSize) {
+            _publish();
+        }
+    }
+
+    private void _add(final int type) throws MIOException {
+        _add(type, null, null);
+    }
+
+    private void _add(final int type, final Object value) throws MIOException {
+        _add(type, value, null);
+    }
+
+    /**
+     * Passes the current batch to the consumer and acquires an empty batch.
+     *
+     * @throws MIOException If the consumer reported an error.
+     */
+    private void _publish() throws MIOException {
+        _checkError();
+        try {
+            _filled.put(_batch);
+            _batch = null;
+            Batch batch = null;
+            while ((batch = _free.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                _checkError();
+            }
+            _batch = batch;
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new MIOException("Interrupted while waiting for the consumer", ex);
+        }
+    }
+
+    private void _checkError() throws MIOException {
+        final Throwable error = _error;
+        if (error != null) {
+            abort();
+            _throw(error);
+        }
+    }
+
+    private static void _throw(final Throwable error) throws MIOException {
+        if (error instanceof MIOException) {
+            throw (MIOException) error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        throw new MIOException(error);
+    }
+
+    private void _join() {
+        boolean interrupted = false;
+        while (_consumer.isAlive()) {
+            try {
+                _consumer.join();
+            }
+            catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void _reset() {
+        _consumer = null;
+        if (_batch != null) {
+            _batch.clear();
+            _free.add(_batch);
+            _batch = null;
+        }
+        Batch batch = null;
+        while ((batch = _filled.poll()) != null) {
+            batch.clear();
+            _free.add(batch);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startTopicMap()
+     */
+    public void startTopicMap() throws MIOException {
+        if (_consumer != null) {
+            throw new MIOException("The pipeline is already in use");
+        }
+        _error = null;
+        _aborted = false;
+        _batch = _free.poll();
+        _consumer = new Thread(new Consumer(), "tinyTiM-import");
+        _consumer.setDaemon(true);
+        _consumer.start();
+        _add(_START_TOPIC_MAP);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endTopicMap()
+     */
+    public void endTopicMap() throws MIOException {
+        _add(_END_TOPIC_MAP);
+        if (_batch != null && _batch.size > 0) {
+            _publish();
+        }
+        _join();
+        _reset();
+        final Throwable error = _error;
+        if (error != null) {
+            _throw(error);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startTopic(com.semagia.mio.IRef)
+     */
+    public void startTopic(IRef identity) throws MIOException {
+        _add(_START_TOPIC, identity);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endTopic()
+     */
+    public void endTopic() throws MIOException {
+        _add(_END_TOPIC);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startAssociation()
+     */
+    public void startAssociation() throws MIOException {
+        _add(_START_ASSOCIATION);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endAssociation()
+     */
+    public void endAssociation() throws MIOException {
+        _add(_END_ASSOCIATION);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startRole()
+     */
+    public void startRole() throws MIOException {
+        _add(_START_ROLE);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endRole()
+     */
+    public void endRole() throws MIOException {
+        _add(_END_ROLE);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startPlayer()
+     */
+    public void startPlayer() throws MIOException {
+        _add(_START_PLAYER);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endPlayer()
+     */
+    public void endPlayer() throws MIOException {
+        _add(_END_PLAYER);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startOccurrence()
+     */
+    public void startOccurrence() throws MIOException {
+        _add(_START_OCCURRENCE);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endOccurrence()
+     */
+    public void endOccurrence() throws MIOException {
+        _add(_END_OCCURRENCE);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startName()
+     */
+    public void startName() throws MIOException {
+        _add(_START_NAME);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endName()
+     */
+    public void endName() throws MIOException {
+        _add(_END_NAME);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startVariant()
+     */
+    public void startVariant() throws MIOException {
+        _add(_START_VARIANT);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endVariant()
+     */
+    public void endVariant() throws MIOException {
+        _add(_END_VARIANT);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startScope()
+     */
+    public void startScope() throws MIOException {
+        _add(_START_SCOPE);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endScope()
+     */
+    public void endScope() throws MIOException {
+        _add(_END_SCOPE);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startType()
+     */
+    public void startType() throws MIOException {
+        _add(_START_TYPE);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endType()
+     */
+    public void endType() throws MIOException {
+        _add(_END_TYPE);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startReifier()
+     */
+    public void startReifier() throws MIOException {
+        _add(_START_REIFIER);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endReifier()
+     */
+    public void endReifier() throws MIOException {
+        _add(_END_REIFIER);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#startIsa()
+     */
+    public void startIsa() throws MIOException {
+        _add(_START_ISA);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#endIsa()
+     */
+    public void endIsa() throws MIOException {
+        _add(_END_ISA);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#topicRef(com.semagia.mio.IRef)
+     */
+    public void topicRef(IRef identity) throws MIOException {
+        _add(_TOPIC_REF, identity);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#subjectIdentifier(java.lang.String)
+     */
+    public void subjectIdentifier(String sid) throws MIOException {
+        _add(_SUBJECT_IDENTIFIER, sid);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#subjectLocator(java.lang.String)
+     */
+    public void subjectLocator(String slo) throws MIOException {
+        _add(_SUBJECT_LOCATOR, slo);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#itemIdentifier(java.lang.String)
+     */
+    public void itemIdentifier(String iid) throws MIOException {
+        _add(_ITEM_IDENTIFIER, iid);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#value(java.lang.String)
+     */
+    public void value(String value) throws MIOException {
+        _add(_VALUE, value);
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.IMapHandler#value(java.lang.String, java.lang.String)
+     */
+    public void value(String value, String datatype) throws MIOException {
+        _add(_DATATYPE_VALUE, value, datatype);
+    }
+
+    /**
+     * Replays an event to the underlying handler.
+     */
+    private void _dispatch(final int type, final Object value, 
+            final String datatype) throws MIOException {
+        final IMapHandler handler = _handler;
+        switch (type) {
+            case _START_TOPIC_MAP:      handler.startTopicMap(); break;
+            case _END_TOPIC_MAP:        handler.endTopicMap(); break;
+            case _START_TOPIC:          handler.startTopic((IRef) value); break;
+            case _END_TOPIC:            handler.endTopic(); break;
+            case _START_ASSOCIATION:    handler.startAssociation(); break;
+            case _END_ASSOCIATION:      handler.endAssociation(); break;
+            case _START_ROLE:           handler.startRole(); break;
+            case _END_ROLE:             handler.endRole(); break;
+            case _START_PLAYER:         handler.startPlayer(); break;
+            case _END_PLAYER:           handler.endPlayer(); break;
+            case _START_OCCURRENCE:     handler.startOccurrence(); break;
+            case _END_OCCURRENCE:       handler.endOccurrence(); break;
+            case _START_NAME:           handler.startName(); break;
+            case _END_NAME:             handler.endName(); break;
+            case _START_VARIANT:        handler.startVariant(); break;
+            case _END_VARIANT:          handler.endVariant(); break;
+            case _START_SCOPE:          handler.startScope(); break;
+            case _END_SCOPE:            handler.endScope(); break;
+            case _START_TYPE:           handler.startType(); break;
+            case _END_TYPE:             handler.endType(); break;
+            case _START_REIFIER:        handler.startReifier(); break;
+            case _END_REIFIER:          handler.endReifier(); break;
+            case _START_ISA:            handler.startIsa(); break;
+            case _END_ISA:              handler.endIsa(); break;
+            case _TOPIC_REF:            handler.topicRef((IRef) value); break;
+            case _SUBJECT_IDENTIFIER:   handler.subjectIdentifier((String) value); break;
+            case _SUBJECT_LOCATOR:      handler.subjectLocator((String) value); break;
+            case _ITEM_IDENTIFIER:      handler.itemIdentifier((String) value); break;
+            case _VALUE:                handler.value((String) value); break;
+            case _DATATYPE_VALUE:       handler.value((String) value, datatype); break;
+            default:
+                throw new MIOException("Unknown event: " + type);
+        }
+    }
+
+    /**
+     * Takes the filled batches and replays the events to the underlying 
+     * handler until the end of the topic map. After an error, the batches 
+     * are recycled without replaying them to keep the parser running until
+     * it notices the error.
+     */
+    private final class Consumer implements Runnable {
+
+        /* (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        public void run() {
+            Batch batch = null;
+            try {
+                boolean end = false;
+                while (!end && !_aborted) {
+                    batch = _filled.take();
+                    final int size = batch.size;
+                    for (int i=0; i < size; i++) {
+                        _dispatch(batch.types[i], batch.values[i], batch.datatypes[i]);
+                    }
+                    end = _isLast(batch);
+                    _recycle(batch);
+                    batch = null;
+                }
+            }
+            catch (InterruptedException ex) {
+                // Aborted
+            }
+            catch (Throwable ex) {
+                _error = ex;
+                if (batch != null) {
+                    final boolean last = _isLast(batch);
+                    _recycle(batch);
+                    if (last) {
+                        return;
+                    }
+                }
+                _drain();
+            }
+        }
+
+        private void _recycle(final Batch batch) {
+            batch.clear();
+            _free.add(batch);
+        }
+
+        /**
+         * Returns if the batch contains the end of the topic map.
+         */
+        private boolean _isLast(final Batch batch) {
+            return batch.size > 0 && batch.types[batch.size-1] == _END_TOPIC_MAP;
+        }
+
+        /**
+         * Recycles the batches until the parser reports the end of the 
+         * topic map or the pipeline is aborted.
+         */
+        private void _drain() {
+            try {
+                boolean end = false;
+                while (!end && !_aborted) {
+                    final Batch batch = _filled.take();
+                    end = _isLast(batch);
+                    _recycle(batch);
+                }
+            }
+            catch (InterruptedException ex) {
+                // Aborted
+            }
+        }
+    }
+
+    /**
+     * A fixed size array of events.
+     */
+    private static final class Batch {
+
+        final int[] types;
+        final Object[] values;
+        final String[] datatypes;
+        int size;
+
+        Batch(int capacity) {
+            types = new int[capacity];
+            values = new Object[capacity];
+            datatypes = new String[capacity];
+        }
+
+        void clear() {
+            for (int i=0; i < size; i++) {
+                values[i] = null;
+                datatypes[i] = null;
+            }
+            size = 0;
+        }
+    }
+
+}
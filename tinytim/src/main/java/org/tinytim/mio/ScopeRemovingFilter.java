@@ -0,0 +1,126 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import com.semagia.mio.IMapHandler;
+import com.semagia.mio.MIOException;
+
+/**
+ * Pipeline stage which removes the scope of names, occurrences, and 
+ * associations.
+ * <p>
+ * The scope of variants is kept since a variant must have a scope. All
+ * events between the start and the end of a removed scope are dropped; 
+ * topics which are embedded into a removed scope are dropped as well.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class ScopeRemovingFilter extends DelegatingMapHandler {
+
+    /**
+     * Receives the events of a removed scope.
+     */
+    private final EventBuffer _removed;
+    /**
+     * Number of open variants.
+     */
+    private int _variants;
+    /**
+     * Number of open scopes within a removed scope (including the removed
+     * scope).
+     */
+    private int _removedScopes;
+
+    /**
+     * Creates a stage which removes the scopes.
+     *
+     * @param handler The handler which receives the events.
+     */
+    public ScopeRemovingFilter(IMapHandler handler) {
+        super(handler);
+        _removed = new EventBuffer();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#getHandler()
+     */
+    @Override
+    protected IMapHandler getHandler() {
+        return _removedScopes > 0 ? _removed : super.getHandler();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#startTopicMap()
+     */
+    @Override
+    public void startTopicMap() throws MIOException {
+        _variants = 0;
+        _removedScopes = 0;
+        _removed.clear();
+        super.startTopicMap();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#startVariant()
+     */
+    @Override
+    public void startVariant() throws MIOException {
+        _variants++;
+        super.startVariant();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#endVariant()
+     */
+    @Override
+    public void endVariant() throws MIOException {
+        _variants--;
+        super.endVariant();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#startScope()
+     */
+    @Override
+    public void startScope() throws MIOException {
+        if (_removedScopes > 0) {
+            _removedScopes++;
+        }
+        else if (_variants == 0) {
+            _removedScopes = 1;
+            return;
+        }
+        super.startScope();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#endScope()
+     */
+    @Override
+    public void endScope() throws MIOException {
+        if (_removedScopes > 0) {
+            _removedScopes--;
+            if (_removedScopes == 0) {
+                _removed.clear();
+                return;
+            }
+        }
+        super.endScope();
+    }
+
+}
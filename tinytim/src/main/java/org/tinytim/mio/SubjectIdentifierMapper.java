@@ -0,0 +1,119 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.util.Map;
+
+import org.tinytim.internal.utils.CollectionFactory;
+import org.tinytim.voc.TMDM;
+import org.tinytim.voc.XTM10;
+
+import org.tmapi.core.Locator;
+
+import com.semagia.mio.IMapHandler;
+import com.semagia.mio.IRef;
+import com.semagia.mio.MIOException;
+import com.semagia.mio.helpers.Ref;
+
+/**
+ * Pipeline stage which replaces subject identifiers.
+ * <p>
+ * The subject identifiers are replaced wherever they occur: In the 
+ * identities of topics and in topic references.
+ * </p>
+ * 
+ * @see org.tinytim.utils.XTM10Utils#convertXTM10PSIs(org.tmapi.core.TopicMap)
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class SubjectIdentifierMapper extends DelegatingMapHandler {
+
+    private final Map<String, String> _mapping;
+
+    /**
+     * Creates a stage which replaces the subject identifiers.
+     *
+     * @param handler The handler which receives the events.
+     * @param mapping A map of subject identifiers to their replacements.
+     */
+    public SubjectIdentifierMapper(IMapHandler handler, Map<String, String> mapping) {
+        super(handler);
+        if (mapping == null) {
+            throw new IllegalArgumentException("The mapping must not be null");
+        }
+        _mapping = CollectionFactory.createMap(mapping);
+    }
+
+    /**
+     * Returns a stage which replaces the XTM 1.0 PSIs with their TMDM 
+     * equivalents.
+     *
+     * @param handler The handler which receives the events.
+     * @return A stage which converts the XTM 1.0 PSIs.
+     */
+    public static SubjectIdentifierMapper forXTM10PSIs(IMapHandler handler) {
+        final Map<String, String> mapping = CollectionFactory.createMap();
+        _put(mapping, XTM10.CLASS_INSTANCE, TMDM.TYPE_INSTANCE);
+        _put(mapping, XTM10.CLASS, TMDM.TYPE);
+        _put(mapping, XTM10.INSTANCE, TMDM.INSTANCE);
+        _put(mapping, XTM10.SUPERCLASS_SUBCLASS, TMDM.SUPERTYPE_SUBTYPE);
+        _put(mapping, XTM10.SUPERCLASS, TMDM.SUPERTYPE);
+        _put(mapping, XTM10.SUBCLASS, TMDM.SUBTYPE);
+        _put(mapping, XTM10.SORT, TMDM.SORT);
+        return new SubjectIdentifierMapper(handler, mapping);
+    }
+
+    private static void _put(final Map<String, String> mapping, final Locator source, final Locator target) {
+        mapping.put(source.getReference(), target.getReference());
+    }
+
+    private IRef _map(final IRef ref) {
+        if (ref.getType() == IRef.SUBJECT_IDENTIFIER) {
+            final String sid = _mapping.get(ref.getIRI());
+            if (sid != null) {
+                return Ref.createSubjectIdentifier(sid);
+            }
+        }
+        return ref;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#startTopic(com.semagia.mio.IRef)
+     */
+    @Override
+    public void startTopic(IRef identity) throws MIOException {
+        super.startTopic(_map(identity));
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#topicRef(com.semagia.mio.IRef)
+     */
+    @Override
+    public void topicRef(IRef identity) throws MIOException {
+        super.topicRef(_map(identity));
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#subjectIdentifier(java.lang.String)
+     */
+    @Override
+    public void subjectIdentifier(String sid) throws MIOException {
+        final String mapped = _mapping.get(sid);
+        super.subjectIdentifier(mapped != null ? mapped : sid);
+    }
+
+}
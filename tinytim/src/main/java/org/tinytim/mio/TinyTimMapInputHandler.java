@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.tinytim.core.Scope;
+import org.tinytim.core.TopicMapMonitor;
 import org.tinytim.core.value.Literal;
 import org.tinytim.internal.api.IAssociation;
 import org.tinytim.internal.api.IConstruct;
@@ -32,8 +33,12 @@ import org.tinytim.internal.api.ITopic;
 import org.tinytim.internal.api.ITopicMap;
 import org.tinytim.internal.utils.MergeUtils;
 import org.tinytim.internal.utils.SignatureGenerator;
+import org.tinytim.mio.ImportMetrics.MergeCause;
+import org.tinytim.utils.OperationEvent.Operation;
+import org.tinytim.utils.OperationMonitor;
 import org.tinytim.utils.TypeInstanceConverter;
 import org.tinytim.voc.TMDM;
+import org.tinytim.voc.XTM10;
 
 import org.tmapi.core.IdentityConstraintException;
 import org.tmapi.core.Locator;
@@ -49,6 +54,10 @@ import com.semagia.mio.helpers.AbstractHamsterMapHandler;
 
 /**
  * Implementation of a {@link com.semagia.mio.IMapHandler} for tinyTiM.
+ * <p>
+ * The progress of an import can be observed by an {@link ImportListener};
+ * if no listener is set, no metrics are collected.
+ * </p>
  * 
  * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
  * @version $Rev: 267 $ - $Date: 2009-02-24 14:56:47 +0100 (Di, 24 Feb 2009) $
@@ -57,6 +66,11 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
 
     private final ITopicMap _tm;
     private final List<DelayedRoleEvents> _delayedRoleEvents;
+    private ImportListener _listener;
+    private int _progressInterval;
+    private ImportMetrics _metrics;
+    private TopicMapMonitor _monitor;
+    private long _start;
 
     public TinyTimMapInputHandler(TopicMap topicMap) {
         if (topicMap == null) {
@@ -64,6 +78,7 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
         }
         _tm = (ITopicMap) topicMap;
         _delayedRoleEvents = new ArrayList<DelayedRoleEvents>();
+        _progressInterval = 10000;
     }
 
     /**
@@ -75,6 +90,89 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
         return _tm;
     }
 
+    /**
+     * Sets the listener which is informed about the progress of the import.
+     * <p>
+     * The listener is taken into account by the next import, 
+     * <tt>null</tt> disables the collection of metrics unless the topic 
+     * map is monitored, see {@link TopicMapMonitor}.
+     * </p>
+     *
+     * @param listener The listener or <tt>null</tt>.
+     */
+    public void setImportListener(ImportListener listener) {
+        _listener = listener;
+    }
+
+    /**
+     * Returns the listener which is informed about the progress of the 
+     * import.
+     *
+     * @return The listener or <tt>null</tt>.
+     */
+    public ImportListener getImportListener() {
+        return _listener;
+    }
+
+    /**
+     * Sets the number of statements after which the 
+     * {@link ImportListener#progress(ImportMetrics)} is called.
+     * <p>
+     * Default: <tt>10000</tt>
+     * </p>
+     *
+     * @param statements The number of statements, must be greater than zero.
+     */
+    public void setProgressInterval(int statements) {
+        if (statements <= 0) {
+            throw new IllegalArgumentException("The progress interval must be greater than zero");
+        }
+        _progressInterval = statements;
+    }
+
+    /**
+     * Returns the number of statements after which the listener is informed
+     * about the progress.
+     *
+     * @return The progress interval.
+     */
+    public int getProgressInterval() {
+        return _progressInterval;
+    }
+
+    /* (non-Javadoc)
+     * @see com.semagia.mio.helpers.AbstractHamsterMapHandler#startTopicMap()
+     */
+    @Override
+    public void startTopicMap() throws MIOException {
+        super.startTopicMap();
+        _start = OperationMonitor.start();
+        _monitor = TopicMapMonitor.getMonitor(_tm);
+        _metrics = _listener != null || _monitor != null ? new ImportMetrics() : null;
+        if (_monitor != null) {
+            _monitor.importStarted();
+        }
+    }
+
+    /**
+     * Counts a statement and informs the listener about the progress if 
+     * necessary.
+     */
+    private void _statement() {
+        final ImportMetrics metrics = _metrics;
+        if (metrics != null) {
+            metrics.statement();
+            if (metrics.getStatementCount() % _progressInterval == 0) {
+                if (_listener != null) {
+                    _listener.progress(metrics);
+                }
+                if (_monitor != null) {
+                    _monitor.importProgress(metrics.getStatementCount(), metrics.getStatementsPerSecond());
+                }
+            }
+        }
+    }
+
     /* (non-Javadoc)
      * @see com.semagia.mio.helpers.HamsterHandler#createAssociation(java.lang.Object, java.util.Collection, java.lang.Object, java.util.Collection, java.util.Collection)
      */
@@ -82,6 +180,10 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
     protected void createAssociation(Topic type, Collection<Topic> scope,
             Topic reifier, Collection<String> iids, Collection<IRole<Topic>> roles)
             throws MIOException {
+        _statement();
+        if (_convertTypeInstance(type, scope, reifier, iids, roles)) {
+            return;
+        }
         IAssociation assoc = (IAssociation) _tm.createAssociation(type, _scope(scope));
         for (com.semagia.mio.helpers.HamsterHandler.IRole<Topic> r: roles) {
             Role role = assoc.createRole(r.getType(), r.getPlayer());
@@ -100,6 +202,61 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
         }
     }
 
+    /**
+     * Adds a type to the instance if the association is a type-instance 
+     * (TMDM) or class-instance (XTM 1.0) relationship which can be 
+     * expressed by the [types] property without loss of information.
+     * <p>
+     * Associations which are recognized later (i.e. since the association 
+     * type gets its subject identifier by a merge) are converted by
+     * {@link #endTopicMap()}.
+     * </p>
+     *
+     * @return <tt>true</tt> if the association was converted, otherwise 
+     *          <tt>false</tt>.
+     */
+    private static boolean _convertTypeInstance(Topic type, Collection<Topic> scope,
+            Topic reifier, Collection<String> iids, Collection<IRole<Topic>> roles) {
+        if (type == null || roles.size() != 2 || reifier != null || !iids.isEmpty() 
+                || (scope != null && !scope.isEmpty())) {
+            return false;
+        }
+        final Set<Locator> sids = type.getSubjectIdentifiers();
+        Locator typeRoleType = null;
+        Locator instanceRoleType = null;
+        if (sids.contains(TMDM.TYPE_INSTANCE)) {
+            typeRoleType = TMDM.TYPE;
+            instanceRoleType = TMDM.INSTANCE;
+        }
+        else if (sids.contains(XTM10.CLASS_INSTANCE)) {
+            typeRoleType = XTM10.CLASS;
+            instanceRoleType = XTM10.INSTANCE;
+        }
+        else {
+            return false;
+        }
+        Topic typeTopic = null;
+        Topic instance = null;
+        for (IRole<Topic> role: roles) {
+            if (role.getType() == null || role.getReifier() != null 
+                    || !role.getItemIdentifiers().isEmpty()) {
+                return false;
+            }
+            final Set<Locator> roleTypeSids = role.getType().getSubjectIdentifiers();
+            if (roleTypeSids.contains(typeRoleType)) {
+                typeTopic = role.getPlayer();
+            }
+            else if (roleTypeSids.contains(instanceRoleType)) {
+                instance = role.getPlayer();
+            }
+        }
+        if (typeTopic == null || instance == null) {
+            return false;
+        }
+        instance.addType(typeTopic);
+        return true;
+    }
+
     /* (non-Javadoc)
      * @see com.semagia.mio.helpers.HamsterHandler#createName(java.lang.Object, java.lang.Object, java.lang.String, java.util.Collection, java.lang.Object, java.util.Collection, java.util.Collection)
      */
@@ -113,6 +270,7 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
             Collection<String> iids,
             Collection<com.semagia.mio.helpers.HamsterHandler.IVariant<Topic>> variants)
             throws MIOException {
+        _statement();
         IName name = ((ITopic) parent).createName(_nameType(type), _asLiteral(value), _scope(scope));
         _applyReifier(name, reifier);
         _applyItemIdentifiers(name, iids);
@@ -145,6 +303,7 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
     protected void createOccurrence(Topic parent, Topic type, String value,
             String datatype, Collection<Topic> scope, Topic reifier,
             Collection<String> iids) throws MIOException {
+        _statement();
         IOccurrence occ = ((ITopic) parent).createOccurrence(type, _asLiteral(value, datatype), _scope(scope));
         _applyReifier(occ, reifier);
         _applyItemIdentifiers(occ, iids);
@@ -156,6 +315,7 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
     @Override
     protected Topic createTopicByItemIdentifier(String iid)
             throws MIOException {
+        _statement();
         return _tm.createTopicByItemIdentifier(_createLocator(iid));
     }
 
@@ -165,6 +325,7 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
     @Override
     protected Topic createTopicBySubjectIdentifier(String sid)
             throws MIOException {
+        _statement();
         return _tm.createTopicBySubjectIdentifier(_createLocator(sid));
     }
 
@@ -174,6 +335,7 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
     @Override
     protected Topic createTopicBySubjectLocator(String slo)
             throws MIOException {
+        _statement();
         return _tm.createTopicBySubjectLocator(_createLocator(slo));
     }
 
@@ -183,6 +345,7 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
     @Override
     protected void handleTopicMapItemIdentifier(String iid)
             throws MIOException {
+        _statement();
         _tm.addItemIdentifier(_createLocator(iid));
     }
 
@@ -191,6 +354,7 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
      */
     @Override
     protected void handleTopicMapReifier(Topic reifier) throws MIOException {
+        _statement();
         _tm.setReifier(reifier);
     }
 
@@ -200,6 +364,7 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
     @Override
     protected void handleTypeInstance(Topic instance, Topic type)
             throws MIOException {
+        _statement();
         instance.addType(type);
     }
 
@@ -209,7 +374,21 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
     @Override
     public void endTopicMap() throws MIOException {
         super.endTopicMap();
+        // Most type-instance associations are converted by createAssociation
         TypeInstanceConverter.convertAssociationsToTypes(_tm);
+        if (_metrics != null) {
+            final ImportMetrics metrics = _metrics;
+            _metrics = null;
+            metrics.finish();
+            if (_listener != null) {
+                _listener.finished(metrics);
+            }
+            if (_monitor != null) {
+                _monitor.importFinished(metrics.getStatementCount(), metrics.getStatementsPerSecond());
+                _monitor = null;
+            }
+        }
+        OperationMonitor.finished(Operation.IMPORT, _tm, _start);
     }
 
     /* (non-Javadoc)
@@ -217,15 +396,16 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
      */
     @Override
     public void handleSubjectIdentifier(Topic topic, String subjectIdentifier) throws MIOException {
+        _statement();
         Locator sid = _tm.createLocator(subjectIdentifier);
         Topic existing = _tm.getTopicBySubjectIdentifier(sid);
         if (existing != null && !(existing.equals(topic))) {
-            _merge(existing, topic);
+            _merge(existing, topic, MergeCause.SUBJECT_IDENTIFIER);
         }
         else {
             IConstruct tmo = (IConstruct) _tm.getConstructByItemIdentifier(sid);
             if (tmo != null && tmo.isTopic() && !tmo.equals(topic)) {
-                _merge((Topic)tmo, topic);
+                _merge((Topic)tmo, topic, MergeCause.SUBJECT_IDENTIFIER);
             }
         }
         topic.addSubjectIdentifier(sid);
@@ -236,10 +416,11 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
      */
     @Override
     public void handleSubjectLocator(Topic topic, String subjectLocator) throws MIOException {
+        _statement();
         Locator slo = _tm.createLocator(subjectLocator);
         Topic existing = _tm.getTopicBySubjectLocator(slo);
         if (existing != null && !(existing.equals(topic))) {
-            _merge(existing, topic);
+            _merge(existing, topic, MergeCause.SUBJECT_LOCATOR);
         }
         topic.addSubjectLocator(slo);
     }
@@ -249,15 +430,16 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
      */
     @Override
     public void handleItemIdentifier(Topic topic, String itemIdentifier) throws MIOException {
+        _statement();
         Locator iid = _tm.createLocator(itemIdentifier);
         IConstruct existing = (IConstruct) _tm.getConstructByItemIdentifier(iid);
         if (existing != null && existing.isTopic() && !existing.equals(topic)) {
-            _merge((Topic)existing, topic);
+            _merge((Topic)existing, topic, MergeCause.ITEM_IDENTIFIER);
         }
         else {
             Topic existingTopic = _tm.getTopicBySubjectIdentifier(iid);
             if (existingTopic != null && !existingTopic.equals(topic)) {
-                _merge(existingTopic, topic);
+                _merge(existingTopic, topic, MergeCause.ITEM_IDENTIFIER);
             }
         }
         topic.addItemIdentifier(iid);
@@ -278,7 +460,8 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
         return res;
     }
 
-    private static void _merge(Reifiable source, Reifiable target) {
+    private void _merge(Reifiable source, Reifiable target, MergeCause cause) {
+        final long start = _metrics != null ? System.nanoTime() : 0;
         MergeUtils.handleExistingConstruct(source, target);
         IConstruct isource = (IConstruct) source;
         if (isource.isRole()) {
@@ -299,6 +482,9 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
             }
             source.remove();
         }
+        if (_metrics != null) {
+            _metrics.merge(cause, start);
+        }
     }
 
     /**
@@ -310,10 +496,15 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
      *
      * @param source The source topic (will be removed).
      * @param target The target topic.
+     * @param cause The reason of the merge.
      */
-    private void _merge(Topic source, Topic target) {
+    private void _merge(Topic source, Topic target, MergeCause cause) {
+        final long start = _metrics != null ? System.nanoTime() : 0;
         target.mergeIn(source);
         super.notifyMerge(source, target);
+        if (_metrics != null) {
+            _metrics.merge(cause, start);
+        }
     }
 
     private Locator _createLocator(String reference) {
@@ -329,7 +520,7 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
             catch (IdentityConstraintException ex) {
                 final IConstruct existing = (IConstruct) ex.getExisting();
                 if (_areMergable(reifiable, existing)) {
-                    _merge((Reifiable) existing, (Reifiable) reifiable);
+                    _merge((Reifiable) existing, (Reifiable) reifiable, MergeCause.ITEM_IDENTIFIER_CONFLICT);
                 }
                 else {
                     throw new MIOException(ex);
@@ -355,7 +546,7 @@ public final class TinyTimMapInputHandler extends AbstractHamsterMapHandler<Topi
                 return;
             }
             if (_areMergable((IConstruct) reifiable, existing)) {
-                _merge((Reifiable) existing, reifiable);
+                _merge((Reifiable) existing, reifiable, MergeCause.REIFIER);
             }
             else {
                 throw new MIOException(ex);
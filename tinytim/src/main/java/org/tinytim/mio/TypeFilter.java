@@ -0,0 +1,273 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.tinytim.internal.utils.CollectionFactory;
+
+import com.semagia.mio.IMapHandler;
+import com.semagia.mio.IRef;
+import com.semagia.mio.MIOException;
+
+/**
+ * Pipeline stage which removes names, occurrences, and associations of 
+ * certain types.
+ * <p>
+ * Since the type of a statement may be reported after other properties 
+ * of the statement, the events of a name, occurrence, or association are 
+ * buffered until the statement is complete. Only the events of one 
+ * statement are kept in memory.
+ * </p>
+ * <p>
+ * The types are compared by the reference which is used by the parser,
+ * i.e. a statement typed by a topic which is referenced by an item 
+ * identifier is not removed if the filter knows the subject identifier 
+ * of the topic.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class TypeFilter extends DelegatingMapHandler {
+
+    private final Set<String> _types;
+    private final EventBuffer _buffer;
+    /**
+     * Indicates if the events of a statement are buffered.
+     */
+    private boolean _buffering;
+    /**
+     * The nesting level of statements, roles and embedded topics within the
+     * buffered statement; the statement itself has level <tt>1</tt>.
+     */
+    private int _level;
+    /**
+     * Indicates if the type of the buffered statement is reported.
+     */
+    private boolean _inType;
+    private String _type;
+
+    /**
+     * Creates a stage which removes the statements of the provided types.
+     *
+     * @param handler The handler which receives the events.
+     * @param types The types of the statements which should be removed.
+     */
+    public TypeFilter(IMapHandler handler, Collection<? extends IRef> types) {
+        super(handler);
+        if (types == null) {
+            throw new IllegalArgumentException("The types must not be null");
+        }
+        _types = CollectionFactory.createSet(types.size());
+        for (IRef type: types) {
+            _types.add(_key(type));
+        }
+        _buffer = new EventBuffer();
+    }
+
+    private static String _key(final IRef ref) {
+        return ref.getType() + ref.getIRI();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#getHandler()
+     */
+    @Override
+    protected IMapHandler getHandler() {
+        return _buffering ? _buffer : super.getHandler();
+    }
+
+    /**
+     * Starts buffering if the statement is not part of a buffered statement.
+     */
+    private void _startStatement() {
+        if (!_buffering) {
+            _buffering = true;
+            _level = 0;
+            _inType = false;
+            _type = null;
+        }
+        _level++;
+    }
+
+    /**
+     * Passes the buffered events to the next handler if the statement is
+     * complete and if it is not of a removed type.
+     *
+     * @throws MIOException In case of an error.
+     */
+    private void _endStatement() throws MIOException {
+        _level--;
+        if (_level == 0) {
+            _buffering = false;
+            if (_type == null || !_types.contains(_type)) {
+                _buffer.replay(super.getHandler());
+            }
+            _buffer.clear();
+        }
+    }
+
+    private void _typeReference(final IRef ref) {
+        if (_inType && _type == null) {
+            _type = _key(ref);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#startTopicMap()
+     */
+    @Override
+    public void startTopicMap() throws MIOException {
+        _buffering = false;
+        _buffer.clear();
+        super.startTopicMap();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#startName()
+     */
+    @Override
+    public void startName() throws MIOException {
+        _startStatement();
+        super.startName();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#endName()
+     */
+    @Override
+    public void endName() throws MIOException {
+        super.endName();
+        _endStatement();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#startOccurrence()
+     */
+    @Override
+    public void startOccurrence() throws MIOException {
+        _startStatement();
+        super.startOccurrence();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#endOccurrence()
+     */
+    @Override
+    public void endOccurrence() throws MIOException {
+        super.endOccurrence();
+        _endStatement();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#startAssociation()
+     */
+    @Override
+    public void startAssociation() throws MIOException {
+        _startStatement();
+        super.startAssociation();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#endAssociation()
+     */
+    @Override
+    public void endAssociation() throws MIOException {
+        super.endAssociation();
+        _endStatement();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#startRole()
+     */
+    @Override
+    public void startRole() throws MIOException {
+        if (_buffering) {
+            _level++;
+        }
+        super.startRole();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#endRole()
+     */
+    @Override
+    public void endRole() throws MIOException {
+        if (_buffering) {
+            _level--;
+        }
+        super.endRole();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#startTopic(com.semagia.mio.IRef)
+     */
+    @Override
+    public void startTopic(IRef identity) throws MIOException {
+        if (_buffering) {
+            _typeReference(identity);
+            _level++;
+        }
+        super.startTopic(identity);
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#endTopic()
+     */
+    @Override
+    public void endTopic() throws MIOException {
+        if (_buffering) {
+            _level--;
+        }
+        super.endTopic();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#startType()
+     */
+    @Override
+    public void startType() throws MIOException {
+        if (_buffering && _level == 1) {
+            _inType = true;
+        }
+        super.startType();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#endType()
+     */
+    @Override
+    public void endType() throws MIOException {
+        if (_buffering && _level == 1) {
+            _inType = false;
+        }
+        super.endType();
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.DelegatingMapHandler#topicRef(com.semagia.mio.IRef)
+     */
+    @Override
+    public void topicRef(IRef identity) throws MIOException {
+        if (_buffering) {
+            _typeReference(identity);
+        }
+        super.topicRef(identity);
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Buffered writer which encodes characters into UTF-8.
+ * <p>
+ * ASCII characters may be replaced by escape sequences which are provided
+ * by an escape table: An array of 128 byte arrays, the entry at the position 
+ * of a character is either <tt>null</tt> (the character is written as it is) 
+ * or the (ASCII) escape sequence.
+ * </p>
+ * <p>
+ * Unpaired surrogates are written as <tt>?</tt>.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+class UTF8Writer {
+
+    /**
+     * Escape table which does not escape any character.
+     */
+    static final byte[][] NO_ESCAPES = new byte[128][];
+
+    private static final int _BUFFER_SIZE = 16384;
+
+    private final OutputStream _stream;
+    private final WritableByteChannel _channel;
+    private final byte[] _buf;
+    private int _pos;
+
+    UTF8Writer(OutputStream out) {
+        this(out, null);
+    }
+
+    UTF8Writer(WritableByteChannel channel) {
+        this(null, channel);
+    }
+
+    private UTF8Writer(OutputStream out, WritableByteChannel channel) {
+        if (out == null && channel == null) {
+            throw new IllegalArgumentException("The output must not be null");
+        }
+        _stream = out;
+        _channel = channel;
+        _buf = new byte[_BUFFER_SIZE];
+    }
+
+    /**
+     * Returns the bytes of an ASCII string.
+     *
+     * @param s A string which consists of ASCII characters.
+     * @return The bytes of the string.
+     */
+    static byte[] ascii(String s) {
+        final byte[] bytes = new byte[s.length()];
+        for (int i=0; i < bytes.length; i++) {
+            bytes[i] = (byte) s.charAt(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the UTF-8 encoded value without escaping any character.
+     *
+     * @param value The value to write.
+     * @throws IOException If an error occurs.
+     */
+    final void write(final String value) throws IOException {
+        write(value, NO_ESCAPES);
+    }
+
+    /**
+     * Writes the UTF-8 encoded value. ASCII characters are escaped according 
+     * to the provided escape table.
+     *
+     * @param value The value to write.
+     * @param escapes The escape table.
+     * @throws IOException If an error occurs.
+     */
+    final void write(final String value, final byte[][] escapes) throws IOException {
+        final int length = value.length();
+        final byte[] buf = _buf;
+        for (int i=0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                final byte[] escape = escapes[c];
+                if (escape == null) {
+                    if (_pos == buf.length) {
+                        _flushBuffer();
+                    }
+                    buf[_pos++] = (byte) c;
+                }
+                else {
+                    write(escape);
+                }
+                continue;
+            }
+            if (buf.length - _pos < 4) {
+                _flushBuffer();
+            }
+            if (c < 0x800) {
+                buf[_pos++] = (byte) (0xC0 | (c >> 6));
+                buf[_pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                buf[_pos++] = (byte) (0xE0 | (c >> 12));
+                buf[_pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[_pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && i+1 < length 
+                    && Character.isLowSurrogate(value.charAt(i+1))) {
+                final int cp = Character.toCodePoint(c, value.charAt(++i));
+                buf[_pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[_pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[_pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[_pos++] = (byte) (0x80 | (cp & 0x3F));
+            }
+            else {
+                buf[_pos++] = '?';
+            }
+        }
+    }
+
+    /**
+     * Writes the provided bytes.
+     *
+     * @param bytes The bytes to write.
+     * @throws IOException If an error occurs.
+     */
+    final void write(final byte[] bytes) throws IOException {
+        if (_buf.length - _pos < bytes.length) {
+            _flushBuffer();
+            if (bytes.length > _buf.length) {
+                _writeDirect(bytes, 0, bytes.length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, _buf, _pos, bytes.length);
+        _pos += bytes.length;
+    }
+
+    /**
+     * Writes an ASCII character.
+     *
+     * @param c The character to write, must be less than <tt>0x80</tt>.
+     * @throws IOException If an error occurs.
+     */
+    final void write(final char c) throws IOException {
+        if (_pos == _buf.length) {
+            _flushBuffer();
+        }
+        _buf[_pos++] = (byte) c;
+    }
+
+    /**
+     * Writes already UTF-8 encoded data.
+     *
+     * @param data The data to write.
+     * @throws IOException If an error occurs.
+     */
+    final void write(final ByteArrayOutputStream data) throws IOException {
+        _flushBuffer();
+        if (_stream != null) {
+            data.writeTo(_stream);
+        }
+        else {
+            final byte[] bytes = data.toByteArray();
+            _writeDirect(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Writes the buffer to the output and flushes the output.
+     *
+     * @throws IOException If an error occurs.
+     */
+    void flush() throws IOException {
+        _flushBuffer();
+        if (_stream != null) {
+            _stream.flush();
+        }
+    }
+
+    /**
+     * Writes the content of the buffer to the output.
+     *
+     * @throws IOException If an error occurs.
+     */
+    private void _flushBuffer() throws IOException {
+        if (_pos == 0) {
+            return;
+        }
+        _writeDirect(_buf, 0, _pos);
+        _pos = 0;
+    }
+
+    private void _writeDirect(final byte[] bytes, final int off, final int len) throws IOException {
+        if (_stream != null) {
+            _stream.write(bytes, off, len);
+        }
+        else {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes, off, len);
+            while (buffer.hasRemaining()) {
+                _channel.write(buffer);
+            }
+        }
+    }
+
+}
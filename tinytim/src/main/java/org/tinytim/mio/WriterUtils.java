@@ -0,0 +1,85 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import org.tinytim.core.value.Literal;
+
+import org.tmapi.core.Construct;
+import org.tmapi.core.Locator;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+
+/**
+ * Provides functions which are used by the topic map writers.
+ * <p>
+ * This class is not meant to be used outside of this package.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+final class WriterUtils {
+
+    private WriterUtils() {
+        // noop.
+    }
+
+    /**
+     * Returns an id which is derived from the internal identifier of the 
+     * topic and which is not used by any other Topic Maps construct.
+     * <p>
+     * The id is not stored, each invocation with the same topic returns the
+     * same id as long as the topic map is not modified.
+     * </p>
+     * <p>
+     * The candidate IRIs are resolved against the existing locators, no 
+     * locator is created. An IRI which has not been created yet cannot be 
+     * an item identifier of any construct.
+     * </p>
+     *
+     * @param tm The topic map.
+     * @param baseLocator The base locator (without a fragment identifier).
+     * @param topic The topic.
+     * @return The id of the topic; <tt>baseLocator#id</tt> is either not 
+     *          used or it is an item identifier of the topic.
+     */
+    static String generateId(final TopicMap tm, final String baseLocator, final Topic topic) {
+        final String id = "id-" + topic.getId();
+        String candidate = id;
+        Construct existing = null;
+        int counter = 0;
+        while ((existing = _getConstructByItemIdentifier(tm, baseLocator + "#" + candidate)) != null 
+                && !existing.equals(topic)) {
+            candidate = id + "-" + (++counter);
+        }
+        return candidate;
+    }
+
+    /**
+     * Returns the construct with the provided item identifier without 
+     * creating a locator.
+     *
+     * @param tm The topic map.
+     * @param reference The IRI of the item identifier.
+     * @return The construct or <tt>null</tt> if no construct has the 
+     *          item identifier.
+     */
+    private static Construct _getConstructByItemIdentifier(final TopicMap tm, final String reference) {
+        final Locator iid = (Locator) Literal.getIRI(reference);
+        return iid != null ? tm.getConstructByItemIdentifier(iid) : null;
+    }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Simple SAX-alike XML writer which writes UTF-8 encoded XML.
+ * <p>
+ * The writer does not check if the XML is well-formed.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+class XMLWriter extends UTF8Writer {
+
+    public static final Attributes EMPTY_ATTRS = new AttributesImpl();
+
+    /**
+     * Escape sequences for ASCII characters in text content.
+     */
+    static final byte[][] TEXT_ESCAPES = new byte[128][];
+    /**
+     * Escape sequences for ASCII characters in attribute values.
+     */
+    static final byte[][] ATTR_ESCAPES = new byte[128][];
+
+    private static final char _NL = '\n';
+
+    private static final byte[] _XML_DECLARATION = ascii("<?xml version=\"1.0\" encoding=\"utf-8\"?>");
+    private static final byte[] _END_TAG_START = ascii("</");
+    private static final byte[] _EMPTY_TAG_END = ascii("/>");
+    private static final byte[] _ATTR_VALUE_START = ascii("=\"");
+    private static final byte[] _INDENT = ascii("  ");
+
+    static {
+        TEXT_ESCAPES['\r'] = ascii("&#xD;");
+        TEXT_ESCAPES['&'] = ascii("&amp;");
+        TEXT_ESCAPES['<'] = ascii("&lt;");
+        TEXT_ESCAPES['>'] = ascii("&gt;");
+        ATTR_ESCAPES['\t'] = ascii("&#x9;");
+        ATTR_ESCAPES['\n'] = ascii("&#xA;");
+        ATTR_ESCAPES['\r'] = ascii("&#xD;");
+        ATTR_ESCAPES['"'] = ascii("&quot;");
+        ATTR_ESCAPES['&'] = ascii("&amp;");
+        ATTR_ESCAPES['<'] = ascii("&lt;");
+    }
+
+    private boolean _prettify;
+    private int _depth;
+
+    public XMLWriter(OutputStream out) {
+        super(out);
+    }
+
+    public XMLWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    /**
+     * Enables / disables the indentation of elements.
+     * <p>
+     * If enabled, each element starts on a new line.
+     * </p>
+     *
+     * @param prettify <tt>true</tt> to indent the elements, otherwise <tt>false</tt>.
+     */
+    public void setPrettify(boolean prettify) {
+        _prettify = prettify;
+    }
+
+    /**
+     * Returns if the elements are indented.
+     *
+     * @return <tt>true</tt> if the elements are indented, otherwise <tt>false</tt>.
+     */
+    public boolean isPrettify() {
+        return _prettify;
+    }
+
+    /**
+     * Indicates the start of the serialization process and writes the XML 
+     * declaration.
+     *
+     * @throws IOException If an error occurs.
+     */
+    public void startDocument() throws IOException {
+        write(_XML_DECLARATION);
+        newline();
+        _depth = 0;
+    }
+
+    /**
+     * Indicates the end of the serialization process.
+     *
+     * @throws IOException If an error occurs.
+     */
+    public void endDocument() throws IOException {
+        flush();
+    }
+
+    /**
+     * Indicates the start of an element with the specified local name.
+     *
+     * @see #startElement(String, Attributes).
+     * 
+     * @param localName The element's name.
+     * @throws IOException If an error occurs.
+     */
+    public void startElement(String localName) throws IOException {
+        startElement(localName, EMPTY_ATTRS);
+    }
+
+    /**
+     * Indicates the start of an element with the provided local name.
+     *
+     * @param localName The name of the element.
+     * @param attrs The element's attributes.
+     * @throws IOException If an error occurs.
+     */
+    public void startElement(String localName, Attributes attrs) throws IOException {
+        _indent();
+        _startTag(localName, attrs);
+        write('>');
+        if (_prettify) {
+            newline();
+        }
+        _depth++;
+    }
+
+    /**
+     * Indicates the end of an element.
+     *
+     * @param localName The element's name.
+     * @throws IOException If an error occurs.
+     */
+    public void endElement(String localName) throws IOException {
+        _depth--;
+        _indent();
+        _endTag(localName);
+        if (_prettify) {
+            newline();
+        }
+    }
+
+    /**
+     * Writes an element without content.
+     *
+     * @param localName The name of the element.
+     * @param attrs The element's attributes.
+     * @throws IOException If an error occurs.
+     */
+    public void emptyElement(String localName, Attributes attrs) throws IOException {
+        _indent();
+        _startTag(localName, attrs);
+        write(_EMPTY_TAG_END);
+        if (_prettify) {
+            newline();
+        }
+    }
+
+    /**
+     * Writes an element with the provided text content.
+     *
+     * @param localName The name of the element.
+     * @param attrs The element's attributes.
+     * @param data The text content.
+     * @throws IOException If an error occurs.
+     */
+    public void dataElement(String localName, Attributes attrs, String data) throws IOException {
+        _indent();
+        _startTag(localName, attrs);
+        write('>');
+        characters(data);
+        _endTag(localName);
+        if (_prettify) {
+            newline();
+        }
+    }
+
+    /**
+     * Writes a <tt>#x0A</tt> to the output.
+     *
+     * @throws IOException If an error occurs.
+     */
+    public void newline() throws IOException {
+        write(_NL);
+    }
+
+    /**
+     * Writes the specified characters to the output.
+     * 
+     * @param data The data to write.
+     * @throws IOException If an error occurs.
+     */
+    public void characters(String data) throws IOException {
+        write(data, TEXT_ESCAPES);
+    }
+
+    /**
+     * Writes the attributes of an element.
+     *
+     * @param attrs The attributes.
+     * @throws IOException If an error occurs.
+     */
+    void writeAttributes(Attributes attrs) throws IOException {
+        for (int i=0; i < attrs.getLength(); i++) {
+            writeAttribute(attrs.getLocalName(i), attrs.getValue(i));
+        }
+    }
+
+    /**
+     * Writes an attribute (preceded by a space character).
+     *
+     * @param name The attribute's name.
+     * @param value The attribute's value which will be escaped.
+     * @throws IOException If an error occurs.
+     */
+    final void writeAttribute(String name, String value) throws IOException {
+        write(' ');
+        write(name);
+        write(_ATTR_VALUE_START);
+        write(value, ATTR_ESCAPES);
+        write('"');
+    }
+
+    private void _startTag(String localName, Attributes attrs) throws IOException {
+        write('<');
+        write(localName);
+        if (attrs.getLength() > 0) {
+            writeAttributes(attrs);
+        }
+    }
+
+    private void _endTag(String localName) throws IOException {
+        write(_END_TAG_START);
+        write(localName);
+        write('>');
+    }
+
+    private void _indent() throws IOException {
+        if (_prettify) {
+            for (int i=0; i < _depth; i++) {
+                write(_INDENT);
+            }
+        }
+    }
+
+}
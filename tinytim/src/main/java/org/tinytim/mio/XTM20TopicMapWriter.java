@@ -0,0 +1,407 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.Set;
+
+import org.tinytim.voc.Namespace;
+import org.tinytim.voc.TMDM;
+import org.tinytim.voc.XSD;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Construct;
+import org.tmapi.core.DatatypeAware;
+import org.tmapi.core.Locator;
+import org.tmapi.core.Name;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Reifiable;
+import org.tmapi.core.Role;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+import org.tmapi.core.Typed;
+import org.tmapi.core.Variant;
+
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Serializes a topic map into XTM 2.0.
+ * <p>
+ * The topics and associations are written in the order of the topic map
+ * without any intermediate representation, the writer needs a constant 
+ * amount of memory.
+ * </p>
+ * <p>
+ * See <a href="http://www.isotopicmaps.org/sam/sam-xtm/">http://www.isotopicmaps.org/sam/sam-xtm/</a>
+ * for details.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class XTM20TopicMapWriter implements TopicMapWriter {
+
+    /**
+     * Defines how the ids of the topics are created. Topics are referenced 
+     * by their ids.
+     */
+    public enum TopicReferenceStyle {
+
+        /**
+         * The id is generated from the internal identifier of the topic.
+         */
+        ID,
+
+        /**
+         * The id is taken from an item identifier of the topic which is 
+         * relative to the base locator (i.e. <tt>base-locator#id</tt>).
+         * Topics without such an item identifier get a generated id.
+         */
+        ITEM_IDENTIFIER
+
+    }
+
+    private final XMLWriter _out;
+    private final String _baseLocator;
+    private final AttributesImpl _attrs;
+    private TopicReferenceStyle _refStyle;
+    private TopicMap _tm;
+    private Topic _defaultNameType;
+
+    /**
+     * Creates a XTM 2.0 writer.
+     *
+     * @param out The stream the XTM is written onto.
+     * @param baseLocator The base locator which is used to create the 
+     *          topic references.
+     * @throws IOException If an error occurs.
+     */
+    public XTM20TopicMapWriter(OutputStream out, String baseLocator) throws IOException {
+        this(new XMLWriter(out), baseLocator);
+    }
+
+    /**
+     * Creates a XTM 2.0 writer which writes onto a channel.
+     *
+     * @param channel The channel the XTM is written onto.
+     * @param baseLocator The base locator which is used to create the 
+     *          topic references.
+     * @throws IOException If an error occurs.
+     */
+    public XTM20TopicMapWriter(WritableByteChannel channel, String baseLocator) throws IOException {
+        this(new XMLWriter(channel), baseLocator);
+    }
+
+    private XTM20TopicMapWriter(XMLWriter out, String baseLocator) {
+        if (baseLocator == null) {
+            throw new IllegalArgumentException("The base locator must not be null");
+        }
+        _out = out;
+        final int fragmentIdx = baseLocator.indexOf('#');
+        _baseLocator = fragmentIdx > -1 ? baseLocator.substring(0, fragmentIdx) : baseLocator;
+        _attrs = new AttributesImpl();
+        _refStyle = TopicReferenceStyle.ITEM_IDENTIFIER;
+    }
+
+    /**
+     * Enables / disables the indentation of the XML elements.
+     * <p>
+     * Default: <tt>false</tt>
+     * </p>
+     *
+     * @param prettify <tt>true</tt> to indent the elements, otherwise <tt>false</tt>.
+     */
+    public void setPrettify(boolean prettify) {
+        _out.setPrettify(prettify);
+    }
+
+    /**
+     * Returns if the XML elements are indented.
+     *
+     * @return <tt>true</tt> if the elements are indented, otherwise <tt>false</tt>.
+     */
+    public boolean isPrettify() {
+        return _out.isPrettify();
+    }
+
+    /**
+     * Sets how topics are referenced.
+     * <p>
+     * Default: {@link TopicReferenceStyle#ITEM_IDENTIFIER}
+     * </p>
+     *
+     * @param style The topic reference style.
+     */
+    public void setTopicReferenceStyle(TopicReferenceStyle style) {
+        if (style == null) {
+            throw new IllegalArgumentException("The topic reference style must not be null");
+        }
+        _refStyle = style;
+    }
+
+    /**
+     * Returns how topics are referenced.
+     *
+     * @return The topic reference style.
+     */
+    public TopicReferenceStyle getTopicReferenceStyle() {
+        return _refStyle;
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.mio.TopicMapWriter#write(org.tmapi.core.TopicMap)
+     */
+    public void write(TopicMap topicMap) throws IOException {
+        _tm = topicMap;
+        _defaultNameType = topicMap.getTopicBySubjectIdentifier(TMDM.TOPIC_NAME);
+        _out.startDocument();
+        _attrs.clear();
+        _attrs.addAttribute("", "xmlns", "", "CDATA", Namespace.XTM_20);
+        _attrs.addAttribute("", "version", "", "CDATA", "2.0");
+        _addReifier(topicMap);
+        _out.startElement("topicMap", _attrs);
+        _writeItemIdentifiers(topicMap);
+        for (Topic topic: topicMap.getTopics()) {
+            _writeTopic(topic);
+        }
+        for (Association assoc: topicMap.getAssociations()) {
+            _writeAssociation(assoc);
+        }
+        _out.endElement("topicMap");
+        _out.endDocument();
+        _tm = null;
+        _defaultNameType = null;
+    }
+
+    private void _writeTopic(final Topic topic) throws IOException {
+        final String id = _getId(topic);
+        _attrs.clear();
+        _attrs.addAttribute("", "id", "", "CDATA", id);
+        _out.startElement("topic", _attrs);
+        final String idIRI = _baseLocator + "#" + id;
+        for (Locator iid: topic.getItemIdentifiers()) {
+            if (!idIRI.equals(iid.getReference())) {
+                _writeLocator("itemIdentity", iid);
+            }
+        }
+        for (Locator slo: topic.getSubjectLocators()) {
+            _writeLocator("subjectLocator", slo);
+        }
+        for (Locator sid: topic.getSubjectIdentifiers()) {
+            _writeLocator("subjectIdentifier", sid);
+        }
+        final Set<Topic> types = topic.getTypes();
+        if (!types.isEmpty()) {
+            _out.startElement("instanceOf");
+            for (Topic type: types) {
+                _writeTopicRef(type);
+            }
+            _out.endElement("instanceOf");
+        }
+        for (Name name: topic.getNames()) {
+            _writeName(name);
+        }
+        for (Occurrence occ: topic.getOccurrences()) {
+            _writeOccurrence(occ);
+        }
+        _out.endElement("topic");
+    }
+
+    private void _writeName(final Name name) throws IOException {
+        _startElement("name", name);
+        _writeItemIdentifiers(name);
+        if (name.getType() != _defaultNameType) {
+            _writeType(name);
+        }
+        final Set<Topic> nameScope = name.getScope();
+        _writeScope(nameScope, Collections.<Topic>emptySet());
+        _out.dataElement("value", XMLWriter.EMPTY_ATTRS, name.getValue());
+        for (Variant variant: name.getVariants()) {
+            _startElement("variant", variant);
+            _writeItemIdentifiers(variant);
+            // The variant inherits the scope of the name
+            _writeScope(variant.getScope(), nameScope);
+            _writeValue(variant);
+            _out.endElement("variant");
+        }
+        _out.endElement("name");
+    }
+
+    private void _writeOccurrence(final Occurrence occ) throws IOException {
+        _startElement("occurrence", occ);
+        _writeItemIdentifiers(occ);
+        _writeType(occ);
+        _writeScope(occ.getScope(), Collections.<Topic>emptySet());
+        _writeValue(occ);
+        _out.endElement("occurrence");
+    }
+
+    private void _writeAssociation(final Association assoc) throws IOException {
+        _startElement("association", assoc);
+        _writeItemIdentifiers(assoc);
+        _writeType(assoc);
+        _writeScope(assoc.getScope(), Collections.<Topic>emptySet());
+        for (Role role: assoc.getRoles()) {
+            _startElement("role", role);
+            _writeItemIdentifiers(role);
+            _writeType(role);
+            _writeTopicRef(role.getPlayer());
+            _out.endElement("role");
+        }
+        _out.endElement("association");
+    }
+
+    /**
+     * Writes the start tag of a reifiable construct.
+     *
+     * @param localName The element's name.
+     * @param reifiable The reifiable construct.
+     * @throws IOException If an error occurs.
+     */
+    private void _startElement(final String localName, final Reifiable reifiable) throws IOException {
+        _attrs.clear();
+        _addReifier(reifiable);
+        _out.startElement(localName, _attrs);
+    }
+
+    /**
+     * Writes the value of an occurrence or variant.
+     *
+     * @param obj The occurrence or variant.
+     * @throws IOException If an error occurs.
+     */
+    private void _writeValue(final DatatypeAware obj) throws IOException {
+        final Locator datatype = obj.getDatatype();
+        _attrs.clear();
+        if (XSD.ANY_URI.equals(datatype)) {
+            _attrs.addAttribute("", "href", "", "CDATA", obj.locatorValue().getReference());
+            _out.emptyElement("resourceRef", _attrs);
+        }
+        else {
+            if (!XSD.STRING.equals(datatype)) {
+                _attrs.addAttribute("", "datatype", "", "CDATA", datatype.getReference());
+            }
+            _out.dataElement("resourceData", _attrs, obj.getValue());
+        }
+    }
+
+    private void _writeType(final Typed typed) throws IOException {
+        _out.startElement("type");
+        _writeTopicRef(typed.getType());
+        _out.endElement("type");
+    }
+
+    /**
+     * Writes the scope.
+     *
+     * @param scope The themes.
+     * @param excluded The themes which should not be written.
+     * @throws IOException If an error occurs.
+     */
+    private void _writeScope(final Set<Topic> scope, final Set<Topic> excluded) throws IOException {
+        if (scope.size() == excluded.size()) {
+            return;
+        }
+        _out.startElement("scope");
+        for (Topic theme: scope) {
+            if (!excluded.contains(theme)) {
+                _writeTopicRef(theme);
+            }
+        }
+        _out.endElement("scope");
+    }
+
+    private void _writeTopicRef(final Topic topic) throws IOException {
+        _attrs.clear();
+        _attrs.addAttribute("", "href", "", "CDATA", "#" + _getId(topic));
+        _out.emptyElement("topicRef", _attrs);
+    }
+
+    private void _writeItemIdentifiers(final Construct construct) throws IOException {
+        for (Locator iid: construct.getItemIdentifiers()) {
+            _writeLocator("itemIdentity", iid);
+        }
+    }
+
+    private void _writeLocator(final String localName, final Locator loc) throws IOException {
+        _attrs.clear();
+        _attrs.addAttribute("", "href", "", "CDATA", loc.getReference());
+        _out.emptyElement(localName, _attrs);
+    }
+
+    private void _addReifier(final Reifiable reifiable) {
+        final Topic reifier = reifiable.getReifier();
+        if (reifier != null) {
+            _attrs.addAttribute("", "reifier", "", "CDATA", "#" + _getId(reifier));
+        }
+    }
+
+    /**
+     * Returns the id of the provided topic.
+     * <p>
+     * The id is computed each time the topic is referenced, this avoids
+     * a map from topics to ids.
+     * </p>
+     *
+     * @param topic The topic.
+     * @return The id of the topic.
+     */
+    private String _getId(final Topic topic) {
+        if (_refStyle == TopicReferenceStyle.ITEM_IDENTIFIER) {
+            String id = null;
+            final int baseLength = _baseLocator.length();
+            for (Locator iid: topic.getItemIdentifiers()) {
+                final String ref = iid.getReference();
+                if (ref.length() > baseLength + 1 && ref.charAt(baseLength) == '#' 
+                        && ref.startsWith(_baseLocator)) {
+                    final String fragment = ref.substring(baseLength + 1);
+                    // Take the smallest fragment to get the same id for each reference
+                    if (_isId(fragment) && (id == null || fragment.compareTo(id) < 0)) {
+                        id = fragment;
+                    }
+                }
+            }
+            if (id != null) {
+                return id;
+            }
+        }
+        return WriterUtils.generateId(_tm, _baseLocator, topic);
+    }
+
+    /**
+     * Returns if the provided string can be used as id (<tt>xsd:ID</tt>).
+     *
+     * @param s The string to check.
+     * @return <tt>true</tt> if <tt>s</tt> is a valid id, otherwise <tt>false</tt>.
+     */
+    private static boolean _isId(final String s) {
+        final char first = s.charAt(0);
+        if (!Character.isLetter(first) && first != '_') {
+            return false;
+        }
+        for (int i=1; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '.' && c != '-' && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
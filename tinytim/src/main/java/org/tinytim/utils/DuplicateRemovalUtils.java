@@ -22,6 +22,7 @@ import org.tinytim.internal.utils.CollectionFactory;
 import org.tinytim.internal.utils.IIntObjectMap;
 import org.tinytim.internal.utils.MergeUtils;
 import org.tinytim.internal.utils.SignatureGenerator;
+import org.tinytim.utils.OperationEvent.Operation;
 
 import org.tmapi.core.Association;
 import org.tmapi.core.Name;
@@ -50,6 +51,7 @@ public final class DuplicateRemovalUtils {
      * @param topicMap The topic map to remove the duplicates from.
      */
     public static void removeDuplicates(TopicMap topicMap) {
+        final long start = OperationMonitor.start();
         for (Topic topic: topicMap.getTopics()) {
             removeDuplicates(topic);
         }
@@ -61,6 +63,7 @@ public final class DuplicateRemovalUtils {
         for (Topic type: typeInstanceIdx.getAssociationTypes()) {
             _removeDuplicateAssociations(sig2Assoc, typeInstanceIdx.getAssociations(type));
         }
+        OperationMonitor.finished(Operation.REMOVE_DUPLICATES, topicMap, start);
     }
 
     /**
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.utils;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.tinytim.internal.utils.MergeUtils;
+
+import org.tmapi.core.Locator;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+
+/**
+ * Describes the effect of merging a source topic map into a target topic map.
+ * <p>
+ * A merge plan is created without modifying the topic maps and may be 
+ * applied afterwards. The topic maps must not be modified between creating
+ * and applying the plan.
+ * </p>
+ * <p>
+ * The number of duplicates takes only the Topic Maps constructs of the 
+ * source topic map into account which are equal to a Topic Maps construct 
+ * of the target topic map or to another construct of the source topic map
+ * which will be merged into the same topic. Duplicates which arise from 
+ * merging topics of the target topic map are not counted.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class MergePlan {
+
+    private final TopicMap _source;
+    private final TopicMap _target;
+    private final List<Topic> _pairs;
+    private boolean _applied;
+    int _mergedTopics;
+    int _mergedTargetTopics;
+    int _newTopics;
+    int _duplicateOccurrences;
+    int _duplicateNames;
+    int _duplicateAssociations;
+    List<Locator> _conflicts;
+
+    MergePlan(TopicMap source, TopicMap target, List<Topic> pairs) {
+        _source = source;
+        _target = target;
+        _pairs = pairs;
+        _conflicts = Collections.emptyList();
+    }
+
+    /**
+     * Returns the source topic map.
+     *
+     * @return The topic map which will be merged into the target.
+     */
+    public TopicMap getSource() {
+        return _source;
+    }
+
+    /**
+     * Returns the target topic map.
+     *
+     * @return The topic map which receives the topics and associations 
+     *          of the source.
+     */
+    public TopicMap getTarget() {
+        return _target;
+    }
+
+    /**
+     * Returns the number of topics of the source topic map which will be 
+     * merged with an existing topic of the target topic map.
+     *
+     * @return The number of merged source topics.
+     */
+    public int getMergedTopicCount() {
+        return _mergedTopics;
+    }
+
+    /**
+     * Returns the number of topics of the target topic map which will be 
+     * merged into another topic of the target topic map.
+     * <p>
+     * This happens if a source topic represents the same subject as two or 
+     * more target topics.
+     * </p>
+     *
+     * @return The number of target topics which will be removed.
+     */
+    public int getMergedTargetTopicCount() {
+        return _mergedTargetTopics;
+    }
+
+    /**
+     * Returns the number of topics which will be copied into the target 
+     * topic map.
+     *
+     * @return The number of new topics.
+     */
+    public int getNewTopicCount() {
+        return _newTopics;
+    }
+
+    /**
+     * Returns the number of occurrences of the source topic map which will
+     * be collapsed with an existing occurrence.
+     *
+     * @return The number of duplicate occurrences.
+     */
+    public int getDuplicateOccurrenceCount() {
+        return _duplicateOccurrences;
+    }
+
+    /**
+     * Returns the number of names of the source topic map which will
+     * be collapsed with an existing name.
+     *
+     * @return The number of duplicate names.
+     */
+    public int getDuplicateNameCount() {
+        return _duplicateNames;
+    }
+
+    /**
+     * Returns the number of associations of the source topic map which will
+     * be collapsed with an existing association.
+     *
+     * @return The number of duplicate associations.
+     */
+    public int getDuplicateAssociationCount() {
+        return _duplicateAssociations;
+    }
+
+    /**
+     * Returns the item identifiers which will cause an 
+     * {@link org.tmapi.core.IdentityConstraintException} if the plan 
+     * is applied.
+     *
+     * @return An unmodifiable list of item identifiers.
+     */
+    public List<Locator> getConflictingItemIdentifiers() {
+        return Collections.unmodifiableList(_conflicts);
+    }
+
+    /**
+     * Returns if applying this plan does not violate any identity constraint.
+     *
+     * @return <tt>true</tt> if no conflicts were detected, otherwise <tt>false</tt>.
+     */
+    public boolean isConflictFree() {
+        return _conflicts.isEmpty();
+    }
+
+    /**
+     * Returns if this plan has been applied.
+     *
+     * @return <tt>true</tt> if {@link #apply()} was called, otherwise <tt>false</tt>.
+     */
+    public boolean isApplied() {
+        return _applied;
+    }
+
+    /**
+     * Merges the source topic map into the target topic map.
+     * <p>
+     * The identities of the topics are not matched again, the plan
+     * reuses the topic pairs which were found while creating the plan.
+     * </p>
+     * 
+     * @throws IllegalStateException If the plan has been applied already.
+     */
+    public void apply() {
+        if (_applied) {
+            throw new IllegalStateException("The merge plan has been applied already");
+        }
+        _applied = true;
+        MergeUtils.merge(_source, _target, _pairs);
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "MergePlan[merged topics=" + _mergedTopics 
+                + ", merged target topics=" + _mergedTargetTopics
+                + ", new topics=" + _newTopics
+                + ", duplicate occurrences=" + _duplicateOccurrences
+                + ", duplicate names=" + _duplicateNames
+                + ", duplicate associations=" + _duplicateAssociations
+                + ", conflicts=" + _conflicts.size() + "]";
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.utils;
+
+import org.tmapi.core.TopicMap;
+
+/**
+ * This class provides functions to examine the effect of merging a topic 
+ * map before the topic maps are modified.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class MergePlanUtils {
+
+    private MergePlanUtils() {
+        // noop.
+    }
+
+    /**
+     * Returns a plan which describes the effect of merging the <tt>source</tt>
+     * topic map into the <tt>target</tt> topic map without modifying either 
+     * topic map.
+     *
+     * @param source The source topic map.
+     * @param target The target topic map.
+     * @return The merge plan which can be applied afterwards.
+     * @see MergePlan#apply()
+     */
+    public static MergePlan createMergePlan(TopicMap source, TopicMap target) {
+        return MergePlanner.plan(source, target);
+    }
+
+}
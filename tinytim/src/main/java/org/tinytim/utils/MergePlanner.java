@@ -0,0 +1,372 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.tinytim.internal.api.ILiteralAware;
+import org.tinytim.internal.api.ITopicMap;
+import org.tinytim.internal.utils.CollectionFactory;
+import org.tinytim.internal.utils.IIntObjectMap;
+import org.tinytim.internal.utils.MergeUtils;
+import org.tinytim.internal.utils.UnionFind;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Construct;
+import org.tmapi.core.Locator;
+import org.tmapi.core.Name;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Role;
+import org.tmapi.core.Scoped;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+import org.tmapi.core.Typed;
+import org.tmapi.core.Variant;
+
+/**
+ * Creates {@link MergePlan}s without modifying the topic maps.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+final class MergePlanner {
+
+    private final TopicMap _source;
+    private final ITopicMap _target;
+    private final MergePlan _plan;
+    /**
+     * Maps source topics and target topics which will be merged into 
+     * another target topic to the topic which represents them after 
+     * the merge.
+     */
+    private final Map<Topic, Topic> _mergeMap;
+    private final List<Locator> _conflicts;
+    private IIntObjectMap<Association> _assocSigs;
+
+    private MergePlanner(final TopicMap source, final TopicMap target, 
+            final List<Topic> pairs) {
+        _source = source;
+        _target = (ITopicMap) target;
+        _plan = new MergePlan(source, target, pairs);
+        _mergeMap = CollectionFactory.createIdentityMap();
+        _conflicts = CollectionFactory.createList();
+    }
+
+    /**
+     * Returns a plan which describes the effect of merging <tt>source</tt> 
+     * into <tt>target</tt>.
+     *
+     * @param source The topic map to take the topics and associations from.
+     * @param target The topic map which should receive the topics and associations.
+     * @return The merge plan.
+     */
+    static MergePlan plan(final TopicMap source, final TopicMap target) {
+        if (source == null || target == null) {
+            throw new IllegalArgumentException("Neither the source topic map nor the target topic map must be null");
+        }
+        final List<Topic> pairs = source == target ? CollectionFactory.<Topic>createList() 
+                                                   : MergeUtils.findMergePairs(source, target);
+        final MergePlanner planner = new MergePlanner(source, target, pairs);
+        if (source != target) {
+            planner._plan(pairs);
+        }
+        return planner._plan;
+    }
+
+    private void _plan(final List<Topic> pairs) {
+        final UnionFind<Topic> uf = new UnionFind<Topic>();
+        for (int i=0; i<pairs.size(); i+=2) {
+            uf.union(pairs.get(i+1), pairs.get(i));
+        }
+        final Collection<List<Topic>> classes = uf.classes();
+        int matched = 0;
+        for (List<Topic> members: classes) {
+            Topic representative = null;
+            for (Topic topic: members) {
+                if (topic.getTopicMap() == _target) {
+                    if (representative == null) {
+                        representative = topic;
+                    }
+                    else {
+                        _mergeMap.put(topic, representative);
+                        _plan._mergedTargetTopics++;
+                    }
+                }
+            }
+            for (Topic topic: members) {
+                if (topic.getTopicMap() != _target) {
+                    _mergeMap.put(topic, representative);
+                    matched++;
+                }
+            }
+        }
+        _plan._mergedTopics = matched;
+        _plan._newTopics = _source.getTopics().size() - matched;
+        for (List<Topic> members: classes) {
+            _planCharacteristics(members);
+        }
+        for (Topic topic: _source.getTopics()) {
+            _checkTopicIdentities(topic);
+            if (!_mergeMap.containsKey(topic)) {
+                _checkCharacteristics(topic);
+            }
+        }
+        _planAssociations();
+        _plan._conflicts = _conflicts;
+    }
+
+    /**
+     * Counts the duplicate occurrences and names of the source topics 
+     * of one equivalence class.
+     *
+     * @param members The topics which represent the same subject.
+     */
+    private void _planCharacteristics(final List<Topic> members) {
+        final IIntObjectMap<Construct> occSigs = CollectionFactory.createIntObjectMap();
+        final IIntObjectMap<Construct> nameSigs = CollectionFactory.createIntObjectMap();
+        for (Topic topic: members) {
+            if (topic.getTopicMap() != _target) {
+                continue;
+            }
+            for (Occurrence occ: topic.getOccurrences()) {
+                occSigs.put(_signature(occ), occ);
+            }
+            for (Name name: topic.getNames()) {
+                nameSigs.put(_signature(name), name);
+            }
+        }
+        for (Topic topic: members) {
+            if (topic.getTopicMap() == _target) {
+                continue;
+            }
+            final List<Construct> pending = CollectionFactory.createList();
+            for (Occurrence occ: topic.getOccurrences()) {
+                final Construct existing = _planCharacteristic(occ, occSigs, pending);
+                if (existing != null) {
+                    _plan._duplicateOccurrences++;
+                }
+                _checkItemIdentifiers(occ, existing);
+            }
+            _addSignatures(pending, occSigs);
+            for (Name name: topic.getNames()) {
+                final Construct existing = _planCharacteristic(name, nameSigs, pending);
+                if (existing != null) {
+                    _plan._duplicateNames++;
+                }
+                _checkItemIdentifiers(name, existing);
+                for (Variant variant: name.getVariants()) {
+                    _checkItemIdentifiers(variant, existing);
+                }
+            }
+            _addSignatures(pending, nameSigs);
+        }
+    }
+
+    private void _addSignatures(final List<Construct> characteristics, 
+            final IIntObjectMap<Construct> sigs) {
+        for (Construct characteristic: characteristics) {
+            sigs.put(_signature((Typed) characteristic), characteristic);
+        }
+        characteristics.clear();
+    }
+
+    /**
+     * Returns the occurrence or name which equals to <tt>characteristic</tt>
+     * after the merge.
+     *
+     * @param characteristic The source occurrence or name.
+     * @param sigs The signatures of the existing characteristics.
+     * @param pending The list which receives <tt>characteristic</tt> 
+     *          if it is not a duplicate.
+     * @return The equal characteristic or <tt>null</tt> if no such 
+     *          characteristic exists.
+     */
+    private Construct _planCharacteristic(final Construct characteristic, 
+            final IIntObjectMap<Construct> sigs, 
+            final List<Construct> pending) {
+        final Construct existing = sigs.get(_signature((Typed) characteristic));
+        if (existing == null) {
+            pending.add(characteristic);
+        }
+        return existing;
+    }
+
+    /**
+     * Counts the duplicate associations of the source topic map.
+     */
+    private void _planAssociations() {
+        for (Association assoc: _source.getAssociations()) {
+            final Association existing = _findAssociation(assoc);
+            if (existing != null) {
+                _plan._duplicateAssociations++;
+            }
+            _checkItemIdentifiers(assoc, existing);
+            for (Role role: assoc.getRoles()) {
+                _checkItemIdentifiers(role, existing);
+            }
+        }
+    }
+
+    private Association _findAssociation(final Association assoc) {
+        if (_assocSigs == null) {
+            final Set<Association> assocs = _target.getAssociations();
+            _assocSigs = CollectionFactory.createIntObjectMap(assocs.size());
+            for (Association existing: assocs) {
+                _assocSigs.put(_signature(existing), existing);
+            }
+        }
+        return _assocSigs.get(_signature(assoc));
+    }
+
+    /**
+     * Records the item identifiers of the source topic which are used 
+     * by another Topic Maps construct than a topic in the target topic map.
+     *
+     * @param topic The source topic.
+     */
+    private void _checkTopicIdentities(final Topic topic) {
+        for (Locator iid: topic.getItemIdentifiers()) {
+            final Construct existing = _target.getConstructByItemIdentifier(iid);
+            if (existing != null && !(existing instanceof Topic)) {
+                _conflicts.add(iid);
+            }
+        }
+    }
+
+    /**
+     * Records the item identifiers of the occurrences, names and variants
+     * of a source topic which will be copied.
+     *
+     * @param topic The source topic.
+     */
+    private void _checkCharacteristics(final Topic topic) {
+        for (Occurrence occ: topic.getOccurrences()) {
+            _checkItemIdentifiers(occ, null);
+        }
+        for (Name name: topic.getNames()) {
+            _checkItemIdentifiers(name, null);
+            for (Variant variant: name.getVariants()) {
+                _checkItemIdentifiers(variant, null);
+            }
+        }
+    }
+
+    /**
+     * Records the item identifiers of <tt>construct</tt> which are used by 
+     * a target construct which does not belong to the construct which 
+     * <tt>construct</tt> will be merged into.
+     *
+     * @param construct A source occurrence, name, variant, association or role.
+     * @param equivalent The target occurrence, name or association 
+     *          which is equal to <tt>construct</tt> (or to the parent 
+     *          of <tt>construct</tt>) after the merge or <tt>null</tt>.
+     */
+    private void _checkItemIdentifiers(final Construct construct, 
+            final Construct equivalent) {
+        for (Locator iid: construct.getItemIdentifiers()) {
+            final Construct existing = _target.getConstructByItemIdentifier(iid);
+            if (existing == null) {
+                continue;
+            }
+            if (equivalent != null && (existing == equivalent 
+                    || existing.getParent() == equivalent)) {
+                continue;
+            }
+            _conflicts.add(iid);
+        }
+    }
+
+    /**
+     * Returns the topic which represents <tt>topic</tt> after the merge.
+     * <p>
+     * Source topics which will be copied are represented by themselves.
+     * </p>
+     *
+     * @param topic A source or target topic.
+     * @return The topic which represents <tt>topic</tt>.
+     */
+    private Topic _resolve(final Topic topic) {
+        final Topic resolved = _mergeMap.get(topic);
+        return resolved != null ? resolved : topic;
+    }
+
+    /**
+     * Returns the signature of the scope of <tt>scoped</tt> after the merge.
+     * <p>
+     * The scope is not created since the themes may belong to different
+     * topic maps.
+     * </p>
+     *
+     * @param scoped A source or target scoped construct.
+     * @return The signature of the scope.
+     */
+    private int _scopeSignature(final Scoped scoped) {
+        final Set<Topic> scope = scoped.getScope();
+        if (scope.isEmpty()) {
+            return 0;
+        }
+        final int[] ids = new int[scope.size()];
+        int i = 0;
+        for (Topic theme: scope) {
+            ids[i++] = System.identityHashCode(_resolve(theme));
+        }
+        Arrays.sort(ids);
+        return Arrays.hashCode(ids);
+    }
+
+    /**
+     * Returns the signature of an occurrence or name after the merge.
+     *
+     * @param characteristic An occurrence or name.
+     * @return The signature.
+     */
+    private int _signature(final Typed characteristic) {
+        return Arrays.hashCode(new int[] {
+                System.identityHashCode(_resolve(characteristic.getType())), 
+                _scopeSignature((Scoped) characteristic), 
+                System.identityHashCode(((ILiteralAware) characteristic).getLiteral())
+            });
+    }
+
+    /**
+     * Returns the signature of an association after the merge.
+     *
+     * @param assoc The association.
+     * @return The signature.
+     */
+    private int _signature(final Association assoc) {
+        final Set<Role> roles = assoc.getRoles();
+        final int[] roleSigs = new int[roles.size()];
+        int i = 0;
+        for (Role role: roles) {
+            roleSigs[i++] = Arrays.hashCode(new int[] {
+                    System.identityHashCode(_resolve(role.getType())), 
+                    System.identityHashCode(_resolve(role.getPlayer()))
+                });
+        }
+        Arrays.sort(roleSigs);
+        return Arrays.hashCode(new int[] {
+                System.identityHashCode(_resolve(assoc.getType())), 
+                _scopeSignature(assoc), 
+                Arrays.hashCode(roleSigs)
+            });
+    }
+
+}
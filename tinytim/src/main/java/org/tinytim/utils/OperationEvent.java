@@ -0,0 +1,125 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.utils;
+
+import org.tmapi.core.TopicMap;
+
+/**
+ * Describes a finished topic map operation.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class OperationEvent {
+
+    /**
+     * The operations which are reported.
+     */
+    public enum Operation {
+        /**
+         * A topic map was merged into another topic map.
+         */
+        MERGE,
+        /**
+         * A topic map was copied into another topic map.
+         */
+        COPY,
+        /**
+         * The duplicates of a topic map were removed.
+         */
+        REMOVE_DUPLICATES,
+        /**
+         * A topic map was imported by the 
+         * {@link org.tinytim.mio.TinyTimMapInputHandler}.
+         */
+        IMPORT,
+        /**
+         * A topic map was serialized as CXTM.
+         */
+        CXTM_EXPORT
+    }
+
+    private final Operation _operation;
+    private final TopicMap _topicMap;
+    private final int _constructs;
+    private final long _startTime;
+    private final long _duration;
+
+    OperationEvent(Operation operation, TopicMap topicMap, int constructs, long startTime, long duration) {
+        _operation = operation;
+        _topicMap = topicMap;
+        _constructs = constructs;
+        _startTime = startTime;
+        _duration = duration;
+    }
+
+    /**
+     * Returns the operation.
+     *
+     * @return The operation.
+     */
+    public Operation getOperation() {
+        return _operation;
+    }
+
+    /**
+     * Returns the topic map which was the target of the operation.
+     *
+     * @return The topic map.
+     */
+    public TopicMap getTopicMap() {
+        return _topicMap;
+    }
+
+    /**
+     * Returns the number of topics and associations of the topic map 
+     * after the operation.
+     *
+     * @return The number of topics and associations.
+     */
+    public int getConstructCount() {
+        return _constructs;
+    }
+
+    /**
+     * Returns the start of the operation as reported by 
+     * {@link System#nanoTime()}.
+     *
+     * @return The start time in nanoseconds.
+     */
+    public long getStartTime() {
+        return _startTime;
+    }
+
+    /**
+     * Returns the duration of the operation.
+     *
+     * @return The duration in nanoseconds.
+     */
+    public long getDuration() {
+        return _duration;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return _operation + " <" + _topicMap.getLocator().getReference() + ">: constructs=" 
+                + _constructs + ", duration=" + (_duration / 1000000.0) + " ms";
+    }
+
+}
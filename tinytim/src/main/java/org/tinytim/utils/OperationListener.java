@@ -0,0 +1,38 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.utils;
+
+/**
+ * Listener which is informed about expensive topic map operations, see 
+ * {@link OperationMonitor}.
+ * <p>
+ * The listener is called by the thread which executed the operation; 
+ * implementations should return quickly.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public interface OperationListener {
+
+    /**
+     * Called after an operation has been finished.
+     *
+     * @param event The event which describes the operation.
+     */
+    public void operationFinished(OperationEvent event);
+
+}
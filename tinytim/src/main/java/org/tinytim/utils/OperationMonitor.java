@@ -0,0 +1,131 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.utils;
+
+import org.tinytim.utils.OperationEvent.Operation;
+
+import org.tmapi.core.TopicMap;
+
+/**
+ * Reports the duration of expensive topic map operations (merging, 
+ * copying, duplicate removal, imports, and CXTM exports) to the 
+ * registered {@link OperationListener}s.
+ * <p>
+ * Listeners can correlate latency spikes with topic map operations, i.e.
+ * by forwarding the events to a logging or profiling framework:
+ * </p>
+ * <pre>
+ *     OperationMonitor.addListener(new OperationListener() {
+ *         public void operationFinished(OperationEvent event) {
+ *             if (event.getDuration() > threshold) {
+ *                 log.warn(event.toString());
+ *             }
+ *         }
+ *     });
+ * </pre>
+ * <p>
+ * If no listener is registered, the operations are not timed.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class OperationMonitor {
+
+    /**
+     * Returned by {@link #start()} if no listener is registered.
+     */
+    private static final long _NOT_STARTED = Long.MIN_VALUE;
+
+    private static volatile OperationListener[] _listeners = new OperationListener[0];
+
+    private OperationMonitor() {
+        // noop.
+    }
+
+    /**
+     * Registers a listener.
+     *
+     * @param listener The listener to add.
+     */
+    public static synchronized void addListener(OperationListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("The listener must not be null");
+        }
+        final OperationListener[] listeners = new OperationListener[_listeners.length + 1];
+        System.arraycopy(_listeners, 0, listeners, 0, _listeners.length);
+        listeners[_listeners.length] = listener;
+        _listeners = listeners;
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener The listener to remove.
+     */
+    public static synchronized void removeListener(OperationListener listener) {
+        final OperationListener[] listeners = _listeners;
+        for (int i=0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                final OperationListener[] newListeners = new OperationListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                _listeners = newListeners;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the start time of an operation.
+     * <p>
+     * This method is not meant to be used outside of the tinyTiM package.
+     * </p>
+     *
+     * @return The start time which must be passed to 
+     *          {@link #finished(Operation, TopicMap, long)}.
+     */
+    public static long start() {
+        return _listeners.length == 0 ? _NOT_STARTED : System.nanoTime();
+    }
+
+    /**
+     * Informs the listeners about a finished operation.
+     * <p>
+     * This method is not meant to be used outside of the tinyTiM package.
+     * </p>
+     *
+     * @param operation The operation.
+     * @param topicMap The topic map which was the target of the operation.
+     * @param start The value returned by {@link #start()}.
+     */
+    public static void finished(Operation operation, TopicMap topicMap, long start) {
+        if (start == _NOT_STARTED) {
+            return;
+        }
+        final OperationListener[] listeners = _listeners;
+        if (listeners.length == 0) {
+            return;
+        }
+        final OperationEvent event = new OperationEvent(operation, topicMap, 
+                topicMap.getTopics().size() + topicMap.getAssociations().size(), 
+                start, System.nanoTime() - start);
+        for (OperationListener listener: listeners) {
+            listener.operationFinished(event);
+        }
+    }
+
+}
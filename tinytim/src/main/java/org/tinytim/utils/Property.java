@@ -40,4 +40,11 @@ public final class Property {
 
     public static final String PERSISTENT_DIRECTORY = PERSISTENT + "-directoy";
 
+    /**
+     * If set to <tt>true</tt> (either a {@link Boolean} or a string), the 
+     * topic map system registers an MXBean for each topic map at the 
+     * platform MBean server, see {@link org.tinytim.core.TopicMapMonitorMXBean}.
+     */
+    public static final String JMX = _PROPERTY_BASE + "jmx";
+
 }
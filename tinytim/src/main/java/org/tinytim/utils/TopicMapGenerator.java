@@ -0,0 +1,387 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.utils;
+
+import java.util.Random;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+
+/**
+ * Generates synthetic topic maps, i.e. for benchmarks and memory tests.
+ * <p>
+ * The generator is deterministic: The same configuration and the same seed 
+ * produce the same topic map. Each generated topic has a type, names, 
+ * occurrences, and plays a role in binary associations with other topics:
+ * </p>
+ * <pre>
+ *     TopicMapGenerator gen = new TopicMapGenerator();
+ *     gen.setTopicCount(1000000);
+ *     gen.setAssociationsPerTopic(2);
+ *     gen.setLiteralReuseRatio(0.5);
+ *     gen.generate(topicMap);
+ * </pre>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class TopicMapGenerator {
+
+    /**
+     * Determines how the generated topics are identified.
+     */
+    public enum IdentifierPattern {
+        /**
+         * Each topic gets a subject identifier.
+         */
+        SUBJECT_IDENTIFIER,
+        /**
+         * Each topic gets an item identifier.
+         */
+        ITEM_IDENTIFIER,
+        /**
+         * Each topic gets a subject locator.
+         */
+        SUBJECT_LOCATOR,
+        /**
+         * The topics get a subject identifier, an item identifier, or a 
+         * subject locator in turn.
+         */
+        MIXED,
+        /**
+         * The topics get no identity (besides the item identifier which is 
+         * assigned by the topic map).
+         */
+        NONE
+    }
+
+    private String _baseIRI;
+    private long _seed;
+    private int _topicCount;
+    private int _topicTypeCount;
+    private int _namesPerTopic;
+    private int _occurrencesPerTopic;
+    private int _occurrenceTypeCount;
+    private int _associationsPerTopic;
+    private int _associationTypeCount;
+    private int _themeCount;
+    private int _scopeCardinality;
+    private double _literalReuseRatio;
+    private int _literalPoolSize;
+    private IdentifierPattern _identifierPattern;
+
+    /**
+     * Creates a generator with the default configuration: 1000 topics of 10
+     * types with one name and one occurrence each, one association per 
+     * topic, no scope, no literal reuse, and subject identifiers.
+     */
+    public TopicMapGenerator() {
+        _baseIRI = "http://www.tinytim.org/generated/";
+        _seed = 42;
+        _topicCount = 1000;
+        _topicTypeCount = 10;
+        _namesPerTopic = 1;
+        _occurrencesPerTopic = 1;
+        _occurrenceTypeCount = 5;
+        _associationsPerTopic = 1;
+        _associationTypeCount = 5;
+        _themeCount = 10;
+        _scopeCardinality = 0;
+        _literalReuseRatio = 0;
+        _literalPoolSize = 1000;
+        _identifierPattern = IdentifierPattern.SUBJECT_IDENTIFIER;
+    }
+
+    private static int _checkNotNegative(final int value, final String name) {
+        if (value < 0) {
+            throw new IllegalArgumentException("The " + name + " must not be negative, got " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Sets the IRI which is used to create the identities of the topics.
+     *
+     * @param baseIRI The base IRI.
+     */
+    public void setBaseIRI(String baseIRI) {
+        if (baseIRI == null) {
+            throw new IllegalArgumentException("The base IRI must not be null");
+        }
+        _baseIRI = baseIRI;
+    }
+
+    /**
+     * Sets the seed of the random number generator.
+     *
+     * @param seed The seed.
+     */
+    public void setSeed(long seed) {
+        _seed = seed;
+    }
+
+    /**
+     * Sets the number of topics which are generated; the topics which are 
+     * used as types and themes are not counted.
+     *
+     * @param count The number of topics.
+     */
+    public void setTopicCount(int count) {
+        _topicCount = _checkNotNegative(count, "topic count");
+    }
+
+    /**
+     * Sets the number of topic types; each topic is an instance of one 
+     * of them. If the number is <tt>0</tt>, the topics are untyped.
+     *
+     * @param count The number of topic types.
+     */
+    public void setTopicTypeCount(int count) {
+        _topicTypeCount = _checkNotNegative(count, "topic type count");
+    }
+
+    /**
+     * Sets the number of names per topic.
+     *
+     * @param count The number of names.
+     */
+    public void setNamesPerTopic(int count) {
+        _namesPerTopic = _checkNotNegative(count, "number of names");
+    }
+
+    /**
+     * Sets the number of occurrences per topic.
+     *
+     * @param count The number of occurrences.
+     */
+    public void setOccurrencesPerTopic(int count) {
+        _occurrencesPerTopic = _checkNotNegative(count, "number of occurrences");
+    }
+
+    /**
+     * Sets the number of occurrence types.
+     *
+     * @param count The number of occurrence types, must be greater than zero.
+     */
+    public void setOccurrenceTypeCount(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("The number of occurrence types must be greater than zero");
+        }
+        _occurrenceTypeCount = count;
+    }
+
+    /**
+     * Sets the number of associations which are created per topic.
+     * <p>
+     * Each association is binary and connects the topic with another, 
+     * randomly chosen topic.
+     * </p>
+     *
+     * @param count The number of associations.
+     */
+    public void setAssociationsPerTopic(int count) {
+        _associationsPerTopic = _checkNotNegative(count, "number of associations");
+    }
+
+    /**
+     * Sets the number of association types.
+     *
+     * @param count The number of association types, must be greater than zero.
+     */
+    public void setAssociationTypeCount(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("The number of association types must be greater than zero");
+        }
+        _associationTypeCount = count;
+    }
+
+    /**
+     * Sets the number of themes the scopes are built of.
+     *
+     * @param count The number of themes.
+     */
+    public void setThemeCount(int count) {
+        _themeCount = _checkNotNegative(count, "number of themes");
+    }
+
+    /**
+     * Sets the number of themes of each name, occurrence, and association.
+     *
+     * @param cardinality The number of themes, must not be greater than the
+     *          number of themes.
+     */
+    public void setScopeCardinality(int cardinality) {
+        _scopeCardinality = _checkNotNegative(cardinality, "scope cardinality");
+    }
+
+    /**
+     * Sets the ratio of name and occurrence values which are taken from a
+     * pool of values; the other values are unique.
+     *
+     * @param ratio A value between <tt>0</tt> (all values are unique) and
+     *          <tt>1</tt> (all values are taken from the pool).
+     */
+    public void setLiteralReuseRatio(double ratio) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("The ratio must be between 0 and 1, got " + ratio);
+        }
+        _literalReuseRatio = ratio;
+    }
+
+    /**
+     * Sets the number of values in the pool of reused values.
+     *
+     * @param size The size of the pool, must be greater than zero.
+     */
+    public void setLiteralPoolSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The pool size must be greater than zero");
+        }
+        _literalPoolSize = size;
+    }
+
+    /**
+     * Sets how the topics are identified.
+     *
+     * @param pattern The identifier pattern.
+     */
+    public void setIdentifierPattern(IdentifierPattern pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("The identifier pattern must not be null");
+        }
+        _identifierPattern = pattern;
+    }
+
+    /**
+     * Generates the topics and associations in the provided topic map.
+     *
+     * @param topicMap The topic map to fill.
+     */
+    public void generate(TopicMap topicMap) {
+        if (_scopeCardinality > _themeCount) {
+            throw new IllegalStateException("The scope cardinality (" + _scopeCardinality 
+                    + ") is greater than the number of themes (" + _themeCount + ")");
+        }
+        final Random random = new Random(_seed);
+        final Topic[] topicTypes = _createTopics(topicMap, "topic-type/", _topicTypeCount);
+        final Topic[] occTypes = _createTopics(topicMap, "occurrence-type/", _occurrenceTypeCount);
+        final Topic[] assocTypes = _createTopics(topicMap, "association-type/", _associationTypeCount);
+        final Topic[] roleTypes = _createTopics(topicMap, "role-type/", 2);
+        final Topic[] themes = _createTopics(topicMap, "theme/", _themeCount);
+        final Topic nameType = _createTopics(topicMap, "name-type/", 1)[0];
+        final Topic[] topics = new Topic[_topicCount];
+        final Topic[] scope = new Topic[_scopeCardinality];
+        for (int i=0; i < topics.length; i++) {
+            final Topic topic = _createTopic(topicMap, i);
+            topics[i] = topic;
+            if (topicTypes.length > 0) {
+                topic.addType(topicTypes[random.nextInt(topicTypes.length)]);
+            }
+            for (int j=0; j < _namesPerTopic; j++) {
+                topic.createName(nameType, _value(random, "Name ", i, j), _scope(random, themes, scope));
+            }
+            for (int j=0; j < _occurrencesPerTopic; j++) {
+                topic.createOccurrence(occTypes[random.nextInt(occTypes.length)], 
+                        _value(random, "Occurrence ", i, j), _scope(random, themes, scope));
+            }
+        }
+        if (topics.length < 2) {
+            return;
+        }
+        for (int i=0; i < topics.length; i++) {
+            for (int j=0; j < _associationsPerTopic; j++) {
+                int other = random.nextInt(topics.length - 1);
+                if (other >= i) {
+                    // Avoid associations between a topic and itself
+                    other++;
+                }
+                final Association assoc = topicMap.createAssociation(
+                        assocTypes[random.nextInt(assocTypes.length)], _scope(random, themes, scope));
+                assoc.createRole(roleTypes[0], topics[i]);
+                assoc.createRole(roleTypes[1], topics[other]);
+            }
+        }
+    }
+
+    /**
+     * Creates the topics which are used as types or themes.
+     */
+    private Topic[] _createTopics(final TopicMap topicMap, final String path, final int count) {
+        final Topic[] topics = new Topic[count];
+        for (int i=0; i < count; i++) {
+            topics[i] = topicMap.createTopicBySubjectIdentifier(topicMap.createLocator(_baseIRI + path + i));
+        }
+        return topics;
+    }
+
+    private Topic _createTopic(final TopicMap topicMap, final int idx) {
+        IdentifierPattern pattern = _identifierPattern;
+        if (pattern == IdentifierPattern.MIXED) {
+            switch (idx % 3) {
+                case 0: pattern = IdentifierPattern.SUBJECT_IDENTIFIER; break;
+                case 1: pattern = IdentifierPattern.ITEM_IDENTIFIER; break;
+                default: pattern = IdentifierPattern.SUBJECT_LOCATOR;
+            }
+        }
+        switch (pattern) {
+            case SUBJECT_IDENTIFIER:
+                return topicMap.createTopicBySubjectIdentifier(topicMap.createLocator(_baseIRI + "topic/" + idx));
+            case ITEM_IDENTIFIER:
+                return topicMap.createTopicByItemIdentifier(topicMap.createLocator(_baseIRI + "#topic-" + idx));
+            case SUBJECT_LOCATOR:
+                return topicMap.createTopicBySubjectLocator(topicMap.createLocator(_baseIRI + "resource/" + idx));
+            default:
+                return topicMap.createTopic();
+        }
+    }
+
+    /**
+     * Returns a value from the pool or a unique value.
+     */
+    private String _value(final Random random, final String prefix, final int topicIdx, final int idx) {
+        if (_literalReuseRatio > 0 && random.nextDouble() < _literalReuseRatio) {
+            return prefix + "pool-" + random.nextInt(_literalPoolSize);
+        }
+        return prefix + topicIdx + "-" + idx;
+    }
+
+    /**
+     * Fills the array with randomly chosen, distinct themes.
+     *
+     * @return The provided array.
+     */
+    private static Topic[] _scope(final Random random, final Topic[] themes, final Topic[] scope) {
+        for (int i=0; i < scope.length; i++) {
+            Topic theme = null;
+            do {
+                theme = themes[random.nextInt(themes.length)];
+            } while (_contains(scope, i, theme));
+            scope[i] = theme;
+        }
+        return scope;
+    }
+
+    private static boolean _contains(final Topic[] topics, final int length, final Topic topic) {
+        for (int i=0; i < length; i++) {
+            if (topics[i] == topic) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.utils;
+
+import java.util.List;
+import java.util.Map;
+
+import org.tinytim.internal.api.IName;
+import org.tinytim.internal.utils.CollectionFactory;
+import org.tinytim.internal.utils.MergeUtils;
+import org.tinytim.internal.utils.NameKey;
+import org.tinytim.internal.utils.UnionFind;
+
+import org.tmapi.core.Name;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+
+/**
+ * This class provides functions to merge topics according to the 
+ * topic naming constraint (TNC).
+ * <p>
+ * Topics which have a name with the same type, value, and scope are merged.
+ * This is the merging rule of XTM 1.0 (which does not know name types) 
+ * and of the {@link Feature#TNC} feature.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public final class TopicNameMergeUtils {
+
+    private TopicNameMergeUtils() {
+        // noop.
+    }
+
+    /**
+     * Merges all topics of the provided topic map which have a name 
+     * with the same type, value, and scope.
+     * <p>
+     * Merging may change the types and scopes of names, the topic map
+     * is scanned until no further topics need to be merged.
+     * </p>
+     *
+     * @param topicMap The topic map to operate upon.
+     */
+    public static void mergeByTopicName(TopicMap topicMap) {
+        while (_mergeByTopicName(topicMap)) {
+            // noop.
+        }
+    }
+
+    /**
+     * Merges the topics with equal names.
+     *
+     * @param topicMap The topic map to operate upon.
+     * @return <tt>true</tt> if any topics were merged, otherwise <tt>false</tt>.
+     */
+    private static boolean _mergeByTopicName(TopicMap topicMap) {
+        final Map<NameKey, Topic> key2Topic = CollectionFactory.createMap();
+        final UnionFind<Topic> classes = new UnionFind<Topic>();
+        for (Topic topic: topicMap.getTopics()) {
+            for (Name name: topic.getNames()) {
+                final NameKey key = NameKey.create((IName) name);
+                final Topic existing = key2Topic.get(key);
+                if (existing == null) {
+                    key2Topic.put(key, topic);
+                }
+                else if (existing != topic) {
+                    classes.union(existing, topic);
+                }
+            }
+        }
+        if (classes.isEmpty()) {
+            return false;
+        }
+        for (List<Topic> members: classes.classes()) {
+            final Topic target = members.get(0);
+            for (int i=1; i<members.size(); i++) {
+                MergeUtils.merge(members.get(i), target);
+            }
+        }
+        return true;
+    }
+
+}
@@ -137,6 +137,14 @@ public final class TypeInstanceConverter {
         }
         Topic[] pair = new Topic[2];
         for (Role role: roles) {
+            if (role.getReifier() != null) {
+                _info(assoc, "A role is reified");
+                return null;
+            }
+            if (!role.getItemIdentifiers().isEmpty()) {
+                _info(assoc, "A role has item identifiers");
+                return null;
+            }
             if (type.equals(role.getType())) {
                 pair[0] = role.getPlayer();
             }
@@ -17,6 +17,7 @@ package org.tinytim.core;
 
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.Map;
 import java.util.Properties;
 
 import org.tinytim.internal.api.ITopicMap;
@@ -82,6 +83,17 @@ public abstract class AbstractTinyTimTestCase extends TestCase {
         return props;
     }
 
+    /**
+     * Returns features which should be enabled / disabled to configure
+     * the {@link org.tmapi.core.TopicMapSystemFactory}.
+     *
+     * @return A map of feature names and their values or <code>null</code> 
+     *          if the default features should be used.
+     */
+    protected Map<String, Boolean> getAdditionalFeatures() {
+        return null;
+    }
+
     /**
      * Creates a topic with a random item identifier.
      *
@@ -156,6 +168,12 @@ public abstract class AbstractTinyTimTestCase extends TestCase {
                 _sysFactory.setProperty(name, properties.getProperty(name));
             }
         }
+        Map<String, Boolean> features = getAdditionalFeatures();
+        if (features != null) {
+            for (Map.Entry<String, Boolean> feature: features.entrySet()) {
+                _sysFactory.setFeature(feature.getKey(), feature.getValue().booleanValue());
+            }
+        }
         _sys =  _sysFactory.newTopicMapSystem();
         _base = _sys.createLocator(_IRI);
         _tm = (ITopicMap) _sys.createTopicMap(_base);
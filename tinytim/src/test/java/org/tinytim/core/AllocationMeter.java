@@ -0,0 +1,118 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.core;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes which are allocated by the current thread.
+ * <p>
+ * The measurement relies on <tt>com.sun.management.ThreadMXBean</tt>; 
+ * {@link #isSupported()} returns <tt>false</tt> if the JVM does not provide
+ * it or if the allocation measurement is disabled.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+final class AllocationMeter {
+
+    /**
+     * An operation which is measured.
+     */
+    interface Operation {
+
+        /**
+         * Executes the operation.
+         *
+         * @return The result of the operation, the result is kept to avoid
+         *          that the JIT eliminates the operation.
+         */
+        Object run();
+    }
+
+    private static final com.sun.management.ThreadMXBean _BEAN = _createBean();
+
+    /**
+     * Keeps the last result of an operation.
+     */
+    static volatile Object sink;
+
+    private AllocationMeter() {
+        // noop.
+    }
+
+    private static com.sun.management.ThreadMXBean _createBean() {
+        try {
+            final Object bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+                if (threadBean.isThreadAllocatedMemorySupported()) {
+                    if (!threadBean.isThreadAllocatedMemoryEnabled()) {
+                        threadBean.setThreadAllocatedMemoryEnabled(true);
+                    }
+                    return threadBean;
+                }
+            }
+        }
+        catch (Throwable ex) {
+            // Not supported by this JVM
+        }
+        return null;
+    }
+
+    /**
+     * Returns if the allocated bytes can be measured.
+     *
+     * @return <tt>true</tt> if the measurement is supported, otherwise <tt>false</tt>.
+     */
+    static boolean isSupported() {
+        return _BEAN != null;
+    }
+
+    private static long _allocatedBytes() {
+        return _BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns the average number of bytes which are allocated by one 
+     * execution of the operation.
+     * <p>
+     * The operation is executed <tt>iterations</tt> times to let the JIT 
+     * compile it before it is measured.
+     * </p>
+     *
+     * @param op The operation to measure.
+     * @param iterations The number of executions.
+     * @return The allocated bytes per execution.
+     */
+    static double measure(final Operation op, final int iterations) {
+        for (int i=0; i < iterations; i++) {
+            sink = op.run();
+        }
+        // Calibrate the overhead of the measurement itself
+        final long before = _allocatedBytes();
+        final long overhead = _allocatedBytes() - before;
+        final long start = _allocatedBytes();
+        for (int i=0; i < iterations; i++) {
+            sink = op.run();
+        }
+        final long allocated = _allocatedBytes() - start - overhead;
+        sink = null;
+        return Math.max(0, allocated) / (double) iterations;
+    }
+
+}
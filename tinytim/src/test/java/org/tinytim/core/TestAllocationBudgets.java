@@ -0,0 +1,219 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.core;
+
+import org.tinytim.core.value.Literal;
+import org.tinytim.voc.XSD;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Locator;
+import org.tmapi.core.Name;
+import org.tmapi.core.Topic;
+import org.tmapi.index.TypeInstanceIndex;
+
+/**
+ * Ensures that frequently used operations do not allocate more memory than
+ * expected.
+ * <p>
+ * Each operation has a budget of bytes per call. A budget of <tt>0</tt>
+ * means that the operation must not allocate any memory; budgets greater 
+ * than <tt>0</tt> document known allocations (unmodifiable views, copies,
+ * lookup keys) which should not grow. The budgets are about twice the 
+ * values measured on a 64-bit JVM with compressed references to tolerate 
+ * JVMs with larger object headers. If an operation gets cheaper, its 
+ * budget should be lowered.
+ * </p>
+ * <p>
+ * The tests are skipped if the JVM does not support the measurement of 
+ * allocated bytes. Set the system property 
+ * <tt>org.tinytim.allocations.report</tt> to <tt>true</tt> to print the 
+ * measured values.
+ * </p>
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestAllocationBudgets extends AbstractTinyTimTestCase {
+
+    private static final int _ITERATIONS = 20000;
+    private static final boolean _REPORT = Boolean.getBoolean("org.tinytim.allocations.report");
+
+    private Topic _topic;
+    private Topic _type;
+    private Name _name;
+    private Locator _sid;
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.AbstractTinyTimTestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _sid = createLocator("http://www.example.org/topic");
+        _topic = _tm.createTopicBySubjectIdentifier(_sid);
+        _type = createTopic();
+        _topic.addType(_type);
+        _name = _topic.createName(_type, "Name", createTopic());
+        _topic.createName("Name 2");
+        _topic.createOccurrence(_type, "Occurrence");
+        _topic.createOccurrence(createTopic(), "Occurrence 2");
+        final Association assoc = _tm.createAssociation(_type);
+        assoc.createRole(_type, _topic);
+        assoc.createRole(createTopic(), createTopic());
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.AbstractTinyTimTestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        _topic = null;
+        _type = null;
+        _name = null;
+        _sid = null;
+    }
+
+    /**
+     * Fails if the operation allocates more than <tt>budget</tt> bytes per call.
+     *
+     * @param name The name of the operation.
+     * @param budget The maximum number of bytes per call.
+     * @param op The operation.
+     */
+    private static void _assertBudget(String name, int budget, AllocationMeter.Operation op) {
+        if (!AllocationMeter.isSupported()) {
+            return;
+        }
+        final double allocated = AllocationMeter.measure(op, _ITERATIONS);
+        if (_REPORT) {
+            System.out.println(name + ": " + allocated + " bytes/call (budget: " + budget + ")");
+        }
+        // Allow a fraction of a byte for allocations of the JVM (i.e. by the JIT)
+        if (allocated >= budget + 1) {
+            fail(name + " allocates " + allocated + " bytes per call, budget: " + budget);
+        }
+    }
+
+    public void testTopicMapLookups() {
+        _assertBudget("TopicMap.getTopicBySubjectIdentifier", 0, new AllocationMeter.Operation() {
+            public Object run() {
+                return _tm.getTopicBySubjectIdentifier(_sid);
+            }
+        });
+        _assertBudget("TopicMap.getConstructById", 0, new AllocationMeter.Operation() {
+            final String _id = _topic.getId();
+            public Object run() {
+                return _tm.getConstructById(_id);
+            }
+        });
+        _assertBudget("TopicMap.createLocator (known IRI)", 800, new AllocationMeter.Operation() {
+            public Object run() {
+                return _tm.createLocator("http://www.example.org/topic");
+            }
+        });
+    }
+
+    public void testTopicGetters() {
+        _assertBudget("Topic.getNames()", 32, new AllocationMeter.Operation() {
+            public Object run() {
+                return _topic.getNames();
+            }
+        });
+        _assertBudget("Topic.getOccurrences()", 32, new AllocationMeter.Operation() {
+            public Object run() {
+                return _topic.getOccurrences();
+            }
+        });
+        _assertBudget("Topic.getRolesPlayed()", 32, new AllocationMeter.Operation() {
+            public Object run() {
+                return _topic.getRolesPlayed();
+            }
+        });
+        _assertBudget("Topic.getTypes()", 32, new AllocationMeter.Operation() {
+            public Object run() {
+                return _topic.getTypes();
+            }
+        });
+        _assertBudget("Topic.getSubjectIdentifiers()", 32, new AllocationMeter.Operation() {
+            public Object run() {
+                return _topic.getSubjectIdentifiers();
+            }
+        });
+        _assertBudget("Name.getScope()", 0, new AllocationMeter.Operation() {
+            public Object run() {
+                return _name.getScope();
+            }
+        });
+    }
+
+    public void testTopicGettersByType() {
+        _assertBudget("Topic.getNames(type)", 192, new AllocationMeter.Operation() {
+            public Object run() {
+                return _topic.getNames(_type);
+            }
+        });
+        _assertBudget("Topic.getOccurrences(type)", 192, new AllocationMeter.Operation() {
+            public Object run() {
+                return _topic.getOccurrences(_type);
+            }
+        });
+        _assertBudget("Topic.getRolesPlayed(type)", 288, new AllocationMeter.Operation() {
+            public Object run() {
+                return _topic.getRolesPlayed(_type);
+            }
+        });
+    }
+
+    public void testLiterals() {
+        _assertBudget("Literal.get (known value)", 48, new AllocationMeter.Operation() {
+            public Object run() {
+                return Literal.get("Name");
+            }
+        });
+        _assertBudget("Literal.create (known value)", 48, new AllocationMeter.Operation() {
+            public Object run() {
+                return Literal.create("Name");
+            }
+        });
+        _assertBudget("Literal.create (known integer)", 176, new AllocationMeter.Operation() {
+            public Object run() {
+                return Literal.create("1", XSD.INTEGER);
+            }
+        });
+    }
+
+    public void testTypeInstanceIndex() {
+        final TypeInstanceIndex idx = _tm.getIndex(TypeInstanceIndex.class);
+        idx.open();
+        _assertBudget("TypeInstanceIndex.getTopics(type)", 144, new AllocationMeter.Operation() {
+            public Object run() {
+                return idx.getTopics(_type);
+            }
+        });
+        _assertBudget("TypeInstanceIndex.getAssociations(type)", 96, new AllocationMeter.Operation() {
+            public Object run() {
+                return idx.getAssociations(_type);
+            }
+        });
+        _assertBudget("TypeInstanceIndex.getTopicTypes()", 176, new AllocationMeter.Operation() {
+            public Object run() {
+                return idx.getTopicTypes();
+            }
+        });
+    }
+
+}
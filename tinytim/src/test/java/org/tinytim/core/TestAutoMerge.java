@@ -0,0 +1,143 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.core;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.tinytim.utils.Feature;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.IdentityConstraintException;
+import org.tmapi.core.Locator;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Topic;
+
+/**
+ * Tests if the {@link Feature#AUTOMERGE} feature merges topics if an
+ * identity constraint is violated.
+ *
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestAutoMerge extends AbstractTinyTimTestCase {
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.AbstractTinyTimTestCase#getAdditionalFeatures()
+     */
+    @Override
+    protected Map<String, Boolean> getAdditionalFeatures() {
+        return Collections.singletonMap(Feature.AUTOMERGE, Boolean.TRUE);
+    }
+
+    public void testFeatureEnabled() throws Exception {
+        assertTrue(_sys.getFeature(Feature.AUTOMERGE));
+    }
+
+    public void testSubjectIdentifier() {
+        final Locator sid = createLocator("http://www.example.org/");
+        final Topic topic1 = createTopic();
+        final Topic topic2 = createTopic();
+        topic1.addSubjectIdentifier(sid);
+        assertEquals(2, _tm.getTopics().size());
+        topic2.addSubjectIdentifier(sid);
+        assertEquals(1, _tm.getTopics().size());
+        assertTrue(_tm.getTopics().contains(topic2));
+        assertEquals(topic2, _tm.getTopicBySubjectIdentifier(sid));
+        assertEquals(1, topic2.getSubjectIdentifiers().size());
+        assertEquals(2, topic2.getItemIdentifiers().size());
+    }
+
+    public void testSubjectIdentifierItemIdentifier() {
+        final Locator loc = createLocator("http://www.example.org/");
+        final Topic topic1 = createTopic();
+        final Topic topic2 = createTopic();
+        topic1.addItemIdentifier(loc);
+        topic2.addSubjectIdentifier(loc);
+        assertEquals(1, _tm.getTopics().size());
+        assertEquals(topic2, _tm.getTopicBySubjectIdentifier(loc));
+        assertEquals(topic2, _tm.getConstructByItemIdentifier(loc));
+    }
+
+    public void testItemIdentifier() {
+        final Locator iid = createLocator("http://www.example.org/");
+        final Topic topic1 = createTopic();
+        final Topic topic2 = createTopic();
+        topic1.addItemIdentifier(iid);
+        topic2.addItemIdentifier(iid);
+        assertEquals(1, _tm.getTopics().size());
+        assertEquals(topic2, _tm.getConstructByItemIdentifier(iid));
+        assertTrue(topic2.getItemIdentifiers().contains(iid));
+    }
+
+    public void testItemIdentifierSubjectIdentifier() {
+        final Locator loc = createLocator("http://www.example.org/");
+        final Topic topic1 = createTopic();
+        final Topic topic2 = createTopic();
+        topic1.addSubjectIdentifier(loc);
+        topic2.addItemIdentifier(loc);
+        assertEquals(1, _tm.getTopics().size());
+        assertEquals(topic2, _tm.getTopicBySubjectIdentifier(loc));
+        assertEquals(topic2, _tm.getConstructByItemIdentifier(loc));
+    }
+
+    public void testItemIdentifierNonTopic() {
+        final Locator iid = createLocator("http://www.example.org/");
+        final Association assoc = createAssociation();
+        final Topic topic = createTopic();
+        assoc.addItemIdentifier(iid);
+        try {
+            topic.addItemIdentifier(iid);
+            fail("Topics and associations cannot be merged");
+        }
+        catch (IdentityConstraintException ex) {
+            // noop.
+        }
+    }
+
+    public void testSubjectLocator() {
+        final Locator slo = createLocator("http://www.example.org/");
+        final Topic topic1 = createTopic();
+        final Topic topic2 = createTopic();
+        topic1.addSubjectLocator(slo);
+        topic2.addSubjectLocator(slo);
+        assertEquals(1, _tm.getTopics().size());
+        assertEquals(topic2, _tm.getTopicBySubjectLocator(slo));
+    }
+
+    public void testTopicUsagesAreReplaced() {
+        final Locator sid = createLocator("http://www.example.org/");
+        final Topic topic1 = createTopic();
+        final Topic topic2 = createTopic();
+        final Topic theme = createTopic();
+        final Association assoc = _tm.createAssociation(topic1, topic1, theme);
+        final Occurrence occ = theme.createOccurrence(topic1, "value", topic1);
+        final Topic instance = createTopic();
+        instance.addType(topic1);
+        topic1.addSubjectIdentifier(sid);
+        topic2.addSubjectIdentifier(sid);
+        assertEquals(topic2, assoc.getType());
+        assertEquals(2, assoc.getScope().size());
+        assertTrue(assoc.getScope().contains(topic2));
+        assertTrue(assoc.getScope().contains(theme));
+        assertEquals(topic2, occ.getType());
+        assertEquals(1, occ.getScope().size());
+        assertTrue(occ.getScope().contains(topic2));
+        assertEquals(1, instance.getTypes().size());
+        assertTrue(instance.getTypes().contains(topic2));
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.core;
+
+import org.tinytim.utils.TopicMapGenerator;
+
+import org.tmapi.core.Locator;
+import org.tmapi.core.Name;
+import org.tmapi.core.Topic;
+import org.tmapi.index.ScopedIndex;
+import org.tmapi.index.TypeInstanceIndex;
+
+/**
+ * Tests against {@link org.tinytim.internal.api.ITopicMap#compact()}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestCompaction extends AbstractTinyTimTestCase {
+
+    public void testCompact() {
+        final TopicMapGenerator gen = new TopicMapGenerator();
+        gen.setTopicCount(200);
+        gen.setNamesPerTopic(3);
+        gen.setOccurrencesPerTopic(2);
+        gen.setAssociationsPerTopic(1);
+        gen.setScopeCardinality(1);
+        gen.generate(_tm);
+        for (Topic topic: _tm.getTopics()) {
+            for (int i=0; i < 10; i++) {
+                topic.addItemIdentifier(createLocator(_IRI + "iid-" + topic.getId() + "-" + i));
+            }
+            for (int i=0; i < 10; i++) {
+                topic.removeItemIdentifier(createLocator(_IRI + "iid-" + topic.getId() + "-" + i));
+            }
+        }
+        final MemoryFootprint before = MemoryFootprint.create(_tm);
+        _tm.compact();
+        final MemoryFootprint after = MemoryFootprint.create(_tm);
+        assertEquals(before.getTopicCount(), after.getTopicCount());
+        assertEquals(before.getNameCount(), after.getNameCount());
+        assertEquals(before.getOccurrenceCount(), after.getOccurrenceCount());
+        assertEquals(before.getRoleCount(), after.getRoleCount());
+        assertTrue(after.getEstimatedBytes() < before.getEstimatedBytes());
+        for (MemoryFootprint.Statistics stats: after.getCollectionStatistics().values()) {
+            assertTrue(stats.getCapacity() <= (int) (stats.getSize() / 0.75) + stats.getCount());
+        }
+        for (MemoryFootprint.Statistics stats: after.getPostingStatistics().values()) {
+            assertTrue(stats.getCapacity() <= (int) (stats.getSize() / 0.75) + stats.getCount());
+        }
+    }
+
+    public void testEmptyCollectionsReleased() {
+        _tm.createTopicBySubjectIdentifier(createLocator("http://www.example.org/other"));
+        final Locator sid = createLocator("http://www.example.org/topic");
+        final Topic topic = _tm.createTopicBySubjectIdentifier(sid);
+        final int count = MemoryFootprint.create(_tm).getCollectionStatistics().get("topic.subject-identifiers").getCount();
+        topic.removeSubjectIdentifier(sid);
+        _tm.compact();
+        assertEquals(count - 1, MemoryFootprint.create(_tm).getCollectionStatistics().get("topic.subject-identifiers").getCount());
+        assertTrue(topic.getSubjectIdentifiers().isEmpty());
+        topic.addSubjectIdentifier(sid);
+        assertEquals(1, topic.getSubjectIdentifiers().size());
+        assertSame(topic, _tm.getTopicBySubjectIdentifier(sid));
+    }
+
+    public void testEmptyPostingsRemoved() {
+        final Topic type = createTopic();
+        final Topic topic = createTopic();
+        topic.addType(type);
+        final Name name = topic.createName("Name");
+        name.remove();
+        topic.removeType(type);
+        _tm.compact();
+        assertEquals(0, MemoryFootprint.create(_tm).getPostingStatistics().get("scoped.names").getCount());
+        final ScopedIndex scopedIdx = _tm.getIndex(ScopedIndex.class);
+        assertTrue(scopedIdx.getNames(null).isEmpty());
+        topic.createName("Name");
+        assertEquals(1, scopedIdx.getNames(null).size());
+    }
+
+    public void testModifiableAfterCompact() {
+        final Topic type = createTopic();
+        final Topic topic = createTopic();
+        topic.addType(type);
+        topic.createName("Name");
+        _tm.compact();
+        final Topic type2 = createTopic();
+        topic.addType(type2);
+        topic.createName("Name 2");
+        topic.createOccurrence(type, "Occurrence");
+        assertEquals(2, topic.getTypes().size());
+        assertEquals(2, topic.getNames().size());
+        assertEquals(1, topic.getOccurrences().size());
+        final TypeInstanceIndex typeInstanceIdx = _tm.getIndex(TypeInstanceIndex.class);
+        assertTrue(typeInstanceIdx.getTopics(type2).contains(topic));
+        assertEquals(1, typeInstanceIdx.getOccurrences(type).size());
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.core;
+
+import java.util.Map;
+
+import org.tinytim.utils.TopicMapGenerator;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Name;
+import org.tmapi.core.Topic;
+
+/**
+ * Tests against the {@link MemoryFootprint}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestMemoryFootprint extends AbstractTinyTimTestCase {
+
+    public void testEmpty() {
+        final MemoryFootprint footprint = MemoryFootprint.create(_tm);
+        assertEquals(0, footprint.getTopicCount());
+        assertEquals(0, footprint.getAssociationCount());
+        assertEquals(0, footprint.getDistinctLiteralCount());
+        assertEquals(0, footprint.getDistinctScopeCount());
+        assertEquals(0, footprint.getCollectionStatistics().get("topic-map.topics").getSize());
+        assertEquals(0, footprint.getIdentityMapSizes().get("identity.subject-identifiers").intValue());
+    }
+
+    public void testConstructs() {
+        final Topic topic = _tm.createTopicBySubjectIdentifier(createLocator("http://www.example.org/topic"));
+        final Topic theme = createTopic();
+        final Name name = topic.createName("Name", theme);
+        name.createVariant("Variant", createTopic());
+        topic.createOccurrence(createTopic(), "Name");
+        final Association assoc = _tm.createAssociation(createTopic());
+        assoc.createRole(createTopic(), topic);
+        assoc.createRole(createTopic(), theme);
+        assoc.addItemIdentifier(createLocator("http://www.example.org/assoc"));
+        final MemoryFootprint footprint = MemoryFootprint.create(_tm);
+        // Includes the default name type
+        assertEquals(8, footprint.getTopicCount());
+        assertEquals(1, footprint.getAssociationCount());
+        assertEquals(2, footprint.getRoleCount());
+        assertEquals(1, footprint.getNameCount());
+        assertEquals(1, footprint.getVariantCount());
+        assertEquals(1, footprint.getOccurrenceCount());
+        // The name and the occurrence share the literal
+        assertEquals(2, footprint.getDistinctLiteralCount());
+        // 6 item identifiers of the topics created by createTopic(), the
+        // item identifier of the association and the subject identifiers 
+        // of the topic and the default name type
+        assertEquals(9, footprint.getDistinctLocatorCount());
+        // {theme}, {theme, variant-theme}, UCS
+        assertEquals(3, footprint.getDistinctScopeCount());
+        assertTrue(footprint.getInternedLiteralCount() >= 2);
+        assertTrue(footprint.getInternedScopeCount() >= 2);
+        final MemoryFootprint.Statistics names = footprint.getCollectionStatistics().get("topic.names");
+        assertEquals(1, names.getCount());
+        assertEquals(1, names.getSize());
+        assertTrue(names.getCapacity() >= names.getSize());
+        assertEquals(names.getCapacity() - names.getSize(), names.getUnusedCapacity());
+        assertTrue(names.getEstimatedBytes() > 0);
+        assertEquals(1, footprint.getCollectionStatistics().get("name.variants").getCount());
+        assertEquals(2, footprint.getCollectionStatistics().get("association.roles").getSize());
+        assertEquals(2, footprint.getIdentityMapSizes().get("identity.subject-identifiers").intValue());
+        assertEquals(7, footprint.getIdentityMapSizes().get("identity.item-identifiers").intValue());
+        assertTrue(footprint.getEstimatedBytes() > 0);
+    }
+
+    public void testPostings() {
+        final TopicMapGenerator gen = new TopicMapGenerator();
+        gen.setTopicCount(100);
+        gen.setTopicTypeCount(5);
+        gen.setNamesPerTopic(2);
+        gen.generate(_tm);
+        final MemoryFootprint footprint = MemoryFootprint.create(_tm);
+        final Map<String, MemoryFootprint.Statistics> postings = footprint.getPostingStatistics();
+        // 5 topic types and the untyped topics
+        assertEquals(6, postings.get("type-instance.topics").getCount());
+        assertEquals(footprint.getTopicCount(), postings.get("type-instance.topics").getSize());
+        assertEquals(1, postings.get("type-instance.names").getCount());
+        assertEquals(200, postings.get("type-instance.names").getSize());
+        assertEquals(200, postings.get("literal.names").getSize());
+        assertEquals(100, footprint.getAssociationCount());
+        assertEquals(200, footprint.getRoleCount());
+        assertEquals(200, footprint.getNameCount());
+    }
+
+    public void testToString() {
+        createTopic().createName("Name");
+        final String report = MemoryFootprint.create(_tm).toString();
+        assertTrue(report.indexOf("names: 1") > -1);
+        assertTrue(report.indexOf("topic.names: count=1, size=1") > -1);
+        assertTrue(report.indexOf("identity.ids") > -1);
+    }
+
+}
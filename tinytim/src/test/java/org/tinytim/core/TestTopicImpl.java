@@ -0,0 +1,59 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.core;
+
+import org.tinytim.internal.api.Event;
+import org.tinytim.internal.api.IConstruct;
+import org.tinytim.internal.api.IEventHandler;
+
+import org.tmapi.core.Locator;
+import org.tmapi.core.Topic;
+
+/**
+ * Tests against {@link TopicImpl}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestTopicImpl extends AbstractTinyTimTestCase {
+
+    public void testDuplicateSubjectLocator() {
+        final Topic topic = createTopic();
+        final Locator slo = createLocator("http://www.example.org/slo");
+        final int[] count = new int[1];
+        _tm.subscribe(Event.ADD_SLO, new IEventHandler() {
+            public void handleEvent(Event evt, IConstruct sender, Object oldValue, Object newValue) {
+                count[0]++;
+            }
+        });
+        topic.addSubjectLocator(slo);
+        topic.addSubjectLocator(slo);
+        assertEquals(1, count[0]);
+        assertEquals(1, topic.getSubjectLocators().size());
+        assertSame(topic, _tm.getTopicBySubjectLocator(slo));
+    }
+
+    public void testSubjectLocatorEqualsSubjectIdentifier() {
+        final Topic topic = createTopic();
+        final Locator loc = createLocator("http://www.example.org/subject");
+        topic.addSubjectIdentifier(loc);
+        topic.addSubjectLocator(loc);
+        assertEquals(1, topic.getSubjectIdentifiers().size());
+        assertEquals(1, topic.getSubjectLocators().size());
+        assertSame(topic, _tm.getTopicBySubjectLocator(loc));
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.tinytim.utils.Property;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+
+/**
+ * Tests against the {@link TopicMapMonitor}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestTopicMapMonitor extends AbstractTinyTimTestCase {
+
+    private static final MBeanServer _SERVER = ManagementFactory.getPlatformMBeanServer();
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.AbstractTinyTimTestCase#getAdditionalProperties()
+     */
+    @Override
+    protected Properties getAdditionalProperties() {
+        final Properties props = super.getAdditionalProperties();
+        props.setProperty(Property.JMX, "true");
+        return props;
+    }
+
+    private TopicMapMonitor _monitor() {
+        final TopicMapMonitor monitor = TopicMapMonitor.getMonitor(_tm);
+        assertNotNull(monitor);
+        return monitor;
+    }
+
+    public void testRegistration() throws Exception {
+        final ObjectName name = _monitor().getObjectName();
+        assertTrue(_SERVER.isRegistered(name));
+        assertEquals(_tm.getLocator().getReference(), _SERVER.getAttribute(name, "Locator"));
+        _tm.remove();
+        assertFalse(_SERVER.isRegistered(name));
+    }
+
+    public void testCloseSystem() throws Exception {
+        final TopicMap tm = _sys.createTopicMap(_IRI + "2");
+        final ObjectName name = TopicMapMonitor.getMonitor(tm).getObjectName();
+        assertTrue(_SERVER.isRegistered(name));
+        _sys.close();
+        assertFalse(_SERVER.isRegistered(name));
+        assertFalse(_SERVER.isRegistered(_monitor().getObjectName()));
+    }
+
+    public void testNotMonitored() throws Exception {
+        final TopicMap tm = new TopicMapSystemFactoryImpl().newTopicMapSystem().createTopicMap(_IRI);
+        assertNull(TopicMapMonitor.getMonitor(tm));
+    }
+
+    public void testEventCounts() throws Exception {
+        final TopicMapMonitor monitor = _monitor();
+        final long mutations = monitor.getMutationCount();
+        final Topic topic = createTopic();
+        topic.createName("Name");
+        assertEquals(2, monitor.getTopicCount());
+        assertTrue(monitor.getMutationCount() > mutations);
+        final Map<String, Long> counts = monitor.getEventCounts();
+        assertEquals(Long.valueOf(2), counts.get("ADD_TOPIC"));
+        assertEquals(Long.valueOf(1), counts.get("ADD_NAME"));
+        assertFalse(counts.containsKey("REMOVE_TOPIC"));
+        final ObjectName name = monitor.getObjectName();
+        assertEquals(Long.valueOf(monitor.getMutationCount()), _SERVER.getAttribute(name, "MutationCount"));
+        assertNotNull(_SERVER.getAttribute(name, "EventCounts"));
+        monitor.resetCounters();
+        assertEquals(0, monitor.getMutationCount());
+        assertTrue(monitor.getEventCounts().isEmpty());
+    }
+
+    public void testTopicAndAssociationCounts() throws Exception {
+        final TopicMapMonitor monitor = _monitor();
+        final Topic topic = createTopic();
+        final Topic other = createTopic();
+        createAssociation().createRole(topic, other);
+        final Association assoc = createAssociation();
+        assertEquals(_tm.getTopics().size(), monitor.getTopicCount());
+        assertEquals(2, monitor.getAssociationCount());
+        topic.mergeIn(other);
+        assoc.remove();
+        assertEquals(_tm.getTopics().size(), monitor.getTopicCount());
+        assertEquals(1, monitor.getAssociationCount());
+        monitor.resetCounters();
+        assertEquals(_tm.getTopics().size(), monitor.getTopicCount());
+        ((MemoryTopicMap) _tm).clear();
+        assertEquals(0, monitor.getTopicCount());
+        assertEquals(0, monitor.getAssociationCount());
+        final ObjectName name = monitor.getObjectName();
+        assertEquals(Integer.valueOf(0), _SERVER.getAttribute(name, "TopicCount"));
+    }
+
+    public void testMergeCount() {
+        final TopicMapMonitor monitor = _monitor();
+        final Topic topic = createTopic();
+        topic.mergeIn(createTopic());
+        assertEquals(1, monitor.getMergeCount());
+        topic.mergeIn(topic);
+        assertEquals(1, monitor.getMergeCount());
+    }
+
+    public void testReplaceTopicIsNotCountedAsMerge() {
+        final TopicMapMonitor monitor = _monitor();
+        final Topic type = createTopic();
+        final Topic replacement = createTopic();
+        createTopic().addType(type);
+        _tm.replaceTopic(type, replacement);
+        assertEquals(0, monitor.getMergeCount());
+    }
+
+    public void testIndexPostingCounts() {
+        final Topic type = createTopic();
+        createTopic().addType(type);
+        createTopic().addType(type);
+        final Map<String, Long> counts = _monitor().getIndexPostingCounts();
+        assertEquals(Long.valueOf(3), counts.get("type-instance.topics"));
+        assertEquals(Long.valueOf(0), counts.get("type-instance.associations"));
+    }
+
+    public void testRegistrySizes() {
+        createTopic().createName("Name", createTopic());
+        final TopicMapMonitor monitor = _monitor();
+        assertTrue(monitor.getLiteralRegistrySize() > 0);
+        assertTrue(monitor.getLocatorRegistrySize() > 0);
+        assertTrue(monitor.getScopeRegistrySize() > 0);
+    }
+
+}
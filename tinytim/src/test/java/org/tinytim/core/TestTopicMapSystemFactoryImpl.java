@@ -35,6 +35,7 @@ public class TestTopicMapSystemFactoryImpl extends AbstractTinyTimTestCase {
     public void testDefaultFeatureValues() throws Exception {
         assertFalse(_sysFactory.getFeature(Feature.READ_ONLY));
         assertFalse(_sysFactory.getFeature(Feature.AUTOMERGE));
+        assertFalse(_sysFactory.getFeature(Feature.TNC));
     }
 
 
@@ -67,7 +68,7 @@ public class TestTopicMapSystemFactoryImpl extends AbstractTinyTimTestCase {
         _setFeatureToAcceptedValue(Feature.READ_ONLY, false);
         _setFeatureToUnacceptedValue(Feature.READ_ONLY, true);
         _setFeatureToAcceptedValue(Feature.AUTOMERGE, false);
-        _setFeatureToUnacceptedValue(Feature.AUTOMERGE, true);
+        _setFeatureToAcceptedValue(Feature.AUTOMERGE, true);
     }
 
     /**
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.core;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.tinytim.utils.Feature;
+import org.tinytim.utils.MergePlan;
+import org.tinytim.utils.MergePlanUtils;
+
+import org.tmapi.core.Locator;
+import org.tmapi.core.Name;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+
+/**
+ * Tests if the {@link Feature#TNC} feature merges topics with equal names.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestTopicNameMerging extends AbstractTinyTimTestCase {
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.AbstractTinyTimTestCase#getAdditionalFeatures()
+     */
+    @Override
+    protected Map<String, Boolean> getAdditionalFeatures() {
+        return Collections.singletonMap(Feature.TNC, Boolean.TRUE);
+    }
+
+    public void testFeatureEnabled() throws Exception {
+        assertTrue(_sys.getFeature(Feature.TNC));
+    }
+
+    public void testMergeOnCreation() {
+        Topic topic1 = createTopic();
+        Topic topic2 = createTopic();
+        topic1.createName("tinyTiM");
+        // topic1, topic2, and the default name type
+        assertEquals(3, _tm.getTopics().size());
+        Name name = topic2.createName("tinyTiM");
+        assertEquals(2, _tm.getTopics().size());
+        assertTrue(_tm.getTopics().contains(topic2));
+        assertEquals(topic2, name.getParent());
+        assertEquals(1, topic2.getNames().size());
+        assertEquals(2, topic2.getItemIdentifiers().size());
+    }
+
+    public void testNoMergeDifferentScope() {
+        Topic topic1 = createTopic();
+        Topic topic2 = createTopic();
+        Topic theme = createTopic();
+        topic1.createName("tinyTiM", theme);
+        topic2.createName("tinyTiM");
+        assertEquals(4, _tm.getTopics().size());
+    }
+
+    public void testMergeAfterModification() {
+        Topic topic1 = createTopic();
+        Topic topic2 = createTopic();
+        topic1.createName("tinyTiM");
+        Name name = topic2.createName("tinyTiM 2");
+        assertEquals(3, _tm.getTopics().size());
+        name.setValue("tinyTiM");
+        assertEquals(2, _tm.getTopics().size());
+        assertTrue(_tm.getTopics().contains(topic2));
+        assertFalse(_tm.getTopics().contains(topic1));
+        assertEquals(1, topic2.getNames().size());
+    }
+
+    public void testMergeAfterTypeModification() {
+        Topic topic1 = createTopic();
+        Topic topic2 = createTopic();
+        Topic type = createTopic();
+        topic1.createName(type, "tinyTiM");
+        Name name = topic2.createName("tinyTiM");
+        assertEquals(4, _tm.getTopics().size());
+        name.setType(type);
+        assertEquals(3, _tm.getTopics().size());
+        assertTrue(_tm.getTopics().contains(topic2));
+        assertFalse(_tm.getTopics().contains(topic1));
+    }
+
+    public void testMergeAfterScopeModification() {
+        Topic topic1 = createTopic();
+        Topic topic2 = createTopic();
+        Topic theme = createTopic();
+        topic1.createName("tinyTiM", theme);
+        Name name = topic2.createName("tinyTiM");
+        name.createVariant("tinyTiM variant", createTopic());
+        assertEquals(5, _tm.getTopics().size());
+        name.addTheme(theme);
+        assertEquals(4, _tm.getTopics().size());
+        assertTrue(_tm.getTopics().contains(topic2));
+        assertFalse(_tm.getTopics().contains(topic1));
+        Name merged = topic2.getNames().iterator().next();
+        assertEquals(1, topic2.getNames().size());
+        assertEquals(1, merged.getVariants().size());
+        assertTrue(merged.getVariants().iterator().next().getScope().contains(theme));
+    }
+
+    public void testMergeAfterThemeRemoval() {
+        Topic topic1 = createTopic();
+        Topic topic2 = createTopic();
+        Topic theme = createTopic();
+        topic1.createName("tinyTiM");
+        Name name = topic2.createName("tinyTiM", theme);
+        assertEquals(4, _tm.getTopics().size());
+        name.removeTheme(theme);
+        assertEquals(3, _tm.getTopics().size());
+        assertTrue(_tm.getTopics().contains(topic2));
+        assertFalse(_tm.getTopics().contains(topic1));
+    }
+
+    public void testMergeTopicsWithCollidingName() {
+        Topic topic1 = _tm.createTopicBySubjectIdentifier(createLocator("http://www.example.org/1"));
+        Topic topic2 = _tm.createTopicBySubjectIdentifier(createLocator("http://www.example.org/2"));
+        Topic topic3 = _tm.createTopicBySubjectIdentifier(createLocator("http://www.example.org/3"));
+        Topic topic4 = _tm.createTopicBySubjectIdentifier(createLocator("http://www.example.org/4"));
+        topic1.createName("tinyTiM", topic1);
+        topic3.createName("tinyTiM", topic2);
+        topic4.createName("tinyTiM");
+        // topic1 ... topic4 and the default name type
+        assertEquals(5, _tm.getTopics().size());
+        // The name of topic1 gets the scope {topic2} and collides with 
+        // the name of topic3. While topic1 is being merged, the name is 
+        // temporarily unscoped, but topic4 must not be merged.
+        topic2.mergeIn(topic1);
+        assertEquals(3, _tm.getTopics().size());
+        Topic merged = _tm.getTopicBySubjectIdentifier(createLocator("http://www.example.org/1"));
+        assertNotNull(merged);
+        assertSame(merged, _tm.getTopicBySubjectIdentifier(createLocator("http://www.example.org/2")));
+        assertSame(merged, _tm.getTopicBySubjectIdentifier(createLocator("http://www.example.org/3")));
+        assertSame(topic4, _tm.getTopicBySubjectIdentifier(createLocator("http://www.example.org/4")));
+        assertEquals(1, merged.getNames().size());
+        assertEquals(1, topic4.getNames().size());
+    }
+
+    public void testRemovedNameIsNotMerged() {
+        Topic topic1 = createTopic();
+        Topic topic2 = createTopic();
+        topic1.createName("tinyTiM").remove();
+        topic2.createName("tinyTiM");
+        assertEquals(3, _tm.getTopics().size());
+    }
+
+    public void testMergeIn() throws Exception {
+        Topic topic1 = createTopic();
+        topic1.createName("tinyTiM");
+        TopicMap tm = _sys.createTopicMap("http://www.example.org/map");
+        Topic topic2 = tm.createTopic();
+        topic2.createName("tinyTiM");
+        topic2.createName("tinyTiM 2");
+        Topic topic3 = tm.createTopic();
+        topic3.createName("tinyTiM 2");
+        _tm.mergeIn(tm);
+        assertEquals(2, _tm.getTopics().size());
+        Topic nameType = _tm.getTopicBySubjectIdentifier(createLocator("http://psi.topicmaps.org/iso13250/model/topic-name"));
+        for (Topic topic: _tm.getTopics()) {
+            if (topic != nameType) {
+                assertEquals(2, topic.getNames().size());
+            }
+        }
+    }
+
+    public void testApplyMergePlan() throws Exception {
+        Locator sid1 = createLocator("http://www.example.org/sid-1");
+        Locator sid2 = createLocator("http://www.example.org/sid-2");
+        _tm.createTopicBySubjectIdentifier(sid1).createName("tinyTiM");
+        _tm.createTopicBySubjectIdentifier(sid2).createName("tinyTiM 2");
+        TopicMap tm = _sys.createTopicMap("http://www.example.org/map");
+        Topic topic1 = tm.createTopicBySubjectIdentifier(sid1);
+        topic1.createName("tinyTiM 2");
+        topic1.createOccurrence(tm.createTopic(), "value 1");
+        Topic topic2 = tm.createTopicBySubjectIdentifier(sid2);
+        topic2.createName("tinyTiM");
+        topic2.createOccurrence(tm.createTopic(), "value 2");
+        MergePlan plan = MergePlanUtils.createMergePlan(tm, _tm);
+        plan.apply();
+        Topic topic = _tm.getTopicBySubjectIdentifier(sid1);
+        assertNotNull(topic);
+        assertSame(topic, _tm.getTopicBySubjectIdentifier(sid2));
+        assertEquals(2, topic.getNames().size());
+        assertEquals(2, topic.getOccurrences().size());
+    }
+
+}
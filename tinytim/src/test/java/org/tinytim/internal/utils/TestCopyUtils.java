@@ -0,0 +1,133 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.internal.utils;
+
+import org.tinytim.core.AbstractTinyTimTestCase;
+
+import org.tmapi.core.Locator;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+
+/**
+ * Tests against the {@link CopyUtils}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestCopyUtils extends AbstractTinyTimTestCase {
+
+    private TopicMap _createTopicMap() throws Exception {
+        return _sys.createTopicMap("http://www.example.org/source-map");
+    }
+
+    public void testCopyReferencedTopic() throws Exception {
+        final TopicMap source = _createTopicMap();
+        final Topic type = source.createTopic();
+        final Topic instance = source.createTopic();
+        instance.addType(type);
+        type.createOccurrence(type, "value", instance);
+        CopyUtils.copy(source, _tm);
+        assertEquals(2, _tm.getTopics().size());
+        final Topic copiedType = (Topic) _tm.getConstructByItemIdentifier(type.getItemIdentifiers().iterator().next());
+        final Topic copiedInstance = (Topic) _tm.getConstructByItemIdentifier(instance.getItemIdentifiers().iterator().next());
+        assertNotNull(copiedType);
+        assertNotNull(copiedInstance);
+        assertTrue(copiedInstance.getTypes().contains(copiedType));
+        assertEquals(copiedType, copiedType.getOccurrences().iterator().next().getType());
+    }
+
+    public void testMergeTargetTopicsOnce() throws Exception {
+        final Locator sid = createLocator("http://www.example.org/sid");
+        final Locator slo = createLocator("http://www.example.org/slo");
+        final Locator iid = createLocator("http://www.example.org/iid");
+        final Topic target1 = _tm.createTopicBySubjectIdentifier(sid);
+        final Topic target2 = _tm.createTopicBySubjectLocator(slo);
+        final Topic target3 = _tm.createTopicByItemIdentifier(iid);
+        assertEquals(3, _tm.getTopics().size());
+        final TopicMap source = _createTopicMap();
+        final Topic topic = source.createTopicBySubjectIdentifier(sid);
+        topic.addSubjectLocator(slo);
+        topic.addItemIdentifier(iid);
+        CopyUtils.copy(source, _tm);
+        assertEquals(1, _tm.getTopics().size());
+        final Topic merged = _tm.getTopics().iterator().next();
+        assertTrue(merged == target1 || merged == target2 || merged == target3);
+        assertEquals(merged, _tm.getTopicBySubjectIdentifier(sid));
+        assertEquals(merged, _tm.getTopicBySubjectLocator(slo));
+        assertEquals(merged, _tm.getConstructByItemIdentifier(iid));
+    }
+
+    public void testMergeSourceTopicsIntoSameTarget() throws Exception {
+        final Locator sid1 = createLocator("http://www.example.org/sid-1");
+        final Locator sid2 = createLocator("http://www.example.org/sid-2");
+        final Topic target = _tm.createTopicBySubjectIdentifier(sid1);
+        target.addSubjectIdentifier(sid2);
+        final TopicMap source = _createTopicMap();
+        source.createTopicBySubjectIdentifier(sid1).createName("Name 1");
+        source.createTopicBySubjectIdentifier(sid2).createName("Name 2");
+        CopyUtils.copy(source, _tm);
+        // target and the default name type
+        assertEquals(2, _tm.getTopics().size());
+        assertEquals(2, target.getNames().size());
+    }
+
+    public void testReifier() throws Exception {
+        final Topic reifier = createTopic();
+        _tm.setReifier(reifier);
+        final TopicMap source = _createTopicMap();
+        source.setReifier(source.createTopic());
+        CopyUtils.copy(source, _tm);
+        assertEquals(1, _tm.getTopics().size());
+        assertEquals(reifier, _tm.getReifier());
+        assertEquals(2, reifier.getItemIdentifiers().size());
+    }
+
+    public void testManyTopics() throws Exception {
+        final int size = 25000;
+        final TopicMap source = _createTopicMap();
+        for (int i=0; i<size; i++) {
+            Locator sid = createLocator("http://www.example.org/sid-" + i);
+            if (i % 2 == 0) {
+                _tm.createTopicBySubjectIdentifier(sid);
+            }
+            source.createTopicBySubjectIdentifier(sid);
+        }
+        CopyUtils.copy(source, _tm);
+        assertEquals(size, _tm.getTopics().size());
+    }
+
+    public void testMatcherThreadsAreShared() throws Exception {
+        final int size = 25000;
+        final TopicMap source = _createTopicMap();
+        for (int i=0; i<size; i++) {
+            Locator sid = createLocator("http://www.example.org/sid-" + i);
+            _tm.createTopicBySubjectIdentifier(sid);
+            source.createTopicBySubjectIdentifier(sid);
+        }
+        for (int i=0; i<3; i++) {
+            assertEquals(2 * size, CopyUtils.findMergePairs(source, _tm).size());
+        }
+        int matchers = 0;
+        for (Thread thread: Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("tinyTiM-worker-")) {
+                assertTrue(thread.isDaemon());
+                matchers++;
+            }
+        }
+        assertTrue(matchers <= Runtime.getRuntime().availableProcessors());
+    }
+
+}
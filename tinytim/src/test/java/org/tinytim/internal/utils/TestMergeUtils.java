@@ -0,0 +1,96 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.internal.utils;
+
+import org.tinytim.core.AbstractTinyTimTestCase;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Name;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Role;
+import org.tmapi.core.Topic;
+import org.tmapi.core.Variant;
+import org.tmapi.index.ScopedIndex;
+import org.tmapi.index.TypeInstanceIndex;
+
+/**
+ * Tests if merging topics replaces the topic usages and keeps the 
+ * indexes up to date.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestMergeUtils extends AbstractTinyTimTestCase {
+
+    public void testReplaceType() {
+        final Topic source = createTopic();
+        final Topic target = createTopic();
+        final Topic topic = createTopic();
+        final Association assoc = _tm.createAssociation(source);
+        final Role role = assoc.createRole(source, topic);
+        final Occurrence occ = topic.createOccurrence(source, "value");
+        final Name name = topic.createName(source, "name");
+        MergeUtils.merge(source, target);
+        assertEquals(target, assoc.getType());
+        assertEquals(target, role.getType());
+        assertEquals(target, occ.getType());
+        assertEquals(target, name.getType());
+        final TypeInstanceIndex idx = _tm.getIndex(TypeInstanceIndex.class);
+        assertTrue(idx.getAssociations(source).isEmpty());
+        assertTrue(idx.getRoles(source).isEmpty());
+        assertTrue(idx.getOccurrences(source).isEmpty());
+        assertTrue(idx.getNames(source).isEmpty());
+        assertTrue(idx.getAssociations(target).contains(assoc));
+        assertTrue(idx.getRoles(target).contains(role));
+        assertTrue(idx.getOccurrences(target).contains(occ));
+        assertTrue(idx.getNames(target).contains(name));
+        assertFalse(idx.getAssociationTypes().contains(source));
+    }
+
+    public void testReplaceTheme() {
+        final Topic source = createTopic();
+        final Topic target = createTopic();
+        final Topic theme = createTopic();
+        final Topic topic = createTopic();
+        final Association assoc1 = _tm.createAssociation(topic, source, theme);
+        final Association assoc2 = _tm.createAssociation(topic, source);
+        final Association assoc3 = _tm.createAssociation(topic, target);
+        final Occurrence occ = topic.createOccurrence(topic, "value", source, theme);
+        final Name name = topic.createName("name", source);
+        final Variant variant = name.createVariant("variant", theme);
+        MergeUtils.merge(source, target);
+        assertEquals(2, assoc1.getScope().size());
+        assertTrue(assoc1.getScope().contains(target));
+        assertTrue(assoc1.getScope().contains(theme));
+        assertEquals(1, assoc2.getScope().size());
+        assertTrue(assoc2.getScope().contains(target));
+        assertEquals(assoc2.getScope(), assoc3.getScope());
+        assertEquals(2, occ.getScope().size());
+        assertTrue(occ.getScope().contains(target));
+        assertTrue(name.getScope().contains(target));
+        assertTrue(variant.getScope().contains(target));
+        assertFalse(variant.getScope().contains(source));
+        final ScopedIndex idx = _tm.getIndex(ScopedIndex.class);
+        assertTrue(idx.getAssociations(source).isEmpty());
+        assertTrue(idx.getOccurrences(source).isEmpty());
+        assertTrue(idx.getNames(source).isEmpty());
+        assertEquals(3, idx.getAssociations(target).size());
+        assertTrue(idx.getOccurrences(target).contains(occ));
+        assertTrue(idx.getNames(target).contains(name));
+        assertFalse(idx.getAssociationThemes().contains(source));
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.internal.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests against the {@link ParallelArrays}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestParallelArrays extends TestCase {
+
+    private static final Comparator<int[]> _KEY_COMPARATOR = new Comparator<int[]>() {
+        public int compare(int[] o1, int[] o2) {
+            return o1[0] - o2[0];
+        }
+    };
+
+    private ExecutorService _executor;
+
+    /* (non-Javadoc)
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _executor = Executors.newFixedThreadPool(3);
+    }
+
+    /* (non-Javadoc)
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        _executor.shutdown();
+    }
+
+    /**
+     * Creates an array of <tt>[key, position]</tt> pairs with many equal keys.
+     */
+    private static int[][] _createArray(int length) {
+        final Random random = new Random(length);
+        final int[][] a = new int[length][];
+        for (int i=0; i < length; i++) {
+            a[i] = new int[] {random.nextInt(50), i};
+        }
+        return a;
+    }
+
+    private void _testSort(int parallelism, int length) {
+        final int[][] expected = _createArray(length);
+        final int[][] actual = expected.clone();
+        Arrays.sort(expected, _KEY_COMPARATOR);
+        ParallelArrays.sort(_executor, parallelism, actual, _KEY_COMPARATOR);
+        for (int i=0; i < length; i++) {
+            assertSame("Unexpected element at position " + i, expected[i], actual[i]);
+        }
+    }
+
+    public void testSortIsStable() {
+        _testSort(3, 10001);
+        _testSort(2, 10000);
+        _testSort(3, 7);
+    }
+
+    public void testSortSequential() {
+        _testSort(1, 1000);
+        _testSort(3, 0);
+    }
+
+    public void testExecute() {
+        final int[] a = new int[10001];
+        ParallelArrays.execute(_executor, 3, a.length, new ParallelArrays.RangeTask() {
+            public void run(int from, int to) {
+                for (int i=from; i < to; i++) {
+                    a[i]++;
+                }
+            }
+        });
+        for (int i=0; i < a.length; i++) {
+            assertEquals(1, a[i]);
+        }
+    }
+
+    public void testExecuteRethrowsException() {
+        try {
+            ParallelArrays.execute(_executor, 3, 100, new ParallelArrays.RangeTask() {
+                public void run(int from, int to) {
+                    throw new IllegalStateException();
+                }
+            });
+            fail("Expected an IllegalStateException");
+        }
+        catch (IllegalStateException ex) {
+            // noop.
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.internal.utils;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests against the {@link SmallIdentitySet}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestSmallIdentitySet extends TestCase {
+
+    private static List<Object> _createElements(int count) {
+        final List<Object> elements = CollectionFactory.createList(count);
+        for (int i=0; i < count; i++) {
+            elements.add(new Object());
+        }
+        return elements;
+    }
+
+    /**
+     * Adds, removes and iterates <tt>count</tt> elements.
+     */
+    private void _testElements(int count) {
+        final SmallIdentitySet<Object> set = new SmallIdentitySet<Object>();
+        final List<Object> elements = _createElements(count);
+        for (Object element: elements) {
+            assertTrue(set.add(element));
+            assertFalse(set.add(element));
+        }
+        assertEquals(count, set.size());
+        assertEquals(count == 0, set.isEmpty());
+        for (Object element: elements) {
+            assertTrue(set.contains(element));
+        }
+        assertFalse(set.contains(new Object()));
+        final Set<Object> seen = CollectionFactory.createIdentitySet();
+        for (Object element: set) {
+            assertTrue(seen.add(element));
+        }
+        assertEquals(count, seen.size());
+        for (int i=0; i < count; i += 2) {
+            assertTrue(set.remove(elements.get(i)));
+            assertFalse(set.remove(elements.get(i)));
+        }
+        for (int i=0; i < count; i++) {
+            assertEquals(i % 2 != 0, set.contains(elements.get(i)));
+        }
+        assertEquals(count / 2, set.size());
+    }
+
+    public void testElements() {
+        for (int i=0; i < SmallIdentitySet.ARRAY_SIZE * 3; i++) {
+            _testElements(i);
+        }
+    }
+
+    public void testIdentity() {
+        final Set<String> set = new SmallIdentitySet<String>();
+        final String a = new String("a");
+        final String b = new String("a");
+        assertTrue(set.add(a));
+        assertTrue(set.add(b));
+        assertEquals(2, set.size());
+        assertTrue(set.remove(b));
+        assertTrue(set.contains(a));
+        assertFalse(set.contains(b));
+    }
+
+    public void testNull() {
+        final Set<Object> set = new SmallIdentitySet<Object>();
+        assertFalse(set.contains(null));
+        assertTrue(set.add(null));
+        assertTrue(set.contains(null));
+        assertFalse(set.add(null));
+        assertTrue(set.remove(null));
+        assertTrue(set.isEmpty());
+    }
+
+    public void testIteratorRemove() {
+        for (int count=0; count < SmallIdentitySet.ARRAY_SIZE * 3; count++) {
+            final SmallIdentitySet<Object> set = new SmallIdentitySet<Object>();
+            set.addAll(_createElements(count));
+            int removed = 0;
+            for (Iterator<Object> iter = set.iterator(); iter.hasNext();) {
+                final Object element = iter.next();
+                if (removed % 2 == 0) {
+                    iter.remove();
+                    assertFalse(set.contains(element));
+                }
+                removed++;
+            }
+            assertEquals(count, removed);
+            assertEquals(count / 2, set.size());
+        }
+    }
+
+    public void testIteratorIllegalRemove() {
+        final Set<Object> set = new SmallIdentitySet<Object>();
+        set.add(new Object());
+        final Iterator<Object> iter = set.iterator();
+        try {
+            iter.remove();
+            fail("Expected an IllegalStateException");
+        }
+        catch (IllegalStateException ex) {
+            // noop.
+        }
+        iter.next();
+        iter.remove();
+        try {
+            iter.remove();
+            fail("Expected an IllegalStateException");
+        }
+        catch (IllegalStateException ex) {
+            // noop.
+        }
+    }
+
+    public void testConcurrentModification() {
+        final Set<Object> set = new SmallIdentitySet<Object>();
+        set.add(new Object());
+        set.add(new Object());
+        final Iterator<Object> iter = set.iterator();
+        iter.next();
+        set.add(new Object());
+        try {
+            iter.next();
+            fail("Expected a ConcurrentModificationException");
+        }
+        catch (ConcurrentModificationException ex) {
+            // noop.
+        }
+    }
+
+    public void testRepresentation() {
+        final SmallIdentitySet<Object> set = new SmallIdentitySet<Object>();
+        final List<Object> elements = _createElements(SmallIdentitySet.ARRAY_SIZE + 1);
+        assertTrue(set.isInline());
+        for (int i=0; i < SmallIdentitySet.INLINE_SIZE; i++) {
+            set.add(elements.get(i));
+            assertTrue(set.isInline());
+            assertEquals(SmallIdentitySet.INLINE_SIZE, set.capacity());
+        }
+        set.add(elements.get(SmallIdentitySet.INLINE_SIZE));
+        assertFalse(set.isInline());
+        for (int i=SmallIdentitySet.INLINE_SIZE; i < SmallIdentitySet.ARRAY_SIZE; i++) {
+            set.add(elements.get(i));
+        }
+        assertEquals(SmallIdentitySet.ARRAY_SIZE, set.capacity());
+        set.add(elements.get(SmallIdentitySet.ARRAY_SIZE));
+        assertTrue(set.capacity() > SmallIdentitySet.ARRAY_SIZE);
+        assertEquals(elements.size(), set.size());
+    }
+
+    public void testTrimToSize() {
+        final SmallIdentitySet<Object> set = new SmallIdentitySet<Object>();
+        final List<Object> elements = _createElements(SmallIdentitySet.ARRAY_SIZE * 2);
+        set.addAll(elements);
+        for (int i=SmallIdentitySet.ARRAY_SIZE; i < elements.size(); i++) {
+            set.remove(elements.get(i));
+        }
+        set.trimToSize();
+        assertEquals(SmallIdentitySet.ARRAY_SIZE, set.size());
+        assertEquals(SmallIdentitySet.ARRAY_SIZE, set.capacity());
+        for (int i=SmallIdentitySet.INLINE_SIZE + 1; i < SmallIdentitySet.ARRAY_SIZE; i++) {
+            set.remove(elements.get(i));
+        }
+        set.trimToSize();
+        assertEquals(SmallIdentitySet.INLINE_SIZE + 1, set.capacity());
+        set.remove(elements.get(SmallIdentitySet.INLINE_SIZE));
+        set.trimToSize();
+        assertTrue(set.isInline());
+        for (int i=0; i < SmallIdentitySet.INLINE_SIZE; i++) {
+            assertTrue(set.contains(elements.get(i)));
+        }
+        assertEquals(SmallIdentitySet.INLINE_SIZE, set.size());
+        set.addAll(elements);
+        assertEquals(elements.size(), set.size());
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.internal.utils;
+
+import java.util.Collection;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests against the {@link UnionFind}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestUnionFind extends TestCase {
+
+    public void testEmpty() {
+        final UnionFind<Object> uf = new UnionFind<Object>();
+        assertTrue(uf.isEmpty());
+        final Object o = new Object();
+        assertSame(o, uf.find(o));
+        assertTrue(uf.isEmpty());
+        assertTrue(uf.classes().isEmpty());
+    }
+
+    public void testUnion() {
+        final UnionFind<Object> uf = new UnionFind<Object>();
+        final Object a = new Object();
+        final Object b = new Object();
+        final Object c = new Object();
+        final Object d = new Object();
+        uf.union(a, b);
+        uf.union(c, d);
+        assertFalse(uf.isEmpty());
+        assertSame(uf.find(a), uf.find(b));
+        assertSame(uf.find(c), uf.find(d));
+        assertNotSame(uf.find(a), uf.find(c));
+        assertEquals(2, uf.classes().size());
+        uf.union(b, d);
+        assertSame(uf.find(a), uf.find(d));
+        final Collection<List<Object>> classes = uf.classes();
+        assertEquals(1, classes.size());
+        final List<Object> members = classes.iterator().next();
+        assertEquals(4, members.size());
+        assertTrue(members.contains(a));
+        assertTrue(members.contains(b));
+        assertTrue(members.contains(c));
+        assertTrue(members.contains(d));
+    }
+
+    public void testUnionSelf() {
+        final UnionFind<Object> uf = new UnionFind<Object>();
+        final Object a = new Object();
+        uf.union(a, a);
+        assertFalse(uf.isEmpty());
+        assertSame(a, uf.find(a));
+        assertEquals(1, uf.classes().size());
+    }
+
+    /**
+     * Uniting a small class with a larger one keeps the representative 
+     * of the larger class.
+     */
+    public void testUnionByRank() {
+        final UnionFind<Object> uf = new UnionFind<Object>();
+        final Object a = new Object();
+        final Object b = new Object();
+        final Object c = new Object();
+        uf.union(a, b);
+        final Object root = uf.find(a);
+        uf.union(c, a);
+        assertSame(root, uf.find(c));
+    }
+
+    public void testChain() {
+        final UnionFind<Object> uf = new UnionFind<Object>();
+        final Object[] elements = new Object[1000];
+        for (int i=0; i<elements.length; i++) {
+            elements[i] = new Object();
+            if (i > 0) {
+                uf.union(elements[i], elements[i-1]);
+            }
+        }
+        final Object root = uf.find(elements[0]);
+        for (Object e: elements) {
+            assertSame(root, uf.find(e));
+        }
+        assertEquals(1, uf.classes().size());
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.util.List;
+
+import org.tinytim.internal.utils.CollectionFactory;
+
+import com.semagia.mio.IMapHandler;
+import com.semagia.mio.IRef;
+import com.semagia.mio.MIOException;
+
+/**
+ * {@link IMapHandler} which records the events as strings.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+class RecordingMapHandler implements IMapHandler {
+
+    final List<String> events = CollectionFactory.createList();
+
+    /**
+     * Records the event.
+     *
+     * @param event The event.
+     * @throws MIOException Never thrown by this implementation.
+     */
+    void record(String event) throws MIOException {
+        events.add(event);
+    }
+
+    private static String _ref(IRef ref) {
+        switch (ref.getType()) {
+            case IRef.SUBJECT_IDENTIFIER: return "si:" + ref.getIRI();
+            case IRef.SUBJECT_LOCATOR: return "sl:" + ref.getIRI();
+            default: return "ii:" + ref.getIRI();
+        }
+    }
+
+    public void startTopicMap() throws MIOException { record("startTopicMap"); }
+    public void endTopicMap() throws MIOException { record("endTopicMap"); }
+    public void startTopic(IRef identity) throws MIOException { record("startTopic " + _ref(identity)); }
+    public void endTopic() throws MIOException { record("endTopic"); }
+    public void startAssociation() throws MIOException { record("startAssociation"); }
+    public void endAssociation() throws MIOException { record("endAssociation"); }
+    public void startRole() throws MIOException { record("startRole"); }
+    public void endRole() throws MIOException { record("endRole"); }
+    public void startPlayer() throws MIOException { record("startPlayer"); }
+    public void endPlayer() throws MIOException { record("endPlayer"); }
+    public void startOccurrence() throws MIOException { record("startOccurrence"); }
+    public void endOccurrence() throws MIOException { record("endOccurrence"); }
+    public void startName() throws MIOException { record("startName"); }
+    public void endName() throws MIOException { record("endName"); }
+    public void startVariant() throws MIOException { record("startVariant"); }
+    public void endVariant() throws MIOException { record("endVariant"); }
+    public void startScope() throws MIOException { record("startScope"); }
+    public void endScope() throws MIOException { record("endScope"); }
+    public void startType() throws MIOException { record("startType"); }
+    public void endType() throws MIOException { record("endType"); }
+    public void startReifier() throws MIOException { record("startReifier"); }
+    public void endReifier() throws MIOException { record("endReifier"); }
+    public void startIsa() throws MIOException { record("startIsa"); }
+    public void endIsa() throws MIOException { record("endIsa"); }
+    public void topicRef(IRef identity) throws MIOException { record("topicRef " + _ref(identity)); }
+    public void subjectIdentifier(String sid) throws MIOException { record("subjectIdentifier " + sid); }
+    public void subjectLocator(String slo) throws MIOException { record("subjectLocator " + slo); }
+    public void itemIdentifier(String iid) throws MIOException { record("itemIdentifier " + iid); }
+    public void value(String value) throws MIOException { record("value " + value); }
+    public void value(String value, String datatype) throws MIOException { record("value " + value + " " + datatype); }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Collections;
+
+import org.tinytim.voc.XSD;
+
+import com.semagia.mio.IMapHandler;
+import com.semagia.mio.MIOException;
+import com.semagia.mio.helpers.Ref;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests against the {@link CTMMapHandler} and the pipeline stages.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestCTMMapHandler extends TestCase {
+
+    private static final String _BASE = "http://www.tinytim.org/test";
+    private static final String _HEADER = "%encoding \"utf-8\"\n%version 1.0\n";
+
+    private ByteArrayOutputStream _out;
+    private CTMMapHandler _writer;
+
+    /* (non-Javadoc)
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _out = new ByteArrayOutputStream();
+        _writer = new CTMMapHandler(_out, _BASE);
+    }
+
+    private String _write(IMapHandler handler, String topics, String associations) throws Exception {
+        final String jtm = "{\"version\":\"1.1\",\"item_type\":\"topicmap\",\"topics\":[" + topics 
+                            + "],\"associations\":[" + associations + "]}";
+        new JTMParser(handler).parse(new StringReader(jtm), _BASE);
+        return _out.toString("utf-8");
+    }
+
+    private String _write(String topics, String associations) throws Exception {
+        return _write(_writer, topics, associations);
+    }
+
+    public void testTopic() throws Exception {
+        final String ctm = _write("{\"item_identifiers\":[\"#a\"],\"subject_identifiers\":[\"http://www.example.org/sid\"]," 
+                + "\"subject_locators\":[\"http://www.example.org/slo\"],\"instance_of\":[\"ii:#type\"]}", "");
+        assertEquals(_HEADER + "\na <http://www.example.org/sid>;\n    = <http://www.example.org/slo>;\n    isa type.\n", ctm);
+    }
+
+    public void testNameAndOccurrence() throws Exception {
+        final String ctm = _write("{\"item_identifiers\":[\"#a\"],"
+                + "\"names\":[{\"value\":\"Name \\\"A\\\"\",\"scope\":[\"ii:#de\"],\"reifier\":\"ii:#r\","
+                + "\"variants\":[{\"value\":\"A\",\"scope\":[\"ii:#sort\"]}]}],"
+                + "\"occurrences\":[{\"type\":\"ii:#age\",\"value\":\"42\",\"datatype\":\"" + XSD.INTEGER.getReference() + "\"},"
+                + "{\"type\":\"ii:#homepage\",\"value\":\"http://www.example.org/\",\"datatype\":\"" + XSD.ANY_URI.getReference() + "\"}]}", "");
+        assertEquals(_HEADER + "\na - \"Name \\\"A\\\"\" @de ~ r (\"A\" @sort);\n    age: \"42\"^^xsd:integer;\n    homepage: <http://www.example.org/>.\n", ctm);
+    }
+
+    public void testAssociation() throws Exception {
+        _writer.addPrefix("ex", "http://www.example.org/");
+        final String ctm = _write("", "{\"type\":\"si:http://www.example.org/plays\",\"scope\":[\"ii:#theme\"],"
+                + "\"roles\":[{\"type\":\"ii:#player\",\"player\":\"ii:#a\"},{\"type\":\"ii:#game\",\"player\":\"sl:http://www.example.org/slo\"}]}");
+        assertEquals("%encoding \"utf-8\"\n%version 1.0\n%prefix ex <http://www.example.org/>\n" 
+                + "\nex:plays(player: a, game: = <http://www.example.org/slo>) @theme\n", ctm);
+    }
+
+    public void testTopicMapReifier() throws Exception {
+        _writer.startTopicMap();
+        _writer.startReifier();
+        _writer.topicRef(Ref.createItemIdentifier(_BASE + "#reifier"));
+        _writer.endReifier();
+        _writer.startTopic(Ref.createItemIdentifier("http://www.example.org/#a"));
+        _writer.endTopic();
+        try {
+            _writer.startReifier();
+            _writer.topicRef(Ref.createItemIdentifier(_BASE + "#reifier"));
+            _writer.endReifier();
+            fail("The topic map reifier must be reported before any topic");
+        }
+        catch (MIOException ex) {
+            // noop.
+        }
+        _writer.endTopicMap();
+        assertEquals(_HEADER + "\n~ reifier\n\n^ <http://www.example.org/#a>.\n", _out.toString("utf-8"));
+    }
+
+    public void testEmbeddedTopic() throws Exception {
+        _writer.startTopicMap();
+        _writer.startTopic(Ref.createItemIdentifier(_BASE + "#a"));
+        _writer.startOccurrence();
+        _writer.startType();
+        _writer.startTopic(Ref.createSubjectIdentifier("http://www.example.org/type"));
+        _writer.startName();
+        _writer.value("Type");
+        _writer.endName();
+        _writer.endTopic();
+        _writer.endType();
+        _writer.value("value", XSD.STRING.getReference());
+        _writer.endOccurrence();
+        _writer.endTopic();
+        _writer.endTopicMap();
+        assertEquals(_HEADER + "\n<http://www.example.org/type> - \"Type\".\n\na <http://www.example.org/type>: \"value\".\n", 
+                _out.toString("utf-8"));
+    }
+
+    public void testMissingType() throws Exception {
+        _writer.startTopicMap();
+        _writer.startTopic(Ref.createItemIdentifier(_BASE + "#a"));
+        _writer.startOccurrence();
+        _writer.value("value", XSD.STRING.getReference());
+        try {
+            _writer.endOccurrence();
+            fail("An occurrence without a type must be reported");
+        }
+        catch (MIOException ex) {
+            // noop.
+        }
+    }
+
+    public void testSubjectIdentifierMapper() throws Exception {
+        final String ctm = _write(SubjectIdentifierMapper.forXTM10PSIs(_writer), "", 
+                "{\"type\":\"si:http://www.topicmaps.org/xtm/1.0/core.xtm#class-instance\","
+                + "\"roles\":[{\"type\":\"si:http://www.topicmaps.org/xtm/1.0/core.xtm#class\",\"player\":\"ii:#type\"},"
+                + "{\"type\":\"si:http://www.topicmaps.org/xtm/1.0/core.xtm#instance\",\"player\":\"ii:#a\"}]}");
+        assertEquals(_HEADER + "\n<http://psi.topicmaps.org/iso13250/model/type-instance>(" 
+                + "<http://psi.topicmaps.org/iso13250/model/type>: type, " 
+                + "<http://psi.topicmaps.org/iso13250/model/instance>: a)\n", ctm);
+    }
+
+    public void testScopeRemovingFilter() throws Exception {
+        final String ctm = _write(new ScopeRemovingFilter(_writer), "{\"item_identifiers\":[\"#a\"],"
+                + "\"names\":[{\"value\":\"Name\",\"scope\":[\"ii:#de\"],\"variants\":[{\"value\":\"A\",\"scope\":[\"ii:#sort\"]}]}],"
+                + "\"occurrences\":[{\"type\":\"ii:#note\",\"value\":\"Note\",\"scope\":[\"ii:#de\"]}]}", 
+                "{\"type\":\"ii:#assoc\",\"scope\":[\"ii:#de\"],\"roles\":[{\"type\":\"ii:#role\",\"player\":\"ii:#a\"}]}");
+        assertEquals(_HEADER + "\na - \"Name\" (\"A\" @sort);\n    note: \"Note\".\n\nassoc(role: a)\n", ctm);
+    }
+
+    public void testTypeFilter() throws Exception {
+        final IMapHandler handler = new TypeFilter(_writer, Collections.singleton(Ref.createItemIdentifier(_BASE + "#note")));
+        final String ctm = _write(handler, "{\"item_identifiers\":[\"#a\"],"
+                + "\"names\":[{\"type\":\"ii:#note\",\"value\":\"Name\"}],"
+                + "\"occurrences\":[{\"value\":\"Note\",\"type\":\"ii:#note\"},{\"type\":\"ii:#other\",\"value\":\"Other\"}]}", 
+                "{\"type\":\"ii:#note\",\"roles\":[{\"type\":\"ii:#role\",\"player\":\"ii:#a\"}]},"
+                + "{\"type\":\"ii:#assoc\",\"roles\":[{\"type\":\"ii:#note\",\"player\":\"ii:#a\"}]}");
+        assertEquals(_HEADER + "\na other: \"Other\".\n\nassoc(note: a)\n", ctm);
+    }
+
+}
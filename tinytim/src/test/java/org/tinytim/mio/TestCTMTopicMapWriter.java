@@ -0,0 +1,266 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.tinytim.core.AbstractTinyTimTestCase;
+import org.tinytim.core.value.Literal;
+import org.tinytim.voc.XSD;
+
+import org.tmapi.core.Name;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+
+import com.semagia.mio.DeserializerRegistry;
+import com.semagia.mio.IDeserializer;
+import com.semagia.mio.Source;
+import com.semagia.mio.Syntax;
+
+/**
+ * Tests against the {@link CTMTopicMapWriter}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestCTMTopicMapWriter extends AbstractTinyTimTestCase {
+
+    private static final String _BASE = "http://www.tinytim.org/test";
+
+    private String _write(CTMTopicMapWriter writer, ByteArrayOutputStream out) throws Exception {
+        writer.write(_tm);
+        return out.toString("utf-8");
+    }
+
+    private String _write() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        return _write(new CTMTopicMapWriter(out, _BASE), out);
+    }
+
+    private static byte[] _writeCXTM(TopicMap tm) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final CXTMTopicMapWriter writer = new CXTMTopicMapWriter(out, _BASE);
+        writer.setModifyTopicMap(false);
+        writer.write(tm);
+        return out.toByteArray();
+    }
+
+    private Topic _createTopic(String id) {
+        return _tm.createTopicByItemIdentifier(createLocator(_BASE + "#" + id));
+    }
+
+    private Topic _createTopicBySID(String sid) {
+        return _tm.createTopicBySubjectIdentifier(createLocator(sid));
+    }
+
+    private static void _assertContains(String ctm, String expected) {
+        assertTrue("Expected '" + expected + "' in " + ctm, ctm.indexOf(expected) > -1);
+    }
+
+    public void testHeader() throws Exception {
+        final String ctm = _write();
+        assertTrue(ctm.startsWith("%encoding \"utf-8\"\n%version 1.0\n"));
+        assertEquals(-1, ctm.indexOf("%prefix"));
+    }
+
+    public void testPrefixDetection() throws Exception {
+        _createTopicBySID("http://psi.example.org/people/alice");
+        _createTopicBySID("http://psi.example.org/people/bob");
+        _createTopicBySID("http://psi.example.org/places/paris");
+        final String ctm = _write();
+        _assertContains(ctm, "%prefix people <http://psi.example.org/people/>\n");
+        _assertContains(ctm, "\npeople:alice.\n");
+        _assertContains(ctm, "\npeople:bob.\n");
+        // A single subject identifier does not cause a prefix
+        assertEquals(-1, ctm.indexOf("%prefix places"));
+        _assertContains(ctm, "\n<http://psi.example.org/places/paris>.\n");
+    }
+
+    public void testPrefixNamesAreUnique() throws Exception {
+        _createTopicBySID("http://psi.example.org/a/people/alice");
+        _createTopicBySID("http://psi.example.org/a/people/bob");
+        _createTopicBySID("http://psi.example.org/b/people/alice");
+        _createTopicBySID("http://psi.example.org/b/people/bob");
+        _createTopicBySID("http://psi.example.org/1.1/x");
+        _createTopicBySID("http://psi.example.org/1.1/y");
+        final String ctm = _write();
+        _assertContains(ctm, "%prefix people <http://psi.example.org/a/people/>\n");
+        _assertContains(ctm, "%prefix people1 <http://psi.example.org/b/people/>\n");
+        _assertContains(ctm, "%prefix example <http://psi.example.org/1.1/>\n");
+    }
+
+    public void testUserPrefix() throws Exception {
+        _createTopicBySID("http://psi.example.org/people/alice");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final CTMTopicMapWriter writer = new CTMTopicMapWriter(out, _BASE);
+        writer.addPrefix("ex", "http://psi.example.org/people/");
+        final String ctm = _write(writer, out);
+        _assertContains(ctm, "%prefix ex <http://psi.example.org/people/>\n");
+        _assertContains(ctm, "\nex:alice.\n");
+    }
+
+    public void testIllegalUserPrefix() throws Exception {
+        final CTMTopicMapWriter writer = new CTMTopicMapWriter(new ByteArrayOutputStream(), _BASE);
+        try {
+            writer.addPrefix("1x", "http://psi.example.org/");
+            fail("Expected an exception for an invalid prefix");
+        }
+        catch (IllegalArgumentException ex) {
+            // noop.
+        }
+        try {
+            writer.addPrefix("xsd", "http://psi.example.org/");
+            fail("The xsd prefix is predefined");
+        }
+        catch (IllegalArgumentException ex) {
+            // noop.
+        }
+        try {
+            writer.addPrefix("", "http://psi.example.org/");
+            fail("Expected an exception for an empty prefix");
+        }
+        catch (IllegalArgumentException ex) {
+            // noop.
+        }
+    }
+
+    public void testTopicsGroupedByType() throws Exception {
+        final Topic person = _createTopic("person");
+        final Topic city = _createTopic("city");
+        final Topic alice = _createTopic("alice");
+        alice.addType(person);
+        alice.addType(city);
+        _createTopic("bob").addType(person);
+        _createTopic("paris").addType(city);
+        final String ctm = _write();
+        final int untyped = ctm.indexOf("#-- TT: [untyped]");
+        final int cities = ctm.indexOf("#-- TT: city");
+        final int persons = ctm.indexOf("#-- TT: person");
+        assertTrue(untyped > -1);
+        assertTrue(untyped < cities);
+        assertTrue(cities < persons);
+        // alice is written once, in the group of the first type
+        final int aliceIdx = ctm.indexOf("\nalice isa ");
+        assertTrue(aliceIdx > cities && aliceIdx < persons);
+        assertEquals(aliceIdx, ctm.lastIndexOf("\nalice isa "));
+        assertTrue(ctm.indexOf("\nbob isa person.\n") > persons);
+        assertTrue(ctm.indexOf("\nparis isa city.\n") > cities);
+        assertTrue(ctm.indexOf("\nperson.\n") > untyped);
+    }
+
+    public void testTopicIdentities() throws Exception {
+        final Topic topic = _createTopic("topic");
+        topic.addSubjectIdentifier(createLocator("http://www.example.org/sid"));
+        topic.addSubjectLocator(createLocator("http://www.example.org/slo"));
+        topic.addItemIdentifier(createLocator("http://www.example.org/iid"));
+        final String ctm = _write();
+        _assertContains(ctm, "\ntopic <http://www.example.org/sid>;\n    = <http://www.example.org/slo>;\n    ^ <http://www.example.org/iid>.\n");
+        final Topic slo = _tm.createTopicBySubjectLocator(createLocator("http://www.example.org/slo2"));
+        slo.createName("Name");
+        _assertContains(_write(), "\n= <http://www.example.org/slo2> - \"Name\".\n");
+    }
+
+    public void testGeneratedIdentifier() throws Exception {
+        final Topic topic = createTopic();
+        topic.removeItemIdentifier(topic.getItemIdentifiers().iterator().next());
+        final Topic other = _createTopic("other");
+        other.addType(topic);
+        final String id = "id-" + topic.getId();
+        final String ctm = _write();
+        _assertContains(ctm, "\n" + id + ".\n");
+        _assertContains(ctm, "\nother isa " + id + ".\n");
+        // The writer must not create a locator for the generated identifier
+        assertNull(Literal.getIRI(_BASE + "#" + id));
+    }
+
+    public void testName() throws Exception {
+        final Topic topic = _createTopic("topic");
+        final Name name = topic.createName("\"tinyTiM\"\n", _createTopic("en"));
+        name.createVariant("tiny", _createTopic("sort"));
+        name.setReifier(_createTopic("reifier"));
+        topic.createName(_createTopic("nick"), "TTM");
+        final String ctm = _write();
+        _assertContains(ctm, "- \"\\\"tinyTiM\\\"\\u000A\" @en ~ reifier (\"tiny\" @sort)");
+        _assertContains(ctm, "- nick: \"TTM\"");
+    }
+
+    public void testOccurrence() throws Exception {
+        final Topic topic = _createTopic("topic");
+        topic.createOccurrence(_createTopic("homepage"), createLocator("http://www.semagia.com/"));
+        topic.createOccurrence(_createTopic("age"), "7", XSD.INTEGER, _createTopic("theme"));
+        topic.createOccurrence(_createTopic("note"), "1", createLocator("http://www.example.org/dt"));
+        final String ctm = _write();
+        _assertContains(ctm, "homepage: <http://www.semagia.com/>");
+        _assertContains(ctm, "age: \"7\"^^xsd:integer @theme");
+        _assertContains(ctm, "note: \"1\"^^<http://www.example.org/dt>");
+        assertEquals(-1, ctm.indexOf("%prefix xsd"));
+    }
+
+    public void testAssociation() throws Exception {
+        final Topic type = _createTopic("membership");
+        _tm.createAssociation(type, _createTopic("theme")).createRole(_createTopic("member"), 
+                _createTopic("alice"));
+        _tm.createAssociation(_createTopic("a-type")).createRole(_createTopic("member"), 
+                _createTopic("bob"));
+        final String ctm = _write();
+        final int idx = ctm.indexOf("#-- Associations");
+        assertTrue(idx > -1);
+        final int membership = ctm.indexOf("\nmembership(member: alice) @theme\n");
+        assertTrue(membership > idx);
+        assertTrue(ctm.indexOf("\na-type(member: bob)\n") > idx);
+        assertTrue(ctm.indexOf("\na-type(member: bob)\n") < membership);
+    }
+
+    public void testTopicMapReifier() throws Exception {
+        _tm.setReifier(_createTopic("reifier"));
+        final String ctm = _write();
+        _assertContains(ctm, "#-- Topic Map\n~ reifier\n");
+    }
+
+    public void testKeywordIsNotAnIdentifier() throws Exception {
+        _createTopic("isa");
+        _assertContains(_write(), "\n^ <" + _BASE + "#isa>.\n");
+    }
+
+    public void testRoundTrip() throws Exception {
+        final Topic person = _createTopic("person");
+        final Topic alice = _createTopic("alice");
+        alice.addType(person);
+        alice.addSubjectIdentifier(createLocator("http://psi.example.org/alice"));
+        alice.addSubjectLocator(createLocator("http://www.example.org/alice"));
+        final Name name = alice.createName("\"Alice\"\n", _createTopic("en"));
+        name.createVariant("alice", _createTopic("sort"));
+        name.setReifier(_createTopic("reifier"));
+        alice.createName(_createTopic("nick"), "Ally");
+        alice.createOccurrence(_createTopic("homepage"), createLocator("http://www.example.org/"));
+        alice.createOccurrence(_createTopic("age"), "42", XSD.INTEGER, _createTopic("theme"));
+        _tm.createAssociation(_createTopic("membership"), _createTopic("since"))
+            .createRole(_createTopic("member"), alice);
+        _tm.setReifier(_createTopic("map-reifier"));
+        final String ctm = _write();
+        final TopicMap tm = _sys.createTopicMap("http://www.tinytim.org/roundtrip");
+        final IDeserializer deser = DeserializerRegistry.getInstance().createDeserializer(Syntax.CTM);
+        deser.setMapHandler(new TinyTimMapInputHandler(tm));
+        deser.parse(new Source(new ByteArrayInputStream(ctm.getBytes("utf-8")), _BASE));
+        assertEquals(_tm.getTopics().size(), tm.getTopics().size());
+        assertEquals(_tm.getAssociations().size(), tm.getAssociations().size());
+        assertTrue("The parsed topic map differs from the source:\n" + ctm, 
+                Arrays.equals(_writeCXTM(_tm), _writeCXTM(tm)));
+    }
+
+}
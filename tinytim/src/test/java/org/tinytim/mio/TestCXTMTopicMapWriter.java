@@ -0,0 +1,143 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.ByteArrayOutputStream;
+
+import org.tinytim.core.AbstractTinyTimTestCase;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Name;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Role;
+import org.tmapi.core.Topic;
+
+/**
+ * Tests against the {@link CXTMTopicMapWriter}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestCXTMTopicMapWriter extends AbstractTinyTimTestCase {
+
+    private static final String _BASE = "http://www.tinytim.org/test";
+
+    private byte[] _write(boolean modify) throws Exception {
+        return _write(modify, 1);
+    }
+
+    private byte[] _write(boolean modify, int maxThreads) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final CXTMTopicMapWriter writer = new CXTMTopicMapWriter(out, _BASE);
+        writer.setModifyTopicMap(modify);
+        writer.setMaxThreads(maxThreads);
+        writer.setParallelThreshold(10);
+        writer.write(_tm);
+        return out.toByteArray();
+    }
+
+    private Topic _createTopic(String sid) {
+        return _tm.createTopicBySubjectIdentifier(createLocator(sid));
+    }
+
+    private void _createDuplicates() {
+        final Topic topic = _createTopic("http://www.example.org/topic");
+        final Topic type = _createTopic("http://www.example.org/type");
+        final Topic theme = _createTopic("http://www.example.org/theme");
+        final Topic player = _createTopic("http://www.example.org/player");
+        topic.addType(type);
+        final Occurrence occ1 = topic.createOccurrence(type, "value", theme);
+        final Occurrence occ2 = topic.createOccurrence(type, "value", theme);
+        occ2.addItemIdentifier(createLocator(_BASE + "#occ"));
+        topic.createOccurrence(type, "other value");
+        final Name name1 = topic.createName("Name");
+        final Name name2 = topic.createName("Name");
+        name1.createVariant("Variant", theme);
+        name2.createVariant("Variant", theme).addItemIdentifier(createLocator(_BASE + "#variant"));
+        name2.createVariant("Other variant", theme);
+        name2.setReifier(_createTopic("http://www.example.org/reifier"));
+        final Association assoc1 = _tm.createAssociation(type);
+        assoc1.createRole(type, player);
+        final Association assoc2 = _tm.createAssociation(type);
+        final Role role = assoc2.createRole(type, player);
+        role.addItemIdentifier(createLocator(_BASE + "#role"));
+        assoc2.createRole(type, player);
+        assoc2.addItemIdentifier(createLocator(_BASE + "#assoc"));
+        final Association assoc3 = _tm.createAssociation(type, theme);
+        assoc3.createRole(theme, player);
+        assoc3.createRole(theme, player);
+        assertNotNull(occ1);
+    }
+
+    public void testNoDuplicates() throws Exception {
+        final Topic topic = _createTopic("http://www.example.org/topic");
+        topic.createName("Name");
+        _tm.createAssociation(topic).createRole(topic, topic);
+        final byte[] expected = _write(true);
+        assertEquals(new String(expected, "utf-8"), new String(_write(false), "utf-8"));
+    }
+
+    public void testTopicMapIsNotModified() throws Exception {
+        _createDuplicates();
+        final int topics = _tm.getTopics().size();
+        _write(false);
+        assertEquals(topics, _tm.getTopics().size());
+        assertEquals(3, _tm.getAssociations().size());
+        final Topic topic = _tm.getTopicBySubjectIdentifier(createLocator("http://www.example.org/topic"));
+        assertEquals(3, topic.getOccurrences().size());
+        assertEquals(2, topic.getNames().size());
+    }
+
+    public void testDuplicateRemoval() throws Exception {
+        _createDuplicates();
+        final String virtual = new String(_write(false), "utf-8");
+        final String expected = new String(_write(true), "utf-8");
+        assertEquals(2, _tm.getAssociations().size());
+        assertEquals(expected, virtual);
+        assertTrue(virtual.indexOf("#occ") > -1);
+        assertTrue(virtual.indexOf("#variant") > -1);
+        assertTrue(virtual.indexOf("#role") > -1);
+        assertTrue(virtual.indexOf("#assoc") > -1);
+    }
+
+    public void testConcurrentWriting() throws Exception {
+        _createDuplicates();
+        final Topic type = _createTopic("http://www.example.org/type");
+        for (int i=0; i < 200; i++) {
+            final Topic topic = _createTopic("http://www.example.org/topic-" + i);
+            topic.addType(type);
+            topic.createName("Topic " + (i % 50));
+            topic.createOccurrence(type, "Occurrence " + (i % 10), topic);
+            _tm.createAssociation(type).createRole(type, topic);
+        }
+        final String expected = new String(_write(false, 1), "utf-8");
+        assertEquals(expected, new String(_write(false, 4), "utf-8"));
+        assertEquals(expected, new String(_write(true, 3), "utf-8"));
+    }
+
+    public void testIllegalMaxThreads() throws Exception {
+        final CXTMTopicMapWriter writer = new CXTMTopicMapWriter(new ByteArrayOutputStream(), _BASE);
+        assertTrue(writer.getMaxThreads() > 0);
+        try {
+            writer.setMaxThreads(0);
+            fail("Expected an IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // noop.
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.util.List;
+
+import org.tinytim.core.AbstractTinyTimTestCase;
+import org.tinytim.core.TopicMapMonitor;
+import org.tinytim.core.TopicMapSystemFactoryImpl;
+import org.tinytim.internal.utils.CollectionFactory;
+import org.tinytim.mio.ImportMetrics.MergeCause;
+import org.tinytim.utils.Property;
+
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+import org.tmapi.core.TopicMapSystem;
+import org.tmapi.core.TopicMapSystemFactory;
+
+/**
+ * Tests the {@link ImportMetrics} which are collected by the 
+ * {@link TinyTimMapInputHandler}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestImportMetrics extends AbstractTinyTimTestCase {
+
+    private TinyTimMapInputHandler _handler;
+    private List<ImportMetrics> _progress;
+    private ImportMetrics _finished;
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.AbstractTinyTimTestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _handler = new TinyTimMapInputHandler(_tm);
+        _progress = CollectionFactory.createList();
+        _finished = null;
+        _handler.setImportListener(new ImportListener() {
+            public void progress(ImportMetrics metrics) {
+                _progress.add(metrics);
+            }
+            public void finished(ImportMetrics metrics) {
+                _finished = metrics;
+            }
+        });
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.AbstractTinyTimTestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        _handler = null;
+        _progress = null;
+        _finished = null;
+    }
+
+    public void testNoListener() throws Exception {
+        _handler.setImportListener(null);
+        _handler.startTopicMap();
+        _handler.createTopicBySubjectIdentifier("http://www.example.org/a");
+        _handler.endTopicMap();
+        assertNull(_finished);
+        assertTrue(_progress.isEmpty());
+    }
+
+    public void testStatements() throws Exception {
+        _handler.startTopicMap();
+        final Topic topic = _handler.createTopicBySubjectIdentifier("http://www.example.org/a");
+        _handler.handleItemIdentifier(topic, "http://www.example.org/iid");
+        _handler.handleTypeInstance(topic, _handler.createTopicByItemIdentifier("http://www.example.org/type"));
+        assertNull(_finished);
+        _handler.endTopicMap();
+        assertNotNull(_finished);
+        assertTrue(_finished.isFinished());
+        assertEquals(4, _finished.getStatementCount());
+        assertEquals(0, _finished.getMergeCount());
+        assertTrue(_finished.getElapsedTime() >= 0);
+    }
+
+    public void testMergeCauses() throws Exception {
+        _handler.startTopicMap();
+        _handler.createTopicBySubjectIdentifier("http://www.example.org/a");
+        final Topic b = _handler.createTopicBySubjectIdentifier("http://www.example.org/b");
+        _handler.handleSubjectIdentifier(b, "http://www.example.org/a");
+        assertEquals(b, _tm.getTopicBySubjectIdentifier(createLocator("http://www.example.org/a")));
+        b.addSubjectLocator(createLocator("http://www.example.org/slo"));
+        final Topic c = _handler.createTopicByItemIdentifier("http://www.example.org/c");
+        _handler.handleSubjectLocator(c, "http://www.example.org/slo");
+        final Topic d = _handler.createTopicBySubjectIdentifier("http://www.example.org/d");
+        _handler.handleItemIdentifier(d, "http://www.example.org/c");
+        _handler.endTopicMap();
+        assertEquals(1, _finished.getMergeCount(MergeCause.SUBJECT_IDENTIFIER));
+        assertEquals(1, _finished.getMergeCount(MergeCause.SUBJECT_LOCATOR));
+        assertEquals(1, _finished.getMergeCount(MergeCause.ITEM_IDENTIFIER));
+        assertEquals(0, _finished.getMergeCount(MergeCause.REIFIER));
+        assertEquals(0, _finished.getMergeCount(MergeCause.ITEM_IDENTIFIER_CONFLICT));
+        assertEquals(3, _finished.getMergeCount());
+        assertTrue(_finished.getMergeTime() > 0);
+    }
+
+    public void testProgress() throws Exception {
+        _handler.setProgressInterval(2);
+        _handler.startTopicMap();
+        for (int i=0; i < 5; i++) {
+            _handler.createTopicBySubjectIdentifier("http://www.example.org/" + i);
+        }
+        _handler.endTopicMap();
+        assertEquals(2, _progress.size());
+        assertEquals(5, _finished.getStatementCount());
+    }
+
+    public void testIllegalProgressInterval() {
+        try {
+            _handler.setProgressInterval(0);
+            fail("Expected an IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // noop.
+        }
+    }
+
+    public void testInternHitRate() throws Exception {
+        _handler.startTopicMap();
+        final Topic topic = _handler.createTopicBySubjectIdentifier("http://www.example.org/intern-" + System.nanoTime());
+        _handler.handleSubjectIdentifier(topic, topic.getSubjectIdentifiers().iterator().next().getReference());
+        _handler.endTopicMap();
+        assertTrue(_finished.getInternHitCount() > 0);
+        assertTrue(_finished.getInternMissCount() > 0);
+        final double rate = _finished.getInternHitRate();
+        assertTrue(rate > 0 && rate < 1);
+    }
+
+    public void testMonitor() throws Exception {
+        final TopicMapSystemFactory factory = new TopicMapSystemFactoryImpl();
+        factory.setProperty(Property.JMX, Boolean.TRUE);
+        final TopicMapSystem sys = factory.newTopicMapSystem();
+        try {
+            final TopicMap tm = sys.createTopicMap(_IRI);
+            final TopicMapMonitor monitor = TopicMapMonitor.getMonitor(tm);
+            final TinyTimMapInputHandler handler = new TinyTimMapInputHandler(tm);
+            handler.startTopicMap();
+            assertTrue(monitor.isImportInProgress());
+            handler.createTopicBySubjectIdentifier("http://www.example.org/a");
+            handler.createTopicBySubjectIdentifier("http://www.example.org/b");
+            handler.endTopicMap();
+            assertFalse(monitor.isImportInProgress());
+            assertEquals(1, monitor.getImportCount());
+            assertEquals(2, monitor.getImportStatementCount());
+        }
+        finally {
+            sys.close();
+        }
+    }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.List;
+
+import org.tinytim.core.AbstractTinyTimTestCase;
+import org.tinytim.voc.XSD;
+
+import org.tmapi.core.Topic;
+
+import com.semagia.mio.MIOException;
+
+/**
+ * Tests against the {@link JTMParser}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestJTMParser extends AbstractTinyTimTestCase {
+
+    private static final String _BASE = "http://www.tinytim.org/test";
+    private static final String _STRING = XSD.STRING.getReference();
+
+    private static List<String> _parse(String jtm) throws Exception {
+        final RecordingMapHandler handler = new RecordingMapHandler();
+        new JTMParser(handler).parse(new StringReader(jtm), _BASE);
+        return handler.events;
+    }
+
+    private static void _assertEvents(String jtm, String... expected) throws Exception {
+        final List<String> events = _parse(jtm);
+        assertEquals(java.util.Arrays.asList(expected), events);
+    }
+
+    private static void _assertError(String jtm) throws Exception {
+        try {
+            _parse(jtm);
+            fail("Expected an error for " + jtm);
+        }
+        catch (MIOException ex) {
+            // noop.
+        }
+    }
+
+    public void testTopicMap() throws Exception {
+        _assertEvents("{\"version\":\"1.0\",\"item_type\":\"topicmap\",\"item_identifiers\":[\"#map\"],\"reifier\":\"si:http://www.example.org/\"}",
+                "startTopicMap", 
+                "itemIdentifier " + _BASE + "#map",
+                "startReifier", "topicRef si:http://www.example.org/", "endReifier",
+                "endTopicMap");
+    }
+
+    public void testItemTypeIsLast() throws Exception {
+        _assertEvents("{\"topics\":[{\"subject_identifiers\":[\"http://www.example.org/\"]}],\"version\":\"1.0\",\"item_type\":\"TopicMap\"}",
+                "startTopicMap", 
+                "startTopic si:http://www.example.org/", "endTopic",
+                "endTopicMap");
+    }
+
+    public void testTopicIdentityIsLast() throws Exception {
+        _assertEvents("{\"version\":\"1.1\",\"item_type\":\"topicmap\",\"topics\":[{" 
+                + "\"names\":[{\"value\":\"tinyTiM\",\"type\":\"ii:#name-type\",\"scope\":null}]," 
+                + "\"instance_of\":[\"sl:http://www.example.org/type\"],"
+                + "\"subject_locators\":[\"http://www.example.org/slo\"],"
+                + "\"item_identifiers\":[\"#iid\"]}]}",
+                "startTopicMap",
+                "startTopic sl:http://www.example.org/slo",
+                "startName", "value tinyTiM", 
+                "startType", "topicRef ii:" + _BASE + "#name-type", "endType",
+                "endName",
+                "startIsa", "topicRef sl:http://www.example.org/type", "endIsa",
+                "itemIdentifier " + _BASE + "#iid",
+                "endTopic",
+                "endTopicMap");
+    }
+
+    public void testOccurrence() throws Exception {
+        _assertEvents("{\"version\":\"1.0\",\"item_type\":\"topicmap\",\"topics\":[{\"item_identifiers\":[\"#t\"],\"occurrences\":[" 
+                + "{\"datatype\":\"" + XSD.ANY_URI.getReference() + "\",\"value\":\"homepage\",\"type\":\"ii:#homepage\"},"
+                + "{\"value\":\"note\",\"type\":\"ii:#note\",\"scope\":[\"ii:#en\"]}]}]}",
+                "startTopicMap",
+                "startTopic ii:" + _BASE + "#t",
+                "startOccurrence",
+                "startType", "topicRef ii:" + _BASE + "#homepage", "endType",
+                "value http://www.tinytim.org/homepage " + XSD.ANY_URI.getReference(),
+                "endOccurrence",
+                "startOccurrence",
+                "startType", "topicRef ii:" + _BASE + "#note", "endType",
+                "startScope", "topicRef ii:" + _BASE + "#en", "endScope",
+                "value note " + _STRING,
+                "endOccurrence",
+                "endTopic",
+                "endTopicMap");
+    }
+
+    public void testVariant() throws Exception {
+        _assertEvents("{\"version\":\"1.0\",\"item_type\":\"topicmap\",\"topics\":[{\"item_identifiers\":[\"#t\"],\"names\":[" 
+                + "{\"value\":\"tinyTiM\",\"variants\":[{\"value\":\"tiny\",\"scope\":[\"ii:#short\"],\"reifier\":\"ii:#r\"}]}]}]}",
+                "startTopicMap",
+                "startTopic ii:" + _BASE + "#t",
+                "startName", "value tinyTiM",
+                "startVariant",
+                "startScope", "topicRef ii:" + _BASE + "#short", "endScope",
+                "startReifier", "topicRef ii:" + _BASE + "#r", "endReifier",
+                "value tiny " + _STRING,
+                "endVariant",
+                "endName",
+                "endTopic",
+                "endTopicMap");
+    }
+
+    public void testAssociation() throws Exception {
+        _assertEvents("{\"version\":\"1.0\",\"item_type\":\"topicmap\",\"associations\":[{\"type\":\"ii:#type\",\"roles\":[" 
+                + "{\"player\":\"si:http://www.example.org/\",\"type\":\"ii:#role\"}]}]}",
+                "startTopicMap",
+                "startAssociation",
+                "startType", "topicRef ii:" + _BASE + "#type", "endType",
+                "startRole",
+                "startPlayer", "topicRef si:http://www.example.org/", "endPlayer",
+                "startType", "topicRef ii:" + _BASE + "#role", "endType",
+                "endRole",
+                "endAssociation",
+                "endTopicMap");
+    }
+
+    public void testPrefixes() throws Exception {
+        _assertEvents("{\"item_type\":\"topicmap\",\"version\":\"1.1\",\"prefixes\":{\"ex\":\"http://www.example.org/\"},"
+                + "\"topics\":[{\"subject_identifiers\":[\"[ex:sid]\"],\"instance_of\":[\"si:[ex:type]\"]}]}",
+                "startTopicMap",
+                "startTopic si:http://www.example.org/sid",
+                "startIsa", "topicRef si:http://www.example.org/type", "endIsa",
+                "endTopic",
+                "endTopicMap");
+    }
+
+    public void testUnknownPrefix() throws Exception {
+        _assertError("{\"version\":\"1.1\",\"item_type\":\"topicmap\",\"topics\":[{\"subject_identifiers\":[\"[ex:sid]\"]}]}");
+    }
+
+    public void testCURIEInJTM10() throws Exception {
+        _assertError("{\"version\":\"1.0\",\"item_type\":\"topicmap\",\"topics\":[{\"subject_identifiers\":[\"[ex:sid]\"]}]}");
+    }
+
+    public void testTopicFragment() throws Exception {
+        _assertEvents("{\"version\":\"1.0\",\"item_type\":\"topic\",\"parent\":[\"ii:#map\"],\"subject_identifiers\":[\"http://www.example.org/\"]}",
+                "startTopicMap",
+                "startTopic si:http://www.example.org/", "endTopic",
+                "endTopicMap");
+    }
+
+    public void testNameFragment() throws Exception {
+        _assertEvents("{\"version\":\"1.0\",\"value\":\"tinyTiM\",\"item_type\":\"name\",\"parent\":[\"si:http://www.example.org/\"]}",
+                "startTopicMap",
+                "startTopic si:http://www.example.org/", 
+                "startName", "value tinyTiM", "endName",
+                "endTopic",
+                "endTopicMap");
+    }
+
+    public void testOccurrenceFragment() throws Exception {
+        _assertEvents("{\"version\":\"1.0\",\"item_type\":\"occurrence\",\"value\":\"1\",\"datatype\":\"" + XSD.INTEGER.getReference() + "\",\"type\":\"ii:#type\",\"parent\":[\"ii:#t\"]}",
+                "startTopicMap",
+                "startTopic ii:" + _BASE + "#t", 
+                "startOccurrence", 
+                "startType", "topicRef ii:" + _BASE + "#type", "endType",
+                "value 1 " + XSD.INTEGER.getReference(),
+                "endOccurrence",
+                "endTopic",
+                "endTopicMap");
+    }
+
+    public void testAssociationFragment() throws Exception {
+        _assertEvents("{\"version\":\"1.0\",\"item_type\":\"association\",\"type\":\"ii:#type\",\"roles\":[" 
+                + "{\"player\":\"ii:#player\",\"type\":\"ii:#role\"}]}",
+                "startTopicMap",
+                "startAssociation",
+                "startType", "topicRef ii:" + _BASE + "#type", "endType",
+                "startRole",
+                "startPlayer", "topicRef ii:" + _BASE + "#player", "endPlayer",
+                "startType", "topicRef ii:" + _BASE + "#role", "endType",
+                "endRole",
+                "endAssociation",
+                "endTopicMap");
+    }
+
+    public void testErrors() throws Exception {
+        // Missing version
+        _assertError("{\"item_type\":\"topicmap\"}");
+        // Unsupported version
+        _assertError("{\"version\":\"2.0\",\"item_type\":\"topicmap\"}");
+        // Missing item type
+        _assertError("{\"version\":\"1.0\"}");
+        // Unsupported item type
+        _assertError("{\"version\":\"1.0\",\"item_type\":\"role\"}");
+        // Topic without identity
+        _assertError("{\"version\":\"1.0\",\"item_type\":\"topicmap\",\"topics\":[{\"names\":[{\"value\":\"x\"}]}]}");
+        // instance_of is not supported by JTM 1.0
+        _assertError("{\"version\":\"1.0\",\"item_type\":\"topicmap\",\"topics\":[{\"item_identifiers\":[\"#a\"],\"instance_of\":[\"ii:#b\"]}]}");
+        // Illegal topic reference
+        _assertError("{\"version\":\"1.0\",\"item_type\":\"topicmap\",\"reifier\":\"#a\"}");
+        // Unknown member
+        _assertError("{\"version\":\"1.0\",\"item_type\":\"topicmap\",\"tinytim\":[]}");
+        // Missing parent
+        _assertError("{\"version\":\"1.0\",\"item_type\":\"name\",\"value\":\"x\"}");
+        // Trailing garbage
+        _assertError("{\"version\":\"1.0\",\"item_type\":\"topicmap\"} {");
+        // Illegal JSON
+        _assertError("{\"version\":\"1.0\",\"item_type\":\"topicmap\"");
+        _assertError("{\"version\" \"1.0\"}");
+    }
+
+    public void testRoundtrip() throws Exception {
+        final Topic topic = _tm.createTopicBySubjectIdentifier(createLocator("http://www.example.org/sid"));
+        topic.addType(_tm.createTopicByItemIdentifier(createLocator(_BASE + "#type")));
+        topic.createName("tiny\"TiM\"\n\u20AC");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JTMTopicMapWriter(out, _BASE).write(topic);
+        final List<String> events = _parse(out.toString("utf-8"));
+        assertEquals("startTopicMap", events.get(0));
+        assertEquals("startTopic si:http://www.example.org/sid", events.get(1));
+        assertTrue(events.contains("value tiny\"TiM\"\n\u20AC"));
+        assertTrue(events.contains("topicRef ii:" + _BASE + "#type"));
+        assertEquals("endTopicMap", events.get(events.size()-1));
+    }
+
+}
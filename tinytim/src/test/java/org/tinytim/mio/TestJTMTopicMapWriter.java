@@ -0,0 +1,154 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.ByteArrayOutputStream;
+
+import org.tinytim.core.AbstractTinyTimTestCase;
+import org.tinytim.voc.TMDM;
+import org.tinytim.voc.XSD;
+
+import org.tmapi.core.Name;
+import org.tmapi.core.Topic;
+
+/**
+ * Tests against the {@link JTMTopicMapWriter}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestJTMTopicMapWriter extends AbstractTinyTimTestCase {
+
+    private static final String _BASE = "http://www.tinytim.org/test";
+
+    private String _write(JTMTopicMapWriter.Version version) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final JTMTopicMapWriter writer = new JTMTopicMapWriter(out, _BASE);
+        writer.setVersion(version);
+        writer.write(_tm);
+        return out.toString("utf-8");
+    }
+
+    private String _write() throws Exception {
+        return _write(JTMTopicMapWriter.Version.JTM_11);
+    }
+
+    private Topic _createTopic(String iid) {
+        return _tm.createTopicByItemIdentifier(createLocator(iid));
+    }
+
+    private static void _assertContains(String jtm, String expected) {
+        assertTrue("Expected '" + expected + "' in " + jtm, jtm.indexOf(expected) > -1);
+    }
+
+    public void testDefaultVersion() throws Exception {
+        final JTMTopicMapWriter writer = new JTMTopicMapWriter(new ByteArrayOutputStream(), _BASE);
+        assertEquals(JTMTopicMapWriter.Version.JTM_11, writer.getVersion());
+    }
+
+    public void testIllegalVersion() throws Exception {
+        final JTMTopicMapWriter writer = new JTMTopicMapWriter(new ByteArrayOutputStream(), _BASE);
+        try {
+            writer.setVersion(null);
+            fail("The version must not be null");
+        }
+        catch (IllegalArgumentException ex) {
+            // noop.
+        }
+    }
+
+    public void testTopicMap() throws Exception {
+        _tm.addItemIdentifier(createLocator(_BASE + "#map"));
+        _tm.setReifier(_createTopic(_BASE + "#reifier"));
+        final String jtm = _write();
+        assertTrue(jtm.startsWith("{\"version\":\"1.1\",\"item_type\":\"topicmap\""));
+        _assertContains(jtm, "\"item_identifiers\":[\"" + _BASE + "#map\"]");
+        _assertContains(jtm, "\"reifier\":\"ii:" + _BASE + "#reifier\"");
+        assertTrue(jtm.endsWith("}"));
+    }
+
+    public void testTopic() throws Exception {
+        final Topic topic = _tm.createTopicBySubjectIdentifier(createLocator("http://www.example.org/sid"));
+        topic.addSubjectLocator(createLocator("http://www.example.org/slo"));
+        topic.addType(_tm.createTopicBySubjectLocator(createLocator("http://www.example.org/type")));
+        final String jtm = _write();
+        _assertContains(jtm, "\"subject_identifiers\":[\"http://www.example.org/sid\"]");
+        _assertContains(jtm, "\"subject_locators\":[\"http://www.example.org/slo\"]");
+        _assertContains(jtm, "\"instance_of\":[\"sl:http://www.example.org/type\"]");
+    }
+
+    public void testGeneratedItemIdentifier() throws Exception {
+        final Topic topic = createTopic();
+        topic.removeItemIdentifier(topic.getItemIdentifiers().iterator().next());
+        topic.createName("tinyTiM");
+        final String jtm = _write();
+        _assertContains(jtm, "\"item_identifiers\":[\"" + _BASE + "#id-" + topic.getId() + "\"]");
+    }
+
+    public void testTypeInstanceAssociation() throws Exception {
+        final Topic topic = _createTopic(_BASE + "#instance");
+        topic.addType(_createTopic(_BASE + "#type"));
+        final String jtm = _write(JTMTopicMapWriter.Version.JTM_10);
+        assertTrue(jtm.startsWith("{\"version\":\"1.0\""));
+        assertEquals(-1, jtm.indexOf("instance_of"));
+        _assertContains(jtm, "\"type\":\"si:" + TMDM.TYPE_INSTANCE.getReference() + "\"");
+        _assertContains(jtm, "\"player\":\"ii:" + _BASE + "#type\",\"type\":\"si:" + TMDM.TYPE.getReference() + "\"");
+        _assertContains(jtm, "\"player\":\"ii:" + _BASE + "#instance\",\"type\":\"si:" + TMDM.INSTANCE.getReference() + "\"");
+    }
+
+    public void testName() throws Exception {
+        final Topic topic = _createTopic(_BASE + "#topic");
+        final Topic theme = _createTopic(_BASE + "#theme");
+        final Name name = topic.createName("Semagia", theme);
+        name.createVariant("Semagia\u2122", _createTopic(_BASE + "#variant-theme"));
+        final String jtm = _write();
+        _assertContains(jtm, "\"names\":[{\"value\":\"Semagia\",\"scope\":[\"ii:" + _BASE + "#theme\"]");
+        _assertContains(jtm, "\"variants\":[{\"value\":\"Semagia\u2122\",\"scope\":[\"ii:" + _BASE + "#variant-theme\"]}]");
+        assertEquals(-1, jtm.indexOf("\"type\":\"si:" + TMDM.TOPIC_NAME.getReference()));
+    }
+
+    public void testOccurrence() throws Exception {
+        final Topic topic = _createTopic(_BASE + "#topic");
+        topic.createOccurrence(_createTopic(_BASE + "#homepage"), createLocator("http://www.semagia.com/"));
+        topic.createOccurrence(_createTopic(_BASE + "#note"), "\"Note\"\n");
+        final String jtm = _write();
+        _assertContains(jtm, "{\"value\":\"http://www.semagia.com/\",\"datatype\":\"" + XSD.ANY_URI.getReference() + "\",\"type\":\"ii:" + _BASE + "#homepage\"}");
+        _assertContains(jtm, "{\"value\":\"\\\"Note\\\"\\n\",\"type\":\"ii:" + _BASE + "#note\"}");
+    }
+
+    public void testAssociation() throws Exception {
+        final Topic type = _createTopic(_BASE + "#type");
+        _tm.createAssociation(type).createRole(_createTopic(_BASE + "#role-type"), 
+                _createTopic(_BASE + "#player"));
+        final String jtm = _write();
+        _assertContains(jtm, "\"associations\":[{\"type\":\"ii:" + _BASE + "#type\",\"roles\":[{\"player\":\"ii:" 
+                + _BASE + "#player\",\"type\":\"ii:" + _BASE + "#role-type\"}]}]");
+    }
+
+    public void testTopicFragment() throws Exception {
+        _tm.addItemIdentifier(createLocator(_BASE + "#map"));
+        final Topic topic = _createTopic(_BASE + "#topic");
+        topic.createName("tinyTiM");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JTMTopicMapWriter(out, _BASE).write(topic);
+        final String jtm = out.toString("utf-8");
+        assertTrue(jtm.startsWith("{\"version\":\"1.1\",\"item_type\":\"topic\",\"parent\":[\"ii:" + _BASE + "#map\"]"));
+        _assertContains(jtm, "\"item_identifiers\":[\"" + _BASE + "#topic\"]");
+        _assertContains(jtm, "\"names\":[{\"value\":\"tinyTiM\"}]");
+        assertEquals(-1, jtm.indexOf("topics"));
+    }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.tinytim.core.AbstractTinyTimTestCase;
+import org.tinytim.utils.MergePlan;
+
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+
+/**
+ * Tests against the {@link ParallelTopicMapImporter}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestParallelTopicMapImporter extends AbstractTinyTimTestCase {
+
+    private static final String _BASE = "http://www.tinytim.org/test/";
+
+    /**
+     * Source which creates topics with the subject identifiers 
+     * <tt>_BASE + (start ... end-1)</tt>; each topic gets a name.
+     */
+    private static ParallelTopicMapImporter.Source _source(final int start, final int end) {
+        return new ParallelTopicMapImporter.Source() {
+            public TopicMapReader createReader(final TopicMap topicMap) {
+                return new TopicMapReader() {
+                    public void read() {
+                        for (int i=start; i < end; i++) {
+                            final Topic topic = topicMap.createTopicBySubjectIdentifier(
+                                    topicMap.createLocator(_BASE + i));
+                            topic.createName("Topic " + i);
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    private static ParallelTopicMapImporter.Source _failingSource() {
+        return new ParallelTopicMapImporter.Source() {
+            public TopicMapReader createReader(final TopicMap topicMap) {
+                return new TopicMapReader() {
+                    public void read() throws IOException {
+                        throw new IOException("Failure");
+                    }
+                };
+            }
+        };
+    }
+
+    public void testIllegalMaxThreads() {
+        final ParallelTopicMapImporter importer = new ParallelTopicMapImporter(_tm);
+        try {
+            importer.setMaxThreads(0);
+            fail("Expected an exception for 0 threads");
+        }
+        catch (IllegalArgumentException ex) {
+            // noop.
+        }
+    }
+
+    public void testNoSources() throws Exception {
+        assertTrue(new ParallelTopicMapImporter(_tm).importSources().isEmpty());
+        assertEquals(0, _tm.getTopics().size());
+    }
+
+    public void testImport() throws Exception {
+        _tm.createTopicBySubjectIdentifier(createLocator(_BASE + 0));
+        final ParallelTopicMapImporter importer = new ParallelTopicMapImporter(_tm);
+        importer.setMaxThreads(3);
+        importer.addSource(_source(0, 100));
+        importer.addSource(_source(50, 150));
+        importer.addSource(_source(150, 200));
+        importer.addSource(_source(190, 210));
+        final List<MergePlan> plans = importer.importSources();
+        assertEquals(4, plans.size());
+        // 210 topics + the default name type
+        assertEquals(211, _tm.getTopics().size());
+        for (int i=0; i < 210; i++) {
+            final Topic topic = _tm.getTopicBySubjectIdentifier(createLocator(_BASE + i));
+            assertNotNull(topic);
+            // Duplicate names are removed by merging
+            assertEquals(1, topic.getNames().size());
+        }
+        // Each source contains the default name type topic as well
+        assertEquals(1, plans.get(0).getMergedTopicCount());
+        assertEquals(100, plans.get(0).getNewTopicCount());
+        assertEquals(51, plans.get(1).getMergedTopicCount());
+        assertEquals(50, plans.get(1).getNewTopicCount());
+        assertEquals(1, plans.get(2).getMergedTopicCount());
+        assertEquals(11, plans.get(3).getMergedTopicCount());
+        for (MergePlan plan: plans) {
+            assertTrue(plan.isApplied());
+        }
+    }
+
+    public void testFailingSource() throws Exception {
+        final ParallelTopicMapImporter importer = new ParallelTopicMapImporter(_tm);
+        importer.setMaxThreads(2);
+        importer.addSource(_source(0, 10));
+        importer.addSource(_failingSource());
+        importer.addSource(_source(10, 20));
+        try {
+            importer.importSources();
+            fail("Expected an exception");
+        }
+        catch (IOException ex) {
+            assertEquals("Failure", ex.getMessage());
+        }
+        // The first source has been imported
+        assertNotNull(_tm.getTopicBySubjectIdentifier(createLocator(_BASE + 9)));
+        assertNull(_tm.getTopicBySubjectIdentifier(createLocator(_BASE + 10)));
+    }
+
+    public void testReadersFinishBeforeReturn() throws Exception {
+        final boolean[] finished = new boolean[1];
+        final ParallelTopicMapImporter importer = new ParallelTopicMapImporter(_tm);
+        importer.setMaxThreads(2);
+        importer.addSource(_failingSource());
+        importer.addSource(new ParallelTopicMapImporter.Source() {
+            public TopicMapReader createReader(final TopicMap topicMap) {
+                return new TopicMapReader() {
+                    public void read() {
+                        // Ignores interruptions
+                        final long end = System.currentTimeMillis() + 500;
+                        while (System.currentTimeMillis() < end) {
+                            try {
+                                Thread.sleep(50);
+                            }
+                            catch (InterruptedException ex) {
+                                // noop.
+                            }
+                        }
+                        topicMap.createTopicBySubjectIdentifier(topicMap.createLocator(_BASE + "slow"));
+                        synchronized (finished) {
+                            finished[0] = true;
+                        }
+                    }
+                };
+            }
+        });
+        try {
+            importer.importSources();
+            fail("Expected an exception");
+        }
+        catch (IOException ex) {
+            assertEquals("Failure", ex.getMessage());
+        }
+        synchronized (finished) {
+            assertTrue(finished[0]);
+        }
+        assertNull(_tm.getTopicBySubjectIdentifier(createLocator(_BASE + "slow")));
+    }
+
+    /**
+     * Source which creates a topic with the subject identifier <tt>sid</tt>
+     * and an occurrence with the item identifier <tt>iid</tt>.
+     */
+    private static ParallelTopicMapImporter.Source _occurrenceSource(final String sid, 
+            final String iid) {
+        return new ParallelTopicMapImporter.Source() {
+            public TopicMapReader createReader(final TopicMap topicMap) {
+                return new TopicMapReader() {
+                    public void read() {
+                        final Topic topic = topicMap.createTopicBySubjectIdentifier(
+                                topicMap.createLocator(_BASE + sid));
+                        final Topic type = topicMap.createTopicBySubjectIdentifier(
+                                topicMap.createLocator(_BASE + "type"));
+                        final Occurrence occ = topic.createOccurrence(type, "value");
+                        occ.addItemIdentifier(topicMap.createLocator(_BASE + iid));
+                    }
+                };
+            }
+        };
+    }
+
+    public void testSharedItemIdentifierOfEqualConstructs() throws Exception {
+        final ParallelTopicMapImporter importer = new ParallelTopicMapImporter(_tm);
+        importer.addSource(_occurrenceSource("topic", "occ"));
+        importer.addSource(_occurrenceSource("topic", "occ"));
+        importer.importSources();
+        final Topic topic = _tm.getTopicBySubjectIdentifier(createLocator(_BASE + "topic"));
+        assertEquals(1, topic.getOccurrences().size());
+        assertEquals(topic.getOccurrences().iterator().next(), 
+                _tm.getConstructByItemIdentifier(createLocator(_BASE + "occ")));
+    }
+
+    public void testSharedItemIdentifierConflict() throws Exception {
+        final ParallelTopicMapImporter importer = new ParallelTopicMapImporter(_tm);
+        importer.addSource(_occurrenceSource("topic-1", "occ"));
+        importer.addSource(_occurrenceSource("topic-2", "occ"));
+        try {
+            importer.importSources();
+            fail("Expected an exception");
+        }
+        catch (IOException ex) {
+            assertTrue(ex.getMessage().indexOf(_BASE + "occ") > -1);
+        }
+        // The first source has been imported, the second source is untouched
+        assertNotNull(_tm.getTopicBySubjectIdentifier(createLocator(_BASE + "topic-1")));
+        assertNull(_tm.getTopicBySubjectIdentifier(createLocator(_BASE + "topic-2")));
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.tinytim.internal.utils.CollectionFactory;
+
+import com.semagia.mio.MIOException;
+import com.semagia.mio.helpers.Ref;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests against the {@link PipelinedMapHandler}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestPipelinedMapHandler extends TestCase {
+
+    private static final String _BASE = "http://www.tinytim.org/test";
+
+    /**
+     * Reports a topic map with the provided number of topics.
+     */
+    private static void _reportTopics(PipelinedMapHandler handler, int count) throws MIOException {
+        handler.startTopicMap();
+        for (int i=0; i < count; i++) {
+            handler.startTopic(Ref.createItemIdentifier(_BASE + "#t" + i));
+            handler.startReifier();
+            handler.topicRef(Ref.createSubjectIdentifier(_BASE + "/r" + i));
+            handler.endReifier();
+            handler.itemIdentifier(_BASE + "#iid" + i);
+            handler.endTopic();
+        }
+        handler.endTopicMap();
+    }
+
+    private static List<String> _expectedTopics(int count) {
+        final List<String> expected = CollectionFactory.createList();
+        expected.add("startTopicMap");
+        for (int i=0; i < count; i++) {
+            expected.add("startTopic ii:" + _BASE + "#t" + i);
+            expected.add("startReifier");
+            expected.add("topicRef si:" + _BASE + "/r" + i);
+            expected.add("endReifier");
+            expected.add("itemIdentifier " + _BASE + "#iid" + i);
+            expected.add("endTopic");
+        }
+        expected.add("endTopicMap");
+        return expected;
+    }
+
+    public void testIllegalCapacity() {
+        try {
+            new PipelinedMapHandler(new RecordingMapHandler(), 1);
+            fail("Expected an exception for capacity 1");
+        }
+        catch (IllegalArgumentException ex) {
+            // noop.
+        }
+    }
+
+    public void testIllegalHandler() {
+        try {
+            new PipelinedMapHandler(null);
+            fail("The handler must not be null");
+        }
+        catch (IllegalArgumentException ex) {
+            // noop.
+        }
+    }
+
+    public void testOrder() throws Exception {
+        final RecordingMapHandler recorder = new RecordingMapHandler();
+        _reportTopics(new PipelinedMapHandler(recorder), 1000);
+        assertEquals(_expectedTopics(1000), recorder.events);
+    }
+
+    public void testBackpressure() throws Exception {
+        final RecordingMapHandler recorder = new RecordingMapHandler() {
+            @Override
+            void record(String event) throws MIOException {
+                if (events.size() % 100 == 0) {
+                    Thread.yield();
+                }
+                super.record(event);
+            }
+        };
+        // Capacity of 4 events: The parser has to wait for the consumer
+        _reportTopics(new PipelinedMapHandler(recorder, 4), 500);
+        assertEquals(_expectedTopics(500), recorder.events);
+    }
+
+    public void testReuse() throws Exception {
+        final RecordingMapHandler recorder = new RecordingMapHandler();
+        final PipelinedMapHandler handler = new PipelinedMapHandler(recorder, 16);
+        _reportTopics(handler, 10);
+        recorder.events.clear();
+        _reportTopics(handler, 20);
+        assertEquals(_expectedTopics(20), recorder.events);
+    }
+
+    public void testError() throws Exception {
+        final RecordingMapHandler recorder = new RecordingMapHandler() {
+            @Override
+            void record(String event) throws MIOException {
+                if (events.size() == 50) {
+                    throw new MIOException("Failure");
+                }
+                super.record(event);
+            }
+        };
+        final PipelinedMapHandler handler = new PipelinedMapHandler(recorder, 8);
+        try {
+            _reportTopics(handler, 1000);
+            fail("Expected an exception");
+        }
+        catch (MIOException ex) {
+            assertEquals("Failure", ex.getMessage());
+        }
+        assertEquals(50, recorder.events.size());
+        // The handler can be used again
+        recorder.events.clear();
+        _reportTopics(handler, 2);
+        assertEquals(_expectedTopics(2), recorder.events);
+    }
+
+    public void testErrorAtTheEnd() throws Exception {
+        final RecordingMapHandler recorder = new RecordingMapHandler() {
+            @Override
+            public void endTopicMap() throws MIOException {
+                throw new MIOException("Failure");
+            }
+        };
+        try {
+            _reportTopics(new PipelinedMapHandler(recorder), 10);
+            fail("Expected an exception");
+        }
+        catch (MIOException ex) {
+            assertEquals("Failure", ex.getMessage());
+        }
+    }
+
+    public void testAbort() throws Exception {
+        final RecordingMapHandler recorder = new RecordingMapHandler();
+        final PipelinedMapHandler handler = new PipelinedMapHandler(recorder, 8);
+        handler.startTopicMap();
+        handler.startTopic(Ref.createItemIdentifier(_BASE + "#t"));
+        handler.abort();
+        // No effect
+        handler.abort();
+        recorder.events.clear();
+        _reportTopics(handler, 3);
+        assertEquals(_expectedTopics(3), recorder.events);
+    }
+
+    public void testParser() throws Exception {
+        final String jtm = "{\"version\":\"1.0\",\"item_type\":\"topicmap\",\"topics\":[" 
+                + "{\"item_identifiers\":[\"#a\"],\"names\":[{\"value\":\"A\",\"reifier\":\"ii:#r\"}]}]}";
+        final RecordingMapHandler direct = new RecordingMapHandler();
+        new JTMParser(direct).parse(new StringReader(jtm), _BASE);
+        final RecordingMapHandler pipelined = new RecordingMapHandler();
+        final PipelinedMapHandler handler = new PipelinedMapHandler(pipelined, 4);
+        try {
+            new JTMParser(handler).parse(new StringReader(jtm), _BASE);
+        }
+        finally {
+            handler.abort();
+        }
+        assertEquals(direct.events, pipelined.events);
+    }
+
+}
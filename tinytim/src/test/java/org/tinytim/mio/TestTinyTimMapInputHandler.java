@@ -15,6 +15,9 @@
  */
 package org.tinytim.mio;
 
+import org.tinytim.voc.TMDM;
+import org.tinytim.voc.XTM10;
+
 import org.tmapi.core.Construct;
 import org.tmapi.core.DatatypeAware;
 import org.tmapi.core.Locator;
@@ -28,6 +31,8 @@ import org.tmapi.core.Typed;
 
 import com.semagia.mio.AbstractMapHandlerTest;
 import com.semagia.mio.IMapHandler;
+import com.semagia.mio.IRef;
+import com.semagia.mio.helpers.Ref;
 
 /**
  * Tests against the {@link org.tinytim.mio.TinyTimMapInputHandler}.
@@ -121,4 +126,97 @@ public class TestTinyTimMapInputHandler extends AbstractMapHandlerTest {
         return ((Name) obj).getValue();
     }
 
+    private static IRef _sid(Locator loc) {
+        return Ref.createSubjectIdentifier(loc.getReference());
+    }
+
+    /**
+     * Reports a type-instance association between <tt>#type</tt> and 
+     * <tt>#instance</tt>.
+     *
+     * @param assocType The association type.
+     * @param typeRole The role type of the type.
+     * @param instanceRole The role type of the instance.
+     * @param scoped Indicates if the association should be scoped.
+     * @param reifiedRole Indicates if the instance role should be reified.
+     */
+    private void _reportTypeInstance(Locator assocType, Locator typeRole, 
+            Locator instanceRole, boolean scoped, boolean reifiedRole) throws Exception {
+        final IMapHandler handler = makeMapHandler();
+        handler.startTopicMap();
+        handler.startAssociation();
+        handler.startType();
+        handler.topicRef(_sid(assocType));
+        handler.endType();
+        if (scoped) {
+            handler.startScope();
+            handler.topicRef(Ref.createItemIdentifier(_IRI + "#theme"));
+            handler.endScope();
+        }
+        handler.startRole();
+        handler.startType();
+        handler.topicRef(_sid(typeRole));
+        handler.endType();
+        handler.startPlayer();
+        handler.topicRef(Ref.createItemIdentifier(_IRI + "#type"));
+        handler.endPlayer();
+        handler.endRole();
+        handler.startRole();
+        handler.startType();
+        handler.topicRef(_sid(instanceRole));
+        handler.endType();
+        handler.startPlayer();
+        handler.topicRef(Ref.createItemIdentifier(_IRI + "#instance"));
+        handler.endPlayer();
+        if (reifiedRole) {
+            handler.startReifier();
+            handler.topicRef(Ref.createItemIdentifier(_IRI + "#reifier"));
+            handler.endReifier();
+        }
+        handler.endRole();
+        handler.endAssociation();
+        handler.endTopicMap();
+    }
+
+    private void _assertTyped(boolean typed) {
+        final Topic type = (Topic) getConstructByItemIdentifier(_IRI + "#type");
+        final Topic instance = (Topic) getConstructByItemIdentifier(_IRI + "#instance");
+        assertNotNull(type);
+        assertNotNull(instance);
+        if (typed) {
+            assertEquals(0, _tm.getAssociations().size());
+            assertEquals(1, instance.getTypes().size());
+            assertTrue(instance.getTypes().contains(type));
+        }
+        else {
+            assertEquals(1, _tm.getAssociations().size());
+            assertTrue(instance.getTypes().isEmpty());
+        }
+    }
+
+    public void testTypeInstanceAssociation() throws Exception {
+        _reportTypeInstance(TMDM.TYPE_INSTANCE, TMDM.TYPE, TMDM.INSTANCE, false, false);
+        _assertTyped(true);
+    }
+
+    public void testClassInstanceAssociation() throws Exception {
+        _reportTypeInstance(XTM10.CLASS_INSTANCE, XTM10.CLASS, XTM10.INSTANCE, false, false);
+        _assertTyped(true);
+    }
+
+    public void testScopedTypeInstanceAssociation() throws Exception {
+        _reportTypeInstance(TMDM.TYPE_INSTANCE, TMDM.TYPE, TMDM.INSTANCE, true, false);
+        _assertTyped(false);
+    }
+
+    public void testTypeInstanceAssociationWithReifiedRole() throws Exception {
+        _reportTypeInstance(TMDM.TYPE_INSTANCE, TMDM.TYPE, TMDM.INSTANCE, false, true);
+        _assertTyped(false);
+    }
+
+    public void testTypeInstanceAssociationWithIllegalRoleTypes() throws Exception {
+        _reportTypeInstance(TMDM.TYPE_INSTANCE, TMDM.TYPE, XTM10.INSTANCE, false, false);
+        _assertTyped(false);
+    }
+
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+
+import junit.framework.TestCase;
+
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Tests against the {@link XMLC14NWriter}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestXMLC14NWriter extends TestCase {
+
+    private static void _write(XMLC14NWriter writer, String attrValue, String text) throws Exception {
+        final AttributesImpl attrs = new AttributesImpl();
+        attrs.addAttribute("", "b", "", "CDATA", "2");
+        attrs.addAttribute("", "a", "", "CDATA", attrValue);
+        writer.startDocument();
+        writer.startElement("e", attrs);
+        writer.characters(text);
+        writer.endElement("e");
+        writer.newline();
+        writer.endDocument();
+    }
+
+    private static String _write(String attrValue, String text) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        _write(new XMLC14NWriter(out), attrValue, text);
+        return out.toString("utf-8");
+    }
+
+    public void testEscaping() throws Exception {
+        assertEquals("<e a=\"&#x9;&#xA;&#xD;&quot;&amp;&lt;>'\" b=\"2\">\t\n&#xD;\"&amp;&lt;&gt;'</e>\n", 
+                _write("\t\n\r\"&<>'", "\t\n\r\"&<>'"));
+    }
+
+    public void testNonAscii() throws Exception {
+        final String value = "\u00e9\u20ac\u65e5\ud834\udd1e";
+        assertEquals("<e a=\"" + value + "\" b=\"2\">" + value + "</e>\n", _write(value, value));
+    }
+
+    public void testUnpairedSurrogates() throws Exception {
+        assertEquals("<e a=\"?a\" b=\"2\">a??</e>\n", _write("\ud834a", "a\udd1e\ud834"));
+    }
+
+    public void testLongContent() throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        for (int i=0; i < 20000; i++) {
+            sb.append("\u00e9&");
+        }
+        final String result = _write("", sb.toString());
+        assertEquals(20000, result.split("&amp;", -1).length - 1);
+        assertEquals(20000, result.split("\u00e9", -1).length - 1);
+    }
+
+    public void testChannel() throws Exception {
+        final String value = "\u00e9\u20ac & <";
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        _write(new XMLC14NWriter(Channels.newChannel(out)), value, value);
+        assertEquals(_write(value, value), out.toString("utf-8"));
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.mio;
+
+import java.io.ByteArrayOutputStream;
+
+import org.tinytim.core.AbstractTinyTimTestCase;
+import org.tinytim.voc.XSD;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Name;
+import org.tmapi.core.Topic;
+
+/**
+ * Tests against the {@link XTM20TopicMapWriter}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestXTM20TopicMapWriter extends AbstractTinyTimTestCase {
+
+    private static final String _BASE = "http://www.tinytim.org/test";
+
+    private String _write(XTM20TopicMapWriter.TopicReferenceStyle style) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final XTM20TopicMapWriter writer = new XTM20TopicMapWriter(out, _BASE);
+        writer.setTopicReferenceStyle(style);
+        writer.write(_tm);
+        return out.toString("utf-8");
+    }
+
+    private String _write() throws Exception {
+        return _write(XTM20TopicMapWriter.TopicReferenceStyle.ITEM_IDENTIFIER);
+    }
+
+    private Topic _createTopic(String iid) {
+        return _tm.createTopicByItemIdentifier(createLocator(iid));
+    }
+
+    private static void _assertContains(String xtm, String expected) {
+        assertTrue("Expected '" + expected + "' in " + xtm, xtm.indexOf(expected) > -1);
+    }
+
+    public void testTopicMap() throws Exception {
+        _tm.addItemIdentifier(createLocator(_BASE + "#map"));
+        _tm.setReifier(_createTopic(_BASE + "#reifier"));
+        final String xtm = _write();
+        assertTrue(xtm.startsWith("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<topicMap xmlns=\"http://www.topicmaps.org/xtm/\" version=\"2.0\" reifier=\"#reifier\">"));
+        _assertContains(xtm, "<itemIdentity href=\"" + _BASE + "#map\"/>");
+        _assertContains(xtm, "<topic id=\"reifier\"></topic>");
+        assertTrue(xtm.endsWith("</topicMap>"));
+    }
+
+    public void testTopic() throws Exception {
+        final Topic topic = _tm.createTopicBySubjectIdentifier(createLocator("http://www.example.org/sid"));
+        topic.addSubjectLocator(createLocator("http://www.example.org/slo"));
+        topic.addItemIdentifier(createLocator("http://www.example.org/iid"));
+        topic.addItemIdentifier(createLocator(_BASE + "#b"));
+        topic.addItemIdentifier(createLocator(_BASE + "#a"));
+        topic.addType(_createTopic(_BASE + "#type"));
+        final String xtm = _write();
+        _assertContains(xtm, "<topic id=\"a\">");
+        _assertContains(xtm, "<itemIdentity href=\"" + _BASE + "#b\"/>");
+        _assertContains(xtm, "<itemIdentity href=\"http://www.example.org/iid\"/>");
+        assertEquals(-1, xtm.indexOf("<itemIdentity href=\"" + _BASE + "#a\"/>"));
+        _assertContains(xtm, "<subjectLocator href=\"http://www.example.org/slo\"/>");
+        _assertContains(xtm, "<subjectIdentifier href=\"http://www.example.org/sid\"/>");
+        _assertContains(xtm, "<instanceOf><topicRef href=\"#type\"/></instanceOf>");
+    }
+
+    public void testName() throws Exception {
+        final Topic topic = _createTopic(_BASE + "#topic");
+        final Topic theme = _createTopic(_BASE + "#theme");
+        final Topic theme2 = _createTopic(_BASE + "#theme2");
+        final Name name = topic.createName("Name & <value>", theme);
+        name.createVariant("Variant", theme, theme2);
+        _createTopic(_BASE + "#type").createName(_createTopic(_BASE + "#name-type"), "Typed name");
+        final String xtm = _write();
+        _assertContains(xtm, "<name><scope><topicRef href=\"#theme\"/></scope><value>Name &amp; &lt;value&gt;</value>"
+                + "<variant><scope><topicRef href=\"#theme2\"/></scope><resourceData>Variant</resourceData></variant></name>");
+        _assertContains(xtm, "<name><type><topicRef href=\"#name-type\"/></type><value>Typed name</value></name>");
+    }
+
+    public void testOccurrence() throws Exception {
+        final Topic topic = _createTopic(_BASE + "#topic");
+        final Topic type = _createTopic(_BASE + "#type");
+        topic.createOccurrence(type, createLocator("http://www.example.org/"));
+        topic.createOccurrence(type, "1", XSD.INTEGER).setReifier(_createTopic(_BASE + "#reifier"));
+        final String xtm = _write();
+        _assertContains(xtm, "<occurrence><type><topicRef href=\"#type\"/></type><resourceRef href=\"http://www.example.org/\"/></occurrence>");
+        _assertContains(xtm, "<occurrence reifier=\"#reifier\"><type><topicRef href=\"#type\"/></type><resourceData datatype=\"" 
+                + XSD.INTEGER.getReference() + "\">1</resourceData></occurrence>");
+    }
+
+    public void testAssociation() throws Exception {
+        final Topic type = _createTopic(_BASE + "#type");
+        final Topic player = _createTopic(_BASE + "#player");
+        final Association assoc = _tm.createAssociation(type, _createTopic(_BASE + "#theme"));
+        assoc.createRole(type, player).addItemIdentifier(createLocator(_BASE + "#role"));
+        final String xtm = _write();
+        _assertContains(xtm, "<association><type><topicRef href=\"#type\"/></type><scope><topicRef href=\"#theme\"/></scope>"
+                + "<role><itemIdentity href=\"" + _BASE + "#role\"/><type><topicRef href=\"#type\"/></type><topicRef href=\"#player\"/></role></association>");
+    }
+
+    public void testIdReferenceStyle() throws Exception {
+        final Topic topic = _createTopic(_BASE + "#topic");
+        final String id = "id-" + topic.getId();
+        final String xtm = _write(XTM20TopicMapWriter.TopicReferenceStyle.ID);
+        _assertContains(xtm, "<topic id=\"" + id + "\"><itemIdentity href=\"" + _BASE + "#topic\"/></topic>");
+    }
+
+    public void testGeneratedIdIsUnique() throws Exception {
+        final Topic topic = createTopic();
+        final String id = "id-" + topic.getId();
+        _createTopic(_BASE + "#" + id);
+        final String xtm = _write();
+        _assertContains(xtm, "<topic id=\"" + id + "-1\">");
+        _assertContains(xtm, "<topic id=\"" + id + "\">");
+    }
+
+    public void testPrettify() throws Exception {
+        _createTopic(_BASE + "#topic").createName("Name");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final XTM20TopicMapWriter writer = new XTM20TopicMapWriter(out, _BASE);
+        writer.setPrettify(true);
+        writer.write(_tm);
+        final String xtm = out.toString("utf-8");
+        _assertContains(xtm, "\n  <topic id=\"topic\">\n    <name>\n      <value>Name</value>\n    </name>\n  </topic>\n");
+        assertTrue(xtm.endsWith("\n</topicMap>\n"));
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.utils;
+
+import org.tinytim.core.AbstractTinyTimTestCase;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Locator;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+
+/**
+ * Tests against the {@link MergePlan}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestMergePlan extends AbstractTinyTimTestCase {
+
+    private TopicMap _createTopicMap() throws Exception {
+        return _sys.createTopicMap("http://www.example.org/source-map");
+    }
+
+    public void testTopicCounts() throws Exception {
+        final Locator sid1 = createLocator("http://www.example.org/sid-1");
+        final Locator sid2 = createLocator("http://www.example.org/sid-2");
+        _tm.createTopicBySubjectIdentifier(sid1);
+        _tm.createTopicByItemIdentifier(sid2);
+        final TopicMap source = _createTopicMap();
+        final Topic topic = source.createTopicBySubjectIdentifier(sid1);
+        topic.addSubjectIdentifier(sid2);
+        source.createTopic();
+        source.createTopic();
+        final MergePlan plan = MergePlanUtils.createMergePlan(source, _tm);
+        assertEquals(1, plan.getMergedTopicCount());
+        assertEquals(1, plan.getMergedTargetTopicCount());
+        assertEquals(2, plan.getNewTopicCount());
+        assertTrue(plan.isConflictFree());
+        assertEquals(2, _tm.getTopics().size());
+        assertEquals(3, source.getTopics().size());
+        assertFalse(plan.isApplied());
+        plan.apply();
+        assertTrue(plan.isApplied());
+        assertEquals(3, _tm.getTopics().size());
+    }
+
+    public void testDuplicates() throws Exception {
+        final Locator sid = createLocator("http://www.example.org/sid");
+        final Locator typeSid = createLocator("http://www.example.org/type");
+        final Topic targetTopic = _tm.createTopicBySubjectIdentifier(sid);
+        final Topic targetType = _tm.createTopicBySubjectIdentifier(typeSid);
+        targetTopic.createOccurrence(targetType, "value");
+        _tm.createAssociation(targetType).createRole(targetType, targetTopic);
+        final TopicMap source = _createTopicMap();
+        final Topic sourceTopic = source.createTopicBySubjectIdentifier(sid);
+        final Topic sourceType = source.createTopicBySubjectIdentifier(typeSid);
+        sourceTopic.createOccurrence(sourceType, "value");
+        sourceTopic.createOccurrence(sourceType, "other value");
+        source.createAssociation(sourceType).createRole(sourceType, sourceTopic);
+        source.createAssociation(sourceType).createRole(sourceType, sourceType);
+        final MergePlan plan = MergePlanUtils.createMergePlan(source, _tm);
+        assertEquals(2, plan.getMergedTopicCount());
+        assertEquals(0, plan.getNewTopicCount());
+        assertEquals(1, plan.getDuplicateOccurrenceCount());
+        assertEquals(0, plan.getDuplicateNameCount());
+        assertEquals(1, plan.getDuplicateAssociationCount());
+        assertEquals(1, targetTopic.getOccurrences().size());
+        assertEquals(1, _tm.getAssociations().size());
+        plan.apply();
+        assertEquals(2, targetTopic.getOccurrences().size());
+        assertEquals(2, _tm.getAssociations().size());
+    }
+
+    public void testDuplicateNamesOfSourceTopics() throws Exception {
+        final Locator sid1 = createLocator("http://www.example.org/sid-1");
+        final Locator sid2 = createLocator("http://www.example.org/sid-2");
+        final Topic target = _tm.createTopicBySubjectIdentifier(sid1);
+        target.addSubjectIdentifier(sid2);
+        final TopicMap source = _createTopicMap();
+        source.createTopicBySubjectIdentifier(sid1).createName("Name");
+        source.createTopicBySubjectIdentifier(sid2).createName("Name");
+        final MergePlan plan = MergePlanUtils.createMergePlan(source, _tm);
+        assertEquals(1, plan.getDuplicateNameCount());
+        plan.apply();
+        assertEquals(1, target.getNames().size());
+    }
+
+    public void testConflict() throws Exception {
+        final Locator iid = createLocator("http://www.example.org/iid");
+        final Association assoc = createAssociation();
+        assoc.addItemIdentifier(iid);
+        final TopicMap source = _createTopicMap();
+        source.createTopicByItemIdentifier(iid);
+        final MergePlan plan = MergePlanUtils.createMergePlan(source, _tm);
+        assertFalse(plan.isConflictFree());
+        assertEquals(1, plan.getConflictingItemIdentifiers().size());
+        assertEquals(iid, plan.getConflictingItemIdentifiers().get(0));
+    }
+
+    public void testApplyTwice() throws Exception {
+        final MergePlan plan = MergePlanUtils.createMergePlan(_createTopicMap(), _tm);
+        plan.apply();
+        try {
+            plan.apply();
+            fail("Expected an IllegalStateException");
+        }
+        catch (IllegalStateException ex) {
+            // noop.
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import org.tinytim.core.AbstractTinyTimTestCase;
+import org.tinytim.internal.utils.CollectionFactory;
+import org.tinytim.internal.utils.MergeUtils;
+import org.tinytim.mio.CXTMTopicMapWriter;
+import org.tinytim.mio.TinyTimMapInputHandler;
+import org.tinytim.utils.OperationEvent.Operation;
+
+import org.tmapi.core.TopicMap;
+
+/**
+ * Tests against the {@link OperationMonitor}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestOperationMonitor extends AbstractTinyTimTestCase {
+
+    private List<OperationEvent> _events;
+    private OperationListener _listener;
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.AbstractTinyTimTestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _events = CollectionFactory.createList();
+        _listener = new OperationListener() {
+            public void operationFinished(OperationEvent event) {
+                _events.add(event);
+            }
+        };
+        OperationMonitor.addListener(_listener);
+    }
+
+    /* (non-Javadoc)
+     * @see org.tinytim.core.AbstractTinyTimTestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+        OperationMonitor.removeListener(_listener);
+        super.tearDown();
+        _events = null;
+        _listener = null;
+    }
+
+    public void testMerge() throws Exception {
+        final TopicMap source = _sys.createTopicMap(_IRI + "source");
+        source.createTopic();
+        source.createTopic();
+        MergeUtils.merge(source, _tm);
+        // The merge copies the topic map
+        assertEquals(2, _events.size());
+        assertEquals(Operation.COPY, _events.get(0).getOperation());
+        final OperationEvent event = _events.get(1);
+        assertEquals(Operation.MERGE, event.getOperation());
+        assertSame(_tm, event.getTopicMap());
+        assertEquals(2, event.getConstructCount());
+        assertTrue(event.getDuration() >= 0);
+        assertTrue(event.getStartTime() + event.getDuration() <= System.nanoTime());
+    }
+
+    public void testRemoveDuplicates() {
+        createTopic();
+        createAssociation();
+        DuplicateRemovalUtils.removeDuplicates(_tm);
+        assertEquals(1, _events.size());
+        assertEquals(Operation.REMOVE_DUPLICATES, _events.get(0).getOperation());
+        // topic, association type and association
+        assertEquals(3, _events.get(0).getConstructCount());
+    }
+
+    public void testCXTMExport() throws Exception {
+        createTopic();
+        new CXTMTopicMapWriter(new ByteArrayOutputStream(), _IRI).write(_tm);
+        // The writer removes the duplicates before the topic map is written
+        assertEquals(2, _events.size());
+        assertEquals(Operation.REMOVE_DUPLICATES, _events.get(0).getOperation());
+        assertEquals(Operation.CXTM_EXPORT, _events.get(1).getOperation());
+    }
+
+    public void testImport() throws Exception {
+        final TinyTimMapInputHandler handler = new TinyTimMapInputHandler(_tm);
+        handler.startTopicMap();
+        assertTrue(_events.isEmpty());
+        handler.endTopicMap();
+        assertEquals(1, _events.size());
+        assertEquals(Operation.IMPORT, _events.get(0).getOperation());
+        assertSame(_tm, _events.get(0).getTopicMap());
+    }
+
+    public void testNoListener() {
+        OperationMonitor.removeListener(_listener);
+        DuplicateRemovalUtils.removeDuplicates(_tm);
+        assertTrue(_events.isEmpty());
+    }
+
+    public void testToString() {
+        DuplicateRemovalUtils.removeDuplicates(_tm);
+        assertTrue(_events.get(0).toString().startsWith("REMOVE_DUPLICATES <" + _IRI + ">: constructs=0"));
+    }
+
+}
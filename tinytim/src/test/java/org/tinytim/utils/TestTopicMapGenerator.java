@@ -0,0 +1,184 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Set;
+
+import org.tinytim.core.AbstractTinyTimTestCase;
+import org.tinytim.internal.utils.CollectionFactory;
+import org.tinytim.mio.CXTMTopicMapWriter;
+
+import org.tmapi.core.Name;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+
+/**
+ * Tests against the {@link TopicMapGenerator}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestTopicMapGenerator extends AbstractTinyTimTestCase {
+
+    private static final String _BASE = "http://www.tinytim.org/test/generated/";
+
+    private TopicMapGenerator _createGenerator() {
+        final TopicMapGenerator gen = new TopicMapGenerator();
+        gen.setBaseIRI(_BASE);
+        gen.setTopicCount(100);
+        gen.setTopicTypeCount(5);
+        gen.setNamesPerTopic(2);
+        gen.setOccurrencesPerTopic(3);
+        gen.setOccurrenceTypeCount(4);
+        gen.setAssociationsPerTopic(2);
+        gen.setAssociationTypeCount(3);
+        return gen;
+    }
+
+    private String _cxtm(TopicMap topicMap) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CXTMTopicMapWriter(out, _BASE).write(topicMap);
+        return out.toString("utf-8");
+    }
+
+    public void testCounts() {
+        _createGenerator().generate(_tm);
+        // 100 topics + 5 topic types + 4 occurrence types + 3 association types 
+        // + 2 role types + 10 themes + 1 name type
+        assertEquals(125, _tm.getTopics().size());
+        assertEquals(200, _tm.getAssociations().size());
+        int names = 0;
+        int occurrences = 0;
+        for (Topic topic: _tm.getTopics()) {
+            names += topic.getNames().size();
+            occurrences += topic.getOccurrences().size();
+        }
+        assertEquals(200, names);
+        assertEquals(300, occurrences);
+    }
+
+    public void testDeterminism() throws Exception {
+        final TopicMap tm = _sys.createTopicMap("http://www.tinytim.org/test/generated-2");
+        final TopicMapGenerator gen = _createGenerator();
+        gen.setScopeCardinality(2);
+        gen.setLiteralReuseRatio(0.5);
+        gen.setLiteralPoolSize(10);
+        gen.generate(_tm);
+        gen.generate(tm);
+        assertEquals(_cxtm(_tm), _cxtm(tm));
+    }
+
+    public void testSeed() throws Exception {
+        final TopicMap tm = _sys.createTopicMap("http://www.tinytim.org/test/generated-2");
+        final TopicMapGenerator gen = _createGenerator();
+        gen.generate(_tm);
+        gen.setSeed(4711);
+        gen.generate(tm);
+        assertFalse(_cxtm(_tm).equals(_cxtm(tm)));
+    }
+
+    public void testScopeCardinality() {
+        final TopicMapGenerator gen = _createGenerator();
+        gen.setThemeCount(3);
+        gen.setScopeCardinality(2);
+        gen.generate(_tm);
+        for (Topic topic: _tm.getTopics()) {
+            for (Name name: topic.getNames()) {
+                assertEquals(2, name.getScope().size());
+            }
+            for (Occurrence occ: topic.getOccurrences()) {
+                assertEquals(2, occ.getScope().size());
+            }
+        }
+    }
+
+    public void testScopeCardinalityIllegal() {
+        final TopicMapGenerator gen = _createGenerator();
+        gen.setThemeCount(1);
+        gen.setScopeCardinality(2);
+        try {
+            gen.generate(_tm);
+            fail("The scope cardinality is greater than the number of themes");
+        }
+        catch (IllegalStateException ex) {
+            // noop.
+        }
+    }
+
+    public void testLiteralReuse() {
+        final TopicMapGenerator gen = _createGenerator();
+        gen.setLiteralReuseRatio(1);
+        gen.setLiteralPoolSize(5);
+        gen.generate(_tm);
+        final Set<String> values = CollectionFactory.createSet();
+        for (Topic topic: _tm.getTopics()) {
+            for (Occurrence occ: topic.getOccurrences()) {
+                values.add(occ.getValue());
+            }
+        }
+        assertTrue(values.size() <= 5);
+    }
+
+    public void testNoLiteralReuse() {
+        _createGenerator().generate(_tm);
+        final Set<String> values = CollectionFactory.createSet();
+        for (Topic topic: _tm.getTopics()) {
+            for (Occurrence occ: topic.getOccurrences()) {
+                values.add(occ.getValue());
+            }
+        }
+        assertEquals(300, values.size());
+    }
+
+    public void testIdentifierPattern() {
+        final TopicMapGenerator gen = _createGenerator();
+        gen.setIdentifierPattern(TopicMapGenerator.IdentifierPattern.SUBJECT_LOCATOR);
+        gen.generate(_tm);
+        assertNotNull(_tm.getTopicBySubjectLocator(createLocator(_BASE + "resource/0")));
+        assertNotNull(_tm.getTopicBySubjectLocator(createLocator(_BASE + "resource/99")));
+        assertNull(_tm.getTopicBySubjectIdentifier(createLocator(_BASE + "topic/0")));
+    }
+
+    public void testMixedIdentifierPattern() {
+        final TopicMapGenerator gen = _createGenerator();
+        gen.setIdentifierPattern(TopicMapGenerator.IdentifierPattern.MIXED);
+        gen.generate(_tm);
+        assertNotNull(_tm.getTopicBySubjectIdentifier(createLocator(_BASE + "topic/0")));
+        assertNotNull(_tm.getConstructByItemIdentifier(createLocator(_BASE + "#topic-1")));
+        assertNotNull(_tm.getTopicBySubjectLocator(createLocator(_BASE + "resource/2")));
+    }
+
+    public void testIllegalArguments() {
+        final TopicMapGenerator gen = new TopicMapGenerator();
+        try {
+            gen.setTopicCount(-1);
+            fail("The topic count must not be negative");
+        }
+        catch (IllegalArgumentException ex) {
+            // noop.
+        }
+        try {
+            gen.setLiteralReuseRatio(1.5);
+            fail("The ratio must be between 0 and 1");
+        }
+        catch (IllegalArgumentException ex) {
+            // noop.
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2008 Lars Heuer (heuer[at]semagia.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinytim.utils;
+
+import org.tinytim.core.AbstractTinyTimTestCase;
+
+import org.tmapi.core.Locator;
+import org.tmapi.core.Name;
+import org.tmapi.core.Topic;
+
+/**
+ * Tests against the {@link TopicNameMergeUtils}.
+ * 
+ * @author Lars Heuer (heuer[at]semagia.com) <a href="http://www.semagia.com/">Semagia</a>
+ * @version $Rev$ - $Date$
+ */
+public class TestTopicNameMergeUtils extends AbstractTinyTimTestCase {
+
+    public void testMerge() {
+        Topic topic1 = createTopic();
+        Topic topic2 = createTopic();
+        Topic topic3 = createTopic();
+        topic1.createName("tinyTiM");
+        topic2.createName("tinyTiM");
+        topic3.createName("tinyTiM");
+        // Three topics and the default name type
+        assertEquals(4, _tm.getTopics().size());
+        TopicNameMergeUtils.mergeByTopicName(_tm);
+        assertEquals(2, _tm.getTopics().size());
+        Topic topic = topic1.getParent() != null ? topic1 
+                        : topic2.getParent() != null ? topic2 : topic3;
+        assertEquals(1, topic.getNames().size());
+        assertEquals(3, topic.getItemIdentifiers().size());
+    }
+
+    public void testNoMergeDifferentScope() {
+        Topic topic1 = createTopic();
+        Topic topic2 = createTopic();
+        Topic theme = createTopic();
+        topic1.createName("tinyTiM");
+        topic2.createName("tinyTiM", theme);
+        TopicNameMergeUtils.mergeByTopicName(_tm);
+        assertEquals(4, _tm.getTopics().size());
+    }
+
+    public void testNoMergeDifferentType() {
+        Topic topic1 = createTopic();
+        Topic topic2 = createTopic();
+        Topic type = createTopic();
+        topic1.createName("tinyTiM");
+        topic2.createName(type, "tinyTiM");
+        TopicNameMergeUtils.mergeByTopicName(_tm);
+        assertEquals(4, _tm.getTopics().size());
+    }
+
+    public void testMergeTransitive() {
+        Topic topic1 = createTopic();
+        Topic topic2 = createTopic();
+        Topic topic3 = createTopic();
+        topic1.createName("a");
+        topic2.createName("a");
+        topic2.createName("b");
+        topic3.createName("b");
+        TopicNameMergeUtils.mergeByTopicName(_tm);
+        assertEquals(2, _tm.getTopics().size());
+        Topic topic = topic1.getParent() != null ? topic1 
+                        : topic2.getParent() != null ? topic2 : topic3;
+        assertEquals(2, topic.getNames().size());
+    }
+
+    public void testMergeCascade() {
+        final Locator sid = createLocator("http://www.example.org/");
+        Topic type1 = _tm.createTopicBySubjectIdentifier(sid);
+        Topic type2 = createTopic();
+        type1.createName("type");
+        type2.createName("type");
+        Topic topic1 = createTopic();
+        Topic topic2 = createTopic();
+        Name name1 = topic1.createName(type1, "tinyTiM");
+        Name name2 = topic2.createName(type2, "tinyTiM");
+        assertNotSame(name1.getType(), name2.getType());
+        assertEquals(5, _tm.getTopics().size());
+        TopicNameMergeUtils.mergeByTopicName(_tm);
+        assertEquals(3, _tm.getTopics().size());
+    }
+
+}
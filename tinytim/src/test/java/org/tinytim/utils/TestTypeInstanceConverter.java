@@ -73,6 +73,28 @@ public class TestTypeInstanceConverter extends AbstractTinyTimTestCase {
         assertTrue(instance.getTypes().contains(type));
     }
 
+    public void testReifiedRole() {
+        final Topic type = createTopic();
+        final Topic instance = createTopic();
+        final Association assoc = _tm.createAssociation(_createTMDMTypeInstanceTopic());
+        assoc.createRole(_createTMDMTypeTopic(), type);
+        assoc.createRole(_createTMDMInstanceTopic(), instance).setReifier(createTopic());
+        TypeInstanceConverter.convertTMDMAssociationsToTypes(_tm);
+        assertEquals(1, _tm.getAssociations().size());
+        assertEquals(0, instance.getTypes().size());
+    }
+
+    public void testRoleWithItemIdentifier() {
+        final Topic type = createTopic();
+        final Topic instance = createTopic();
+        final Association assoc = _tm.createAssociation(_createTMDMTypeInstanceTopic());
+        assoc.createRole(_createTMDMTypeTopic(), type).addItemIdentifier(createLocator("http://www.example.org/role"));
+        assoc.createRole(_createTMDMInstanceTopic(), instance);
+        TypeInstanceConverter.convertTMDMAssociationsToTypes(_tm);
+        assertEquals(1, _tm.getAssociations().size());
+        assertEquals(0, instance.getTypes().size());
+    }
+
     private Topic _createTMDMTypeInstanceTopic() {
         return _createTopic(TMDM.TYPE_INSTANCE);
     }